@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Shares the devices of a host between the Fork runs on it. A run holds a lock on a file of a shared directory for
+ * every device it uses, so that no other run installs its APKs on that device in the meantime. The locks are held by
+ * the operating system, which releases them when a run ends, even when it is killed, so a lease never outlives its
+ * run. The lock files themselves are left in place and name the run that last held each device.
+ */
+public class DeviceLeases {
+    static final String LEASE_SUFFIX = ".lease";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceLeases.class);
+
+    @Nullable
+    private final File directory;
+    private final int maxDevices;
+    private final String owner;
+    private final Map<String, Lease> leases = new LinkedHashMap<>();
+
+    /**
+     * @param directory the directory shared by the runs of the host, or <code>null</code> to use every device
+     * @param maxDevices the most devices held at a time, <code>0</code> for no limit
+     * @param owner the name of this run, written in the lock files
+     */
+    public DeviceLeases(@Nullable File directory, int maxDevices, String owner) {
+        this.directory = directory;
+        this.maxDevices = maxDevices;
+        this.owner = owner;
+    }
+
+    public static DeviceLeases noDeviceLeases() {
+        return new DeviceLeases(null, 0, "");
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Takes a device, unless another run holds it or this run holds as many devices as it may.
+     *
+     * @param serial the serial of the device
+     * @return <code>true</code> if this run holds the device now
+     */
+    public synchronized boolean tryClaim(String serial) {
+        if (directory == null || leases.containsKey(serial)) {
+            return true;
+        }
+        if (maxDevices > 0 && leases.size() >= maxDevices) {
+            return false;
+        }
+        File file = new File(directory, fileNameOf(serial));
+        FileChannel channel = null;
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            directory.mkdirs();
+            channel = FileChannel.open(file.toPath(), CREATE, WRITE);
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                channel.close();
+                return false;
+            }
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap((owner + "\n").getBytes(UTF_8)));
+            leases.put(serial, new Lease(channel, lock));
+            logger.debug("Took device {}", serial);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not take device " + serial + " through " + file.getAbsolutePath(), e);
+            closeQuietly(channel);
+            return false;
+        }
+    }
+
+    /**
+     * Lets other runs take a device. Does nothing if this run does not hold it.
+     *
+     * @param serial the serial of the device
+     */
+    public synchronized void release(String serial) {
+        Lease lease = leases.remove(serial);
+        if (lease == null) {
+            return;
+        }
+        try {
+            lease.lock.release();
+            logger.debug("Let go of device {}", serial);
+        } catch (IOException e) {
+            logger.warn("Could not let go of device " + serial, e);
+        } finally {
+            closeQuietly(lease.channel);
+        }
+    }
+
+    public synchronized void releaseAll() {
+        for (String serial : new ArrayList<>(leases.keySet())) {
+            release(serial);
+        }
+    }
+
+    /**
+     * @return the serials of the devices this run holds
+     */
+    public synchronized List<String> getClaimedSerials() {
+        return new ArrayList<>(leases.keySet());
+    }
+
+    /**
+     * Another run in the same process, as in tests, holds its locks through the same JVM.
+     */
+    @Nullable
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Serials of devices connected over the network contain characters that are not allowed in file names.
+     */
+    private static String fileNameOf(String serial) {
+        return serial.replaceAll("[^A-Za-z0-9._-]", "-") + LEASE_SUFFIX;
+    }
+
+    private static void closeQuietly(@Nullable FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Could not close a device lease", e);
+        }
+    }
+
+    private static class Lease {
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        Lease(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+    }
+}
@@ -10,41 +10,123 @@
 package com.shazam.fork.device;
 
 import com.android.ddmlib.IDevice;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Devices;
 import com.shazam.fork.system.adb.Adb;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 
+import static com.shazam.fork.device.DeviceLeases.noDeviceLeases;
 import static com.shazam.fork.model.Device.Builder.aDevice;
 import static com.shazam.fork.model.Devices.Builder.devices;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * Turns a serial number or an IDevice reference to a Device.
  */
 public class DeviceLoader {
-    private final Adb adb;
+    private static final Logger logger = LoggerFactory.getLogger(DeviceLoader.class);
+    private static final int DEFAULT_MAX_CONCURRENT_PROBES = 16;
+    private static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 60000;
+
+    private final Supplier<Collection<IDevice>> connectedDevices;
     private final DeviceGeometryRetriever deviceGeometryRetriever;
     private final Collection<String> excludedSerials;
+    private final int maxConcurrentProbes;
+    private final long probeTimeoutMillis;
+    private final DeviceLeases deviceLeases;
 
     public DeviceLoader(Adb adb, DeviceGeometryRetriever deviceGeometryRetriever, Collection<String> excludedSerials) {
-        this.adb = adb;
+        this(adb, deviceGeometryRetriever, excludedSerials, DEFAULT_MAX_CONCURRENT_PROBES, DEFAULT_PROBE_TIMEOUT_MILLIS,
+                noDeviceLeases());
+    }
+
+    /**
+     * @param maxConcurrentProbes how many devices can have their characteristics retrieved at the same time
+     * @param probeTimeoutMillis how long retrieving the characteristics of a single device can take before that device
+     *                           is excluded
+     * @param deviceLeases the devices this run shares with the other runs of the host
+     */
+    public DeviceLoader(Adb adb,
+                        DeviceGeometryRetriever deviceGeometryRetriever,
+                        Collection<String> excludedSerials,
+                        int maxConcurrentProbes,
+                        long probeTimeoutMillis,
+                        DeviceLeases deviceLeases) {
+        this(adb::getDevices, deviceGeometryRetriever, excludedSerials, maxConcurrentProbes, probeTimeoutMillis,
+                deviceLeases);
+    }
+
+    DeviceLoader(Supplier<Collection<IDevice>> connectedDevices,
+                 DeviceGeometryRetriever deviceGeometryRetriever,
+                 Collection<String> excludedSerials,
+                 int maxConcurrentProbes,
+                 long probeTimeoutMillis,
+                 DeviceLeases deviceLeases) {
+        this.connectedDevices = connectedDevices;
         this.deviceGeometryRetriever = deviceGeometryRetriever;
         this.excludedSerials = excludedSerials;
+        this.maxConcurrentProbes = maxConcurrentProbes;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+        this.deviceLeases = deviceLeases;
     }
 
     /**
-     * Retrieve all connected and non-excluded devices.
+     * Retrieve all connected and non-excluded devices that no other run on this host holds. Devices are probed
+     * concurrently and the ones whose characteristics cannot be retrieved in time are left out.
      *
      * @return the connected devices
      */
     public Devices loadDevices() {
         Devices.Builder devicesBuilder = devices();
-        List<IDevice> iDevices = loadAllDevices();
-        for (IDevice iDevice : iDevices) {
-            devicesBuilder.putDevice(iDevice.getSerialNumber(), loadDeviceCharacteristics(iDevice));
+        List<IDevice> iDevices = claimDevices(loadAllDevices());
+        if (iDevices.isEmpty()) {
+            return devicesBuilder.build();
+        }
+
+        ExecutorService probeExecutor = newFixedThreadPool(
+                Math.min(maxConcurrentProbes, iDevices.size()), daemonThreads("DeviceProbe-%d"));
+        ScheduledExecutorService deadlineExecutor = newSingleThreadScheduledExecutor(daemonThreads("DeviceProbeDeadline-%d"));
+        try {
+            Map<String, Future<Device>> probes = new LinkedHashMap<>();
+            for (IDevice iDevice : iDevices) {
+                probes.put(iDevice.getSerialNumber(), probe(iDevice, probeExecutor, deadlineExecutor));
+            }
+            for (Map.Entry<String, Future<Device>> probe : probes.entrySet()) {
+                String serial = probe.getKey();
+                try {
+                    devicesBuilder.putDevice(serial, probe.getValue().get());
+                } catch (CancellationException e) {
+                    logger.warn("Excluding device {}: retrieving its characteristics took longer than {}ms",
+                            serial, probeTimeoutMillis);
+                    deviceLeases.release(serial);
+                } catch (ExecutionException e) {
+                    logger.warn("Excluding device {}: could not retrieve its characteristics", serial, e.getCause());
+                    deviceLeases.release(serial);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading devices", e);
+        } finally {
+            probeExecutor.shutdownNow();
+            deadlineExecutor.shutdownNow();
         }
 
         return devicesBuilder.build();
@@ -62,6 +144,20 @@ public class DeviceLoader {
         throw new DeviceCouldNotBeFoundException("Could not load device with serial: " + serial);
     }
 
+    public boolean isExcluded(@Nonnull String serial) {
+        return excludedSerials.contains(serial);
+    }
+
+    /**
+     * Load the characteristics of a device that is already connected, e.g. one that connected during a run.
+     *
+     * @param device the connected device
+     * @return the device and its characteristics
+     */
+    public Device loadDevice(@Nonnull IDevice device) {
+        return loadDeviceCharacteristics(device);
+    }
+
     /**
      * Retrieve all connected devices which survive the FORK_EXCLUDED_SERIAL filter.
      *
@@ -69,7 +165,7 @@ public class DeviceLoader {
      */
     private List<IDevice> loadAllDevices() {
         List<IDevice> devices = new ArrayList<>();
-        for (IDevice device : adb.getDevices()) {
+        for (IDevice device : connectedDevices.get()) {
             String serialNumber = device.getSerialNumber();
             if (!excludedSerials.contains(serialNumber)) {
                 devices.add(device);
@@ -78,6 +174,40 @@ public class DeviceLoader {
         return devices;
     }
 
+    private List<IDevice> claimDevices(List<IDevice> iDevices) {
+        if (!deviceLeases.isEnabled()) {
+            return iDevices;
+        }
+        List<IDevice> claimed = new ArrayList<>();
+        for (IDevice iDevice : iDevices) {
+            if (deviceLeases.tryClaim(iDevice.getSerialNumber())) {
+                claimed.add(iDevice);
+            }
+        }
+        logger.info("Took {} of the {} connected devices, the others are held by other runs or over the limit",
+                claimed.size(), iDevices.size());
+        return claimed;
+    }
+
+    /**
+     * The deadline of a probe starts when the probe does, so devices waiting for a free thread are not penalised.
+     */
+    private Future<Device> probe(IDevice device, ExecutorService probeExecutor, ScheduledExecutorService deadlineExecutor) {
+        FutureTask<Device> probe = new FutureTask<Device>(() -> loadDeviceCharacteristics(device)) {
+            @Override
+            public void run() {
+                deadlineExecutor.schedule(() -> cancel(true), probeTimeoutMillis, MILLISECONDS);
+                super.run();
+            }
+        };
+        probeExecutor.execute(probe);
+        return probe;
+    }
+
+    private static ThreadFactory daemonThreads(String nameFormat) {
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+    }
+
     private Device loadDeviceCharacteristics(IDevice device) {
         return aDevice()
                 .withSerial(device.getSerialNumber())
@@ -13,18 +13,24 @@ package com.shazam.fork.io;
 import org.jf.dexlib.DexFile;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.zip.*;
 
-import static com.shazam.fork.io.Files.convertFileToDexFile;
-import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
-import static org.apache.commons.io.IOUtils.closeQuietly;
-import static org.apache.commons.io.IOUtils.copyLarge;
+import static org.apache.commons.io.FileUtils.copyInputStreamToFile;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
 
+/**
+ * Reads every <code>classesN.dex</code> of an APK. The dex files are parsed in parallel, skipping the instructions of
+ * methods as only classes and annotations are needed to find tests.
+ */
 public class ClassesDexFileExtractor implements DexFileExtractor {
     private static final String CLASSES_PREFIX = "classes";
     private static final String DEX_EXTENSION = ".dex";
+    private static final boolean PRESERVE_SIGNED_REGISTERS = false;
+    private static final boolean SKIP_INSTRUCTIONS = true;
     private final File outputDirectory;
 
     public ClassesDexFileExtractor(File outputDirectory) {
@@ -33,44 +39,43 @@ public class ClassesDexFileExtractor implements DexFileExtractor {
 
     @Override
     public Collection<DexFile> getDexFiles(File apkFile) {
-        dumpDexFilesFromApk(apkFile, outputDirectory);
-        File[] dexFiles = outputDirectory.listFiles((dir, name) -> name.startsWith("classes") && name.endsWith(".dex"));
-        return asList(dexFiles)
-                .stream()
-                .map(convertFileToDexFile())
-                .filter(f -> f != null)
-                .collect(toList());
+        try (ZipFile zip = new ZipFile(apkFile)) {
+            return dexEntriesOf(zip)
+                    .parallelStream()
+                    .map(dexEntry -> parseDexEntry(apkFile, zip, dexEntry))
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new DexFileExtractionException("Error when trying to scan " + apkFile.getAbsolutePath()
+                    + " for test classes.", e);
+        }
     }
 
-    private void dumpDexFilesFromApk(File apkFile, File outputFolder) {
-        ZipFile zip = null;
-        InputStream classesDexInputStream = null;
-        FileOutputStream fileOutputStream = null;
+    private static List<ZipEntry> dexEntriesOf(ZipFile zip) {
+        List<ZipEntry> dexEntries = new ArrayList<>();
+        ZipEntry dexEntry;
+        int index = 1;
+        while ((dexEntry = zip.getEntry(CLASSES_PREFIX + (index > 1 ? index : "") + DEX_EXTENSION)) != null) {
+            dexEntries.add(dexEntry);
+            index++;
+        }
+        return dexEntries;
+    }
 
-        try {
-            zip = new ZipFile(apkFile);
-            int index = 1;
-            String currentDex;
-            while (true) {
-                currentDex = CLASSES_PREFIX + (index > 1 ? index : "") + DEX_EXTENSION;
-                ZipEntry classesDex = zip.getEntry(currentDex);
-                if (classesDex != null) {
-                    File dexFileDestination = new File(outputFolder, currentDex);
-                    classesDexInputStream = zip.getInputStream(classesDex);
-                    fileOutputStream = new FileOutputStream(dexFileDestination);
-                    copyLarge(classesDexInputStream, fileOutputStream);
-                    index++;
-                } else {
-                    break;
-                }
-            }
+    /**
+     * dexlib can only read dex files from disk, so each entry goes through a temporary file that is deleted as soon as
+     * it has been read into memory.
+     */
+    private DexFile parseDexEntry(File apkFile, ZipFile zip, ZipEntry dexEntry) {
+        File dexFile = null;
+        try (InputStream dexInputStream = zip.getInputStream(dexEntry)) {
+            dexFile = File.createTempFile(CLASSES_PREFIX, DEX_EXTENSION, outputDirectory);
+            copyInputStreamToFile(dexInputStream, dexFile);
+            return new DexFile(dexFile, PRESERVE_SIGNED_REGISTERS, SKIP_INSTRUCTIONS);
         } catch (IOException e) {
-            throw new DexFileExtractionException("Error when trying to scan " + apkFile.getAbsolutePath()
-                    + " for test classes.", e);
+            throw new DexFileExtractionException("Error when trying to read " + dexEntry.getName() + " from "
+                    + apkFile.getAbsolutePath(), e);
         } finally {
-            closeQuietly(classesDexInputStream);
-            closeQuietly(fileOutputStream);
-            closeQuietly(zip);
+            deleteQuietly(dexFile);
         }
     }
 }
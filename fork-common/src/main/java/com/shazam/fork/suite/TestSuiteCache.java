@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.suite;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps the tests found in instrumentation APKs on disk, so an APK that has not changed does not need to be parsed
+ * again. An index is only valid for the exact same APK contents and test class matcher settings.
+ */
+public class TestSuiteCache {
+    private static final Logger logger = LoggerFactory.getLogger(TestSuiteCache.class);
+    private static final int INDEX_VERSION = 1;
+
+    @Nullable
+    private final File cacheDirectory;
+    private final Gson gson;
+    private final String testClassMatcherSettings;
+
+    /**
+     * @param cacheDirectory where indices are kept, or <code>null</code> to disable the cache
+     * @param gson to read and write indices
+     * @param testClassMatcherSettings everything that affects which classes are considered tests
+     */
+    public TestSuiteCache(@Nullable File cacheDirectory, Gson gson, String testClassMatcherSettings) {
+        this.cacheDirectory = cacheDirectory;
+        this.gson = gson;
+        this.testClassMatcherSettings = testClassMatcherSettings;
+    }
+
+    public static TestSuiteCache noTestSuiteCache() {
+        return new TestSuiteCache(null, new Gson(), "");
+    }
+
+    /**
+     * @param instrumentationApk the instrumentation APK
+     * @return the tests previously found in the same APK, or <code>null</code> if it has not been indexed
+     */
+    @Nullable
+    public List<TestCaseEvent> load(File instrumentationApk) {
+        if (cacheDirectory == null) {
+            return null;
+        }
+        String key = keyOf(instrumentationApk);
+        File indexFile = indexFileOf(key);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (Reader reader = new FileReader(indexFile)) {
+            Index index = gson.fromJson(reader, Index.class);
+            if (index == null || !key.equals(index.key) || index.testCaseEvents == null) {
+                return null;
+            }
+            logger.info("Loaded {} tests from the index of {}", index.testCaseEvents.size(), instrumentationApk.getName());
+            return index.testCaseEvents;
+        } catch (IOException | JsonParseException e) {
+            logger.warn("Could not read test suite index " + indexFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    public void store(File instrumentationApk, List<TestCaseEvent> testCaseEvents) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        String key = keyOf(instrumentationApk);
+        File indexFile = indexFileOf(key);
+        try {
+            java.nio.file.Files.createDirectories(cacheDirectory.toPath());
+            File temporaryFile = File.createTempFile(key, ".tmp", cacheDirectory);
+            try (Writer writer = new FileWriter(temporaryFile)) {
+                gson.toJson(new Index(key, testCaseEvents), writer);
+            }
+            java.nio.file.Files.move(temporaryFile.toPath(), indexFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write test suite index " + indexFile.getAbsolutePath(), e);
+        }
+    }
+
+    private String keyOf(File instrumentationApk) {
+        try {
+            String apkHash = Files.hash(instrumentationApk, Hashing.sha256()).toString();
+            return Hashing.sha256()
+                    .hashString(INDEX_VERSION + "\n" + apkHash + "\n" + testClassMatcherSettings, UTF_8)
+                    .toString();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + instrumentationApk.getAbsolutePath(), e);
+        }
+    }
+
+    private File indexFileOf(String key) {
+        return new File(cacheDirectory, "test-suite-" + key + ".json");
+    }
+
+    private static class Index {
+        private final String key;
+        private final List<TestCaseEvent> testCaseEvents;
+
+        Index(String key, List<TestCaseEvent> testCaseEvents) {
+            this.key = key;
+            this.testCaseEvents = testCaseEvents;
+        }
+    }
+}
@@ -17,18 +17,23 @@ import org.jf.dexlib.EncodedValue.AnnotationEncodedSubValue;
 import org.jf.dexlib.EncodedValue.ArrayEncodedValue;
 import org.jf.dexlib.EncodedValue.EncodedValue;
 import org.jf.dexlib.EncodedValue.StringEncodedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.util.*;
 
 import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.suite.TestSuiteCache.noTestSuiteCache;
+import static com.shazam.fork.suite.TestSuiteShard.noTestSuiteShard;
 import static java.lang.Math.min;
 import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
 public class TestSuiteLoader {
+    private static final Logger logger = LoggerFactory.getLogger(TestSuiteLoader.class);
     private static final String TEST_ANNOTATION = "Lorg/junit/Test;";
     private static final String IGNORE_ANNOTATION = "Lorg/junit/Ignore;";
     private static final String REVOKE_PERMISSION_ANNOTATION = "Lcom/shazam/fork/RevokePermission;";
@@ -37,14 +42,38 @@ public class TestSuiteLoader {
     private final File instrumentationApkFile;
     private final DexFileExtractor dexFileExtractor;
     private final TestClassMatcher testClassMatcher;
+    private final TestSuiteCache testSuiteCache;
+    private final TestSuiteShard testSuiteShard;
 
     public TestSuiteLoader(File instrumentationApkFile, DexFileExtractor dexFileExtractor, TestClassMatcher testClassMatcher) {
+        this(instrumentationApkFile, dexFileExtractor, testClassMatcher, noTestSuiteCache());
+    }
+
+    public TestSuiteLoader(File instrumentationApkFile,
+                           DexFileExtractor dexFileExtractor,
+                           TestClassMatcher testClassMatcher,
+                           TestSuiteCache testSuiteCache) {
+        this(instrumentationApkFile, dexFileExtractor, testClassMatcher, testSuiteCache, noTestSuiteShard());
+    }
+
+    public TestSuiteLoader(File instrumentationApkFile,
+                           DexFileExtractor dexFileExtractor,
+                           TestClassMatcher testClassMatcher,
+                           TestSuiteCache testSuiteCache,
+                           TestSuiteShard testSuiteShard) {
         this.instrumentationApkFile = instrumentationApkFile;
         this.dexFileExtractor = dexFileExtractor;
         this.testClassMatcher = testClassMatcher;
+        this.testSuiteCache = testSuiteCache;
+        this.testSuiteShard = testSuiteShard;
     }
 
     public Collection<TestCaseEvent> loadTestSuite() throws NoTestCasesFoundException {
+        List<TestCaseEvent> indexedTestCaseEvents = testSuiteCache.load(instrumentationApkFile);
+        if (indexedTestCaseEvents != null && !indexedTestCaseEvents.isEmpty()) {
+            return selectShard(indexedTestCaseEvents);
+        }
+
         List<TestCaseEvent> testCaseEvents = dexFileExtractor.getDexFiles(instrumentationApkFile).stream()
                 .map(dexFile -> dexFile.ClassDefsSection.getItems())
                 .flatMap(Collection::stream)
@@ -56,7 +85,18 @@ public class TestSuiteLoader {
         if (testCaseEvents.isEmpty()) {
             throw new NoTestCasesFoundException("No tests cases were found in the test APK: " + instrumentationApkFile.getAbsolutePath());
         }
-        return testCaseEvents;
+        testSuiteCache.store(instrumentationApkFile, testCaseEvents);
+        return selectShard(testCaseEvents);
+    }
+
+    private List<TestCaseEvent> selectShard(List<TestCaseEvent> testCaseEvents) {
+        if (!testSuiteShard.isSharded()) {
+            return testCaseEvents;
+        }
+        List<TestCaseEvent> shardTestCaseEvents = testSuiteShard.select(testCaseEvents);
+        logger.info("Shard {} runs {} of the {} tests", testSuiteShard, shardTestCaseEvents.size(),
+                testCaseEvents.size());
+        return shardTestCaseEvents;
     }
 
     @Nonnull
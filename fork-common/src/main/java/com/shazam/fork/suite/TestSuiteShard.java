@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.suite;
+
+import com.google.common.hash.Hasher;
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.hash.Hashing.murmur3_128;
+import static com.google.common.hash.Hashing.murmur3_32;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Picks the part of the test suite one of several machines runs. The split only depends on the names of the tests (and
+ * on their historical durations, if given), so every machine computes the same one without talking to the others.
+ * <p>
+ * Without durations, each test goes to the shard with the highest hash of its name, which spreads the tests evenly
+ * and only moves the tests of added or removed shards when the shard count changes. With durations, the longest
+ * tests are given out first, each to the shard with the least work so far, so that the shards finish together. This
+ * only splits the suite consistently if every machine reads the same durations, so each shard logs a digest of them.
+ */
+public class TestSuiteShard {
+    private static final Logger logger = LoggerFactory.getLogger(TestSuiteShard.class);
+    private final int shardIndex;
+    private final int shardCount;
+    @Nullable
+    private final ToLongFunction<TestCaseEvent> durationEstimate;
+
+    public TestSuiteShard(int shardIndex, int shardCount) {
+        this(shardIndex, shardCount, null);
+    }
+
+    public TestSuiteShard(int shardIndex, int shardCount, @Nullable ToLongFunction<TestCaseEvent> durationEstimate) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.durationEstimate = durationEstimate;
+    }
+
+    public static TestSuiteShard noTestSuiteShard() {
+        return new TestSuiteShard(0, 1);
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * @param testCaseEvents the whole test suite
+     * @return the tests of this shard, in suite order
+     */
+    public List<TestCaseEvent> select(Collection<TestCaseEvent> testCaseEvents) {
+        if (!isSharded()) {
+            return new ArrayList<>(testCaseEvents);
+        }
+        if (durationEstimate == null) {
+            return testCaseEvents.stream()
+                    .filter(testCaseEvent -> shardOf(testCaseEvent) == shardIndex)
+                    .collect(toList());
+        }
+        Set<TestCaseEvent> selected = balanceByDuration(testCaseEvents, durationEstimate);
+        return testCaseEvents.stream()
+                .filter(selected::contains)
+                .collect(toList());
+    }
+
+    private int shardOf(TestCaseEvent testCaseEvent) {
+        String name = nameOf(testCaseEvent);
+        int shard = 0;
+        int highestHash = Integer.MIN_VALUE;
+        for (int i = 0; i < shardCount; i++) {
+            int hash = murmur3_32(i).hashString(name, UTF_8).asInt();
+            if (hash > highestHash) {
+                highestHash = hash;
+                shard = i;
+            }
+        }
+        return shard;
+    }
+
+    private Set<TestCaseEvent> balanceByDuration(Collection<TestCaseEvent> testCaseEvents,
+                                                 ToLongFunction<TestCaseEvent> durationEstimate) {
+        List<TestCaseEvent> longestFirst = testCaseEvents.stream()
+                .sorted(comparingLong(durationEstimate).reversed().thenComparing(TestSuiteShard::nameOf))
+                .collect(toList());
+        logger.info("Shard {} is balanced by durations with digest {}, which every shard must log the same", this,
+                durationsDigest(longestFirst, durationEstimate));
+        long[] shardLoads = new long[shardCount];
+        Set<TestCaseEvent> selected = new HashSet<>();
+        for (TestCaseEvent testCaseEvent : longestFirst) {
+            int leastLoaded = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardLoads[i] < shardLoads[leastLoaded]) {
+                    leastLoaded = i;
+                }
+            }
+            shardLoads[leastLoaded] += durationEstimate.applyAsLong(testCaseEvent);
+            if (leastLoaded == shardIndex) {
+                selected.add(testCaseEvent);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @param longestFirst the tests, in the order they are given out to the shards
+     * @return a hash of the tests and their durations, which differs between machines that would split differently
+     */
+    static String durationsDigest(List<TestCaseEvent> longestFirst, ToLongFunction<TestCaseEvent> durationEstimate) {
+        Hasher hasher = murmur3_128().newHasher();
+        for (TestCaseEvent testCaseEvent : longestFirst) {
+            hasher.putString(nameOf(testCaseEvent), UTF_8)
+                    .putLong(durationEstimate.applyAsLong(testCaseEvent));
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String nameOf(TestCaseEvent testCaseEvent) {
+        return testCaseEvent.getTestClass() + "#" + testCaseEvent.getTestMethod();
+    }
+
+    @Override
+    public String toString() {
+        return (shardIndex + 1) + "/" + shardCount;
+    }
+}
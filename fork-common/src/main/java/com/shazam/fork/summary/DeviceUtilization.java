@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.summary;
+
+/**
+ * How a device spent its time while its pool was running. The window runs from the first to the last thing any device
+ * of the pool did, so a device that ran out of tests early shows the rest of the window as idle.
+ */
+public class DeviceUtilization {
+    private final String serial;
+    private final long windowMillis;
+    private final long busyMillis;
+    private final long testMillis;
+    private final long idleMillis;
+
+    public String getSerial() {
+        return serial;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * @return the time spent installing, preparing the device and running instrumentations
+     */
+    public long getBusyMillis() {
+        return busyMillis;
+    }
+
+    /**
+     * @return the time spent inside test bodies, the rest of the busy time being overhead
+     */
+    public long getTestMillis() {
+        return testMillis;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    /**
+     * @return the share of the window the device was busy, from 0 to 100
+     */
+    public double getUtilizationPercent() {
+        return windowMillis > 0 ? 100.0 * busyMillis / windowMillis : 0;
+    }
+
+    public static class Builder {
+        private String serial;
+        private long windowMillis;
+        private long busyMillis;
+        private long testMillis;
+
+        public static Builder aDeviceUtilization() {
+            return new Builder();
+        }
+
+        public Builder withSerial(String serial) {
+            this.serial = serial;
+            return this;
+        }
+
+        public Builder withWindowMillis(long windowMillis) {
+            this.windowMillis = windowMillis;
+            return this;
+        }
+
+        public Builder withBusyMillis(long busyMillis) {
+            this.busyMillis = busyMillis;
+            return this;
+        }
+
+        public Builder withTestMillis(long testMillis) {
+            this.testMillis = testMillis;
+            return this;
+        }
+
+        public DeviceUtilization build() {
+            return new DeviceUtilization(this);
+        }
+    }
+
+    private DeviceUtilization(Builder builder) {
+        serial = builder.serial;
+        windowMillis = builder.windowMillis;
+        busyMillis = Math.min(builder.busyMillis, builder.windowMillis);
+        testMillis = builder.testMillis;
+        idleMillis = windowMillis - busyMillis;
+    }
+}
@@ -18,6 +18,10 @@ import java.util.Collection;
 public class PoolSummary {
 	private final String poolName;
 	private final Collection<TestResult> testResults;
+	private final long predictedMakespanMillis;
+	private final long actualMakespanMillis;
+	private final Collection<DeviceUtilization> deviceUtilizations;
+	private final Collection<QuarantinedDevice> quarantinedDevices;
 
 	public String getPoolName() {
 		return poolName;
@@ -27,9 +31,32 @@ public class PoolSummary {
 		return testResults;
 	}
 
+	/**
+	 * @return how long the pool was predicted to take from historical durations, or <code>0</code> if not predicted
+	 */
+	public long getPredictedMakespanMillis() {
+		return predictedMakespanMillis;
+	}
+
+	public long getActualMakespanMillis() {
+		return actualMakespanMillis;
+	}
+
+	public Collection<DeviceUtilization> getDeviceUtilizations() {
+		return deviceUtilizations;
+	}
+
+	public Collection<QuarantinedDevice> getQuarantinedDevices() {
+		return quarantinedDevices;
+	}
+
 	public static class Builder {
 		private String poolName;
 		private final Collection<TestResult> testResults = new ArrayList<>();
+		private long predictedMakespanMillis;
+		private long actualMakespanMillis;
+		private final Collection<DeviceUtilization> deviceUtilizations = new ArrayList<>();
+		private final Collection<QuarantinedDevice> quarantinedDevices = new ArrayList<>();
 
 		public static Builder aPoolSummary() {
 			return new Builder();
@@ -45,6 +72,26 @@ public class PoolSummary {
 			return this;
 		}
 
+		public Builder withPredictedMakespanMillis(long predictedMakespanMillis) {
+			this.predictedMakespanMillis = predictedMakespanMillis;
+			return this;
+		}
+
+		public Builder withActualMakespanMillis(long actualMakespanMillis) {
+			this.actualMakespanMillis = actualMakespanMillis;
+			return this;
+		}
+
+		public Builder addDeviceUtilizations(Collection<DeviceUtilization> deviceUtilizations) {
+			this.deviceUtilizations.addAll(deviceUtilizations);
+			return this;
+		}
+
+		public Builder addQuarantinedDevices(Collection<QuarantinedDevice> quarantinedDevices) {
+			this.quarantinedDevices.addAll(quarantinedDevices);
+			return this;
+		}
+
 		public PoolSummary build() {
 			return new PoolSummary(this);
 		}
@@ -53,5 +100,9 @@ public class PoolSummary {
 	private PoolSummary(Builder builder) {
 		testResults = builder.testResults;
 		poolName = builder.poolName;
+		predictedMakespanMillis = builder.predictedMakespanMillis;
+		actualMakespanMillis = builder.actualMakespanMillis;
+		deviceUtilizations = builder.deviceUtilizations;
+		quarantinedDevices = builder.quarantinedDevices;
 	}
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.summary;
+
+/**
+ * A device pulled from its pool during the run because it failed far more often than the other devices of the pool.
+ */
+public class QuarantinedDevice {
+    private final String serial;
+    private final String reason;
+    private final int endedTests;
+    private final int failedTests;
+    private final int requeuedTests;
+
+    public String getSerial() {
+        return serial;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public int getEndedTests() {
+        return endedTests;
+    }
+
+    public int getFailedTests() {
+        return failedTests;
+    }
+
+    /**
+     * @return how many of its recent failures were run again elsewhere without using the retry quota
+     */
+    public int getRequeuedTests() {
+        return requeuedTests;
+    }
+
+    public static class Builder {
+        private String serial;
+        private String reason;
+        private int endedTests;
+        private int failedTests;
+        private int requeuedTests;
+
+        public static Builder aQuarantinedDevice() {
+            return new Builder();
+        }
+
+        public Builder withSerial(String serial) {
+            this.serial = serial;
+            return this;
+        }
+
+        public Builder withReason(String reason) {
+            this.reason = reason;
+            return this;
+        }
+
+        public Builder withEndedTests(int endedTests) {
+            this.endedTests = endedTests;
+            return this;
+        }
+
+        public Builder withFailedTests(int failedTests) {
+            this.failedTests = failedTests;
+            return this;
+        }
+
+        public Builder withRequeuedTests(int requeuedTests) {
+            this.requeuedTests = requeuedTests;
+            return this;
+        }
+
+        public QuarantinedDevice build() {
+            return new QuarantinedDevice(this);
+        }
+    }
+
+    private QuarantinedDevice(Builder builder) {
+        serial = builder.serial;
+        reason = builder.reason;
+        endedTests = builder.endedTests;
+        failedTests = builder.failedTests;
+        requeuedTests = builder.requeuedTests;
+    }
+}
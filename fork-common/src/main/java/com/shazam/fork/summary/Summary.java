@@ -13,6 +13,7 @@
 package com.shazam.fork.summary;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,6 +27,9 @@ public class Summary {
     private final List<String> ignoredTests;
     private final List<String> failedTests;
     private final List<String> fatalCrashedTests;
+    private final int installsSkipped;
+    private final long installTimeSavedMillis;
+    private final SystemicFailure systemicFailure;
 
     @Nonnull
     public List<PoolSummary> getPoolSummaries() {
@@ -55,6 +59,28 @@ public class Summary {
         return unmodifiableList(fatalCrashedTests);
     }
 
+    /**
+     * @return how many APK installs were skipped because the device already had the same APK installed
+     */
+    public int getInstallsSkipped() {
+        return installsSkipped;
+    }
+
+    /**
+     * @return the estimated time saved by skipping APK installs, in milliseconds
+     */
+    public long getInstallTimeSavedMillis() {
+        return installTimeSavedMillis;
+    }
+
+    /**
+     * @return why retries were stopped, or <code>null</code> if the failures never looked systemic
+     */
+    @Nullable
+    public SystemicFailure getSystemicFailure() {
+        return systemicFailure;
+    }
+
     public static class Builder {
         private final List<PoolSummary> poolSummaries = new ArrayList<>();
         private final List<String> ignoredTests = new ArrayList<>();
@@ -62,6 +88,9 @@ public class Summary {
         private String subtitle = "Report Subtitle";
         private List<String> failedTests = new ArrayList<>();
         private List<String> fatalCrashedTests = new ArrayList<>();
+        private int installsSkipped;
+        private long installTimeSavedMillis;
+        private SystemicFailure systemicFailure;
 
         public static Builder aSummary() {
             return new Builder();
@@ -97,6 +126,21 @@ public class Summary {
             return this;
         }
 
+        public Builder withInstallsSkipped(int installsSkipped) {
+            this.installsSkipped = installsSkipped;
+            return this;
+        }
+
+        public Builder withInstallTimeSavedMillis(long installTimeSavedMillis) {
+            this.installTimeSavedMillis = installTimeSavedMillis;
+            return this;
+        }
+
+        public Builder withSystemicFailure(@Nullable SystemicFailure systemicFailure) {
+            this.systemicFailure = systemicFailure;
+            return this;
+        }
+
         public Summary build() {
             return new Summary(this);
         }
@@ -109,5 +153,8 @@ public class Summary {
         ignoredTests = builder.ignoredTests;
         failedTests = builder.failedTests;
         fatalCrashedTests = builder.fatalCrashedTests;
+        installsSkipped = builder.installsSkipped;
+        systemicFailure = builder.systemicFailure;
+        installTimeSavedMillis = builder.installTimeSavedMillis;
     }
 }
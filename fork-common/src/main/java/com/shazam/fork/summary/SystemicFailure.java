@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.summary;
+
+/**
+ * Why the run decided that its failures were systemic, as when the app crashes on launch, and stopped retrying them.
+ */
+public class SystemicFailure {
+    private final String signature;
+    private final int signatureFailures;
+    private final int failedTests;
+    private final int windowTests;
+    private final boolean aborted;
+
+    /**
+     * @return the normalised stack trace shared by most of the recent failures
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    public int getSignatureFailures() {
+        return signatureFailures;
+    }
+
+    public int getFailedTests() {
+        return failedTests;
+    }
+
+    /**
+     * @return how many recent outcomes the failure rate was measured over
+     */
+    public int getWindowTests() {
+        return windowTests;
+    }
+
+    /**
+     * @return <code>true</code> if the tests left in the queues were not run
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public String getVerdict() {
+        return String.format("%d of the last %d tests failed, %d of them with %s. Retries were stopped%s.",
+                failedTests, windowTests, signatureFailures, signature,
+                aborted ? " and the tests left were not run" : "");
+    }
+
+    public static class Builder {
+        private String signature;
+        private int signatureFailures;
+        private int failedTests;
+        private int windowTests;
+        private boolean aborted;
+
+        public static Builder aSystemicFailure() {
+            return new Builder();
+        }
+
+        public Builder withSignature(String signature) {
+            this.signature = signature;
+            return this;
+        }
+
+        public Builder withSignatureFailures(int signatureFailures) {
+            this.signatureFailures = signatureFailures;
+            return this;
+        }
+
+        public Builder withFailedTests(int failedTests) {
+            this.failedTests = failedTests;
+            return this;
+        }
+
+        public Builder withWindowTests(int windowTests) {
+            this.windowTests = windowTests;
+            return this;
+        }
+
+        public Builder withAborted(boolean aborted) {
+            this.aborted = aborted;
+            return this;
+        }
+
+        public SystemicFailure build() {
+            return new SystemicFailure(this);
+        }
+    }
+
+    private SystemicFailure(Builder builder) {
+        signature = builder.signature;
+        signatureFailures = builder.signatureFailures;
+        failedTests = builder.failedTests;
+        windowTests = builder.windowTests;
+        aborted = builder.aborted;
+    }
+}
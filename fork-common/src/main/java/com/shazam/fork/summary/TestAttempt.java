@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.summary;
+
+/**
+ * One execution of a test, on one device. A test retried after failing has several, in the order they ran.
+ */
+public class TestAttempt {
+    private final String serial;
+    private final ResultStatus resultStatus;
+
+    public TestAttempt(String serial, ResultStatus resultStatus) {
+        this.serial = serial;
+        this.resultStatus = resultStatus;
+    }
+
+    public String getSerial() {
+        return serial;
+    }
+
+    public ResultStatus getResultStatus() {
+        return resultStatus;
+    }
+
+    public boolean isFailure() {
+        return resultStatus == ResultStatus.FAIL || resultStatus == ResultStatus.ERROR;
+    }
+
+    @Override
+    public String toString() {
+        return resultStatus + " on " + serial;
+    }
+}
@@ -15,7 +15,9 @@ package com.shazam.fork.summary;
 import com.shazam.fork.model.Device;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -25,6 +27,7 @@ import static com.shazam.fork.summary.ResultStatus.FAIL;
 import static com.shazam.fork.summary.ResultStatus.IGNORED;
 import static com.shazam.fork.summary.ResultStatus.PASS;
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
 import static java.util.Locale.ENGLISH;
 import static java.util.Objects.hash;
 
@@ -39,6 +42,7 @@ public class TestResult {
     private final String failureTrace;
     private final Map<String, String> testMetrics;
     private final boolean isIgnored;
+    private final List<TestAttempt> attempts;
 
     public Device getDevice() {
         return device;
@@ -70,6 +74,14 @@ public class TestResult {
         return result;
     }
 
+    /**
+     * @return every execution of the test in this run, this one included, or an empty list if they were not recorded
+     */
+    @Nonnull
+    public List<TestAttempt> getAttempts() {
+        return attempts != null ? attempts : emptyList();
+    }
+
     @Nonnull
     public ResultStatus getResultStatus() {
         if (isIgnored) {
@@ -131,6 +143,7 @@ public class TestResult {
         private String failureTrace;
         private boolean isIgnored;
         private Map<String, String> testMetrics = new HashMap<>();
+        private final List<TestAttempt> attempts = new ArrayList<>();
 
         public static Builder aTestResult() {
             return new Builder();
@@ -181,6 +194,12 @@ public class TestResult {
             return this;
         }
 
+        public Builder withAttempts(List<TestAttempt> attempts) {
+            this.attempts.clear();
+            this.attempts.addAll(attempts);
+            return this;
+        }
+
         public TestResult build() {
             return new TestResult(this);
         }
@@ -196,5 +215,6 @@ public class TestResult {
         failureTrace = builder.failureTrace;
         testMetrics = builder.testMetrics;
         isIgnored = builder.isIgnored;
+        attempts = builder.attempts;
     }
 }
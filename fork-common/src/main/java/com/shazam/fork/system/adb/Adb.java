@@ -11,33 +11,46 @@
 package com.shazam.fork.system.adb;
 
 import com.android.ddmlib.AndroidDebugBridge;
+import com.android.ddmlib.AndroidDebugBridge.IDeviceChangeListener;
 import com.android.ddmlib.IDevice;
 
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
+import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
+ * The connection to the ADB server of this host. ddmlib keeps a single bridge per process, to the server on the port
+ * given by the <code>ANDROID_ADB_SERVER_PORT</code> environment variable, 5037 by default. Devices on several ADB
+ * servers are used by running a worker of a distributed run for each server.
+ *
  * @see "com.android.builder.testing.ConnectedDeviceProvider"
  */
 public class Adb {
+    private static final long INITIAL_DEVICE_LIST_TIMEOUT_MILLIS = 30000;
+    private static final long INITIAL_DEVICE_LIST_RECHECK_MILLIS = 10;
+
     private final AndroidDebugBridge bridge;
 
     public Adb(File sdk) {
         AndroidDebugBridge.initIfNeeded(false /*clientSupport*/);
         File adbPath = FileUtils.getFile(sdk, "platform-tools", "adb");
-        bridge = AndroidDebugBridge.createBridge(adbPath.getAbsolutePath(), false /*forceNewBridge*/);
-        long timeOut = 30000; // 30 sec
-        int sleepTime = 1000;
-        while (!bridge.hasInitialDeviceList() && timeOut > 0) {
-            sleep(sleepTime);
-            timeOut -= sleepTime;
-        }
-
-        if (timeOut <= 0 && !bridge.hasInitialDeviceList()) {
-            throw new RuntimeException("Timeout getting device list.", null);
+        DeviceEvents deviceEvents = new DeviceEvents();
+        AndroidDebugBridge.addDeviceChangeListener(deviceEvents);
+        try {
+            bridge = AndroidDebugBridge.createBridge(adbPath.getAbsolutePath(), false /*forceNewBridge*/);
+            if (!deviceEvents.awaitInitialDeviceList(bridge)) {
+                throw new RuntimeException("Timeout getting device list.", null);
+            }
+        } finally {
+            AndroidDebugBridge.removeDeviceChangeListener(deviceEvents);
         }
     }
 
@@ -45,14 +58,75 @@ public class Adb {
         return Arrays.asList(bridge.getDevices());
     }
 
+    /**
+     * @return the <code>host:port</code> of the ADB server the devices are on
+     */
+    public String getServerAddress() {
+        InetSocketAddress address = AndroidDebugBridge.getSocketAddress();
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    public AdbServerHealth getHealth() {
+        return new AdbServerHealth(getServerAddress(), bridge.isConnected(), bridge.getConnectionAttemptCount(),
+                bridge.getRestartAttemptCount());
+    }
+
+    /**
+     * Gets notified when devices connect, change state or disconnect, until the listener is removed.
+     *
+     * @param listener the listener to notify
+     */
+    public void addDeviceChangeListener(IDeviceChangeListener listener) {
+        AndroidDebugBridge.addDeviceChangeListener(listener);
+    }
+
+    public void removeDeviceChangeListener(IDeviceChangeListener listener) {
+        AndroidDebugBridge.removeDeviceChangeListener(listener);
+    }
+
     public void terminate() {
         AndroidDebugBridge.terminate();
     }
 
-    private void sleep(int sleepTime) {
-        try {
-            Thread.sleep(sleepTime);
-        } catch (InterruptedException ignored) {
+    /**
+     * Wakes up the wait for the initial device list whenever ddmlib reports a device. ddmlib marks the initial list as
+     * received right after reporting its devices, and reports nothing at all when no device is connected, so the flag
+     * is also re-checked at a short interval.
+     */
+    private static class DeviceEvents implements IDeviceChangeListener {
+        private final Semaphore events = new Semaphore(0);
+
+        boolean awaitInitialDeviceList(AndroidDebugBridge bridge) {
+            long deadline = nanoTime() + MILLISECONDS.toNanos(INITIAL_DEVICE_LIST_TIMEOUT_MILLIS);
+            try {
+                while (!bridge.hasInitialDeviceList()) {
+                    long remainingNanos = deadline - nanoTime();
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    events.tryAcquire(
+                            Math.min(remainingNanos, MILLISECONDS.toNanos(INITIAL_DEVICE_LIST_RECHECK_MILLIS)), NANOSECONDS);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return bridge.hasInitialDeviceList();
+            }
+        }
+
+        @Override
+        public void deviceConnected(IDevice device) {
+            events.release();
+        }
+
+        @Override
+        public void deviceDisconnected(IDevice device) {
+            events.release();
+        }
+
+        @Override
+        public void deviceChanged(IDevice device, int changeMask) {
+            events.release();
         }
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.system.adb;
+
+/**
+ * How the connection of Fork to an ADB server is doing, as ddmlib sees it.
+ */
+public class AdbServerHealth {
+    private final String address;
+    private final boolean connected;
+    private final int connectionAttempts;
+    private final int restartAttempts;
+
+    public AdbServerHealth(String address, boolean connected, int connectionAttempts, int restartAttempts) {
+        this.address = address;
+        this.connected = connected;
+        this.connectionAttempts = connectionAttempts;
+        this.restartAttempts = restartAttempts;
+    }
+
+    /**
+     * @return the <code>host:port</code> of the ADB server
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return how many times in a row connecting to the server failed, <code>0</code> while connected
+     */
+    public int getConnectionAttempts() {
+        return connectionAttempts;
+    }
+
+    /**
+     * @return how many times in a row restarting the server failed
+     */
+    public int getRestartAttempts() {
+        return restartAttempts;
+    }
+
+    @Override
+    public String toString() {
+        return address + (connected ? " connected" : " disconnected after " + connectionAttempts
+                + " connection attempts and " + restartAttempts + " restart attempts");
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.system.adb;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the APKs installed on devices and the ones skipped because the same APK was already installed.
+ */
+public class InstallationTracker {
+    private final AtomicInteger installs = new AtomicInteger();
+    private final AtomicInteger skippedInstalls = new AtomicInteger();
+    private final AtomicLong installMillis = new AtomicLong();
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    public void recordInstall(long millis) {
+        installs.incrementAndGet();
+        installMillis.addAndGet(millis);
+    }
+
+    /**
+     * @param savedMillis how much quicker it was to skip the install than the last time the APK was installed
+     */
+    public void recordSkippedInstall(long savedMillis) {
+        skippedInstalls.incrementAndGet();
+        this.savedMillis.addAndGet(savedMillis);
+    }
+
+    public int getInstalls() {
+        return installs.get();
+    }
+
+    public long getInstallMillis() {
+        return installMillis.get();
+    }
+
+    public int getSkippedInstalls() {
+        return skippedInstalls.get();
+    }
+
+    public long getSavedMillis() {
+        return savedMillis.get();
+    }
+}
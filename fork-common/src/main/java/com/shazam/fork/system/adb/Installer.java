@@ -14,42 +14,124 @@ package com.shazam.fork.system.adb;
 
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.InstallException;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.shazam.fork.model.Permission;
+import com.shazam.fork.system.axmlparser.ApplicationInfoFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
 import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 
+/**
+ * Installs the application and instrumentation APKs on devices. An APK is only installed if the device does not
+ * already have the very same APK installed by a previous run, as recorded in a marker file on the device. In that case
+ * the application data is cleared instead, so tests still start from a clean application.
+ */
 public class Installer {
     private static final Logger logger = LoggerFactory.getLogger(Installer.class);
+    private static final String MARKER_DIRECTORY = "/data/local/tmp";
+    private static final String SUCCESS = "Success";
+    private static final ExecutorService INSTALL_EXECUTOR = newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("Installer-%d")
+            .setDaemon(true)
+            .build());
 	private final String applicationPackage;
 	private final String instrumentationPackage;
 	private final File apk;
 	private final File testApk;
     private final boolean autoGrantPermissions;
+    private final InstallationTracker installationTracker;
+    private final Map<File, String> apkHashes = new ConcurrentHashMap<>();
+    private volatile List<Permission> applicationPermissions;
 
 	public Installer(String applicationPackage,
 					 String instrumentationPackage,
 					 File apk,
 					 File testApk,
 					 boolean autoGrantPermissions) {
+		this(applicationPackage, instrumentationPackage, apk, testApk, autoGrantPermissions, new InstallationTracker());
+	}
+
+	public Installer(String applicationPackage,
+					 String instrumentationPackage,
+					 File apk,
+					 File testApk,
+					 boolean autoGrantPermissions,
+					 InstallationTracker installationTracker) {
 		this.applicationPackage = applicationPackage;
 		this.instrumentationPackage = instrumentationPackage;
 		this.apk = apk;
 		this.testApk = testApk;
 		this.autoGrantPermissions = autoGrantPermissions;
+		this.installationTracker = installationTracker;
 	}
 
 	public void prepareInstallation(IDevice device) {
-		reinstall(device, applicationPackage, apk);
-		reinstall(device, instrumentationPackage, testApk);
+		Future<?> testApkInstallation = INSTALL_EXECUTOR.submit(
+				() -> installIfChanged(device, instrumentationPackage, testApk));
+		installIfChanged(device, applicationPackage, apk);
+		try {
+			testApkInstallation.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while installing " + instrumentationPackage, e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
 		grantMockLocationInMarshmallow(device, applicationPackage);
 	}
 
+	private void installIfChanged(IDevice device, String appPackage, File appApk) {
+		long startNanos = nanoTime();
+		String apkHash = hashOf(appApk);
+		String codePath = codePathOf(device, appPackage);
+		InstallMarker marker = readMarker(device, appPackage);
+		if (codePath != null && marker != null && marker.matches(apkHash, codePath)) {
+			if (appPackage.equals(applicationPackage) && !clearApplicationData(device, appPackage)) {
+				logger.warn("Could not reset {} on {}, installing it again", appPackage, device.getSerialNumber());
+				installAndMark(device, appPackage, appApk, apkHash);
+				return;
+			}
+			long savedMillis = Math.max(0, marker.installMillis - millisSinceNanoTime(startNanos));
+			installationTracker.recordSkippedInstall(savedMillis);
+			logger.info("Skipped installing {} on {}, the same APK is already installed (saved {}ms)",
+					appPackage, device.getSerialNumber(), savedMillis);
+			return;
+		}
+		installAndMark(device, appPackage, appApk, apkHash);
+	}
+
+	private void installAndMark(IDevice device, String appPackage, File appApk, String apkHash) {
+		long installStartNanos = nanoTime();
+		reinstall(device, appPackage, appApk);
+		long installMillis = millisSinceNanoTime(installStartNanos);
+		installationTracker.recordInstall(installMillis);
+		String codePath = codePathOf(device, appPackage);
+		if (codePath == null || !writeMarker(device, appPackage, new InstallMarker(apkHash, installMillis, codePath))) {
+			logger.warn("Could not record the installation of {} on {}, the next run will install it again",
+					appPackage, device.getSerialNumber());
+		}
+	}
+
 	private void reinstall(final IDevice device, final String appPackage, final File appApk) {
 		final String message = format("Error while installing %s on %s", appPackage, device.getSerialNumber());
 		tryThrice(true, message, () -> {
@@ -64,6 +146,104 @@ public class Installer {
         });
 	}
 
+	private String hashOf(File appApk) {
+		return apkHashes.computeIfAbsent(appApk, file -> {
+			try {
+				return Files.hash(file, Hashing.sha256()).toString();
+			} catch (IOException e) {
+				throw new RuntimeException("Could not read " + file.getAbsolutePath(), e);
+			}
+		});
+	}
+
+	/**
+	 * @return where the package is installed on the device, which changes every time it is installed, or
+	 * <code>null</code> if the package is not installed. A package split in several APKs lists all of them.
+	 */
+	@Nullable
+	private String codePathOf(IDevice device, String appPackage) {
+		List<String> paths = new ArrayList<>();
+		for (String line : executeShellCommand(device, "pm path " + appPackage).split("\\r?\\n")) {
+			line = line.trim();
+			if (line.startsWith("package:")) {
+				paths.add(line.substring("package:".length()));
+			}
+		}
+		return paths.isEmpty() ? null : String.join(",", paths);
+	}
+
+	@Nullable
+	private InstallMarker readMarker(IDevice device, String appPackage) {
+		String output = executeShellCommand(device, format("cat %s 2>/dev/null", markerFileOf(appPackage)));
+		return InstallMarker.parse(output.trim());
+	}
+
+	private boolean writeMarker(IDevice device, String appPackage, InstallMarker marker) {
+		String command = format("echo '%s' > %s && echo %s", marker, markerFileOf(appPackage), SUCCESS);
+		return isSuccess(tryShellCommand(device, command));
+	}
+
+	private static String markerFileOf(String appPackage) {
+		return MARKER_DIRECTORY + "/fork-" + appPackage + ".installed";
+	}
+
+	/**
+	 * @return whether the data was cleared and the permissions granted again, which <code>pm</code> reports with
+	 * <code>Success</code> and no output respectively
+	 */
+	private boolean clearApplicationData(IDevice device, String appPackage) {
+		if (!isSuccess(tryShellCommand(device, "pm clear " + appPackage))) {
+			return false;
+		}
+		if (isMarshmallowOrMore(device) && autoGrantPermissions) {
+			int apiLevel = device.getVersion().getApiLevel();
+			for (Permission permission : applicationPermissions()) {
+				if (permission.getMinSdkVersion() <= apiLevel && apiLevel <= permission.getMaxSdkVersion()) {
+					String command = format("pm grant %s %s", appPackage, permission.getPermissionName());
+					String output = tryShellCommand(device, command);
+					if (output == null || !output.trim().isEmpty()) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Clearing the data also revokes runtime permissions, so the ones the install granted are granted again.
+	 */
+	private List<Permission> applicationPermissions() {
+		if (applicationPermissions == null) {
+			applicationPermissions = ApplicationInfoFactory.parseFromFile(apk).getPermissions();
+		}
+		return applicationPermissions;
+	}
+
+	private static String executeShellCommand(IDevice device, String command) {
+		String output = tryShellCommand(device, command);
+		return output == null ? "" : output;
+	}
+
+	/**
+	 * @return the output of the command, or <code>null</code> if it could not be executed
+	 */
+	@Nullable
+	private static String tryShellCommand(IDevice device, String command) {
+		CollectingShellOutputReceiver receiver = new CollectingShellOutputReceiver();
+		try {
+			device.executeShellCommand(command, receiver);
+			return receiver.getOutput();
+		} catch (Exception e) {
+			logger.debug("Could not execute {} on {}", command, device.getSerialNumber(), e);
+			return null;
+		}
+	}
+
+	private static boolean isSuccess(@Nullable String output) {
+		return output != null && output.trim().equals(SUCCESS);
+	}
+
 	@Nonnull
 	private String optionalAutoGrantPermissionFlag(IDevice device) {
 		return isMarshmallowOrMore(device) && autoGrantPermissions ? "-g" : "";
@@ -105,4 +285,41 @@ public class Installer {
             }
         }
     }
+
+    /**
+     * What a previous run installed: the hash of the APK, how long installing it took and where it went.
+     */
+    private static class InstallMarker {
+        private final String apkHash;
+        private final long installMillis;
+        private final String codePath;
+
+        InstallMarker(String apkHash, long installMillis, String codePath) {
+            this.apkHash = apkHash;
+            this.installMillis = installMillis;
+            this.codePath = codePath;
+        }
+
+        @Nullable
+        static InstallMarker parse(String marker) {
+            String[] fields = marker.split(" ", 3);
+            if (fields.length != 3) {
+                return null;
+            }
+            try {
+                return new InstallMarker(fields[0], Long.parseLong(fields[1]), fields[2]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        boolean matches(String apkHash, String codePath) {
+            return this.apkHash.equals(apkHash) && this.codePath.equals(codePath);
+        }
+
+        @Override
+        public String toString() {
+            return apkHash + " " + installMillis + " " + codePath;
+        }
+    }
 }
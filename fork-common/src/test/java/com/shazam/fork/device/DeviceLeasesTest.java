@@ -0,0 +1,53 @@
+package com.shazam.fork.device;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.shazam.fork.device.DeviceLeases.noDeviceLeases;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class DeviceLeasesTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void doesNotTakeADeviceAnotherRunHolds() {
+        DeviceLeases firstRun = new DeviceLeases(temporaryFolder.getRoot(), 0, "first");
+        DeviceLeases secondRun = new DeviceLeases(temporaryFolder.getRoot(), 0, "second");
+
+        assertThat(firstRun.tryClaim("192.168.56.101:5555"), is(true));
+        assertThat(secondRun.tryClaim("192.168.56.101:5555"), is(false));
+    }
+
+    @Test
+    public void takesADeviceOnceAnotherRunLetsGoOfIt() {
+        DeviceLeases firstRun = new DeviceLeases(temporaryFolder.getRoot(), 0, "first");
+        DeviceLeases secondRun = new DeviceLeases(temporaryFolder.getRoot(), 0, "second");
+        firstRun.tryClaim("emulator-5554");
+
+        firstRun.release("emulator-5554");
+
+        assertThat(secondRun.tryClaim("emulator-5554"), is(true));
+    }
+
+    @Test
+    public void holdsNoMoreDevicesThanItMay() {
+        DeviceLeases deviceLeases = new DeviceLeases(temporaryFolder.getRoot(), 1, "run");
+
+        assertThat(deviceLeases.tryClaim("emulator-5554"), is(true));
+        assertThat(deviceLeases.tryClaim("emulator-5556"), is(false));
+        assertThat(deviceLeases.getClaimedSerials(), contains("emulator-5554"));
+    }
+
+    @Test
+    public void takesEveryDeviceWithoutADirectory() {
+        DeviceLeases firstRun = noDeviceLeases();
+        DeviceLeases secondRun = noDeviceLeases();
+
+        assertThat(firstRun.tryClaim("emulator-5554"), is(true));
+        assertThat(secondRun.tryClaim("emulator-5554"), is(true));
+    }
+}
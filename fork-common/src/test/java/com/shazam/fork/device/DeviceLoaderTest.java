@@ -0,0 +1,102 @@
+package com.shazam.fork.device;
+
+import com.android.ddmlib.IDevice;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Devices;
+import com.shazam.fork.model.DisplayGeometry;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.shazam.fork.device.DeviceLeases.noDeviceLeases;
+import static java.lang.System.nanoTime;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThan;
+
+public class DeviceLoaderTest {
+    private static final long PROBE_TIMEOUT_MILLIS = 200;
+
+    @Rule
+    public JUnitRuleMockery mockery = new JUnitRuleMockery() {{
+        setThreadingPolicy(new Synchroniser());
+    }};
+
+    private final CountDownLatch hungProbe = new CountDownLatch(1);
+    private final DeviceGeometryRetriever deviceGeometryRetriever =
+            new DeviceGeometryRetriever(singletonList(this::hangOnHungDevices));
+
+    @Test
+    public void excludesADeviceWhoseProbeHangsAndLoadsTheOthers() {
+        List<IDevice> connectedDevices = asList(device("first"), device("hung"), device("second"));
+        DeviceLoader deviceLoader = new DeviceLoader(() -> connectedDevices, deviceGeometryRetriever, emptyList(), 2,
+                PROBE_TIMEOUT_MILLIS, noDeviceLeases());
+
+        long startNanos = nanoTime();
+        Devices devices = deviceLoader.loadDevices();
+        long elapsedMillis = NANOSECONDS.toMillis(nanoTime() - startNanos);
+        hungProbe.countDown();
+
+        assertThat(serialsOf(devices), containsInAnyOrder("first", "second"));
+        assertThat(elapsedMillis, lessThan(10 * PROBE_TIMEOUT_MILLIS));
+    }
+
+    @Test
+    public void leavesExcludedDevicesOut() {
+        List<IDevice> connectedDevices = asList(device("first"), mockery.mock(IDevice.class, "excluded"));
+        mockery.checking(new Expectations() {{
+            allowing(connectedDevices.get(1)).getSerialNumber();
+            will(returnValue("excluded"));
+        }});
+        DeviceLoader deviceLoader = new DeviceLoader(() -> connectedDevices, deviceGeometryRetriever,
+                singletonList("excluded"), 2, PROBE_TIMEOUT_MILLIS, noDeviceLeases());
+
+        Devices devices = deviceLoader.loadDevices();
+
+        assertThat(serialsOf(devices), containsInAnyOrder("first"));
+    }
+
+    private IDevice device(String serial) {
+        IDevice device = mockery.mock(IDevice.class, serial);
+        mockery.checking(new Expectations() {{
+            allowing(device).getSerialNumber();
+            will(returnValue(serial));
+            allowing(device).getName();
+            will(returnValue(serial));
+            allowing(device).getProperty(with(any(String.class)));
+            will(returnValue(null));
+        }});
+        return device;
+    }
+
+    /**
+     * Retrieving the geometry of the hung device never returns, until it is interrupted or the test is over.
+     */
+    private DisplayGeometry hangOnHungDevices(IDevice device) {
+        if (device.getSerialNumber().equals("hung")) {
+            try {
+                hungProbe.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> serialsOf(Devices devices) {
+        return devices.getDevices().stream()
+                .map(Device::getSerial)
+                .collect(toList());
+    }
+}
@@ -0,0 +1,71 @@
+package com.shazam.fork.suite;
+
+import com.google.gson.Gson;
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static com.google.common.io.Files.write;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.shazamcrest.MatcherAssert.assertThat;
+import static com.shazam.shazamcrest.matcher.Matchers.sameBeanAs;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TestSuiteCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<TestCaseEvent> testCaseEvents = asList(
+            newTestCase("ignoredTest", "com.example.FirstTest", true, emptyList(), emptyMap()),
+            newTestCase("permissionTest", "com.example.FirstTest", false,
+                    singletonList("android.permission.CAMERA"), singletonMap("key", "value")));
+
+    private File cacheDirectory;
+    private File instrumentationApk;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = new File(temporaryFolder.getRoot(), "cache");
+        instrumentationApk = temporaryFolder.newFile("test.apk");
+        write("first build", instrumentationApk, UTF_8);
+    }
+
+    @Test
+    public void loadsTheTestsStoredForTheSameApk() {
+        new TestSuiteCache(cacheDirectory, new Gson(), "com.example").store(instrumentationApk, testCaseEvents);
+
+        List<TestCaseEvent> loaded = new TestSuiteCache(cacheDirectory, new Gson(), "com.example").load(instrumentationApk);
+
+        assertThat(loaded, sameBeanAs(testCaseEvents));
+    }
+
+    @Test
+    public void missesWhenTheApkChanges() throws IOException {
+        TestSuiteCache testSuiteCache = new TestSuiteCache(cacheDirectory, new Gson(), "com.example");
+        testSuiteCache.store(instrumentationApk, testCaseEvents);
+
+        write("second build", instrumentationApk, UTF_8);
+
+        assertThat(testSuiteCache.load(instrumentationApk), nullValue());
+    }
+
+    @Test
+    public void missesWhenTheTestClassMatcherSettingsChange() {
+        new TestSuiteCache(cacheDirectory, new Gson(), "com.example").store(instrumentationApk, testCaseEvents);
+
+        assertThat(new TestSuiteCache(cacheDirectory, new Gson(), "com.other").load(instrumentationApk), nullValue());
+    }
+}
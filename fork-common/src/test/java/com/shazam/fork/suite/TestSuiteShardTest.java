@@ -0,0 +1,85 @@
+package com.shazam.fork.suite;
+
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.reverse;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class TestSuiteShardTest {
+    private static final int NUMBER_OF_TESTS = 1000;
+    private static final int NUMBER_OF_SHARDS = 4;
+
+    @Test
+    public void splitsTheSuiteIntoDisjointShardsThatCoverIt() {
+        List<TestCaseEvent> testCases = testCases(NUMBER_OF_TESTS);
+        Set<TestCaseEvent> selected = new HashSet<>();
+        int totalSelected = 0;
+
+        for (int i = 0; i < NUMBER_OF_SHARDS; i++) {
+            List<TestCaseEvent> shard = new TestSuiteShard(i, NUMBER_OF_SHARDS).select(testCases);
+            assertThat(shard.size(), is(both(greaterThan(200)).and(lessThan(300))));
+            selected.addAll(shard);
+            totalSelected += shard.size();
+        }
+
+        assertThat(totalSelected, equalTo(NUMBER_OF_TESTS));
+        assertThat(selected.size(), equalTo(NUMBER_OF_TESTS));
+    }
+
+    @Test
+    public void picksTheSameShardWhateverTheSuiteOrder() {
+        List<TestCaseEvent> testCases = testCases(NUMBER_OF_TESTS);
+        List<TestCaseEvent> reversedTestCases = new ArrayList<>(testCases);
+        reverse(reversedTestCases);
+
+        Set<TestCaseEvent> shard = new HashSet<>(new TestSuiteShard(1, NUMBER_OF_SHARDS).select(testCases));
+        Set<TestCaseEvent> shardOfReversedSuite =
+                new HashSet<>(new TestSuiteShard(1, NUMBER_OF_SHARDS).select(reversedTestCases));
+
+        assertThat(shardOfReversedSuite, equalTo(shard));
+    }
+
+    @Test
+    public void balancesShardsByDurationWhenKnown() {
+        List<TestCaseEvent> testCases = testCases(NUMBER_OF_TESTS);
+        long[] shardDurations = new long[NUMBER_OF_SHARDS];
+
+        for (int i = 0; i < NUMBER_OF_SHARDS; i++) {
+            for (TestCaseEvent testCase : new TestSuiteShard(i, NUMBER_OF_SHARDS, TestSuiteShardTest::duration)
+                    .select(testCases)) {
+                shardDurations[i] += duration(testCase);
+            }
+        }
+
+        for (long shardDuration : shardDurations) {
+            assertThat(Math.abs(shardDuration - shardDurations[0]), lessThan(NUMBER_OF_TESTS + 1L));
+        }
+    }
+
+    private static long duration(TestCaseEvent testCase) {
+        return Long.parseLong(testCase.getTestMethod().substring("test".length())) + 1;
+    }
+
+    private static List<TestCaseEvent> testCases(int count) {
+        List<TestCaseEvent> testCases = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            testCases.add(newTestCase("test" + i, "com.example.Test" + (i % 50), false, emptyList(), emptyMap()));
+        }
+        return testCases;
+    }
+}
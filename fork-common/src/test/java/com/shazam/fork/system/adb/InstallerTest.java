@@ -0,0 +1,171 @@
+package com.shazam.fork.system.adb;
+
+import com.android.ddmlib.IDevice;
+import com.android.ddmlib.IShellOutputReceiver;
+import com.android.sdklib.AndroidVersion;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.auto.Mock;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+public class InstallerTest {
+    private static final String APPLICATION_PACKAGE = "com.example";
+    private static final String INSTRUMENTATION_PACKAGE = "com.example.test";
+    private static final String APPLICATION_MARKER = "/data/local/tmp/fork-com.example.installed";
+    private static final String INSTRUMENTATION_MARKER = "/data/local/tmp/fork-com.example.test.installed";
+    private static final String APPLICATION_PATH = "/data/app/com.example-1/base.apk";
+    private static final String INSTRUMENTATION_PATH = "/data/app/com.example.test-1/base.apk";
+
+    @Rule
+    public JUnitRuleMockery mockery = new JUnitRuleMockery() {{
+        setThreadingPolicy(new Synchroniser());
+    }};
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Mock
+    private IDevice device;
+
+    private final Map<String, String> shellOutputs = new ConcurrentHashMap<>();
+    private final List<String> shellCommands = new CopyOnWriteArrayList<>();
+    private final InstallationTracker installationTracker = new InstallationTracker();
+    private File apk;
+    private File testApk;
+    private Installer installer;
+
+    @Before
+    public void setUp() throws Exception {
+        apk = apk("app.apk", "application");
+        testApk = apk("test.apk", "instrumentation");
+        installer = new Installer(APPLICATION_PACKAGE, INSTRUMENTATION_PACKAGE, apk, testApk, false,
+                installationTracker);
+        mockery.checking(new Expectations() {{
+            allowing(device).getSerialNumber();
+            will(returnValue("emulator-5554"));
+            allowing(device).getVersion();
+            will(returnValue(new AndroidVersion(22, null)));
+            allowing(device).executeShellCommand(with(any(String.class)), with(any(IShellOutputReceiver.class)));
+            will(new FakeShell());
+            allowing(device).uninstallPackage(with(any(String.class)));
+            allowing(device).installPackage(with(any(String.class)), with(true), with(any(String[].class)));
+        }});
+        shellOutputs.put("pm path " + APPLICATION_PACKAGE, "package:" + APPLICATION_PATH + "\n");
+        shellOutputs.put("pm path " + INSTRUMENTATION_PACKAGE, "package:" + INSTRUMENTATION_PATH + "\n");
+        shellOutputs.put(cat(INSTRUMENTATION_MARKER), marker(testApk, INSTRUMENTATION_PATH));
+        shellOutputs.put("pm clear " + APPLICATION_PACKAGE, "Success\n");
+    }
+
+    @Test
+    public void skipsInstallingTheSameApkAndClearsTheApplicationDataInstead() throws Exception {
+        shellOutputs.put(cat(APPLICATION_MARKER), marker(apk, APPLICATION_PATH));
+
+        installer.prepareInstallation(device);
+
+        assertThat(installationTracker.getSkippedInstalls(), equalTo(2));
+        assertThat(installationTracker.getInstalls(), equalTo(0));
+        assertThat(shellCommands, hasItem("pm clear " + APPLICATION_PACKAGE));
+    }
+
+    @Test
+    public void installsAChangedApkAndRecordsIt() throws Exception {
+        shellOutputs.put(cat(APPLICATION_MARKER), marker(testApk, APPLICATION_PATH));
+
+        installer.prepareInstallation(device);
+
+        assertThat(installationTracker.getInstalls(), equalTo(1));
+        assertThat(installationTracker.getSkippedInstalls(), equalTo(1));
+        assertThat(shellCommands, not(hasItem("pm clear " + APPLICATION_PACKAGE)));
+        assertThat(shellCommands, hasItem(startsWith("echo '" + hashOf(apk) + " ")));
+    }
+
+    @Test
+    public void installsAnApkWithoutMarker() throws Exception {
+        installer.prepareInstallation(device);
+
+        assertThat(installationTracker.getInstalls(), equalTo(1));
+        assertThat(installationTracker.getSkippedInstalls(), equalTo(1));
+    }
+
+    @Test
+    public void skipsInstallingTheSameSplitApk() throws Exception {
+        String splitPath = "/data/app/com.example-1/split_config.xxhdpi.apk";
+        shellOutputs.put("pm path " + APPLICATION_PACKAGE,
+                "package:" + APPLICATION_PATH + "\r\npackage:" + splitPath + "\r\n");
+        shellOutputs.put(cat(APPLICATION_MARKER), marker(apk, APPLICATION_PATH + "," + splitPath));
+
+        installer.prepareInstallation(device);
+
+        assertThat(installationTracker.getSkippedInstalls(), equalTo(2));
+        assertThat(installationTracker.getInstalls(), equalTo(0));
+    }
+
+    @Test
+    public void installsTheSameApkAgainWhenItsDataCannotBeCleared() throws Exception {
+        shellOutputs.put(cat(APPLICATION_MARKER), marker(apk, APPLICATION_PATH));
+        shellOutputs.put("pm clear " + APPLICATION_PACKAGE, "Failed\n");
+
+        installer.prepareInstallation(device);
+
+        assertThat(installationTracker.getInstalls(), equalTo(1));
+        assertThat(installationTracker.getSkippedInstalls(), equalTo(1));
+    }
+
+    private File apk(String name, String content) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        Files.write(content, file, ISO_8859_1);
+        return file;
+    }
+
+    private static String cat(String markerFile) {
+        return "cat " + markerFile + " 2>/dev/null";
+    }
+
+    private static String marker(File apk, String codePath) throws IOException {
+        return hashOf(apk) + " 1000 " + codePath + "\n";
+    }
+
+    private static String hashOf(File apk) throws IOException {
+        return Files.hash(apk, Hashing.sha256()).toString();
+    }
+
+    /**
+     * Answers the commands the test set up, writing files always succeeds and anything else prints nothing.
+     */
+    private class FakeShell extends CustomAction {
+        FakeShell() {
+            super("runs a shell command");
+        }
+
+        @Override
+        public Object invoke(Invocation invocation) throws Throwable {
+            String command = (String) invocation.getParameter(0);
+            shellCommands.add(command);
+            String output = shellOutputs.getOrDefault(command, command.startsWith("echo ") ? "Success\n" : "");
+            byte[] bytes = output.getBytes(ISO_8859_1);
+            ((IShellOutputReceiver) invocation.getParameter(1)).addOutput(bytes, 0, bytes.length);
+            return null;
+        }
+    }
+}
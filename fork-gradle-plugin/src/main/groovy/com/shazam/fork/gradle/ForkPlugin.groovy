@@ -82,6 +82,24 @@ class ForkPlugin implements Plugin<Project> {
                 autoGrantPermissions = config.autoGrantPermissions
                 ignoreFailures = config.ignoreFailures
                 excludedAnnotation = config.excludedAnnotation
+                historicalSummariesDir = config.historicalSummariesDir ? new File(config.historicalSummariesDir) : null
+                batchSize = config.batchSize
+                testSuiteCacheDir = config.testSuiteCacheDir ? new File(config.testSuiteCacheDir) : null
+                resume = config.resume
+                metricsPort = config.metricsPort
+                speculativeExecution = config.speculativeExecution
+                deviceQuarantineThreshold = config.deviceQuarantineThreshold
+                abortOnSystemicFailure = config.abortOnSystemicFailure
+                shardIndex = config.shardIndex
+                shardCount = config.shardCount
+                coordinatorPort = config.coordinatorPort
+                coordinatorAddress = config.coordinatorAddress
+                deviceLeaseDir = config.deviceLeaseDir ? new File(config.deviceLeaseDir) : null
+                maxLeasedDevices = config.maxLeasedDevices
+                pickUpFreedDevices = config.pickUpFreedDevices
+                deviceProbeConcurrency = config.deviceProbeConcurrency
+                deviceProbeTimeout = config.deviceProbeTimeout
+                coordinatorToken = config.coordinatorToken
 
                 applicationApk = new File(baseVariantOutput.packageApplication.outputDirectory.path + "/" + baseVariantOutput.outputFileName)
 
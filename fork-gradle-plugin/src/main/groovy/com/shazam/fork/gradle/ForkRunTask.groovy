@@ -77,6 +77,42 @@ class ForkRunTask extends DefaultTask implements VerificationTask {
 
     String excludedAnnotation
 
+    File historicalSummariesDir
+
+    int batchSize
+
+    File testSuiteCacheDir
+
+    boolean resume
+
+    int metricsPort
+
+    boolean speculativeExecution
+
+    int deviceQuarantineThreshold
+
+    boolean abortOnSystemicFailure
+
+    int shardIndex
+
+    int shardCount
+
+    int coordinatorPort
+
+    String coordinatorAddress
+
+    File deviceLeaseDir
+
+    int maxLeasedDevices
+
+    boolean pickUpFreedDevices
+
+    int deviceProbeConcurrency
+
+    int deviceProbeTimeout
+
+    String coordinatorToken
+
     @TaskAction
     void runFork() {
         LOG.info("Run instrumentation tests $instrumentationApk for app $applicationApk")
@@ -102,6 +138,24 @@ class ForkRunTask extends DefaultTask implements VerificationTask {
                 .withPoolingStrategy(poolingStrategy)
                 .withAutoGrantPermissions(autoGrantPermissions)
                 .withExcludedAnnotation(excludedAnnotation)
+                .withHistoricalSummariesDir(historicalSummariesDir)
+                .withBatchSize(batchSize)
+                .withTestSuiteCacheDir(testSuiteCacheDir)
+                .withResume(resume)
+                .withMetricsPort(metricsPort)
+                .withSpeculativeExecution(speculativeExecution)
+                .withDeviceQuarantineThreshold(deviceQuarantineThreshold)
+                .withAbortOnSystemicFailure(abortOnSystemicFailure)
+                .withShardIndex(shardIndex)
+                .withShardCount(shardCount)
+                .withCoordinatorPort(coordinatorPort)
+                .withCoordinatorAddress(coordinatorAddress)
+                .withDeviceLeaseDir(deviceLeaseDir)
+                .withMaxLeasedDevices(maxLeasedDevices)
+                .withPickUpFreedDevices(pickUpFreedDevices)
+                .withDeviceProbeConcurrency(deviceProbeConcurrency)
+                .withDeviceProbeTimeout(deviceProbeTimeout)
+                .withCoordinatorToken(coordinatorToken)
                 .build();
 
         boolean success = new Fork(configuration).run()
@@ -30,6 +30,7 @@ import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.shazam.fork.system.axmlparser.InstrumentationInfoFactory.parseFromFile;
 import static java.util.Arrays.asList;
 
@@ -57,6 +58,24 @@ public class Configuration implements ForkConfiguration {
     private final PoolingStrategy poolingStrategy;
     private final boolean autoGrantPermissions;
     private final String excludedAnnotation;
+    private final File historicalSummariesDir;
+    private final int batchSize;
+    private final File testSuiteCacheDir;
+    private final boolean resume;
+    private final int metricsPort;
+    private final boolean speculativeExecution;
+    private final int deviceQuarantineThreshold;
+    private final boolean abortOnSystemicFailure;
+    private final int shardIndex;
+    private final int shardCount;
+    private final int coordinatorPort;
+    private final String coordinatorAddress;
+    private final File deviceLeaseDir;
+    private final int maxLeasedDevices;
+    private final boolean pickUpFreedDevices;
+    private final int deviceProbeConcurrency;
+    private final long deviceProbeTimeout;
+    private final String coordinatorToken;
 
     private ApplicationInfo applicationInfo;
 
@@ -82,6 +101,24 @@ public class Configuration implements ForkConfiguration {
         poolingStrategy = builder.poolingStrategy;
         autoGrantPermissions = builder.autoGrantPermissions;
         this.excludedAnnotation = builder.excludedAnnotation;
+        historicalSummariesDir = builder.historicalSummariesDir;
+        batchSize = builder.batchSize;
+        testSuiteCacheDir = builder.testSuiteCacheDir;
+        resume = builder.resume;
+        metricsPort = builder.metricsPort;
+        speculativeExecution = builder.speculativeExecution;
+        deviceQuarantineThreshold = builder.deviceQuarantineThreshold;
+        abortOnSystemicFailure = builder.abortOnSystemicFailure;
+        shardIndex = builder.shardIndex;
+        shardCount = builder.shardCount;
+        coordinatorPort = builder.coordinatorPort;
+        coordinatorAddress = builder.coordinatorAddress;
+        deviceLeaseDir = builder.deviceLeaseDir;
+        maxLeasedDevices = builder.maxLeasedDevices;
+        pickUpFreedDevices = builder.pickUpFreedDevices;
+        deviceProbeConcurrency = builder.deviceProbeConcurrency;
+        deviceProbeTimeout = builder.deviceProbeTimeout;
+        coordinatorToken = builder.coordinatorToken;
         this.applicationInfo = builder.applicationInfo;
     }
 
@@ -203,6 +240,101 @@ public class Configuration implements ForkConfiguration {
         return excludedAnnotation;
     }
 
+    @Override
+    @Nullable
+    public File getHistoricalSummariesDir() {
+        return historicalSummariesDir;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    @Nullable
+    public File getTestSuiteCacheDir() {
+        return testSuiteCacheDir;
+    }
+
+    @Override
+    public boolean shouldResume() {
+        return resume;
+    }
+
+    @Override
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    @Override
+    public boolean isSpeculativeExecutionEnabled() {
+        return speculativeExecution;
+    }
+
+    @Override
+    public int getDeviceQuarantineThreshold() {
+        return deviceQuarantineThreshold;
+    }
+
+    @Override
+    public boolean isAbortOnSystemicFailure() {
+        return abortOnSystemicFailure;
+    }
+
+    @Override
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    @Override
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int getCoordinatorPort() {
+        return coordinatorPort;
+    }
+
+    @Override
+    @Nullable
+    public String getCoordinatorAddress() {
+        return coordinatorAddress;
+    }
+
+    @Override
+    @Nullable
+    public File getDeviceLeaseDir() {
+        return deviceLeaseDir;
+    }
+
+    @Override
+    public int getMaxLeasedDevices() {
+        return maxLeasedDevices;
+    }
+
+    @Override
+    public boolean shouldPickUpFreedDevices() {
+        return pickUpFreedDevices;
+    }
+
+    @Override
+    public int getDeviceProbeConcurrency() {
+        return deviceProbeConcurrency;
+    }
+
+    @Override
+    public long getDeviceProbeTimeout() {
+        return deviceProbeTimeout;
+    }
+
+    @Override
+    @Nullable
+    public String getCoordinatorToken() {
+        return coordinatorToken;
+    }
+
     @Override
     public ApplicationInfo getApplicationInfo() {
         return applicationInfo;
@@ -230,6 +362,24 @@ public class Configuration implements ForkConfiguration {
         private PoolingStrategy poolingStrategy;
         private boolean autoGrantPermissions;
         private String excludedAnnotation;
+        private File historicalSummariesDir;
+        private int batchSize;
+        private File testSuiteCacheDir;
+        private boolean resume;
+        private int metricsPort;
+        private boolean speculativeExecution;
+        private int deviceQuarantineThreshold;
+        private boolean abortOnSystemicFailure;
+        private int shardIndex;
+        private int shardCount;
+        private int coordinatorPort;
+        private String coordinatorAddress;
+        private File deviceLeaseDir;
+        private int maxLeasedDevices;
+        private boolean pickUpFreedDevices;
+        private int deviceProbeConcurrency;
+        private long deviceProbeTimeout;
+        private String coordinatorToken;
         private ApplicationInfo applicationInfo;
 
         public static Builder configuration() {
@@ -326,6 +476,96 @@ public class Configuration implements ForkConfiguration {
             return this;
         }
 
+        public Builder withHistoricalSummariesDir(@Nullable File historicalSummariesDir) {
+            this.historicalSummariesDir = historicalSummariesDir;
+            return this;
+        }
+
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder withTestSuiteCacheDir(@Nullable File testSuiteCacheDir) {
+            this.testSuiteCacheDir = testSuiteCacheDir;
+            return this;
+        }
+
+        public Builder withResume(boolean resume) {
+            this.resume = resume;
+            return this;
+        }
+
+        public Builder withMetricsPort(int metricsPort) {
+            this.metricsPort = metricsPort;
+            return this;
+        }
+
+        public Builder withSpeculativeExecution(boolean speculativeExecution) {
+            this.speculativeExecution = speculativeExecution;
+            return this;
+        }
+
+        public Builder withDeviceQuarantineThreshold(int deviceQuarantineThreshold) {
+            this.deviceQuarantineThreshold = deviceQuarantineThreshold;
+            return this;
+        }
+
+        public Builder withAbortOnSystemicFailure(boolean abortOnSystemicFailure) {
+            this.abortOnSystemicFailure = abortOnSystemicFailure;
+            return this;
+        }
+
+        public Builder withShardIndex(int shardIndex) {
+            this.shardIndex = shardIndex;
+            return this;
+        }
+
+        public Builder withShardCount(int shardCount) {
+            this.shardCount = shardCount;
+            return this;
+        }
+
+        public Builder withCoordinatorPort(int coordinatorPort) {
+            this.coordinatorPort = coordinatorPort;
+            return this;
+        }
+
+        public Builder withCoordinatorAddress(@Nullable String coordinatorAddress) {
+            this.coordinatorAddress = coordinatorAddress;
+            return this;
+        }
+
+        public Builder withDeviceLeaseDir(@Nullable File deviceLeaseDir) {
+            this.deviceLeaseDir = deviceLeaseDir;
+            return this;
+        }
+
+        public Builder withMaxLeasedDevices(int maxLeasedDevices) {
+            this.maxLeasedDevices = maxLeasedDevices;
+            return this;
+        }
+
+        public Builder withPickUpFreedDevices(boolean pickUpFreedDevices) {
+            this.pickUpFreedDevices = pickUpFreedDevices;
+            return this;
+        }
+
+        public Builder withDeviceProbeConcurrency(int deviceProbeConcurrency) {
+            this.deviceProbeConcurrency = deviceProbeConcurrency;
+            return this;
+        }
+
+        public Builder withDeviceProbeTimeout(int deviceProbeTimeout) {
+            this.deviceProbeTimeout = deviceProbeTimeout;
+            return this;
+        }
+
+        public Builder withCoordinatorToken(@Nullable String coordinatorToken) {
+            this.coordinatorToken = coordinatorToken;
+            return this;
+        }
+
         public Configuration build() {
             checkNotNull(androidSdk, "SDK is required.");
             checkArgument(androidSdk.exists(), "SDK directory does not exist.");
@@ -351,6 +591,35 @@ public class Configuration implements ForkConfiguration {
             checkArgument(totalAllowedRetryQuota >= 0, "Total allowed retry quota should not be negative.");
             checkArgument(retryPerTestCaseQuota >= 0, "Retry per test case quota should not be negative.");
             retryPerTestCaseQuota = assignValueOrDefaultIfZero(retryPerTestCaseQuota, Defaults.RETRY_QUOTA_PER_TEST_CASE);
+            checkArgument(batchSize >= 0, "Batch size should not be negative.");
+            batchSize = assignValueOrDefaultIfZero(batchSize, Defaults.BATCH_SIZE);
+            if (isCoverageEnabled && batchSize > 1) {
+                // A batch writes a single coverage file, which could not be told apart from the one of its first test
+                logger.warn("Batch size [" + batchSize + "] is ignored as coverage is enabled, tests run one by one.");
+                batchSize = 1;
+            }
+            checkArgument(metricsPort >= 0 && metricsPort <= 65535, "Metrics port should be between 0 and 65535.");
+            checkArgument(deviceQuarantineThreshold == 0 || deviceQuarantineThreshold >= 2,
+                    "Device quarantine threshold should be 0 or at least 2.");
+            checkArgument(shardCount >= 0, "Shard count should not be negative.");
+            checkArgument(shardCount == 0 ? shardIndex == 0 : shardIndex >= 0 && shardIndex < shardCount,
+                    "Shard index should be between 0 and the shard count minus 1.");
+            checkArgument(coordinatorPort >= 0 && coordinatorPort <= 65535,
+                    "Coordinator port should be between 0 and 65535.");
+            checkArgument(coordinatorAddress == null || coordinatorAddress.matches(".+:\\d+"),
+                    "Coordinator address should be of the form host:port.");
+            checkArgument(coordinatorPort == 0 || coordinatorAddress == null,
+                    "A run cannot be both a coordinator and a worker.");
+            checkArgument(coordinatorPort == 0 && coordinatorAddress == null || !isNullOrEmpty(coordinatorToken),
+                    "A coordinator token is required to coordinate or to be a worker.");
+            checkArgument(maxLeasedDevices >= 0, "Max leased devices should not be negative.");
+            checkArgument(maxLeasedDevices == 0 || deviceLeaseDir != null,
+                    "Max leased devices needs a device lease directory.");
+            checkArgument(deviceProbeConcurrency >= 0, "Device probe concurrency should not be negative.");
+            deviceProbeConcurrency = assignValueOrDefaultIfZero(deviceProbeConcurrency,
+                    Defaults.DEVICE_PROBE_CONCURRENCY);
+            checkArgument(deviceProbeTimeout >= 0, "Device probe timeout should not be negative.");
+            deviceProbeTimeout = assignValueOrDefaultIfZero(deviceProbeTimeout, Defaults.DEVICE_PROBE_TIMEOUT_MILLIS);
             logArgumentsBadInteractions();
             poolingStrategy = validatePoolingStrategy(poolingStrategy);
             applicationInfo = ApplicationInfoFactory.parseFromFile(applicationApk);
@@ -23,4 +23,7 @@ class Defaults {
     static final String TITLE = "Fork Report";
     static final String SUBTITLE = "";
     static final int RETRY_QUOTA_PER_TEST_CASE = 1;
+    static final int BATCH_SIZE = 1;
+    static final int DEVICE_PROBE_CONCURRENCY = 16;
+    static final long DEVICE_PROBE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
 }
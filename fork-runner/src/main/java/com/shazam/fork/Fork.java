@@ -17,7 +17,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 
+import javax.annotation.Nullable;
+
 import static com.shazam.fork.injector.ConfigurationInjector.setConfiguration;
+import static com.shazam.fork.injector.ForkCoordinatorInjector.forkCoordinator;
 import static com.shazam.fork.injector.ForkRunnerInjector.forkRunner;
 import static com.shazam.fork.injector.system.AdbInjector.adb;
 import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
@@ -28,29 +31,40 @@ import static org.apache.commons.lang3.time.DurationFormatUtils.formatPeriod;
 public final class Fork {
     private static final Logger logger = LoggerFactory.getLogger(Fork.class);
 
+    @Nullable
     private final ForkRunner forkRunner;
+    @Nullable
+    private final ForkCoordinator forkCoordinator;
     private final File output;
+    private final boolean resume;
 
     public Fork(Configuration configuration) {
         this.output = configuration.getOutput();
+        this.resume = configuration.shouldResume();
         setConfiguration(configuration);
-        this.forkRunner = forkRunner();
+        boolean coordinator = configuration.getCoordinatorPort() > 0;
+        this.forkRunner = coordinator ? null : forkRunner();
+        this.forkCoordinator = coordinator ? forkCoordinator() : null;
     }
 
     public boolean run() {
 		long startOfTestsMs = nanoTime();
 		try {
-            deleteDirectory(output);
+            if (!resume) {
+                deleteDirectory(output);
+            }
             //noinspection ResultOfMethodCallIgnored
             output.mkdirs();
-            return forkRunner.run();
+            return forkCoordinator != null ? forkCoordinator.run() : forkRunner.run();
 		} catch (Exception e) {
             logger.error("Error while running Fork", e);
 			return false;
 		} finally {
             long duration = millisSinceNanoTime(startOfTestsMs);
             logger.info(formatPeriod(0, duration, "'Total time taken:' H 'hours' m 'minutes' s 'seconds'"));
-            adb().terminate();
+            if (forkRunner != null) {
+                adb().terminate();
+            }
 		}
 	}
 }
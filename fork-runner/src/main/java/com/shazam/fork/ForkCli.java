@@ -46,6 +46,10 @@ public class ForkCli {
                 required = true)
         public File configurationFile;
 
+        @Parameter(names = { "--resume" }, description = "Resume an interrupted run, only running the tests that have"
+                + " not passed yet")
+        public boolean resume;
+
         @Parameter(names = { "-h", "--help" }, description = "Command help", help = true, hidden = true)
         public boolean help;
     }
@@ -100,6 +104,24 @@ public class ForkCli {
                     .withPoolingStrategy(forkConfiguration.poolingStrategy)
                     .withAutoGrantPermissions(forkConfiguration.autoGrantPermissions)
                     .withExcludedAnnotation(forkConfiguration.excludedAnnotation)
+                    .withHistoricalSummariesDir(cleanFile(forkConfiguration.historicalSummariesDir))
+                    .withBatchSize(forkConfiguration.batchSize)
+                    .withTestSuiteCacheDir(cleanFile(forkConfiguration.testSuiteCacheDir))
+                    .withResume(parsedArgs.resume || forkConfiguration.resume)
+                    .withMetricsPort(forkConfiguration.metricsPort)
+                    .withSpeculativeExecution(forkConfiguration.speculativeExecution)
+                    .withDeviceQuarantineThreshold(forkConfiguration.deviceQuarantineThreshold)
+                    .withAbortOnSystemicFailure(forkConfiguration.abortOnSystemicFailure)
+                    .withShardIndex(forkConfiguration.shardIndex)
+                    .withShardCount(forkConfiguration.shardCount)
+                    .withCoordinatorPort(forkConfiguration.coordinatorPort)
+                    .withCoordinatorAddress(forkConfiguration.coordinatorAddress)
+                    .withDeviceLeaseDir(cleanFile(forkConfiguration.deviceLeaseDir))
+                    .withMaxLeasedDevices(forkConfiguration.maxLeasedDevices)
+                    .withPickUpFreedDevices(forkConfiguration.pickUpFreedDevices)
+                    .withDeviceProbeConcurrency(forkConfiguration.deviceProbeConcurrency)
+                    .withDeviceProbeTimeout(forkConfiguration.deviceProbeTimeout)
+                    .withCoordinatorToken(forkConfiguration.coordinatorToken)
                     .build();
 
             Fork fork = new Fork(configuration);
@@ -65,5 +65,46 @@ public interface ForkConfiguration {
 
     String getExcludedAnnotation();
 
+    @Nullable
+    File getHistoricalSummariesDir();
+
+    int getBatchSize();
+
+    @Nullable
+    File getTestSuiteCacheDir();
+
+    boolean shouldResume();
+
+    int getMetricsPort();
+
+    boolean isSpeculativeExecutionEnabled();
+
+    int getDeviceQuarantineThreshold();
+
+    boolean isAbortOnSystemicFailure();
+
+    int getShardIndex();
+
+    int getShardCount();
+
+    int getCoordinatorPort();
+
+    @Nullable
+    String getCoordinatorAddress();
+
+    @Nullable
+    File getDeviceLeaseDir();
+
+    int getMaxLeasedDevices();
+
+    boolean shouldPickUpFreedDevices();
+
+    int getDeviceProbeConcurrency();
+
+    long getDeviceProbeTimeout();
+
+    @Nullable
+    String getCoordinatorToken();
+
     ApplicationInfo getApplicationInfo();
 }
@@ -99,6 +99,118 @@ public class ForkConfigurationExtension {
      */
     public String excludedAnnotation;
 
+    /**
+     * Directory with the JSON summaries (fork-*.json) of previous runs. When set, tests are scheduled longest-first
+     * using their historical durations. It must live outside the output directory, which is cleared on every run.
+     */
+    public String historicalSummariesDir;
+
+    /**
+     * Maximum number of tests of the same class sent to a single instrumentation run. Batches shrink as the pool
+     * drains so devices finish together. Defaults to 1, which runs every test in its own instrumentation.
+     */
+    public int batchSize;
+
+    /**
+     * Directory where the tests found in instrumentation APKs are indexed. When set, an unchanged APK is not parsed
+     * again. It must live outside the output directory, which is cleared on every run.
+     */
+    public String testSuiteCacheDir;
+
+    /**
+     * Resume an interrupted run: keep the output directory, replay its run journal and only run the tests that have
+     * not passed yet on the same APKs. Also available as <code>--resume</code> on the command line.
+     */
+    public boolean resume;
+
+    /**
+     * Port to serve the metrics of the run on, at <code>http://localhost:&lt;port&gt;/metrics</code> in the Prometheus
+     * text format. The metrics are always written to fork-metrics.prom in the output directory. Defaults to 0, which
+     * does not serve them.
+     */
+    public int metricsPort;
+
+    /**
+     * Once the queue of a pool is empty, run a backup copy of its longest-running tests on the idle devices. The first
+     * copy to finish wins, the other one is cancelled and its artifacts are discarded. Defaults to false.
+     */
+    public boolean speculativeExecution;
+
+    /**
+     * How many times the failure or instrumentation crash rate of the other devices of its pool a device may reach
+     * before it is quarantined: it stops taking tests and its recent failures run again elsewhere without using the
+     * retry quota. Defaults to 0, which never quarantines a device. Otherwise it should be at least 2.
+     */
+    public int deviceQuarantineThreshold;
+
+    /**
+     * Stop running the tests left in the queues once most recent tests fail with the same error, as when the app
+     * crashes on launch. Retries are stopped in that case either way. Defaults to false.
+     */
+    public boolean abortOnSystemicFailure;
+
+    /**
+     * Which shard of the test suite this run executes, from 0 to <code>shardCount - 1</code>. Only used when
+     * <code>shardCount</code> is set.
+     */
+    public int shardIndex;
+
+    /**
+     * Into how many shards the test suite is split, so that as many machines can each run one of them. Every
+     * machine gets the same split as long as it has the same test APK and historical summaries. Defaults to 0, which
+     * runs the whole suite.
+     */
+    public int shardCount;
+
+    /**
+     * Port on which this run hands the test suite out to worker runs on other hosts, instead of running it on its
+     * own devices. The workers lease tests as their devices become free and send the results back, from which this run
+     * writes the report. Defaults to 0, which runs the tests locally.
+     */
+    public int coordinatorPort;
+
+    /**
+     * Address of a coordinator run, as <code>host:port</code>. When set, this run is a worker: its devices take
+     * their tests from the coordinator instead of the local test APK, and their results are sent back to it.
+     */
+    public String coordinatorAddress;
+
+    /**
+     * Directory shared by the Fork runs of a host, where each run holds a lock file for every device it uses. When set,
+     * a run only takes the devices no other run holds, and lets go of each one once it has no more tests for it.
+     */
+    public String deviceLeaseDir;
+
+    /**
+     * The most devices a run holds at a time when a <code>deviceLeaseDir</code> is set. Defaults to 0, which takes
+     * every device that no other run holds.
+     */
+    public int maxLeasedDevices;
+
+    /**
+     * When a <code>deviceLeaseDir</code> is set, keep looking for devices that other runs let go of and add them to the
+     * pools that still have tests. Defaults to false.
+     */
+    public boolean pickUpFreedDevices;
+
+    /**
+     * How many devices can have their characteristics retrieved at the same time when the run starts. Defaults to 16.
+     */
+    public int deviceProbeConcurrency;
+
+    /**
+     * How long retrieving the characteristics of a single device can take, in milliseconds, before that device is
+     * left out of the run. Defaults to 60000.
+     */
+    public int deviceProbeTimeout;
+
+    /**
+     * Secret shared by the coordinator of a distributed run and its workers, which send it with every request. The
+     * coordinator refuses requests without it, so only the workers can take tests and send results. Required with
+     * <code>coordinatorPort</code> or <code>coordinatorAddress</code>.
+     */
+    public String coordinatorToken;
+
     public void poolingStrategy(Closure<?> poolingStrategyClosure) {
         poolingStrategy = new PoolingStrategy();
         poolingStrategyClosure.setDelegate(poolingStrategy);
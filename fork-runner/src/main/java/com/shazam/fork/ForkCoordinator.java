@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork;
+
+import com.shazam.fork.distributed.CoordinatorServer;
+import com.shazam.fork.distributed.WorkCoordinator;
+import com.shazam.fork.metrics.MetricsExporter;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.suite.NoTestCasesFoundException;
+import com.shazam.fork.suite.TestSuiteLoader;
+import com.shazam.fork.summary.SummaryGeneratorHook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * Runs a distributed run from the coordinator: the suite is handed out to the workers, which run it on their devices
+ * and send the results back for a single summary. The coordinator itself needs no devices.
+ */
+public class ForkCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(ForkCoordinator.class);
+
+    private final TestSuiteLoader testSuiteLoader;
+    private final WorkCoordinator workCoordinator;
+    private final CoordinatorServer coordinatorServer;
+    private final SummaryGeneratorHook summaryGeneratorHook;
+    private final MetricsExporter metricsExporter;
+
+    public ForkCoordinator(TestSuiteLoader testSuiteLoader,
+                           WorkCoordinator workCoordinator,
+                           CoordinatorServer coordinatorServer,
+                           SummaryGeneratorHook summaryGeneratorHook,
+                           MetricsExporter metricsExporter) {
+        this.testSuiteLoader = testSuiteLoader;
+        this.workCoordinator = workCoordinator;
+        this.coordinatorServer = coordinatorServer;
+        this.summaryGeneratorHook = summaryGeneratorHook;
+        this.metricsExporter = metricsExporter;
+    }
+
+    public boolean run() {
+        try {
+            metricsExporter.start();
+            Collection<TestCaseEvent> testCases = testSuiteLoader.loadTestSuite();
+            workCoordinator.start(testCases);
+            summaryGeneratorHook.registerHook(workCoordinator.getPools(), testCases);
+            coordinatorServer.start();
+            logger.info("Waiting for workers to run {} tests", testCases.size());
+            workCoordinator.awaitDone();
+            coordinatorServer.stop();
+            workCoordinator.getAdbServers().forEach((worker, adbServer) ->
+                    logger.info("ADB server of worker {}: {}", worker, adbServer));
+
+            boolean overallSuccess = summaryGeneratorHook.defineOutcome();
+            logger.info("Overall success: " + overallSuccess);
+            return overallSuccess;
+        } catch (NoTestCasesFoundException e) {
+            logger.error("Error when trying to find test classes", e);
+            return false;
+        } catch (Exception e) {
+            logger.error("Error while Fork was coordinating", e);
+            return false;
+        } finally {
+            coordinatorServer.stop();
+            metricsExporter.stop();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork;
+
+import com.beust.jcommander.*;
+import com.google.gson.JsonParseException;
+import com.shazam.fork.summary.*;
+import com.shazam.fork.system.io.FileManager;
+import com.shazam.fork.system.io.ForkFileManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.shazam.fork.CommonDefaults.FORK_SUMMARY_FILENAME_REGEX;
+import static com.shazam.fork.injector.GsonInjector.gson;
+import static com.shazam.fork.injector.summary.HtmlGeneratorInjector.htmlGenerator;
+import static com.shazam.fork.utils.Utils.cleanFile;
+import static java.util.Arrays.sort;
+
+/**
+ * Merges the summaries of the shards of a test suite into one HTML report and one JSON summary, which the flakiness
+ * reporter reads like the summary of any other run.
+ */
+public class ForkMergeCli {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkMergeCli.class);
+    private static final String SUMMARY_DIRECTORY = "summary";
+
+    private ForkMergeCli() {}
+
+    public static class CommandLineArgs {
+
+        @Parameter(names = { "--summaries" }, description = "Summary files of the shards, or the directories they are"
+                + " in, in which case the latest summary of each directory is used", converter = FileConverter.class,
+                variableArity = true, required = true)
+        public List<File> summaries = new ArrayList<>();
+
+        @Parameter(names = { "--output" }, description = "Output path of the merged report",
+                converter = FileConverter.class)
+        public File output;
+
+        @Parameter(names = { "--title" }, description = "Title of the merged report, by default that of the first"
+                + " shard")
+        public String title;
+
+        @Parameter(names = { "--subtitle" }, description = "Subtitle of the merged report, by default that of the first"
+                + " shard")
+        public String subtitle;
+
+        @Parameter(names = { "-h", "--help" }, description = "Command help", help = true, hidden = true)
+        public boolean help;
+    }
+
+    /* JCommander deems it necessary that this class be public. Lame. */
+    public static class FileConverter implements IStringConverter<File> {
+
+        @Override
+        public File convert(String s) {
+            return cleanFile(s);
+        }
+    }
+
+    public static void main(String... args) {
+        CommandLineArgs parsedArgs = new CommandLineArgs();
+        JCommander jc = new JCommander(parsedArgs);
+
+        try {
+            jc.parse(args);
+        } catch (ParameterException e) {
+            StringBuilder out = new StringBuilder(e.getLocalizedMessage()).append("\n\n");
+            jc.usage(out);
+            logger.error(out.toString());
+            System.exit(1);
+            return;
+        }
+        if (parsedArgs.help) {
+            jc.usage();
+            return;
+        }
+
+        List<Summary> shardSummaries = new ArrayList<>();
+        List<FileManager> shardFileManagers = new ArrayList<>();
+        for (File summaryFile : summaryFiles(parsedArgs.summaries)) {
+            try (Reader reader = new FileReader(summaryFile)) {
+                shardSummaries.add(gson().fromJson(reader, Summary.class));
+                shardFileManagers.add(new ForkFileManager(shardOutputOf(summaryFile)));
+                logger.info("Merging summary {}", summaryFile.getAbsolutePath());
+            } catch (IOException | JsonParseException e) {
+                logger.error("Could not read summary " + summaryFile.getAbsolutePath(), e);
+                System.exit(1);
+                return;
+            }
+        }
+        if (shardSummaries.isEmpty()) {
+            logger.error("No summaries found in {}", parsedArgs.summaries);
+            System.exit(1);
+            return;
+        }
+
+        File output = parsedArgs.output != null ? parsedArgs.output : cleanFile(Defaults.FORK_OUTPUT);
+        Summary summary = new SummaryMerger().merge(shardSummaries, parsedArgs.title, parsedArgs.subtitle);
+        new CompositeSummaryPrinter(
+                new LogSummaryPrinter(),
+                new HtmlSummaryPrinter(output, new ShardsLogCatRetriever(gson(), shardFileManagers), htmlGenerator()),
+                new JsonSummarySerializer(new ForkFileManager(output), gson()))
+                .print(summary);
+    }
+
+    private static List<File> summaryFiles(List<File> paths) {
+        List<File> summaryFiles = new ArrayList<>();
+        for (File path : paths) {
+            if (!path.isDirectory()) {
+                summaryFiles.add(path);
+                continue;
+            }
+            File[] directorySummaries = path.listFiles((dir, name) -> name.matches(FORK_SUMMARY_FILENAME_REGEX));
+            if (directorySummaries == null || directorySummaries.length == 0) {
+                logger.warn("No summary found in {}", path.getAbsolutePath());
+                continue;
+            }
+            sort(directorySummaries);
+            summaryFiles.add(directorySummaries[directorySummaries.length - 1]);
+        }
+        return summaryFiles;
+    }
+
+    /**
+     * Summaries are written to the <code>summary</code> directory of the output of their run.
+     */
+    private static File shardOutputOf(File summaryFile) {
+        File summaryDirectory = summaryFile.getAbsoluteFile().getParentFile();
+        if (SUMMARY_DIRECTORY.equals(summaryDirectory.getName())) {
+            return summaryDirectory.getParentFile();
+        }
+        return summaryDirectory;
+    }
+}
@@ -12,23 +12,38 @@
  */
 package com.shazam.fork;
 
+import com.shazam.fork.device.DeviceLeases;
+import com.shazam.fork.device.HotPlugDeviceListener;
+import com.shazam.fork.distributed.CoordinatorClient;
+import com.shazam.fork.metrics.MetricsExporter;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
 import com.shazam.fork.pooling.*;
+import com.shazam.fork.runner.PoolTestRunner;
 import com.shazam.fork.runner.PoolTestRunnerFactory;
 import com.shazam.fork.runner.ProgressReporter;
+import com.shazam.fork.runner.RunEventStream;
+import com.shazam.fork.runner.RunJournal;
+import com.shazam.fork.runner.listeners.AnimationWriter;
 import com.shazam.fork.suite.NoTestCasesFoundException;
 import com.shazam.fork.suite.TestSuiteLoader;
 import com.shazam.fork.summary.SummaryGeneratorHook;
+import com.shazam.fork.summary.TestResultStore;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 
+import static com.shazam.fork.StartupTimings.Phase.DEVICE_PROBING;
+import static com.shazam.fork.StartupTimings.Phase.SUITE_LOADING;
 import static com.shazam.fork.Utils.namedExecutor;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
 
 public class ForkRunner {
     private static final Logger logger = LoggerFactory.getLogger(ForkRunner.class);
@@ -38,41 +53,83 @@ public class ForkRunner {
     private final PoolTestRunnerFactory poolTestRunnerFactory;
     private final ProgressReporter progressReporter;
     private final SummaryGeneratorHook summaryGeneratorHook;
+    private final HotPlugDeviceListener hotPlugDeviceListener;
+    private final StartupTimings startupTimings;
+    private final AnimationWriter animationWriter;
+    private final RunJournal runJournal;
+    private final TestResultStore testResultStore;
+    private final MetricsExporter metricsExporter;
+    private final RunEventStream runEventStream;
+    private final CoordinatorClient coordinatorClient;
+    private final DeviceLeases deviceLeases;
 
     public ForkRunner(PoolLoader poolLoader,
                       TestSuiteLoader testClassLoader,
                       PoolTestRunnerFactory poolTestRunnerFactory,
                       ProgressReporter progressReporter,
-                      SummaryGeneratorHook summaryGeneratorHook) {
+                      SummaryGeneratorHook summaryGeneratorHook,
+                      HotPlugDeviceListener hotPlugDeviceListener,
+                      StartupTimings startupTimings,
+                      AnimationWriter animationWriter,
+                      RunJournal runJournal,
+                      TestResultStore testResultStore,
+                      MetricsExporter metricsExporter,
+                      RunEventStream runEventStream,
+                      CoordinatorClient coordinatorClient,
+                      DeviceLeases deviceLeases) {
         this.poolLoader = poolLoader;
         this.testClassLoader = testClassLoader;
         this.poolTestRunnerFactory = poolTestRunnerFactory;
         this.progressReporter = progressReporter;
         this.summaryGeneratorHook = summaryGeneratorHook;
+        this.hotPlugDeviceListener = hotPlugDeviceListener;
+        this.startupTimings = startupTimings;
+        this.animationWriter = animationWriter;
+        this.runJournal = runJournal;
+        this.testResultStore = testResultStore;
+        this.metricsExporter = metricsExporter;
+        this.runEventStream = runEventStream;
+        this.coordinatorClient = coordinatorClient;
+        this.deviceLeases = deviceLeases;
     }
 
     public boolean run() {
         ExecutorService poolExecutor = null;
         try {
+            metricsExporter.start();
+            long devicesStartNanos = nanoTime();
             Collection<Pool> pools = poolLoader.loadPools();
+            startupTimings.record(DEVICE_PROBING, millisSinceNanoTime(devicesStartNanos));
             int numberOfPools = pools.size();
             CountDownLatch poolCountDownLatch = new CountDownLatch(numberOfPools);
             poolExecutor = namedExecutor(numberOfPools, "PoolExecutor-%d");
 
-            Collection<TestCaseEvent> testCases = testClassLoader.loadTestSuite();
+            Collection<TestCaseEvent> testCases = loadTestCases();
+            runJournal.start(pools, testResultStore);
+            runEventStream.start();
+            runEventStream.runStarted(pools, testCases.size());
             summaryGeneratorHook.registerHook(pools, testCases);
 
+            coordinatorClient.start();
             progressReporter.start();
+            List<PoolTestRunner> poolTestRunners = new ArrayList<>();
             for (Pool pool : pools) {
-                Runnable poolTestRunner = poolTestRunnerFactory.createPoolTestRunner(pool, testCases,
-                        poolCountDownLatch, progressReporter);
+                PoolTestRunner poolTestRunner = poolTestRunnerFactory.createPoolTestRunner(pool,
+                        runJournal.remainingTestsOf(pool, testCases), poolCountDownLatch, progressReporter);
+                poolTestRunners.add(poolTestRunner);
                 poolExecutor.execute(poolTestRunner);
             }
+            hotPlugDeviceListener.start(poolTestRunners);
             poolCountDownLatch.await();
+            coordinatorClient.stop();
+            runJournal.stop();
             progressReporter.stop();
+            animationWriter.awaitPendingWrites();
+            logger.info("Startup timings: {}", startupTimings);
 
             boolean overallSuccess = summaryGeneratorHook.defineOutcome();
             logger.info("Overall success: " + overallSuccess);
+            runEventStream.runFinished(overallSuccess);
             return overallSuccess;
         } catch (NoPoolLoaderConfiguredException | NoDevicesForPoolException e) {
             logger.error("Configuring devices and pools failed", e);
@@ -84,9 +141,29 @@ public class ForkRunner {
             logger.error("Error while Fork was executing", e);
             return false;
         } finally {
+            hotPlugDeviceListener.stop();
+            deviceLeases.releaseAll();
+            coordinatorClient.stop();
+            runJournal.stop();
+            runEventStream.stop();
+            metricsExporter.stop();
             if (poolExecutor != null) {
                 poolExecutor.shutdown();
             }
         }
     }
+
+    /**
+     * A worker of a distributed run does not load the suite: it runs the tests the coordinator leases to it, which
+     * the summary of the worker covers as they come.
+     */
+    private Collection<TestCaseEvent> loadTestCases() throws NoTestCasesFoundException {
+        if (coordinatorClient.isWorker()) {
+            return coordinatorClient.getLeasedTests();
+        }
+        long suiteStartNanos = nanoTime();
+        Collection<TestCaseEvent> testCases = testClassLoader.loadTestSuite();
+        startupTimings.record(SUITE_LOADING, millisSinceNanoTime(suiteStartNanos));
+        return testCases;
+    }
 }
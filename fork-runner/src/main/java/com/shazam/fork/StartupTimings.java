@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * How long each phase of starting a run took, so slow startups can be attributed.
+ */
+public class StartupTimings {
+    public enum Phase {
+        BRIDGE_INITIALISATION("bridge initialisation"),
+        DEVICE_PROBING("device probing"),
+        SUITE_LOADING("suite loading"),
+        INSTALLATION("installation on the slowest device");
+
+        private final String description;
+
+        Phase(String description) {
+            this.description = description;
+        }
+    }
+
+    private final Map<Phase, Long> phaseMillis = new EnumMap<>(Phase.class);
+
+    /**
+     * Records the duration of a phase. Phases that happen on every device at the same time keep their longest
+     * duration, as that is the one that delays the run.
+     *
+     * @param phase the phase that finished
+     * @param millis how long it took
+     */
+    public synchronized void record(Phase phase, long millis) {
+        phaseMillis.merge(phase, millis, Math::max);
+    }
+
+    /**
+     * @param phase the phase
+     * @return the duration of the phase in milliseconds, or <code>0</code> if it was not recorded
+     */
+    public synchronized long getMillis(Phase phase) {
+        return phaseMillis.getOrDefault(phase, 0L);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder timings = new StringBuilder();
+        for (Map.Entry<Phase, Long> phase : phaseMillis.entrySet()) {
+            if (timings.length() > 0) {
+                timings.append(", ");
+            }
+            timings.append(format("%s %dms", phase.getKey().description, phase.getValue()));
+        }
+        return timings.toString();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.device;
+
+import com.android.ddmlib.AndroidDebugBridge.IDeviceChangeListener;
+import com.android.ddmlib.IDevice;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.pooling.NoPoolLoaderConfiguredException;
+import com.shazam.fork.pooling.PoolLoader;
+import com.shazam.fork.runner.PoolTestRunner;
+import com.shazam.fork.system.adb.Adb;
+import com.shazam.fork.system.adb.CollectingShellOutputReceiver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.shazam.fork.Utils.namedCachedExecutor;
+import static com.shazam.fork.device.DeviceLeases.noDeviceLeases;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Watches devices that connect or disconnect while tests are running. A device that comes online late joins the pool
+ * the configured pooling strategy puts it in, once it has finished booting. A device that disconnects is retired from
+ * its pool.
+ * <p>
+ * When the devices of the host are shared with other runs, a device only joins once this run could take it. Devices
+ * that other runs let go of can also be picked up, by looking for them at a regular interval. That look skips the
+ * devices this run has already finished with and let go of itself.
+ */
+public class HotPlugDeviceListener implements IDeviceChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(HotPlugDeviceListener.class);
+    private static final long BOOT_TIMEOUT_MILLIS = MINUTES.toMillis(5);
+    private static final long BOOT_POLL_INTERVAL_MILLIS = SECONDS.toMillis(2);
+    private static final long FREED_DEVICES_POLL_INTERVAL_MILLIS = SECONDS.toMillis(10);
+
+    private final Adb adb;
+    private final DeviceLoader deviceLoader;
+    private final PoolLoader poolLoader;
+    private final DeviceLeases deviceLeases;
+    private final boolean pickUpFreedDevices;
+    private final Set<String> joiningSerials = ConcurrentHashMap.newKeySet();
+    private final List<PoolTestRunner> poolTestRunners = new ArrayList<>();
+    private ExecutorService joinExecutor;
+    private ScheduledExecutorService freedDevicesPoller;
+
+    public HotPlugDeviceListener(Adb adb, DeviceLoader deviceLoader, PoolLoader poolLoader) {
+        this(adb, deviceLoader, poolLoader, noDeviceLeases(), false);
+    }
+
+    /**
+     * @param deviceLeases the devices this run shares with the other runs of the host
+     * @param pickUpFreedDevices whether to look for devices that other runs let go of
+     */
+    public HotPlugDeviceListener(Adb adb,
+                                 DeviceLoader deviceLoader,
+                                 PoolLoader poolLoader,
+                                 DeviceLeases deviceLeases,
+                                 boolean pickUpFreedDevices) {
+        this.adb = adb;
+        this.deviceLoader = deviceLoader;
+        this.poolLoader = poolLoader;
+        this.deviceLeases = deviceLeases;
+        this.pickUpFreedDevices = pickUpFreedDevices;
+    }
+
+    /**
+     * Starts watching devices on behalf of the given pools. Devices that connected since the pools were loaded are
+     * considered straight away.
+     *
+     * @param poolTestRunners the runners of the pools that devices can join
+     */
+    public synchronized void start(Collection<PoolTestRunner> poolTestRunners) {
+        this.poolTestRunners.addAll(poolTestRunners);
+        joinExecutor = namedCachedExecutor("DeviceJoiner-%d");
+        adb.addDeviceChangeListener(this);
+        scheduleJoinOfOnlineDevices();
+        if (pickUpFreedDevices && deviceLeases.isEnabled()) {
+            freedDevicesPoller = newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("FreedDevicesPoller")
+                    .setDaemon(true)
+                    .build());
+            freedDevicesPoller.scheduleWithFixedDelay(this::scheduleJoinOfFreedDevices,
+                    FREED_DEVICES_POLL_INTERVAL_MILLIS, FREED_DEVICES_POLL_INTERVAL_MILLIS, MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        adb.removeDeviceChangeListener(this);
+        if (freedDevicesPoller != null) {
+            freedDevicesPoller.shutdownNow();
+        }
+        if (joinExecutor != null) {
+            joinExecutor.shutdownNow();
+        }
+        poolTestRunners.clear();
+    }
+
+    @Override
+    public void deviceConnected(IDevice device) {
+        if (device.isOnline()) {
+            scheduleJoin(device);
+        }
+    }
+
+    @Override
+    public void deviceDisconnected(IDevice device) {
+        String serial = device.getSerialNumber();
+        for (PoolTestRunner poolTestRunner : runners()) {
+            poolTestRunner.retireDevice(serial);
+        }
+    }
+
+    @Override
+    public void deviceChanged(IDevice device, int changeMask) {
+        if ((changeMask & IDevice.CHANGE_STATE) != 0 && device.isOnline()) {
+            scheduleJoin(device);
+        }
+    }
+
+    private synchronized void scheduleJoinOfOnlineDevices() {
+        for (IDevice device : adb.getDevices()) {
+            if (device.isOnline()) {
+                scheduleJoin(device);
+            }
+        }
+    }
+
+    private synchronized void scheduleJoinOfFreedDevices() {
+        for (IDevice device : adb.getDevices()) {
+            if (device.isOnline() && !hasFinishedWith(device.getSerialNumber())) {
+                scheduleJoin(device);
+            }
+        }
+    }
+
+    private synchronized void scheduleJoin(IDevice device) {
+        String serial = device.getSerialNumber();
+        if (joinExecutor == null || joinExecutor.isShutdown() || deviceLoader.isExcluded(serial)
+                || isRunning(serial) || !joiningSerials.add(serial)) {
+            return;
+        }
+        if (!deviceLeases.tryClaim(serial)) {
+            joiningSerials.remove(serial);
+            return;
+        }
+        joinExecutor.execute(() -> {
+            try {
+                if (!join(device)) {
+                    deviceLeases.release(serial);
+                }
+            } finally {
+                joiningSerials.remove(serial);
+            }
+        });
+    }
+
+    /**
+     * @return <code>true</code> if the device joined a pool
+     */
+    private boolean join(IDevice iDevice) {
+        String serial = iDevice.getSerialNumber();
+        if (!awaitBootCompleted(iDevice)) {
+            logger.warn("Device {} did not finish booting, it will not join any pool", serial);
+            return false;
+        }
+        Device device = deviceLoader.loadDevice(iDevice);
+        List<PoolTestRunner> runners = runners();
+        List<Pool> pools = new ArrayList<>();
+        for (PoolTestRunner poolTestRunner : runners) {
+            pools.add(poolTestRunner.getPool());
+        }
+        try {
+            String poolName = poolLoader.poolNameFor(device, pools);
+            for (PoolTestRunner poolTestRunner : runners) {
+                if (poolTestRunner.getPool().getName().equals(poolName)) {
+                    if (!poolTestRunner.addDevice(device)) {
+                        logger.info("Device {} connected after pool {} ran out of tests", serial, poolName);
+                        return false;
+                    }
+                    return true;
+                }
+            }
+            logger.info("Device {} connected late but does not belong to any running pool", serial);
+        } catch (NoPoolLoaderConfiguredException | RuntimeException e) {
+            logger.warn("Could not find a pool for device " + serial, e);
+        }
+        return false;
+    }
+
+    private boolean awaitBootCompleted(IDevice device) {
+        long deadline = System.currentTimeMillis() + BOOT_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!device.isOnline()) {
+                return false;
+            }
+            CollectingShellOutputReceiver receiver = new CollectingShellOutputReceiver();
+            try {
+                device.executeShellCommand("getprop sys.boot_completed", receiver);
+                if ("1".equals(receiver.getOutput().trim())) {
+                    return true;
+                }
+            } catch (Exception e) {
+                logger.debug("Could not check whether {} has booted", device.getSerialNumber(), e);
+            }
+            try {
+                Thread.sleep(BOOT_POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private synchronized boolean isRunning(String serial) {
+        for (PoolTestRunner poolTestRunner : poolTestRunners) {
+            if (poolTestRunner.hasDevice(serial)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized boolean hasFinishedWith(String serial) {
+        for (PoolTestRunner poolTestRunner : poolTestRunners) {
+            if (poolTestRunner.hasFinishedWith(serial)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized List<PoolTestRunner> runners() {
+        return new ArrayList<>(poolTestRunners);
+    }
+}
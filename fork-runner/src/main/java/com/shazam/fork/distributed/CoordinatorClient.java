@@ -0,0 +1,272 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.distributed;
+
+import com.google.gson.Gson;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.TestCaseEventSource;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.system.adb.AdbServerHealth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static com.shazam.fork.Utils.namedExecutor;
+import static com.shazam.fork.distributed.CoordinatorServer.TOKEN_HEADER;
+import static com.shazam.fork.distributed.WorkRequest.FINISHED;
+import static com.shazam.fork.distributed.WorkRequest.HEARTBEAT;
+import static com.shazam.fork.distributed.WorkRequest.LEASE;
+import static com.shazam.fork.distributed.WorkRequest.REMOVED;
+import static com.shazam.fork.distributed.WorkRequest.STORED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * The worker side of a distributed run: leases tests from the coordinator for the devices of this host and sends
+ * their results back. Results are sent in the background, in the order they were recorded, and retried a few times if
+ * the coordinator cannot be reached. The heartbeats of the worker tell the coordinator how the connection to its ADB
+ * server is doing.
+ * <p>
+ * A worker that loses the coordinator for {@link #GIVE_UP_AFTER_MILLIS} stops taking tests; the coordinator gives
+ * the tests leased to it to the other workers.
+ */
+public class CoordinatorClient {
+    static final long POLL_INTERVAL_MILLIS = 1000;
+    static final long HEARTBEAT_INTERVAL_MILLIS = 5000;
+    static final long GIVE_UP_AFTER_MILLIS = 60000;
+    private static final int SEND_ATTEMPTS = 3;
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private static final Logger logger = LoggerFactory.getLogger(CoordinatorClient.class);
+
+    @Nullable
+    private final String coordinatorAddress;
+    private final String worker;
+    private final String token;
+    private final Gson gson;
+    private final Supplier<AdbServerHealth> adbServerHealth;
+    private final Set<TestCaseEvent> leasedTests = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService heartbeats;
+    private ExecutorService sender;
+    private volatile long lastReachedMillis = System.currentTimeMillis();
+
+    /**
+     * @param coordinatorAddress the <code>host:port</code> of the coordinator, or <code>null</code> if the run is not
+     *                           a worker
+     * @param worker the name of this worker, unique among the workers of the run
+     * @param token the secret shared with the coordinator, sent with every request
+     * @param gson the gson used to talk to the coordinator
+     */
+    public CoordinatorClient(@Nullable String coordinatorAddress, String worker, String token, Gson gson) {
+        this(coordinatorAddress, worker, token, gson, () -> null);
+    }
+
+    /**
+     * @param adbServerHealth how the connection to the ADB server of this worker is doing, sent with every heartbeat
+     */
+    public CoordinatorClient(@Nullable String coordinatorAddress,
+                             String worker,
+                             String token,
+                             Gson gson,
+                             Supplier<AdbServerHealth> adbServerHealth) {
+        this.coordinatorAddress = coordinatorAddress;
+        this.worker = worker;
+        this.token = token;
+        this.gson = gson;
+        this.adbServerHealth = adbServerHealth;
+    }
+
+    /**
+     * Names a worker after its process, its host and the port of its ADB server. The process tells apart the workers
+     * a host runs on the same ADB server, as when they share its devices through device leases.
+     *
+     * @param jvmName the name the JVM gives itself, <code>pid@host</code>
+     * @param adbServerAddress the <code>host:port</code> of the ADB server of the worker
+     * @return the name of the worker, <code>pid@host:port</code>
+     */
+    public static String workerName(String jvmName, String adbServerAddress) {
+        return jvmName + adbServerAddress.substring(adbServerAddress.lastIndexOf(':'));
+    }
+
+    public static CoordinatorClient noCoordinatorClient() {
+        return new CoordinatorClient(null, "", "", new Gson());
+    }
+
+    public boolean isWorker() {
+        return coordinatorAddress != null;
+    }
+
+    /**
+     * @return every test leased to this worker so far. The collection grows as the devices take more tests.
+     */
+    public Collection<TestCaseEvent> getLeasedTests() {
+        return leasedTests;
+    }
+
+    public synchronized void start() {
+        if (!isWorker() || sender != null) {
+            return;
+        }
+        lastReachedMillis = System.currentTimeMillis();
+        sender = namedExecutor(1, "CoordinatorClient-%d");
+        heartbeats = newSingleThreadScheduledExecutor();
+        heartbeats.scheduleWithFixedDelay(this::sendHeartbeat, 0, HEARTBEAT_INTERVAL_MILLIS, MILLISECONDS);
+        logger.info("Working for the coordinator at {} as {}", coordinatorAddress, worker);
+    }
+
+    /**
+     * Sends the results still waiting and tells the coordinator that this worker has finished.
+     */
+    public synchronized void stop() {
+        if (sender == null) {
+            return;
+        }
+        heartbeats.shutdownNow();
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(1, MINUTES)) {
+                logger.warn("Some results could not be sent to the coordinator in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        trySend(FINISHED, WorkRequest.workerOnly(worker));
+        sender = null;
+    }
+
+    /**
+     * @param pool a pool of this worker
+     * @return where the queue of the pool takes its tests from, or a source that never gives any if the run is not a
+     * worker
+     */
+    public TestCaseEventSource sourceFor(Pool pool) {
+        if (!isWorker()) {
+            return TestCaseEventSource.noTestCaseEventSource();
+        }
+        return new TestCaseEventSource() {
+            private volatile boolean exhausted;
+
+            @Override
+            public List<TestCaseEvent> take(Device device, int maxTests) {
+                if (exhausted) {
+                    return emptyList();
+                }
+                WorkResponse response = trySend(LEASE, WorkRequest.lease(worker, pool.getName(), device, maxTests));
+                if (response != null && response.finished) {
+                    exhausted = true;
+                    return emptyList();
+                }
+                if (response == null || response.tests == null || response.tests.isEmpty()) {
+                    if (System.currentTimeMillis() - lastReachedMillis > GIVE_UP_AFTER_MILLIS) {
+                        logger.warn("The coordinator could not be reached for a while, pool {} stops taking tests",
+                                pool.getName());
+                        exhausted = true;
+                    } else {
+                        sleepUninterruptibly(POLL_INTERVAL_MILLIS, MILLISECONDS);
+                    }
+                    return emptyList();
+                }
+                leasedTests.addAll(response.tests);
+                return response.tests;
+            }
+
+            @Override
+            public boolean isExhausted() {
+                return exhausted;
+            }
+        };
+    }
+
+    public void recordStored(Pool pool, Device device, String testClass, String testMethod,
+                             Collection<TestResult> testResults) {
+        sendLater(STORED, WorkRequest.stored(worker, pool.getName(), device, testClass, testMethod, testResults));
+    }
+
+    public void recordRemoved(Pool pool, Device device, String testClass, String testMethod) {
+        sendLater(REMOVED, WorkRequest.removed(worker, pool.getName(), device, testClass, testMethod));
+    }
+
+    private void sendHeartbeat() {
+        try {
+            trySend(HEARTBEAT, WorkRequest.heartbeat(worker, adbServerHealth.get()));
+        } catch (RuntimeException e) {
+            logger.warn("Could not send a heartbeat to the coordinator", e);
+        }
+    }
+
+    private synchronized void sendLater(String path, WorkRequest request) {
+        if (sender == null) {
+            return;
+        }
+        sender.execute(() -> {
+            for (int attempt = 1; attempt <= SEND_ATTEMPTS; attempt++) {
+                if (trySend(path, request) != null) {
+                    return;
+                }
+                sleepUninterruptibly(POLL_INTERVAL_MILLIS * attempt, MILLISECONDS);
+            }
+            logger.warn("Gave up sending {} of {}#{} to the coordinator", path, request.testClass,
+                    request.testMethod);
+        });
+    }
+
+    @Nullable
+    private WorkResponse trySend(String path, WorkRequest request) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://" + coordinatorAddress + path)
+                    .openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setRequestProperty(TOKEN_HEADER, token);
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(gson.toJson(request).getBytes(UTF_8));
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                logger.warn("The coordinator refused {} with status {}", path, connection.getResponseCode());
+                return null;
+            }
+            try (InputStream body = connection.getInputStream()) {
+                WorkResponse response = gson.fromJson(new String(toByteArray(body), UTF_8), WorkResponse.class);
+                lastReachedMillis = System.currentTimeMillis();
+                return response;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not reach the coordinator at " + coordinatorAddress, e);
+            return null;
+        }
+    }
+}
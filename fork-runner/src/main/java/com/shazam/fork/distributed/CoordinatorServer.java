@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.distributed;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+import static com.shazam.fork.Utils.namedExecutor;
+import static com.shazam.fork.distributed.WorkRequest.FINISHED;
+import static com.shazam.fork.distributed.WorkRequest.HEARTBEAT;
+import static com.shazam.fork.distributed.WorkRequest.LEASE;
+import static com.shazam.fork.distributed.WorkRequest.REMOVED;
+import static com.shazam.fork.distributed.WorkRequest.STORED;
+import static com.shazam.fork.distributed.WorkResponse.acknowledged;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serves the {@link WorkCoordinator} to the workers over HTTP, one path per request, with JSON bodies. Only requests
+ * carrying the token shared with the workers, in the {@link #TOKEN_HEADER} header, are handled.
+ */
+public class CoordinatorServer {
+    public static final String TOKEN_HEADER = "X-Fork-Coordinator-Token";
+
+    private static final Logger logger = LoggerFactory.getLogger(CoordinatorServer.class);
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int THREADS = 8;
+
+    private final WorkCoordinator workCoordinator;
+    private final Gson gson;
+    private final int port;
+    private final byte[] token;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param token the secret the workers send with every request
+     */
+    public CoordinatorServer(WorkCoordinator workCoordinator, Gson gson, int port, String token) {
+        this.workCoordinator = workCoordinator;
+        this.gson = gson;
+        this.port = port;
+        this.token = token.getBytes(UTF_8);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        serve(LEASE, request -> workCoordinator.lease(request.worker, request.pool, request.device, request.maxTests));
+        serve(STORED, request -> {
+            workCoordinator.stored(request.worker, request.pool, request.device, request.testClass,
+                    request.testMethod, request.results);
+            return acknowledged();
+        });
+        serve(REMOVED, request -> {
+            workCoordinator.removed(request.worker, request.pool, request.device, request.testClass,
+                    request.testMethod);
+            return acknowledged();
+        });
+        serve(HEARTBEAT, request -> {
+            workCoordinator.heartbeat(request.worker, request.adbServer);
+            return acknowledged();
+        });
+        serve(FINISHED, request -> {
+            workCoordinator.finished(request.worker);
+            return acknowledged();
+        });
+        executor = namedExecutor(THREADS, "CoordinatorServer-%d");
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Coordinating workers on port {}", getPort());
+    }
+
+    /**
+     * @return the port the workers connect to, which the system picks when the server was given <code>0</code>
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void serve(String path, Function<WorkRequest, WorkResponse> handler) {
+        server.createContext(path, exchange -> handle(exchange, handler));
+    }
+
+    private void handle(HttpExchange exchange, Function<WorkRequest, WorkResponse> handler) throws IOException {
+        if (!hasToken(exchange)) {
+            logger.warn("Refused a request to {} from {} without the coordinator token", exchange.getRequestURI(),
+                    exchange.getRemoteAddress());
+            exchange.getRequestBody().close();
+            exchange.sendResponseHeaders(403, -1);
+            exchange.close();
+            return;
+        }
+        int status = 200;
+        String response;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            WorkRequest request = WorkRequest.fromJson(gson, new String(toByteArray(requestBody), UTF_8));
+            response = gson.toJson(handler.apply(request));
+        } catch (RuntimeException e) {
+            logger.warn("Could not handle a request to " + exchange.getRequestURI(), e);
+            status = 400;
+            response = gson.toJson(acknowledged());
+        }
+        byte[] body = response.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Compares in constant time, so the time a refusal takes tells nothing about the token.
+     */
+    private boolean hasToken(HttpExchange exchange) {
+        String sentToken = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        return sentToken != null && MessageDigest.isEqual(token, sentToken.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.distributed;
+
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.PoolMakespanTracker;
+import com.shazam.fork.runner.TestCaseEventQueue;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.adb.AdbServerHealth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.runner.TestDurations.keyOf;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableCollection;
+
+/**
+ * Hands the test suite out to the workers of a distributed run. Every pool a worker has gets its own copy of the
+ * suite, in a {@link TestCaseEventQueue} shared by the devices of that pool on every worker, so the devices keep
+ * pulling tests until the very end, whichever host they are on.
+ * <p>
+ * A test stays leased to its worker until the worker sends its results back, which go to the {@link TestResultStore}
+ * for the summary of the run. Workers that are not heard of for {@link #WORKER_TIMEOUT_MILLIS} are given up on: the
+ * tests leased to them are queued again for the other workers.
+ * <p>
+ * Each worker uses the devices of a single ADB server, so the pools of the coordinator combine the devices of every
+ * server, with serials prefixed by the worker. The health of each server comes with the heartbeats of its worker.
+ */
+public class WorkCoordinator {
+    static final long WORKER_TIMEOUT_MILLIS = 30000;
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkCoordinator.class);
+
+    private final TestResultStore testResultStore;
+    private final PoolMakespanTracker poolMakespanTracker;
+    private final long workerTimeoutMillis;
+    private final LongSupplier clock;
+    private final Map<String, PoolWork> poolWorks = new LinkedHashMap<>();
+    private final Collection<Pool> pools = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> liveWorkers = new HashMap<>();
+    private final Map<String, AdbServerHealth> adbServers = new LinkedHashMap<>();
+    private Collection<TestCaseEvent> testCases = emptyList();
+    private long lastWorkerLeftMillis;
+
+    public WorkCoordinator(TestResultStore testResultStore, PoolMakespanTracker poolMakespanTracker) {
+        this(testResultStore, poolMakespanTracker, WORKER_TIMEOUT_MILLIS, System::currentTimeMillis);
+    }
+
+    WorkCoordinator(TestResultStore testResultStore,
+                    PoolMakespanTracker poolMakespanTracker,
+                    long workerTimeoutMillis,
+                    LongSupplier clock) {
+        this.testResultStore = testResultStore;
+        this.poolMakespanTracker = poolMakespanTracker;
+        this.workerTimeoutMillis = workerTimeoutMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @param testCases the suite every pool runs
+     */
+    public synchronized void start(Collection<TestCaseEvent> testCases) {
+        this.testCases = testCases;
+    }
+
+    /**
+     * @return the pools of the workers, with every device that took tests. The collection grows as workers join.
+     */
+    public Collection<Pool> getPools() {
+        return unmodifiableCollection(pools);
+    }
+
+    /**
+     * Waits until every pool has run its tests and every worker has left, or until no worker is left and none came
+     * back for a while to run the tests left.
+     */
+    public synchronized void awaitDone() throws InterruptedException {
+        while (!isDone()) {
+            wait(CHECK_INTERVAL_MILLIS);
+            expireSilentWorkers();
+        }
+    }
+
+    synchronized boolean isDone() {
+        if (poolWorks.isEmpty() || !liveWorkers.isEmpty()) {
+            return false;
+        }
+        for (PoolWork poolWork : poolWorks.values()) {
+            if (!poolWork.isFinished()) {
+                return clock.getAsLong() - lastWorkerLeftMillis > workerTimeoutMillis;
+            }
+        }
+        return true;
+    }
+
+    synchronized WorkResponse lease(String worker, String poolName, Device device, int maxTests) {
+        seen(worker);
+        PoolWork poolWork = poolWorks.get(poolName);
+        if (poolWork == null) {
+            Pool pool = aDevicePool().withName(poolName).build();
+            poolWork = new PoolWork(pool, new TestCaseEventQueue(testCases, singletonList(device)), now());
+            poolWorks.put(poolName, poolWork);
+            pools.add(pool);
+            logger.info("Pool {} started on worker {}", poolName, worker);
+        }
+        poolWork.join(worker, device);
+        List<TestCaseEvent> tests = poolWork.queue.pollBatchFor(device, Math.max(1, maxTests));
+        for (TestCaseEvent test : tests) {
+            poolWork.leases.put(keyOf(test.getTestClass(), test.getTestMethod()), new Lease(worker, test));
+        }
+        return new WorkResponse(tests, tests.isEmpty() && poolWork.isFinished());
+    }
+
+    synchronized void stored(String worker, String poolName, Device device, String testClass, String testMethod,
+                             List<TestResult> testResults) {
+        seen(worker);
+        PoolWork poolWork = poolWorks.get(poolName);
+        if (poolWork == null) {
+            logger.warn("Worker {} sent results for pool {}, which never leased a test", worker, poolName);
+            return;
+        }
+        poolWork.join(worker, device);
+        testResultStore.store(poolWork.pool, device, testClass, testMethod, testResults);
+        String key = keyOf(testClass, testMethod);
+        Lease lease = poolWork.leases.get(key);
+        if (lease != null && lease.worker.equals(worker)) {
+            poolWork.leases.remove(key);
+        }
+        if (poolWork.isFinished() && poolWork.finishedMillis == 0) {
+            poolWork.finishedMillis = now();
+            poolMakespanTracker.recordActualMakespan(poolName, poolWork.finishedMillis - poolWork.startedMillis);
+            logger.info("Pool {} finished", poolName);
+        }
+        notifyAll();
+    }
+
+    synchronized void removed(String worker, String poolName, Device device, String testClass, String testMethod) {
+        seen(worker);
+        PoolWork poolWork = poolWorks.get(poolName);
+        if (poolWork != null) {
+            testResultStore.remove(poolWork.pool, device, testClass, testMethod);
+        }
+    }
+
+    /**
+     * @return the last known health of the ADB server of every worker, by worker
+     */
+    public synchronized Map<String, AdbServerHealth> getAdbServers() {
+        return new LinkedHashMap<>(adbServers);
+    }
+
+    synchronized void heartbeat(String worker, @Nullable AdbServerHealth adbServer) {
+        seen(worker);
+        if (adbServer == null) {
+            return;
+        }
+        AdbServerHealth previous = adbServers.put(worker, adbServer);
+        boolean wasConnected = previous == null || previous.isConnected();
+        if (wasConnected && !adbServer.isConnected()) {
+            logger.warn("Worker {} lost its ADB server: {}", worker, adbServer);
+        } else if (!wasConnected && adbServer.isConnected()) {
+            logger.info("Worker {} is connected to its ADB server again: {}", worker, adbServer);
+        }
+    }
+
+    /**
+     * A worker whose pools have run out of tests leaves. Tests it leased but never sent results for are queued again.
+     */
+    synchronized void finished(String worker) {
+        if (liveWorkers.remove(worker) == null) {
+            return;
+        }
+        int requeued = requeueLeasesOf(worker);
+        lastWorkerLeftMillis = now();
+        logger.info("Worker {} finished{}", worker, requeued > 0 ? ", " + requeued + " tests it left are queued again"
+                : "");
+        notifyAll();
+    }
+
+    synchronized void expireSilentWorkers() {
+        long now = now();
+        Iterator<Map.Entry<String, Long>> iterator = liveWorkers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> liveWorker = iterator.next();
+            if (now - liveWorker.getValue() > workerTimeoutMillis) {
+                iterator.remove();
+                int requeued = requeueLeasesOf(liveWorker.getKey());
+                lastWorkerLeftMillis = now;
+                logger.warn("Worker {} was not heard of for {} ms, the {} tests leased to it are queued again",
+                        liveWorker.getKey(), now - liveWorker.getValue(), requeued);
+            }
+        }
+    }
+
+    private int requeueLeasesOf(String worker) {
+        int requeued = 0;
+        for (PoolWork poolWork : poolWorks.values()) {
+            Iterator<Lease> leases = poolWork.leases.values().iterator();
+            while (leases.hasNext()) {
+                Lease lease = leases.next();
+                if (lease.worker.equals(worker)) {
+                    leases.remove();
+                    poolWork.queue.offerRetry(lease.test);
+                    requeued++;
+                }
+            }
+            for (Device device : poolWork.devicesOf(worker)) {
+                poolWork.queue.retire(device);
+            }
+        }
+        return requeued;
+    }
+
+    private void seen(String worker) {
+        if (liveWorkers.put(worker, now()) == null) {
+            logger.info("Worker {} joined", worker);
+        }
+    }
+
+    private long now() {
+        return clock.getAsLong();
+    }
+
+    private static class PoolWork {
+        private final Pool pool;
+        private final TestCaseEventQueue queue;
+        private final long startedMillis;
+        private final Map<String, Lease> leases = new LinkedHashMap<>();
+        private final Map<String, List<Device>> devicesByWorker = new HashMap<>();
+        private long finishedMillis;
+
+        PoolWork(Pool pool, TestCaseEventQueue queue, long startedMillis) {
+            this.pool = pool;
+            this.queue = queue;
+            this.startedMillis = startedMillis;
+        }
+
+        void join(String worker, Device device) {
+            List<Device> devices = devicesByWorker.computeIfAbsent(worker, key -> new ArrayList<>());
+            if (devices.stream().noneMatch(known -> known.getSerial().equals(device.getSerial()))) {
+                devices.add(device);
+                pool.addDevice(device);
+            }
+            queue.join(device);
+        }
+
+        List<Device> devicesOf(String worker) {
+            return devicesByWorker.getOrDefault(worker, emptyList());
+        }
+
+        boolean isFinished() {
+            return leases.isEmpty() && queue.isEmpty();
+        }
+    }
+
+    private static class Lease {
+        private final String worker;
+        private final TestCaseEvent test;
+
+        Lease(String worker, TestCaseEvent test) {
+            this.worker = worker;
+            this.test = test;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.distributed;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.system.adb.AdbServerHealth;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * What a worker sends to the coordinator, as JSON. Which fields are set depends on the request.
+ */
+class WorkRequest {
+    static final String LEASE = "/lease";
+    static final String STORED = "/stored";
+    static final String REMOVED = "/removed";
+    static final String HEARTBEAT = "/heartbeat";
+    static final String FINISHED = "/finished";
+
+    private static final String SERIAL = "serial";
+    private static final String SERIAL_SEPARATOR = ":";
+
+    String worker;
+    @Nullable
+    String pool;
+    @Nullable
+    Device device;
+    int maxTests;
+    @Nullable
+    String testClass;
+    @Nullable
+    String testMethod;
+    @Nullable
+    List<TestResult> results;
+    @Nullable
+    AdbServerHealth adbServer;
+
+    private WorkRequest(String worker) {
+        this.worker = worker;
+    }
+
+    static WorkRequest lease(String worker, String pool, Device device, int maxTests) {
+        WorkRequest request = new WorkRequest(worker);
+        request.pool = pool;
+        request.device = device;
+        request.maxTests = maxTests;
+        return request;
+    }
+
+    static WorkRequest stored(String worker, String pool, Device device, String testClass, String testMethod,
+                              Collection<TestResult> results) {
+        WorkRequest request = removed(worker, pool, device, testClass, testMethod);
+        request.results = new ArrayList<>(results);
+        return request;
+    }
+
+    static WorkRequest removed(String worker, String pool, Device device, String testClass, String testMethod) {
+        WorkRequest request = new WorkRequest(worker);
+        request.pool = pool;
+        request.device = device;
+        request.testClass = testClass;
+        request.testMethod = testMethod;
+        return request;
+    }
+
+    static WorkRequest heartbeat(String worker, @Nullable AdbServerHealth adbServer) {
+        WorkRequest request = new WorkRequest(worker);
+        request.adbServer = adbServer;
+        return request;
+    }
+
+    static WorkRequest workerOnly(String worker) {
+        return new WorkRequest(worker);
+    }
+
+    /**
+     * Reads a request, prefixing the serials of the devices it mentions with the name of the worker. Workers on
+     * different hosts often have devices with the same serial, such as <code>emulator-5554</code>.
+     */
+    static WorkRequest fromJson(Gson gson, String json) {
+        JsonObject request = new JsonParser().parse(json).getAsJsonObject();
+        String worker = request.get("worker").getAsString();
+        namespaceSerial(request.get("device"), worker);
+        JsonElement results = request.get("results");
+        if (results != null && results.isJsonArray()) {
+            for (JsonElement result : results.getAsJsonArray()) {
+                namespaceSerial(result.getAsJsonObject().get("device"), worker);
+                JsonElement attempts = result.getAsJsonObject().get("attempts");
+                if (attempts != null && attempts.isJsonArray()) {
+                    for (JsonElement attempt : (JsonArray) attempts) {
+                        namespaceSerial(attempt, worker);
+                    }
+                }
+            }
+        }
+        return gson.fromJson(request, WorkRequest.class);
+    }
+
+    private static void namespaceSerial(@Nullable JsonElement element, String worker) {
+        if (element == null || !element.isJsonObject() || !element.getAsJsonObject().has(SERIAL)) {
+            return;
+        }
+        JsonObject object = element.getAsJsonObject();
+        object.addProperty(SERIAL, worker + SERIAL_SEPARATOR + object.get(SERIAL).getAsString());
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.distributed;
+
+import com.shazam.fork.model.TestCaseEvent;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * What the coordinator answers a worker, as JSON: the tests leased to a device, or whether the pool has finished.
+ */
+class WorkResponse {
+    List<TestCaseEvent> tests;
+    boolean finished;
+
+    WorkResponse(List<TestCaseEvent> tests, boolean finished) {
+        this.tests = tests;
+        this.finished = finished;
+    }
+
+    static WorkResponse acknowledged() {
+        return new WorkResponse(emptyList(), false);
+    }
+}
@@ -17,11 +17,20 @@ import com.shazam.fork.ForkRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.shazam.fork.injector.StartupTimingsInjector.startupTimings;
+import static com.shazam.fork.injector.device.DeviceLeasesInjector.deviceLeases;
+import static com.shazam.fork.injector.device.HotPlugDeviceListenerInjector.hotPlugDeviceListener;
+import static com.shazam.fork.injector.distributed.CoordinatorClientInjector.coordinatorClient;
+import static com.shazam.fork.injector.listeners.AnimationWriterInjector.animationWriter;
+import static com.shazam.fork.injector.metrics.MetricsExporterInjector.metricsExporter;
 import static com.shazam.fork.injector.pooling.PoolLoaderInjector.poolLoader;
 import static com.shazam.fork.injector.runner.PoolTestRunnerFactoryInjector.poolTestRunnerFactory;
 import static com.shazam.fork.injector.runner.ProgressReporterInjector.progressReporter;
+import static com.shazam.fork.injector.runner.RunEventStreamInjector.runEventStream;
+import static com.shazam.fork.injector.runner.RunJournalInjector.runJournal;
 import static com.shazam.fork.injector.suite.TestSuiteLoaderInjector.testSuiteLoader;
 import static com.shazam.fork.injector.summary.SummaryGeneratorHookInjector.summaryGeneratorHook;
+import static com.shazam.fork.injector.summary.TestResultStoreInjector.testResultStore;
 import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
 import static java.lang.System.nanoTime;
 
@@ -39,7 +48,16 @@ public class ForkRunnerInjector {
                 testSuiteLoader(),
                 poolTestRunnerFactory(),
                 progressReporter(),
-                summaryGeneratorHook());
+                summaryGeneratorHook(),
+                hotPlugDeviceListener(),
+                startupTimings(),
+                animationWriter(),
+                runJournal(),
+                testResultStore(),
+                metricsExporter(),
+                runEventStream(),
+                coordinatorClient(),
+                deviceLeases());
 
         logger.debug("Bootstrap of ForkRunner took: {} milliseconds", millisSinceNanoTime(startNanos));
 
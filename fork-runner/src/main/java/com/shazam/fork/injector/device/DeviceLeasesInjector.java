@@ -0,0 +1,28 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.injector.device;
+
+import com.shazam.fork.device.DeviceLeases;
+
+import java.lang.management.ManagementFactory;
+
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+
+public class DeviceLeasesInjector {
+    private static final DeviceLeases DEVICE_LEASES = new DeviceLeases(configuration().getDeviceLeaseDir(),
+            configuration().getMaxLeasedDevices(), ManagementFactory.getRuntimeMXBean().getName());
+
+    private DeviceLeasesInjector() {}
+
+    public static DeviceLeases deviceLeases() {
+        return DEVICE_LEASES;
+    }
+}
@@ -13,6 +13,7 @@ import com.shazam.fork.device.DeviceLoader;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
 import static com.shazam.fork.injector.device.DeviceGeometryRetrieverInjector.deviceGeometryReader;
+import static com.shazam.fork.injector.device.DeviceLeasesInjector.deviceLeases;
 import static com.shazam.fork.injector.system.AdbInjector.adb;
 
 public class DeviceLoaderInjector {
@@ -20,6 +21,7 @@ public class DeviceLoaderInjector {
     private DeviceLoaderInjector() {}
 
     public static DeviceLoader deviceLoader() {
-        return new DeviceLoader(adb(), deviceGeometryReader(), configuration().getExcludedSerials());
+        return new DeviceLoader(adb(), deviceGeometryReader(), configuration().getExcludedSerials(),
+                configuration().getDeviceProbeConcurrency(), configuration().getDeviceProbeTimeout(), deviceLeases());
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.injector.distributed;
+
+import com.shazam.fork.distributed.CoordinatorClient;
+
+import java.lang.management.ManagementFactory;
+
+import static com.shazam.fork.distributed.CoordinatorClient.workerName;
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.GsonInjector.gson;
+import static com.shazam.fork.injector.system.AdbInjector.adb;
+
+public class CoordinatorClientInjector {
+    private static final CoordinatorClient COORDINATOR_CLIENT = createCoordinatorClient();
+
+    private CoordinatorClientInjector() {}
+
+    public static CoordinatorClient coordinatorClient() {
+        return COORDINATOR_CLIENT;
+    }
+
+    /**
+     * Only a worker connects to ADB here: the coordinator of a distributed run has no devices.
+     */
+    private static CoordinatorClient createCoordinatorClient() {
+        String coordinatorAddress = configuration().getCoordinatorAddress();
+        if (coordinatorAddress == null) {
+            return new CoordinatorClient(null, "", "", gson());
+        }
+        String workerName = workerName(ManagementFactory.getRuntimeMXBean().getName(), adb().getServerAddress());
+        return new CoordinatorClient(coordinatorAddress, workerName, configuration().getCoordinatorToken(), gson(),
+                () -> adb().getHealth());
+    }
+}
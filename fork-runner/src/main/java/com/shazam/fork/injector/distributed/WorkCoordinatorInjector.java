@@ -0,0 +1,27 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.injector.distributed;
+
+import com.shazam.fork.distributed.WorkCoordinator;
+
+import static com.shazam.fork.injector.runner.PoolMakespanTrackerInjector.poolMakespanTracker;
+import static com.shazam.fork.injector.summary.TestResultStoreInjector.testResultStore;
+
+public class WorkCoordinatorInjector {
+    private static final WorkCoordinator WORK_COORDINATOR = new WorkCoordinator(testResultStore(),
+            poolMakespanTracker());
+
+    private WorkCoordinatorInjector() {}
+
+    public static WorkCoordinator workCoordinator() {
+        return WORK_COORDINATOR;
+    }
+}
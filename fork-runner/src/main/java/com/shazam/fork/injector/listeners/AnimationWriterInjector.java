@@ -0,0 +1,25 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.injector.listeners;
+
+import com.shazam.fork.runner.listeners.AnimationWriter;
+
+public class AnimationWriterInjector {
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final AnimationWriter ANIMATION_WRITER = new AnimationWriter(THREADS, 2 * THREADS);
+
+    private AnimationWriterInjector() {}
+
+    public static AnimationWriter animationWriter() {
+        return ANIMATION_WRITER;
+    }
+}
@@ -13,6 +13,12 @@ package com.shazam.fork.injector.listeners;
 import com.shazam.fork.runner.listeners.TestRunListenersFactory;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.listeners.AnimationWriterInjector.animationWriter;
+import static com.shazam.fork.injector.metrics.MetricsRegistryInjector.metricsRegistry;
+import static com.shazam.fork.injector.runner.DeviceTimelineInjector.deviceTimeline;
+import static com.shazam.fork.injector.runner.RetryCircuitBreakerInjector.retryCircuitBreaker;
+import static com.shazam.fork.injector.runner.RunEventStreamInjector.runEventStream;
+import static com.shazam.fork.injector.summary.TestResultStoreInjector.testResultStore;
 import static com.shazam.fork.injector.system.FileManagerInjector.fileManager;
 import static com.shazam.fork.injector.GsonInjector.gson;
 
@@ -21,6 +27,7 @@ public class TestRunListenersFactoryInjector {
     private TestRunListenersFactoryInjector() {}
 
     public static TestRunListenersFactory testRunListenersFactory() {
-        return new TestRunListenersFactory(configuration(), fileManager(), gson());
+        return new TestRunListenersFactory(configuration(), fileManager(), gson(), animationWriter(),
+                testResultStore(), metricsRegistry(), deviceTimeline(), runEventStream(), retryCircuitBreaker());
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.injector.metrics;
+
+import com.shazam.fork.metrics.MetricsExporter;
+
+import java.io.File;
+
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.metrics.MetricsRegistryInjector.metricsRegistry;
+import static com.shazam.fork.metrics.MetricsExporter.METRICS_FILENAME;
+
+public class MetricsExporterInjector {
+    private static final MetricsExporter METRICS_EXPORTER = new MetricsExporter(
+            metricsRegistry(),
+            new File(configuration().getOutput(), METRICS_FILENAME),
+            configuration().getMetricsPort());
+
+    private MetricsExporterInjector() {}
+
+    public static MetricsExporter metricsExporter() {
+        return METRICS_EXPORTER;
+    }
+}
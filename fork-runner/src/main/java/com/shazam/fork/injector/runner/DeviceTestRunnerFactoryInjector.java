@@ -12,6 +12,11 @@ package com.shazam.fork.injector.runner;
 
 import com.shazam.fork.runner.DeviceTestRunnerFactory;
 
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.StartupTimingsInjector.startupTimings;
+import static com.shazam.fork.injector.metrics.MetricsRegistryInjector.metricsRegistry;
+import static com.shazam.fork.injector.runner.DeviceTimelineInjector.deviceTimeline;
+import static com.shazam.fork.injector.runner.RetryCircuitBreakerInjector.retryCircuitBreaker;
 import static com.shazam.fork.injector.system.InstallerInjector.installer;
 import static com.shazam.fork.injector.runner.TestRunFactoryInjector.testRunFactory;
 
@@ -19,6 +24,7 @@ public class DeviceTestRunnerFactoryInjector {
     private DeviceTestRunnerFactoryInjector() {}
 
     public static DeviceTestRunnerFactory deviceTestRunnerFactory() {
-        return new DeviceTestRunnerFactory(installer(), testRunFactory());
+        return new DeviceTestRunnerFactory(installer(), testRunFactory(), configuration().getBatchSize(),
+                startupTimings(), metricsRegistry(), deviceTimeline(), retryCircuitBreaker());
     }
 }
@@ -12,13 +12,25 @@ package com.shazam.fork.injector.runner;
 
 import com.shazam.fork.runner.PoolTestRunnerFactory;
 
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.device.DeviceLeasesInjector.deviceLeases;
+import static com.shazam.fork.injector.distributed.CoordinatorClientInjector.coordinatorClient;
+import static com.shazam.fork.injector.runner.DeviceQuarantineTrackerInjector.deviceQuarantineTracker;
 import static com.shazam.fork.injector.runner.DeviceTestRunnerFactoryInjector.deviceTestRunnerFactory;
+import static com.shazam.fork.injector.runner.PoolMakespanTrackerInjector.poolMakespanTracker;
+import static com.shazam.fork.injector.runner.RunEventStreamInjector.runEventStream;
+import static com.shazam.fork.injector.runner.TestDurationsInjector.testDurations;
+import static com.shazam.fork.injector.summary.TestResultStoreInjector.testResultStore;
+import static com.shazam.fork.injector.system.FileManagerInjector.fileManager;
 
 public class PoolTestRunnerFactoryInjector {
 
     private PoolTestRunnerFactoryInjector() {}
 
     public static PoolTestRunnerFactory poolTestRunnerFactory() {
-        return new PoolTestRunnerFactory(deviceTestRunnerFactory());
+        return new PoolTestRunnerFactory(deviceTestRunnerFactory(), testDurations(), poolMakespanTracker(),
+                runEventStream(), configuration().isSpeculativeExecutionEnabled(), fileManager(),
+                testResultStore(), configuration().getDeviceQuarantineThreshold(), deviceQuarantineTracker(),
+                coordinatorClient(), deviceLeases());
     }
 }
@@ -15,6 +15,7 @@ import com.shazam.fork.runner.ProgressReporter;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
 import static com.shazam.fork.injector.runner.PoolProgressTrackersInjector.poolProgressTrackers;
+import static com.shazam.fork.injector.runner.RetryCircuitBreakerInjector.retryCircuitBreaker;
 import static com.shazam.fork.injector.accumulator.PoolTestCaseFailureAccumulatorInjector.poolTestCaseFailureAccumulator;
 
 public class ProgressReporterInjector {
@@ -26,6 +27,7 @@ public class ProgressReporterInjector {
                 configuration().getTotalAllowedRetryQuota(),
                 configuration().getRetryPerTestCaseQuota(),
                 poolProgressTrackers(),
-                poolTestCaseFailureAccumulator());
+                poolTestCaseFailureAccumulator(),
+                retryCircuitBreaker());
     }
 }
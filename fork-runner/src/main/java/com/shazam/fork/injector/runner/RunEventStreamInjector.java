@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.injector.runner;
+
+import com.shazam.fork.runner.RunEventStream;
+
+import java.io.File;
+
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.GsonInjector.gson;
+import static com.shazam.fork.runner.RunEventStream.EVENTS_FILENAME;
+
+public class RunEventStreamInjector {
+    private static final RunEventStream RUN_EVENT_STREAM = new RunEventStream(
+            new File(configuration().getOutput(), EVENTS_FILENAME),
+            gson());
+
+    private RunEventStreamInjector() {}
+
+    public static RunEventStream runEventStream() {
+        return RUN_EVENT_STREAM;
+    }
+}
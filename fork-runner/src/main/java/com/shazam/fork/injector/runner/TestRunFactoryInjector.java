@@ -14,12 +14,14 @@ import com.shazam.fork.runner.TestRunFactory;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
 import static com.shazam.fork.injector.listeners.TestRunListenersFactoryInjector.testRunListenersFactory;
+import static com.shazam.fork.injector.metrics.MetricsRegistryInjector.metricsRegistry;
+import static com.shazam.fork.injector.runner.DeviceTimelineInjector.deviceTimeline;
 
 public class TestRunFactoryInjector {
 
     private TestRunFactoryInjector() {}
 
     public static TestRunFactory testRunFactory() {
-        return new TestRunFactory(configuration(), testRunListenersFactory());
+        return new TestRunFactory(configuration(), testRunListenersFactory(), metricsRegistry(), deviceTimeline());
     }
 }
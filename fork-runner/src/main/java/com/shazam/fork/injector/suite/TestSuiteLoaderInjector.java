@@ -10,17 +10,45 @@
 
 package com.shazam.fork.injector.suite;
 
+import com.shazam.fork.Configuration;
+import com.shazam.fork.runner.TestDurations;
+import com.shazam.fork.suite.TestSuiteCache;
 import com.shazam.fork.suite.TestSuiteLoader;
+import com.shazam.fork.suite.TestSuiteShard;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.GsonInjector.gson;
 import static com.shazam.fork.injector.io.DexFileExtractorInjector.dexFileExtractor;
+import static com.shazam.fork.injector.runner.TestDurationsInjector.testDurations;
 import static com.shazam.fork.injector.suite.TestClassMatcherInjector.testClassMatcher;
+import static com.shazam.fork.suite.TestSuiteShard.noTestSuiteShard;
 
 public class TestSuiteLoaderInjector {
 
     private TestSuiteLoaderInjector() {}
 
     public static TestSuiteLoader testSuiteLoader() {
-        return new TestSuiteLoader(configuration().getInstrumentationApk(), dexFileExtractor(), testClassMatcher());
+        return new TestSuiteLoader(configuration().getInstrumentationApk(), dexFileExtractor(), testClassMatcher(),
+                testSuiteCache(), testSuiteShard());
+    }
+
+    private static TestSuiteCache testSuiteCache() {
+        Configuration configuration = configuration();
+        String testClassMatcherSettings = configuration.getTestPackage() + "\n"
+                + configuration.getTestClassPattern().pattern();
+        return new TestSuiteCache(configuration.getTestSuiteCacheDir(), gson(), testClassMatcherSettings);
+    }
+
+    private static TestSuiteShard testSuiteShard() {
+        Configuration configuration = configuration();
+        if (configuration.getShardCount() <= 1) {
+            return noTestSuiteShard();
+        }
+        TestDurations testDurations = testDurations();
+        if (testDurations.isEmpty()) {
+            return new TestSuiteShard(configuration.getShardIndex(), configuration.getShardCount());
+        }
+        return new TestSuiteShard(configuration.getShardIndex(), configuration.getShardCount(),
+                testDurations::estimateMillis);
     }
 }
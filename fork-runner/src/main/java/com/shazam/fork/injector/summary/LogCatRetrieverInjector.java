@@ -15,14 +15,20 @@ package com.shazam.fork.injector.summary;
 import com.shazam.fork.summary.JsonLogCatRetriever;
 import com.shazam.fork.summary.LogCatRetriever;
 
+import static com.shazam.fork.injector.ConfigurationInjector.configuration;
 import static com.shazam.fork.injector.system.FileManagerInjector.fileManager;
 import static com.shazam.fork.injector.GsonInjector.gson;
+import static java.util.Collections.emptyList;
 
 public class LogCatRetrieverInjector {
 
     private LogCatRetrieverInjector() {}
 
     public static LogCatRetriever logCatRetriever() {
+        if (configuration().getCoordinatorPort() > 0) {
+            // The logcats of a distributed run stay on the workers that ran the tests.
+            return (poolName, serial, testIdentifier) -> emptyList();
+        }
         return new JsonLogCatRetriever(gson(), fileManager());
     }
 }
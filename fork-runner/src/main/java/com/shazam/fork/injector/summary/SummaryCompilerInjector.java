@@ -13,13 +13,19 @@ package com.shazam.fork.injector.summary;
 import com.shazam.fork.summary.SummaryCompiler;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
-import static com.shazam.fork.injector.summary.DeviceTestFilesRetrieverInjector.deviceTestFilesRetriever;
+import static com.shazam.fork.injector.runner.DeviceQuarantineTrackerInjector.deviceQuarantineTracker;
+import static com.shazam.fork.injector.runner.DeviceTimelineInjector.deviceTimeline;
+import static com.shazam.fork.injector.runner.PoolMakespanTrackerInjector.poolMakespanTracker;
+import static com.shazam.fork.injector.runner.RetryCircuitBreakerInjector.retryCircuitBreaker;
+import static com.shazam.fork.injector.summary.TestResultStoreInjector.testResultStore;
+import static com.shazam.fork.injector.system.InstallationTrackerInjector.installationTracker;
 
 class SummaryCompilerInjector {
     private SummaryCompilerInjector() {
     }
 
     static SummaryCompiler summaryCompiler() {
-        return new SummaryCompiler(configuration(), deviceTestFilesRetriever());
+        return new SummaryCompiler(configuration(), testResultStore(), poolMakespanTracker(),
+                installationTracker(), deviceTimeline(), deviceQuarantineTracker(), retryCircuitBreaker());
     }
 }
@@ -12,6 +12,8 @@ package com.shazam.fork.injector.summary;
 
 import com.shazam.fork.summary.SummaryGeneratorHook;
 
+import static com.shazam.fork.injector.metrics.MetricsExporterInjector.metricsExporter;
+import static com.shazam.fork.injector.metrics.MetricsRegistryInjector.metricsRegistry;
 import static com.shazam.fork.injector.summary.SummarizerInjector.summarizer;
 
 public class SummaryGeneratorHookInjector {
@@ -19,6 +21,6 @@ public class SummaryGeneratorHookInjector {
     private SummaryGeneratorHookInjector() {}
 
     public static SummaryGeneratorHook summaryGeneratorHook() {
-        return new SummaryGeneratorHook(summarizer());
+        return new SummaryGeneratorHook(summarizer(), metricsRegistry(), metricsExporter());
     }
 }
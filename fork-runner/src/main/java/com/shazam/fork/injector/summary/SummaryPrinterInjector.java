@@ -16,6 +16,7 @@ import com.shazam.fork.summary.*;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuredOutput;
 import static com.shazam.fork.injector.GsonInjector.gson;
+import static com.shazam.fork.injector.runner.DeviceTimelineInjector.deviceTimeline;
 import static com.shazam.fork.injector.summary.HtmlGeneratorInjector.htmlGenerator;
 import static com.shazam.fork.injector.summary.LogCatRetrieverInjector.logCatRetriever;
 import static com.shazam.fork.injector.system.FileManagerInjector.fileManager;
@@ -25,7 +26,8 @@ public class SummaryPrinterInjector {
     private SummaryPrinterInjector() {}
 
     public static SummaryPrinter summaryPrinter() {
-        return new CompositeSummaryPrinter(consoleSummaryPrinter(), htmlSummaryPrinter(), jsonSummarySerializer());
+        return new CompositeSummaryPrinter(consoleSummaryPrinter(), htmlSummaryPrinter(), jsonSummarySerializer(),
+                deviceTimelinePrinter());
     }
 
     private static SummaryPrinter consoleSummaryPrinter() {
@@ -39,4 +41,8 @@ public class SummaryPrinterInjector {
     private static SummaryPrinter jsonSummarySerializer() {
         return new JsonSummarySerializer(fileManager(), gson());
     }
+
+    private static SummaryPrinter deviceTimelinePrinter() {
+        return new DeviceTimelinePrinter(configuredOutput(), deviceTimeline());
+    }
 }
@@ -14,13 +14,24 @@ package com.shazam.fork.injector.system;
 
 import com.shazam.fork.system.adb.Adb;
 
+import static com.shazam.fork.StartupTimings.Phase.BRIDGE_INITIALISATION;
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.StartupTimingsInjector.startupTimings;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
 
 public class AdbInjector {
-    private static final Adb ADB = new Adb(configuration().getAndroidSdk());
+    private static final Adb ADB = createAdb();
 
     private AdbInjector() {}
 
+    private static Adb createAdb() {
+        long startNanos = nanoTime();
+        Adb adb = new Adb(configuration().getAndroidSdk());
+        startupTimings().record(BRIDGE_INITIALISATION, millisSinceNanoTime(startNanos));
+        return adb;
+    }
+
     public static Adb adb() {
         return ADB;
     }
@@ -16,6 +16,7 @@ import com.shazam.fork.Configuration;
 import com.shazam.fork.system.adb.Installer;
 
 import static com.shazam.fork.injector.ConfigurationInjector.configuration;
+import static com.shazam.fork.injector.system.InstallationTrackerInjector.installationTracker;
 
 public class InstallerInjector {
 
@@ -27,6 +28,6 @@ public class InstallerInjector {
         String instrumentationPackage = configuration.getInstrumentationPackage();
 
         return new Installer(applicationPackage, instrumentationPackage, configuration.getApplicationApk(),
-                configuration.getInstrumentationApk(), configuration.isAutoGrantingPermissions());
+                configuration.getInstrumentationApk(), configuration.isAutoGrantingPermissions(), installationTracker());
     }
 }
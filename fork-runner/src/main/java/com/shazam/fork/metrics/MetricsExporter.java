@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static com.google.common.io.Files.write;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the metrics of a run to a Prometheus text file in the output directory. When a port is set, the metrics are
+ * also served on <code>http://localhost:&lt;port&gt;/metrics</code> while the run goes on.
+ */
+public class MetricsExporter {
+    public static final String METRICS_FILENAME = "fork-metrics.prom";
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry metricsRegistry;
+    private final File file;
+    private final int port;
+
+    private HttpServer server;
+
+    public MetricsExporter(MetricsRegistry metricsRegistry, File file, int port) {
+        this.metricsRegistry = metricsRegistry;
+        this.file = file;
+        this.port = port;
+    }
+
+    /**
+     * Starts serving the metrics, if a port was set.
+     */
+    public synchronized void start() {
+        if (port <= 0 || server != null) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", this::serveMetrics);
+            server.start();
+            logger.info("Serving metrics on http://localhost:{}/metrics", port);
+        } catch (IOException e) {
+            logger.warn("Could not serve metrics on port " + port, e);
+            server = null;
+        }
+    }
+
+    /**
+     * Stops serving the metrics.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    public void writeFile() {
+        try {
+            write(metricsRegistry.toPrometheusText(), file, UTF_8);
+        } catch (IOException e) {
+            logger.warn("Could not write metrics to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void serveMetrics(HttpExchange exchange) throws IOException {
+        byte[] body = metricsRegistry.toPrometheusText().getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
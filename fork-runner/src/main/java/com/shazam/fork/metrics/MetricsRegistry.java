@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+
+/**
+ * Histograms of how long each phase of a run takes and counters of what happened, tagged by pool and device. They
+ * are exported in the Prometheus text format.
+ */
+public class MetricsRegistry {
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+            10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000, 600000
+    };
+
+    public enum Phase {
+        INSTALLATION("fork_install_seconds", "Time taken to install the APKs on a device."),
+        PERMISSIONS("fork_permissions_seconds",
+                "Time taken to revoke and grant back the permissions of a test run."),
+        INSTRUMENTATION_START("fork_instrumentation_start_seconds",
+                "Time from launching an instrumentation to it reporting its tests."),
+        TEST_EXECUTION("fork_test_execution_seconds", "Time taken by each test."),
+        LOGCAT_SERIALIZATION("fork_logcat_serialization_seconds", "Time taken to write the logcat of a test."),
+        ARTIFACT_PULL("fork_artifact_pull_seconds", "Time taken to pull a video or coverage file from a device."),
+        SUMMARY_GENERATION("fork_summary_generation_seconds", "Time taken to compile and print the summary.");
+
+        private final String name;
+        private final String help;
+
+        Phase(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+    }
+
+    public enum Counter {
+        TESTS("fork_tests_total", "Tests that ran, including retries."),
+        TEST_FAILURES("fork_test_failures_total", "Tests that failed, including the ones retried afterwards.");
+
+        private final String name;
+        private final String help;
+
+        Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+    }
+
+    private final Map<Phase, Map<String, Histogram>> histograms = new ConcurrentHashMap<>();
+    private final Map<Counter, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param phase the phase that finished
+     * @param poolName the pool it belongs to, if any
+     * @param serial the device it ran on, if any
+     * @param millis how long it took
+     */
+    public void recordPhase(Phase phase, @Nullable String poolName, @Nullable String serial, long millis) {
+        histograms.computeIfAbsent(phase, key -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(labels(poolName, serial), key -> new Histogram())
+                .record(millis);
+    }
+
+    public void recordPhase(Phase phase, long millis) {
+        recordPhase(phase, null, null, millis);
+    }
+
+    public void increment(Counter counter, @Nullable String poolName, @Nullable String serial) {
+        counters.computeIfAbsent(counter, key -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(labels(poolName, serial), key -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * @return every metric recorded so far, in the Prometheus text exposition format
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            Map<String, Histogram> phaseHistograms = histograms.get(phase);
+            if (phaseHistograms == null) {
+                continue;
+            }
+            appendHeader(text, phase.name, phase.help, "histogram");
+            phaseHistograms.forEach((labels, histogram) -> histogram.appendTo(text, phase.name, labels));
+        }
+        for (Counter counter : Counter.values()) {
+            Map<String, LongAdder> counterValues = counters.get(counter);
+            if (counterValues == null) {
+                continue;
+            }
+            appendHeader(text, counter.name, counter.help, "counter");
+            counterValues.forEach((labels, value) -> appendSample(text, counter.name, labels, null, value.sum()));
+        }
+        return text.toString();
+    }
+
+    private static void appendHeader(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(StringBuilder text, String name, String labels, @Nullable String bucket,
+                                     Object value) {
+        text.append(name);
+        String allLabels = bucket == null ? labels : join(labels, "le=\"" + bucket + "\"");
+        if (!allLabels.isEmpty()) {
+            text.append('{').append(allLabels).append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+
+    private static String labels(@Nullable String poolName, @Nullable String serial) {
+        String labels = poolName == null ? "" : "pool=\"" + escape(poolName) + "\"";
+        return serial == null ? labels : join(labels, "device=\"" + escape(serial) + "\"");
+    }
+
+    private static String join(String labels, String label) {
+        return labels.isEmpty() ? label : labels + "," + label;
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long millis) {
+        return format(ENGLISH, "%.3f", millis / 1000.0);
+    }
+
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMillis = new LongAdder();
+
+        void record(long millis) {
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+                    buckets.incrementAndGet(i);
+                    break;
+                }
+            }
+            sumMillis.add(millis);
+            count.increment();
+        }
+
+        void appendTo(StringBuilder text, String name, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                cumulative += buckets.get(i);
+                appendSample(text, name + "_bucket", labels, seconds(BUCKET_BOUNDS_MILLIS[i]), cumulative);
+            }
+            long total = Math.max(count.sum(), cumulative);
+            appendSample(text, name + "_bucket", labels, "+Inf", total);
+            appendSample(text, name + "_sum", labels, null, seconds(sumMillis.sum()));
+            appendSample(text, name + "_count", labels, null, total);
+        }
+    }
+}
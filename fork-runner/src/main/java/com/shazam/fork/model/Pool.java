@@ -15,6 +15,7 @@ package com.shazam.fork.model;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
@@ -35,6 +36,21 @@ public class Pool {
 		return devices;
 	}
 
+	/**
+	 * Adds a device that connected after the pool was loaded. Devices stay in the pool after they disconnect, so
+	 * that their results are still collected.
+	 *
+	 * @param device the device to add
+	 */
+	public void addDevice(Device device) {
+		for (Device poolDevice : devices) {
+			if (poolDevice.getSerial().equals(device.getSerial())) {
+				return;
+			}
+		}
+		devices.add(device);
+	}
+
 	public int size() {
 		return devices.size();
 	}
@@ -81,6 +97,6 @@ public class Pool {
 
 	private Pool(Builder builder) {
 		name = builder.name;
-		devices = builder.devices;
+		devices = new CopyOnWriteArrayList<>(builder.devices);
 	}
 }
@@ -13,6 +13,7 @@ package com.shazam.fork.pooling;
 import com.shazam.fork.Configuration;
 import com.shazam.fork.PoolingStrategy;
 import com.shazam.fork.device.DeviceLoader;
+import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Devices;
 import com.shazam.fork.model.Pool;
 
@@ -21,6 +22,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.model.Devices.Builder.devices;
 import static java.lang.String.format;
 
 public class PoolLoader {
@@ -55,6 +59,44 @@ public class PoolLoader {
         return pools;
     }
 
+    /**
+     * Finds the pool of a device that connected after the pools were loaded, applying the same rules to it and to
+     * the devices already in the pools.
+     *
+     * @param device the device that connected
+     * @param pools the pools that are running
+     * @return the name of the pool the device belongs to or <code>null</code> if it belongs to none of them
+     */
+    @Nullable
+    public String poolNameFor(Device device, Collection<Pool> pools) throws NoPoolLoaderConfiguredException {
+        Devices.Builder devicesBuilder = devices();
+        for (Pool pool : pools) {
+            for (Device poolDevice : pool.getDevices()) {
+                devicesBuilder.putDevice(poolDevice.getSerial(), poolDevice);
+            }
+        }
+        devicesBuilder.putDevice(device.getSerial(), device);
+
+        Collection<Pool> categorizedPools = pickPoolLoader(configuration).loadPools(devicesBuilder.build());
+        for (Pool categorizedPool : categorizedPools) {
+            for (Device poolDevice : categorizedPool.getDevices()) {
+                if (poolDevice.getSerial().equals(device.getSerial()) && isRunning(categorizedPool, pools)) {
+                    return categorizedPool.getName();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRunning(Pool categorizedPool, Collection<Pool> pools) {
+        for (Pool pool : pools) {
+            if (pool.getName().equals(categorizedPool.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void log(Collection<Pool> configuredPools) {
         logger.info("Number of device pools: " + configuredPools.size());
         for (Pool pool : configuredPools) {
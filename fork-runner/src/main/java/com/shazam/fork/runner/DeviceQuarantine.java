@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.device.DeviceTestFilesCleanerImpl;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.io.FileManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.shazam.fork.summary.QuarantinedDevice.Builder.aQuarantinedDevice;
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+
+/**
+ * Pulls a device from its pool once it fails tests, or crashes instrumentations, far more often than the other devices
+ * of the pool: a frozen launcher or a full storage would otherwise keep failing tests and use up the retry quota of
+ * everybody. The recent failures of a quarantined device run again on the other devices without using the quota:
+ * the retries they were charged are given back, and the failures that were not retried are queued again.
+ * <p>
+ * A rate is compared with the rate of the other devices, smoothed so that a pool that has barely started never
+ * quarantines anything. The last device still taking tests in a pool is never quarantined.
+ */
+public class DeviceQuarantine {
+    static final int MIN_FAILURES = 3;
+    static final int RECENT_FAILURES = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceQuarantine.class);
+
+    private final int threshold;
+    private final Pool pool;
+    private final TestCaseEventQueue testCaseEventQueue;
+    private final ProgressReporter progressReporter;
+    private final FileManager fileManager;
+    private final TestResultStore testResultStore;
+    private final RunEventStream runEventStream;
+    private final DeviceQuarantineTracker deviceQuarantineTracker;
+    private final Map<String, Health> healthBySerial = new HashMap<>();
+
+    public DeviceQuarantine(int threshold,
+                            Pool pool,
+                            TestCaseEventQueue testCaseEventQueue,
+                            ProgressReporter progressReporter,
+                            FileManager fileManager,
+                            TestResultStore testResultStore,
+                            RunEventStream runEventStream,
+                            DeviceQuarantineTracker deviceQuarantineTracker) {
+        this.threshold = threshold;
+        this.pool = pool;
+        this.testCaseEventQueue = testCaseEventQueue;
+        this.progressReporter = progressReporter;
+        this.fileManager = fileManager;
+        this.testResultStore = testResultStore;
+        this.runEventStream = runEventStream;
+        this.deviceQuarantineTracker = deviceQuarantineTracker;
+    }
+
+    public static DeviceQuarantine noDeviceQuarantine(Pool pool) {
+        return new DeviceQuarantine(0, pool, null, null, null, null, null, null);
+    }
+
+    public synchronized void testEnded(Device device) {
+        if (threshold > 0) {
+            healthOf(device).endedTests++;
+        }
+    }
+
+    /**
+     * @param device the device the instrumentation ran on
+     * @param crashed <code>true</code> if the instrumentation failed before reporting every test
+     */
+    public synchronized void runEnded(Device device, boolean crashed) {
+        if (threshold == 0) {
+            return;
+        }
+        Health health = healthOf(device);
+        health.runs++;
+        if (crashed) {
+            health.crashedRuns++;
+            evaluate(device);
+        }
+    }
+
+    /**
+     * Records a failed test, which may push its device into quarantine.
+     *
+     * @param device the device the test failed on
+     * @param testIdentifier the test that failed
+     * @param testCaseEvent the test case it belongs to
+     * @param retried <code>true</code> if a retry was charged for it, <code>false</code> if it was not retried
+     */
+    public synchronized void testFailed(Device device,
+                                        TestIdentifier testIdentifier,
+                                        TestCaseEvent testCaseEvent,
+                                        boolean retried) {
+        if (threshold == 0) {
+            return;
+        }
+        Health health = healthOf(device);
+        health.failedTests++;
+        health.recentFailures.addLast(new Failure(testIdentifier, testCaseEvent, retried));
+        if (health.recentFailures.size() > RECENT_FAILURES) {
+            health.recentFailures.removeFirst();
+        }
+        evaluate(device);
+    }
+
+    public synchronized boolean isQuarantined(String serial) {
+        Health health = healthBySerial.get(serial);
+        return health != null && health.quarantined;
+    }
+
+    private void evaluate(Device device) {
+        Health health = healthOf(device);
+        if (health.quarantined || !hasOtherActiveDevice(device)) {
+            return;
+        }
+        int peerEndedTests = 0;
+        int peerFailedTests = 0;
+        int peerRuns = 0;
+        int peerCrashedRuns = 0;
+        for (Map.Entry<String, Health> entry : healthBySerial.entrySet()) {
+            Health peer = entry.getValue();
+            if (!entry.getKey().equals(device.getSerial()) && !peer.quarantined) {
+                peerEndedTests += peer.endedTests;
+                peerFailedTests += peer.failedTests;
+                peerRuns += peer.runs;
+                peerCrashedRuns += peer.crashedRuns;
+            }
+        }
+        if (exceedsPeers(health.failedTests, health.endedTests, peerFailedTests, peerEndedTests)) {
+            quarantine(device, health, format(ENGLISH, "failed %d of %d tests, the rest of the pool %d of %d",
+                    health.failedTests, health.endedTests, peerFailedTests, peerEndedTests));
+        } else if (exceedsPeers(health.crashedRuns, health.runs, peerCrashedRuns, peerRuns)) {
+            quarantine(device, health, format(ENGLISH, "crashed %d of %d runs, the rest of the pool %d of %d",
+                    health.crashedRuns, health.runs, peerCrashedRuns, peerRuns));
+        }
+    }
+
+    private void quarantine(Device device, Health health, String reason) {
+        health.quarantined = true;
+        logger.warn("Quarantining device {} of pool {}: {}", device.getSerial(), pool.getName(), reason);
+        testCaseEventQueue.retire(device);
+        runEventStream.deviceLeft(pool, device);
+
+        int requeuedTests = health.recentFailures.size();
+        DeviceTestFilesCleanerImpl deviceTestFilesCleaner =
+                new DeviceTestFilesCleanerImpl(fileManager, testResultStore, pool, device);
+        for (Failure failure : health.recentFailures) {
+            if (failure.retried) {
+                progressReporter.refundRetry();
+            } else {
+                deviceTestFilesCleaner.deleteTraceFiles(failure.testIdentifier);
+                PoolProgressTracker poolProgressTracker = progressReporter.getProgressTrackerFor(pool);
+                if (poolProgressTracker != null) {
+                    poolProgressTracker.trackTestEnqueuedAgain();
+                }
+                testCaseEventQueue.offerRetry(failure.testCaseEvent, device);
+            }
+        }
+        health.recentFailures.clear();
+
+        deviceQuarantineTracker.recordQuarantine(pool.getName(), aQuarantinedDevice()
+                .withSerial(device.getSerial())
+                .withReason(reason)
+                .withEndedTests(health.endedTests)
+                .withFailedTests(health.failedTests)
+                .withRequeuedTests(requeuedTests)
+                .build());
+    }
+
+    private boolean hasOtherActiveDevice(Device device) {
+        for (Device other : pool.getDevices()) {
+            if (!other.getSerial().equals(device.getSerial())
+                    && !testCaseEventQueue.isRetired(other)
+                    && !isQuarantined(other.getSerial())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Health healthOf(Device device) {
+        return healthBySerial.computeIfAbsent(device.getSerial(), serial -> new Health());
+    }
+
+    private boolean exceedsPeers(int events, int total, int peerEvents, int peerTotal) {
+        double rate = total == 0 ? 1 : Math.min(1, (double) events / total);
+        double peerRate = (peerEvents + 1.0) / (peerTotal + 1.0);
+        return events >= MIN_FAILURES && rate >= threshold * peerRate;
+    }
+
+    private static class Health {
+        private final Deque<Failure> recentFailures = new ArrayDeque<>();
+        private int endedTests;
+        private int failedTests;
+        private int runs;
+        private int crashedRuns;
+        private boolean quarantined;
+    }
+
+    private static class Failure {
+        private final TestIdentifier testIdentifier;
+        private final TestCaseEvent testCaseEvent;
+        private final boolean retried;
+
+        Failure(TestIdentifier testIdentifier, TestCaseEvent testCaseEvent, boolean retried) {
+            this.testIdentifier = testIdentifier;
+            this.testCaseEvent = testCaseEvent;
+            this.retried = retried;
+        }
+    }
+}
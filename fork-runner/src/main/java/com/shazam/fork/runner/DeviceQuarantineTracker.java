@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.shazam.fork.summary.QuarantinedDevice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the devices quarantined during the run, keyed by pool name, for the summary.
+ */
+public class DeviceQuarantineTracker {
+    private final Map<String, List<QuarantinedDevice>> quarantinedDevices = new ConcurrentHashMap<>();
+
+    public void recordQuarantine(String poolName, QuarantinedDevice quarantinedDevice) {
+        quarantinedDevices.computeIfAbsent(poolName, name -> new CopyOnWriteArrayList<>()).add(quarantinedDevice);
+    }
+
+    public Collection<QuarantinedDevice> getQuarantinedDevices(String poolName) {
+        return new ArrayList<>(quarantinedDevices.getOrDefault(poolName, new ArrayList<>()));
+    }
+}
@@ -13,37 +13,62 @@
 package com.shazam.fork.runner;
 
 import com.android.ddmlib.*;
+import com.shazam.fork.StartupTimings;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.*;
+import com.shazam.fork.runner.listeners.AsyncTestRunListenerDispatcher;
+import com.shazam.fork.runner.listeners.DeviceLogCat;
 import com.shazam.fork.system.adb.Installer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Queue;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
+import static com.shazam.fork.StartupTimings.Phase.INSTALLATION;
+import static com.shazam.fork.runner.DeviceTimeline.Category.SETUP;
 import static com.shazam.fork.system.io.RemoteFileManager.*;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
 
 public class DeviceTestRunner implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(DeviceTestRunner.class);
+    private static final int MAX_QUEUED_LISTENER_EVENTS = 1000;
+    private static final long IDLE_POLL_MILLIS = 1000;
 
     private final Installer installer;
     private final Pool pool;
     private final Device device;
-    private final Queue<TestCaseEvent> queueOfTestsInPool;
+    private final TestCaseEventQueue queueOfTestsInPool;
     private final CountDownLatch deviceCountDownLatch;
     private final ProgressReporter progressReporter;
     private final TestRunFactory testRunFactory;
+    private final int maxBatchSize;
+    private final StartupTimings startupTimings;
+    private final MetricsRegistry metricsRegistry;
+    private final DeviceTimeline deviceTimeline;
+    private final SpeculativeExecution speculativeExecution;
+    private final DeviceQuarantine deviceQuarantine;
+    private final RetryCircuitBreaker retryCircuitBreaker;
 
     public DeviceTestRunner(Installer installer,
                             Pool pool,
                             Device device,
-                            Queue<TestCaseEvent> queueOfTestsInPool,
+                            TestCaseEventQueue queueOfTestsInPool,
                             CountDownLatch deviceCountDownLatch,
                             ProgressReporter progressReporter,
-                            TestRunFactory testRunFactory) {
+                            TestRunFactory testRunFactory,
+                            int maxBatchSize,
+                            StartupTimings startupTimings,
+                            MetricsRegistry metricsRegistry,
+                            DeviceTimeline deviceTimeline,
+                            SpeculativeExecution speculativeExecution,
+                            DeviceQuarantine deviceQuarantine,
+                            RetryCircuitBreaker retryCircuitBreaker) {
         this.installer = installer;
         this.pool = pool;
         this.device = device;
@@ -51,35 +76,98 @@ public class DeviceTestRunner implements Runnable {
         this.deviceCountDownLatch = deviceCountDownLatch;
         this.progressReporter = progressReporter;
         this.testRunFactory = testRunFactory;
+        this.maxBatchSize = maxBatchSize;
+        this.startupTimings = startupTimings;
+        this.metricsRegistry = metricsRegistry;
+        this.deviceTimeline = deviceTimeline;
+        this.speculativeExecution = speculativeExecution;
+        this.deviceQuarantine = deviceQuarantine;
+        this.retryCircuitBreaker = retryCircuitBreaker;
     }
 
     @Override
     public void run() {
         IDevice deviceInterface = device.getDeviceInterface();
+        AsyncTestRunListenerDispatcher asyncDispatcher =
+                new AsyncTestRunListenerDispatcher(device.getSerial(), MAX_QUEUED_LISTENER_EVENTS);
+        DeviceLogCat deviceLogCat = new DeviceLogCat(device);
         try {
             DdmPreferences.setTimeOut(30000);
+            long installationStartNanos = nanoTime();
             installer.prepareInstallation(deviceInterface);
+            long installationEndNanos = nanoTime();
+            long installationMillis = millisSinceNanoTime(installationStartNanos);
+            deviceTimeline.record(pool.getName(), device.getSerial(), SETUP, "installation", installationStartNanos,
+                    installationEndNanos);
+            startupTimings.record(INSTALLATION, installationMillis);
+            metricsRegistry.recordPhase(MetricsRegistry.Phase.INSTALLATION, pool.getName(), device.getSerial(),
+                    installationMillis);
             // For when previous run crashed/disconnected and left files behind
             removeRemoteDirectory(deviceInterface);
             createRemoteDirectory(deviceInterface);
             createCoverageDirectory(deviceInterface);
             clearLogcat(deviceInterface);
+            deviceLogCat.start();
+            deviceTimeline.record(pool.getName(), device.getSerial(), SETUP, "device preparation",
+                    installationEndNanos, nanoTime());
 
-            TestCaseEvent testCaseEvent;
-            while ((testCaseEvent = queueOfTestsInPool.poll()) != null) {
-                TestRun testRun = testRunFactory.createTestRun(testCaseEvent,
+            List<TestCaseEvent> testCaseEvents;
+            while (!(testCaseEvents = nextTests()).isEmpty()) {
+                TestRun testRun = testRunFactory.createTestRun(testCaseEvents,
                         device,
                         pool,
                         progressReporter,
-                        queueOfTestsInPool);
+                        queueOfTestsInPool,
+                        asyncDispatcher,
+                        deviceLogCat,
+                        speculativeExecution,
+                        deviceQuarantine);
                 testRun.execute();
             }
+        } catch (InterruptedException e) {
+            logger.warn("Device {} from pool {} was interrupted while idle", device.getSerial(), pool.getName());
+            Thread.currentThread().interrupt();
         } finally {
+            queueOfTestsInPool.finish(device);
+            asyncDispatcher.close();
+            deviceLogCat.stop();
             logger.info("Device {} from pool {} finished", device.getSerial(), pool.getName());
             deviceCountDownLatch.countDown();
         }
     }
 
+    /**
+     * Takes the next tests from the queue. Once it is empty, and while other devices still run tests, an idle device
+     * waits for retries or for a test worth running as a backup. It only stops once no retry is left for it, or once
+     * the failures look systemic and the tests left are to be aborted.
+     */
+    private List<TestCaseEvent> nextTests() throws InterruptedException {
+        while (true) {
+            if (retryCircuitBreaker.shouldAbort()) {
+                logger.warn("Device {} from pool {} stops taking tests, failures look systemic", device.getSerial(),
+                        pool.getName());
+                return emptyList();
+            }
+            List<TestCaseEvent> testCaseEvents = queueOfTestsInPool.pollBatchFor(device, maxBatchSize);
+            if (!testCaseEvents.isEmpty()) {
+                return testCaseEvents;
+            }
+            if (queueOfTestsInPool.isRetired(device)) {
+                return testCaseEvents;
+            }
+            testCaseEvents = speculativeExecution.backupFor(device);
+            if (!testCaseEvents.isEmpty()) {
+                return testCaseEvents;
+            }
+            if (!speculativeExecution.hasTestsInFlight() && queueOfTestsInPool.tryFinish(device)) {
+                return testCaseEvents;
+            }
+            if (speculativeExecution.hasTestsInFlight()) {
+                Thread.sleep(IDLE_POLL_MILLIS);
+            }
+        }
+    }
+
     private void clearLogcat(final IDevice device) {
         try {
             device.executeShellCommand("logcat -c", new NullOutputReceiver());
@@ -10,28 +10,46 @@
 
 package com.shazam.fork.runner;
 
+import com.shazam.fork.StartupTimings;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.*;
 import com.shazam.fork.system.adb.Installer;
 
-import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 
 public class DeviceTestRunnerFactory {
 
     private final Installer installer;
     private final TestRunFactory testRunFactory;
+    private final int maxBatchSize;
+    private final StartupTimings startupTimings;
+    private final MetricsRegistry metricsRegistry;
+    private final DeviceTimeline deviceTimeline;
+    private final RetryCircuitBreaker retryCircuitBreaker;
 
-    public DeviceTestRunnerFactory(Installer installer, TestRunFactory testRunFactory) {
+    public DeviceTestRunnerFactory(Installer installer,
+                                   TestRunFactory testRunFactory,
+                                   int maxBatchSize,
+                                   StartupTimings startupTimings,
+                                   MetricsRegistry metricsRegistry,
+                                   DeviceTimeline deviceTimeline,
+                                   RetryCircuitBreaker retryCircuitBreaker) {
         this.installer = installer;
         this.testRunFactory = testRunFactory;
+        this.maxBatchSize = maxBatchSize;
+        this.startupTimings = startupTimings;
+        this.metricsRegistry = metricsRegistry;
+        this.deviceTimeline = deviceTimeline;
+        this.retryCircuitBreaker = retryCircuitBreaker;
     }
 
     public Runnable createDeviceTestRunner(Pool pool,
-                                           Queue<TestCaseEvent> testClassQueue,
+                                           TestCaseEventQueue testClassQueue,
                                            CountDownLatch deviceInPoolCountDownLatch,
                                            Device device,
-                                           ProgressReporter progressReporter
-                                           ) {
+                                           ProgressReporter progressReporter,
+                                           SpeculativeExecution speculativeExecution,
+                                           DeviceQuarantine deviceQuarantine) {
         return new DeviceTestRunner(
                 installer,
                 pool,
@@ -39,6 +57,13 @@ public class DeviceTestRunnerFactory {
                 testClassQueue,
                 deviceInPoolCountDownLatch,
                 progressReporter,
-                testRunFactory);
+                testRunFactory,
+                maxBatchSize,
+                startupTimings,
+                metricsRegistry,
+                deviceTimeline,
+                speculativeExecution,
+                deviceQuarantine,
+                retryCircuitBreaker);
     }
 }
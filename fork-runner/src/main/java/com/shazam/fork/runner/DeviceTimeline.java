@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.google.gson.stream.JsonWriter;
+import com.shazam.fork.summary.DeviceUtilization;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.shazam.fork.summary.DeviceUtilization.Builder.aDeviceUtilization;
+import static java.lang.System.nanoTime;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * What each device was doing and when: setting up, running instrumentations and, inside them, running tests. It is
+ * written as a Chrome trace (one process per pool, one thread per device) and summarised into the utilization of
+ * every device.
+ */
+public class DeviceTimeline {
+    public enum Category {
+        SETUP("setup"),
+        INSTRUMENTATION("instrumentation"),
+        TEST("test");
+
+        private final String name;
+
+        Category(String name) {
+            this.name = name;
+        }
+    }
+
+    private final long originNanos = nanoTime();
+    private final Collection<Span> spans = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param poolName the pool the device belongs to
+     * @param serial the device that was busy
+     * @param category what kind of work it was. Tests happen inside instrumentations, setup happens outside them.
+     * @param name what to show on the span
+     * @param startNanos when it started, from {@link System#nanoTime()}
+     * @param endNanos when it ended, from {@link System#nanoTime()}
+     */
+    public void record(String poolName,
+                       String serial,
+                       Category category,
+                       String name,
+                       long startNanos,
+                       long endNanos) {
+        spans.add(new Span(poolName, serial, category, name, startNanos - originNanos,
+                Math.max(0, endNanos - startNanos)));
+    }
+
+    /**
+     * @param poolName the pool
+     * @return the utilization of every device that did something for the pool
+     */
+    public List<DeviceUtilization> utilizationOf(String poolName) {
+        long windowStart = Long.MAX_VALUE;
+        long windowEnd = Long.MIN_VALUE;
+        Map<String, long[]> busyAndTestNanos = new LinkedHashMap<>();
+        for (Span span : spans) {
+            if (!span.poolName.equals(poolName)) {
+                continue;
+            }
+            windowStart = Math.min(windowStart, span.startNanos);
+            windowEnd = Math.max(windowEnd, span.startNanos + span.durationNanos);
+            long[] totals = busyAndTestNanos.computeIfAbsent(span.serial, serial -> new long[2]);
+            if (span.category == Category.TEST) {
+                totals[1] += span.durationNanos;
+            } else {
+                totals[0] += span.durationNanos;
+            }
+        }
+        List<DeviceUtilization> utilizations = new ArrayList<>();
+        long windowNanos = windowEnd - windowStart;
+        busyAndTestNanos.forEach((serial, totals) -> utilizations.add(aDeviceUtilization()
+                .withSerial(serial)
+                .withWindowMillis(NANOSECONDS.toMillis(windowNanos))
+                .withBusyMillis(NANOSECONDS.toMillis(totals[0]))
+                .withTestMillis(NANOSECONDS.toMillis(totals[1]))
+                .build()));
+        return utilizations;
+    }
+
+    /**
+     * Writes the timeline in the Chrome trace event format, which chrome://tracing and https://ui.perfetto.dev open.
+     *
+     * @param file where to write the trace
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTrace(File file) throws IOException {
+        Map<String, Integer> poolIds = new LinkedHashMap<>();
+        Map<String, Integer> deviceIds = new LinkedHashMap<>();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8))) {
+            writer.beginObject();
+            writer.name("displayTimeUnit").value("ms");
+            writer.name("traceEvents").beginArray();
+            for (Span span : spans) {
+                int poolId = poolIds.computeIfAbsent(span.poolName, name -> poolIds.size() + 1);
+                String deviceKey = span.poolName + "/" + span.serial;
+                int deviceId = deviceIds.computeIfAbsent(deviceKey, key -> deviceIds.size() + 1);
+                writer.beginObject()
+                        .name("name").value(span.name)
+                        .name("cat").value(span.category.name)
+                        .name("ph").value("X")
+                        .name("ts").value(NANOSECONDS.toMicros(span.startNanos))
+                        .name("dur").value(NANOSECONDS.toMicros(span.durationNanos))
+                        .name("pid").value(poolId)
+                        .name("tid").value(deviceId)
+                        .endObject();
+            }
+            for (Map.Entry<String, Integer> pool : poolIds.entrySet()) {
+                writeMetadata(writer, "process_name", pool.getValue(), null, pool.getKey());
+            }
+            for (Map.Entry<String, Integer> device : deviceIds.entrySet()) {
+                String poolName = device.getKey().substring(0, device.getKey().lastIndexOf('/'));
+                String serial = device.getKey().substring(poolName.length() + 1);
+                writeMetadata(writer, "thread_name", poolIds.get(poolName), device.getValue(), serial);
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    private static void writeMetadata(JsonWriter writer, String name, int pid, Integer tid, String value)
+            throws IOException {
+        writer.beginObject()
+                .name("name").value(name)
+                .name("ph").value("M")
+                .name("pid").value(pid);
+        if (tid != null) {
+            writer.name("tid").value(tid);
+        }
+        writer.name("args").beginObject().name("name").value(value).endObject();
+        writer.endObject();
+    }
+
+    private static class Span {
+        private final String poolName;
+        private final String serial;
+        private final Category category;
+        private final String name;
+        private final long startNanos;
+        private final long durationNanos;
+
+        Span(String poolName, String serial, Category category, String name, long startNanos, long durationNanos) {
+            this.poolName = poolName;
+            this.serial = serial;
+            this.category = category;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+    }
+}
@@ -30,16 +30,19 @@ public class OverallProgressReporter implements ProgressReporter {
     private final Map<Pool, PoolProgressTracker> poolProgressTrackers;
     private final RetryWatchdog retryWatchdog;
     private final PoolTestCaseAccumulator failedTestCasesAccumulator;
+    private final RetryCircuitBreaker retryCircuitBreaker;
     private long startOfTests;
     private long endOfTests;
 
     public OverallProgressReporter(int totalAllowedRetryQuota,
                                    int retryPerTestCaseQuota,
                                    Map<Pool, PoolProgressTracker> poolProgressTrackers,
-                                   PoolTestCaseAccumulator failedTestCasesAccumulator) {
+                                   PoolTestCaseAccumulator failedTestCasesAccumulator,
+                                   RetryCircuitBreaker retryCircuitBreaker) {
         this.retryWatchdog = new RetryWatchdog(totalAllowedRetryQuota, retryPerTestCaseQuota);
         this.poolProgressTrackers = poolProgressTrackers;
         this.failedTestCasesAccumulator = failedTestCasesAccumulator;
+        this.retryCircuitBreaker = retryCircuitBreaker;
     }
 
     @Override
@@ -92,6 +95,9 @@ public class OverallProgressReporter implements ProgressReporter {
     }
 
     public boolean requestRetry(Pool pool, TestCaseEvent testCase) {
+        if (retryCircuitBreaker.isOpen()) {
+            return false;
+        }
         boolean result = retryWatchdog.requestRetry(failedTestCasesAccumulator.getCount(testCase));
         if (result && poolProgressTrackers.containsKey(pool)) {
             poolProgressTrackers.get(pool).trackTestEnqueuedAgain();
@@ -99,6 +105,11 @@ public class OverallProgressReporter implements ProgressReporter {
         return result;
     }
 
+    @Override
+    public void refundRetry() {
+        retryWatchdog.refund();
+    }
+
     @Override
     public void recordFailedTestCase(Pool pool, TestCaseEvent testCase) {
         failedTestCasesAccumulator.record(pool, testCase);
@@ -129,6 +140,10 @@ public class OverallProgressReporter implements ProgressReporter {
             return result;
         }
 
+        public void refund() {
+            totalAllowedRetryLeft.incrementAndGet();
+        }
+
         private boolean totalAllowedRetryAvailable() {
             return totalAllowedRetryLeft.get() > 0 && totalAllowedRetryLeft.getAndDecrement() >= 0;
         }
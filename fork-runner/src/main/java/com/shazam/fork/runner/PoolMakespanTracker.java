@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the predicted and the actual time each pool took to run its tests, keyed by pool name.
+ */
+public class PoolMakespanTracker {
+    private final Map<String, Long> predictedMakespans = new ConcurrentHashMap<>();
+    private final Map<String, Long> actualMakespans = new ConcurrentHashMap<>();
+
+    public void recordPredictedMakespan(String poolName, long millis) {
+        predictedMakespans.put(poolName, millis);
+    }
+
+    public void recordActualMakespan(String poolName, long millis) {
+        actualMakespans.put(poolName, millis);
+    }
+
+    /**
+     * @param poolName the pool name
+     * @return the predicted makespan in milliseconds, or <code>0</code> if nothing was predicted
+     */
+    public long getPredictedMakespan(String poolName) {
+        return predictedMakespans.getOrDefault(poolName, 0L);
+    }
+
+    /**
+     * @param poolName the pool name
+     * @return the actual makespan in milliseconds, or <code>0</code> if the pool has not finished
+     */
+    public long getActualMakespan(String poolName) {
+        return actualMakespans.getOrDefault(poolName, 0L);
+    }
+}
@@ -38,6 +38,9 @@ public class PoolProgressTrackerImpl implements PoolProgressTracker {
 
     @Override
     public float getProgress() {
+        if (totalTests == 0) {
+            return 0;
+        }
         return (float) completedTests / (float) totalTests;
     }
 
@@ -12,63 +12,203 @@
  */
 package com.shazam.fork.runner;
 
+import com.shazam.fork.device.DeviceLeases;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
-import com.shazam.fork.model.TestCaseEvent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 
-import static com.shazam.fork.Utils.namedExecutor;
+import static com.shazam.fork.Utils.namedCachedExecutor;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
 
 public class PoolTestRunner implements Runnable {
     private final Logger logger = LoggerFactory.getLogger(PoolTestRunner.class);
     public static final String DROPPED_BY = "DroppedBy-";
 
     private final Pool pool;
-    private final Queue<TestCaseEvent> testCases;
+    private final TestCaseEventQueue testCases;
     private final CountDownLatch poolCountDownLatch;
     private final DeviceTestRunnerFactory deviceTestRunnerFactory;
     private final ProgressReporter progressReporter;
+    private final PoolMakespanTracker poolMakespanTracker;
+    private final RunEventStream runEventStream;
+    private final SpeculativeExecution speculativeExecution;
+    private final DeviceQuarantine deviceQuarantine;
+    private final DeviceLeases deviceLeases;
+
+    private final Map<String, CountDownLatch> deviceCountDownLatches = new HashMap<>();
+    private final List<CountDownLatch> pendingCountDownLatches = new ArrayList<>();
+    private ExecutorService concurrentDeviceExecutor;
+    private boolean finished;
 
     public PoolTestRunner(DeviceTestRunnerFactory deviceTestRunnerFactory, Pool pool,
-                          Queue<TestCaseEvent> testCases,
+                          TestCaseEventQueue testCases,
                           CountDownLatch poolCountDownLatch,
-                          ProgressReporter progressReporter) {
+                          ProgressReporter progressReporter,
+                          PoolMakespanTracker poolMakespanTracker,
+                          RunEventStream runEventStream,
+                          SpeculativeExecution speculativeExecution,
+                          DeviceQuarantine deviceQuarantine,
+                          DeviceLeases deviceLeases) {
         this.pool = pool;
         this.testCases = testCases;
         this.poolCountDownLatch = poolCountDownLatch;
         this.deviceTestRunnerFactory = deviceTestRunnerFactory;
         this.progressReporter = progressReporter;
+        this.poolMakespanTracker = poolMakespanTracker;
+        this.runEventStream = runEventStream;
+        this.speculativeExecution = speculativeExecution;
+        this.deviceQuarantine = deviceQuarantine;
+        this.deviceLeases = deviceLeases;
     }
 
     public void run() {
-        ExecutorService concurrentDeviceExecutor = null;
         String poolName = pool.getName();
+        long startNanos = nanoTime();
         try {
-            int devicesInPool = pool.size();
-            concurrentDeviceExecutor = namedExecutor(devicesInPool, "DeviceExecutor-%d");
-            CountDownLatch deviceCountDownLatch = new CountDownLatch(devicesInPool);
-            logger.info("Pool {} started", poolName);
-            for (Device device : pool.getDevices()) {
-                Runnable deviceTestRunner = deviceTestRunnerFactory.createDeviceTestRunner(pool, testCases,
-                        deviceCountDownLatch, device, progressReporter);
-                concurrentDeviceExecutor.execute(deviceTestRunner);
+            synchronized (this) {
+                concurrentDeviceExecutor = namedCachedExecutor("DeviceExecutor-%d");
+                logger.info("Pool {} started", poolName);
+                for (Device device : pool.getDevices()) {
+                    startDevice(device);
+                }
             }
-            deviceCountDownLatch.await();
+            awaitDevices();
+            speculativeExecution.discardLosers();
         } catch (InterruptedException e) {
             logger.warn("Pool {} was interrupted while running", poolName);
         } finally {
-            if (concurrentDeviceExecutor != null) {
-                concurrentDeviceExecutor.shutdown();
+            synchronized (this) {
+                finished = true;
+                if (concurrentDeviceExecutor != null) {
+                    concurrentDeviceExecutor.shutdown();
+                }
             }
+            long makespanMillis = millisSinceNanoTime(startNanos);
+            poolMakespanTracker.recordActualMakespan(poolName, makespanMillis);
+            runEventStream.poolFinished(pool, makespanMillis);
             logger.info("Pool {} finished", poolName);
             poolCountDownLatch.countDown();
             logger.info("Pools remaining: {}", poolCountDownLatch.getCount());
         }
     }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    /**
+     * @param serial the serial of a device
+     * @return <code>true</code> if the device is running tests for this pool or about to
+     */
+    public synchronized boolean hasDevice(String serial) {
+        return isRunning(serial) || isWaitingToStart(serial);
+    }
+
+    /**
+     * @param serial the serial of a device
+     * @return <code>true</code> if the device took tests in this pool and has no more to take
+     */
+    public synchronized boolean hasFinishedWith(String serial) {
+        CountDownLatch deviceCountDownLatch = deviceCountDownLatches.get(serial);
+        return deviceCountDownLatch != null && deviceCountDownLatch.getCount() == 0;
+    }
+
+    /**
+     * Adds a device that connected after the pool started. It starts taking tests straight away, unless the pool has
+     * already run out of tests or the device was quarantined.
+     *
+     * @param device the device to add
+     * @return <code>true</code> if the device joined the pool
+     */
+    public synchronized boolean addDevice(Device device) {
+        String serial = device.getSerial();
+        if (finished || testCases.isEmpty() || hasDevice(serial) || deviceQuarantine.isQuarantined(serial)) {
+            return false;
+        }
+        testCases.join(device);
+        pool.addDevice(device);
+        if (concurrentDeviceExecutor != null) {
+            startDevice(device);
+        }
+        logger.info("Device {} joined pool {}", serial, pool.getName());
+        return true;
+    }
+
+    /**
+     * Stops giving tests to a device that disconnected. Its queued tests go to the other devices of the pool.
+     *
+     * @param serial the serial of the device that disconnected
+     */
+    public synchronized void retireDevice(String serial) {
+        for (Device device : pool.getDevices()) {
+            if (device.getSerial().equals(serial) && !testCases.isRetired(device)) {
+                testCases.retire(device);
+                runEventStream.deviceLeft(pool, device);
+                logger.info("Device {} left pool {}", serial, pool.getName());
+            }
+        }
+    }
+
+    private boolean isRunning(String serial) {
+        CountDownLatch deviceCountDownLatch = deviceCountDownLatches.get(serial);
+        return deviceCountDownLatch != null && deviceCountDownLatch.getCount() > 0;
+    }
+
+    private boolean isWaitingToStart(String serial) {
+        if (deviceCountDownLatches.containsKey(serial)) {
+            return false;
+        }
+        for (Device device : pool.getDevices()) {
+            if (device.getSerial().equals(serial)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startDevice(Device device) {
+        CountDownLatch deviceCountDownLatch = new CountDownLatch(1);
+        deviceCountDownLatches.put(device.getSerial(), deviceCountDownLatch);
+        pendingCountDownLatches.add(deviceCountDownLatch);
+        Runnable deviceTestRunner = deviceTestRunnerFactory.createDeviceTestRunner(pool, testCases,
+                deviceCountDownLatch, device, progressReporter, speculativeExecution, deviceQuarantine);
+        concurrentDeviceExecutor.execute(() -> {
+            try {
+                deviceTestRunner.run();
+            } finally {
+                // The device has no more tests to take, other runs on this host can have it.
+                deviceLeases.release(device.getSerial());
+            }
+        });
+        runEventStream.deviceJoined(pool, device);
+    }
+
+    /**
+     * Waits for every device to finish, including the ones that join while waiting.
+     */
+    private void awaitDevices() throws InterruptedException {
+        int finishedDevices = 0;
+        while (true) {
+            CountDownLatch deviceCountDownLatch;
+            synchronized (this) {
+                if (finishedDevices == pendingCountDownLatches.size()) {
+                    finished = true;
+                    return;
+                }
+                deviceCountDownLatch = pendingCountDownLatches.get(finishedDevices);
+            }
+            deviceCountDownLatch.await();
+            finishedDevices++;
+        }
+    }
 }
@@ -10,21 +10,59 @@
 
 package com.shazam.fork.runner;
 
+import com.shazam.fork.device.DeviceLeases;
+import com.shazam.fork.distributed.CoordinatorClient;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.io.FileManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.concurrent.CountDownLatch;
 
 public class PoolTestRunnerFactory {
+    private static final Logger logger = LoggerFactory.getLogger(PoolTestRunnerFactory.class);
+
     private final DeviceTestRunnerFactory deviceTestRunnerFactory;
+    private final TestDurations testDurations;
+    private final PoolMakespanTracker poolMakespanTracker;
+    private final RunEventStream runEventStream;
+    private final boolean speculativeExecutionEnabled;
+    private final FileManager fileManager;
+    private final TestResultStore testResultStore;
+    private final int deviceQuarantineThreshold;
+    private final DeviceQuarantineTracker deviceQuarantineTracker;
+    private final CoordinatorClient coordinatorClient;
+    private final DeviceLeases deviceLeases;
 
-    public PoolTestRunnerFactory(DeviceTestRunnerFactory deviceTestRunnerFactory) {
+    public PoolTestRunnerFactory(DeviceTestRunnerFactory deviceTestRunnerFactory,
+                                 TestDurations testDurations,
+                                 PoolMakespanTracker poolMakespanTracker,
+                                 RunEventStream runEventStream,
+                                 boolean speculativeExecutionEnabled,
+                                 FileManager fileManager,
+                                 TestResultStore testResultStore,
+                                 int deviceQuarantineThreshold,
+                                 DeviceQuarantineTracker deviceQuarantineTracker,
+                                 CoordinatorClient coordinatorClient,
+                                 DeviceLeases deviceLeases) {
         this.deviceTestRunnerFactory = deviceTestRunnerFactory;
+        this.testDurations = testDurations;
+        this.poolMakespanTracker = poolMakespanTracker;
+        this.runEventStream = runEventStream;
+        this.speculativeExecutionEnabled = speculativeExecutionEnabled;
+        this.fileManager = fileManager;
+        this.testResultStore = testResultStore;
+        this.deviceQuarantineThreshold = deviceQuarantineThreshold;
+        this.deviceQuarantineTracker = deviceQuarantineTracker;
+        this.coordinatorClient = coordinatorClient;
+        this.deviceLeases = deviceLeases;
     }
 
-    public Runnable createPoolTestRunner(Pool pool,
+    public PoolTestRunner createPoolTestRunner(Pool pool,
                                          Collection<TestCaseEvent> testCases,
                                          CountDownLatch poolCountDownLatch,
                                          ProgressReporter progressReporter) {
@@ -32,11 +70,33 @@ public class PoolTestRunnerFactory {
         int totalTests = testCases.size();
         progressReporter.addPoolProgress(pool, new PoolProgressTrackerImpl(totalTests));
 
+        Collection<TestCaseEvent> scheduledTestCases = schedule(pool, testCases);
+        TestCaseEventQueue testCaseEventQueue = new TestCaseEventQueue(scheduledTestCases, pool.getDevices(),
+                coordinatorClient.sourceFor(pool));
         return new PoolTestRunner(
                 deviceTestRunnerFactory,
                 pool,
-                new LinkedList<>(testCases),
+                testCaseEventQueue,
                 poolCountDownLatch,
-                progressReporter);
+                progressReporter,
+                poolMakespanTracker,
+                runEventStream,
+                new SpeculativeExecution(speculativeExecutionEnabled, pool, fileManager, testResultStore),
+                new DeviceQuarantine(deviceQuarantineThreshold, pool, testCaseEventQueue, progressReporter, fileManager,
+                        testResultStore, runEventStream, deviceQuarantineTracker),
+                deviceLeases);
+    }
+
+    private Collection<TestCaseEvent> schedule(Pool pool, Collection<TestCaseEvent> testCases) {
+        if (testDurations.isEmpty()) {
+            return testCases;
+        }
+        Collection<TestCaseEvent> longestFirst = testDurations.longestFirst(testCases);
+        long predictedMakespan = testDurations.predictMakespanMillis(longestFirst, pool.size());
+        poolMakespanTracker.recordPredictedMakespan(pool.getName(), predictedMakespan);
+        long unknownTests = testCases.stream().filter(testCase -> !testDurations.isKnown(testCase)).count();
+        logger.info("Pool {} scheduled longest test first, predicted to take {} ms ({} of {} tests estimated)",
+                pool.getName(), predictedMakespan, unknownTests, testCases.size());
+        return longestFirst;
     }
 }
@@ -36,6 +36,11 @@ public interface ProgressReporter {
 
     boolean requestRetry(Pool pool, TestCaseEvent testCaseEvent);
 
+    /**
+     * Gives back to the total quota a retry that was charged for a failure that is no longer held against the test.
+     */
+    void refundRetry();
+
     void recordFailedTestCase(Pool pool, TestCaseEvent testCase);
 
     int getTestFailuresCount(Pool pool, TestCaseEvent testCase);
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.shazam.fork.summary.SystemicFailure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.summary.SystemicFailure.Builder.aSystemicFailure;
+
+/**
+ * Stops granting retries once the failures look systemic, as when the app crashes on launch and every test fails the
+ * same way: retrying them would only delay the news that the build is broken. It watches the outcome of the most
+ * recent tests of every pool and opens once most of them failed, most of those with the same normalised stack trace.
+ * Once open, it stays open for the rest of the run. It can also be told to abort the tests left in the queues.
+ */
+public class RetryCircuitBreaker {
+    static final int WINDOW_SIZE = 50;
+    static final int MIN_OUTCOMES = 20;
+    static final double FAILURE_RATE = 0.8;
+    static final double SIGNATURE_SHARE = 0.5;
+    private static final int SIGNATURE_FRAMES = 3;
+    private static final Pattern LINE_NUMBER = Pattern.compile("\\(([^():]+):\\d+\\)");
+    private static final Pattern IDENTITY = Pattern.compile("@[0-9a-fA-F]+\\b");
+    private static final Pattern HEX_NUMBER = Pattern.compile("\\b0x[0-9a-fA-F]+\\b");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryCircuitBreaker.class);
+
+    private final boolean abortOnTrip;
+    private final int windowSize;
+    private final int minOutcomes;
+    private final Deque<String> window = new ArrayDeque<>();
+    private final Map<String, Integer> signatureCounts = new HashMap<>();
+    private int failures;
+    private volatile SystemicFailure systemicFailure;
+
+    public RetryCircuitBreaker(boolean abortOnTrip) {
+        this(abortOnTrip, WINDOW_SIZE, MIN_OUTCOMES);
+    }
+
+    RetryCircuitBreaker(boolean abortOnTrip, int windowSize, int minOutcomes) {
+        this.abortOnTrip = abortOnTrip;
+        this.windowSize = windowSize;
+        this.minOutcomes = minOutcomes;
+    }
+
+    public synchronized void testPassed() {
+        record(null);
+    }
+
+    /**
+     * @param trace the stack trace of the failure, or the error of an instrumentation that crashed
+     */
+    public synchronized void testFailed(String trace) {
+        record(signatureOf(trace));
+    }
+
+    public boolean isOpen() {
+        return systemicFailure != null;
+    }
+
+    /**
+     * @return <code>true</code> if the tests left in the queues should not be run
+     */
+    public boolean shouldAbort() {
+        return abortOnTrip && isOpen();
+    }
+
+    @Nullable
+    public SystemicFailure getSystemicFailure() {
+        return systemicFailure;
+    }
+
+    /**
+     * Reduces a stack trace to what identical failures have in common: the first line and the top frames, without
+     * line numbers, object identities or other numbers.
+     *
+     * @param trace a stack trace
+     * @return its signature
+     */
+    static String signatureOf(@Nullable String trace) {
+        if (trace == null || trace.trim().isEmpty()) {
+            return "no trace";
+        }
+        String[] lines = trace.trim().split("\\r?\\n");
+        List<String> kept = new ArrayList<>();
+        kept.add(normalise(lines[0]));
+        for (int i = 1; i < lines.length && kept.size() <= SIGNATURE_FRAMES; i++) {
+            String line = lines[i].trim();
+            if (line.startsWith("at ")) {
+                kept.add(LINE_NUMBER.matcher(line).replaceAll("($1)"));
+            }
+        }
+        return String.join(" | ", kept);
+    }
+
+    private static String normalise(String line) {
+        String normalised = IDENTITY.matcher(line.trim()).replaceAll("@#");
+        normalised = HEX_NUMBER.matcher(normalised).replaceAll("#");
+        return NUMBER.matcher(normalised).replaceAll("#");
+    }
+
+    private void record(@Nullable String signature) {
+        window.addLast(signature == null ? "" : signature);
+        if (signature != null) {
+            failures++;
+            signatureCounts.merge(signature, 1, Integer::sum);
+        }
+        if (window.size() > windowSize) {
+            String evicted = window.removeFirst();
+            if (!evicted.isEmpty()) {
+                failures--;
+                signatureCounts.computeIfPresent(evicted, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        if (systemicFailure == null) {
+            evaluate();
+        }
+    }
+
+    private void evaluate() {
+        if (window.size() < minOutcomes || failures < FAILURE_RATE * window.size()) {
+            return;
+        }
+        Map.Entry<String, Integer> top = null;
+        for (Map.Entry<String, Integer> entry : signatureCounts.entrySet()) {
+            if (top == null || entry.getValue() > top.getValue()) {
+                top = entry;
+            }
+        }
+        if (top == null || top.getValue() < SIGNATURE_SHARE * failures) {
+            return;
+        }
+        systemicFailure = aSystemicFailure()
+                .withSignature(top.getKey())
+                .withSignatureFailures(top.getValue())
+                .withFailedTests(failures)
+                .withWindowTests(window.size())
+                .withAborted(abortOnTrip)
+                .build();
+        logger.error("Failures look systemic, no more retries will be granted: {}", systemicFailure.getVerdict());
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.google.gson.Gson;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.Nullable;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Live feed of a run, one JSON object per line, for dashboards and bots that want to follow a run while it is still
+ * going. Events are buffered and flushed at most {@link #FLUSH_INTERVAL_MILLIS} after they happen.
+ */
+public class RunEventStream {
+    public static final String EVENTS_FILENAME = "fork-events.jsonl";
+    static final long FLUSH_INTERVAL_MILLIS = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(RunEventStream.class);
+
+    @Nullable
+    private final File file;
+    private final Gson gson;
+    private final Object lock = new Object();
+
+    private ScheduledExecutorService flushExecutor;
+    private Writer writer;
+    private boolean dirty;
+
+    public RunEventStream(@Nullable File file, Gson gson) {
+        this.file = file;
+        this.gson = gson;
+    }
+
+    public static RunEventStream noRunEventStream() {
+        return new RunEventStream(null, new Gson());
+    }
+
+    public void start() {
+        if (file == null) {
+            return;
+        }
+        synchronized (lock) {
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+            } catch (IOException e) {
+                logger.warn("Could not open the event stream " + file.getAbsolutePath(), e);
+                return;
+            }
+            flushExecutor = newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RunEventStream");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flushIfDirty, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                    MILLISECONDS);
+        }
+    }
+
+    public void runStarted(Collection<Pool> pools, int testCount) {
+        Event event = new Event("run_started", null);
+        event.pools = pools.stream().map(Pool::getName).collect(toList());
+        event.testCount = testCount;
+        append(event);
+    }
+
+    public void deviceJoined(Pool pool, Device device) {
+        append(deviceEvent("device_joined", pool, device));
+    }
+
+    public void deviceLeft(Pool pool, Device device) {
+        append(deviceEvent("device_left", pool, device));
+    }
+
+    public void testStarted(Pool pool, Device device, String testClass, String testMethod) {
+        append(testEvent("test_started", pool, device, testClass, testMethod));
+    }
+
+    public void testFailed(Pool pool, Device device, String testClass, String testMethod, String trace) {
+        Event event = testEvent("test_failed", pool, device, testClass, testMethod);
+        event.trace = trace;
+        append(event);
+    }
+
+    /**
+     * @param status how the test ended: <code>passed</code>, <code>failed</code>, <code>ignored</code> or
+     * <code>assumption_failed</code>
+     */
+    public void testEnded(Pool pool, Device device, String testClass, String testMethod, String status,
+                          long durationMillis) {
+        Event event = testEvent("test_ended", pool, device, testClass, testMethod);
+        event.status = status;
+        event.durationMillis = durationMillis;
+        append(event);
+    }
+
+    /**
+     * @param charged whether the retry counts towards the retry quota. Tests interrupted by a device leaving are
+     * retried for free.
+     */
+    public void testRetried(Pool pool, Device device, String testClass, String testMethod, boolean charged) {
+        Event event = testEvent("test_retried", pool, device, testClass, testMethod);
+        event.charged = charged;
+        append(event);
+    }
+
+    public void poolFinished(Pool pool, long durationMillis) {
+        Event event = new Event("pool_finished", pool.getName());
+        event.durationMillis = durationMillis;
+        append(event);
+    }
+
+    public void runFinished(boolean success) {
+        Event event = new Event("run_finished", null);
+        event.success = success;
+        append(event);
+        synchronized (lock) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes whatever is left and closes the stream.
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (flushExecutor != null) {
+                flushExecutor.shutdownNow();
+                flushExecutor = null;
+            }
+            flush();
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close the event stream", e);
+                }
+                writer = null;
+            }
+        }
+    }
+
+    private static Event deviceEvent(String type, Pool pool, Device device) {
+        Event event = new Event(type, pool.getName());
+        event.serial = device.getSerial();
+        event.model = device.getModelName();
+        return event;
+    }
+
+    private static Event testEvent(String type, Pool pool, Device device, String testClass, String testMethod) {
+        Event event = new Event(type, pool.getName());
+        event.serial = device.getSerial();
+        event.testClass = testClass;
+        event.testMethod = testMethod;
+        return event;
+    }
+
+    private void append(Event event) {
+        synchronized (lock) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.write(gson.toJson(event));
+                writer.write('\n');
+                dirty = true;
+            } catch (IOException e) {
+                logger.warn("Could not write to the event stream, it stops here", e);
+                writer = null;
+            }
+        }
+    }
+
+    private void flushIfDirty() {
+        synchronized (lock) {
+            if (dirty) {
+                flush();
+            }
+        }
+    }
+
+    private void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            dirty = false;
+        } catch (IOException e) {
+            logger.warn("Could not flush the event stream, it stops here", e);
+            writer = null;
+        }
+    }
+
+    private static class Event {
+        private final String type;
+        private final long timestamp = currentTimeMillis();
+        private final String pool;
+        private List<String> pools;
+        private Integer testCount;
+        private String serial;
+        private String model;
+        private String testClass;
+        private String testMethod;
+        private String status;
+        private Long durationMillis;
+        private String trace;
+        private Boolean charged;
+        private Boolean success;
+
+        Event(String type, @Nullable String pool) {
+            this.type = type;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.summary.TestResultStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.runner.TestDurations.keyOf;
+import static com.shazam.fork.summary.ResultStatus.PASS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Append-only record of a run, one JSON object per line: the hash of the APKs under test, the devices of each pool
+ * and every result as it is stored or discarded for a retry. Lines are flushed and synced to disk in batches, at most
+ * {@link #SYNC_INTERVAL_MILLIS} apart, so a killed run loses no more than the last moments of its results.
+ * <p>
+ * When resuming, the journal of the interrupted run is replayed: the tests that passed on the same APKs are put back
+ * in the {@link TestResultStore} and not run again.
+ */
+public class RunJournal {
+    public static final String JOURNAL_FILENAME = "fork-journal.jsonl";
+    static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(RunJournal.class);
+    private static final String RUN = "run";
+    private static final String POOL = "pool";
+    private static final String STORED = "stored";
+    private static final String REMOVED = "removed";
+
+    @Nullable
+    private final File file;
+    private final Gson gson;
+    private final List<File> apks;
+    private final boolean resume;
+    private final Object lock = new Object();
+    private final Map<String, Set<String>> passedTests = new HashMap<>();
+
+    private ScheduledExecutorService syncExecutor;
+    private FileOutputStream stream;
+    private Writer writer;
+    private boolean dirty;
+
+    public RunJournal(@Nullable File file, Gson gson, List<File> apks, boolean resume) {
+        this.file = file;
+        this.gson = gson;
+        this.apks = apks;
+        this.resume = resume;
+    }
+
+    public static RunJournal noRunJournal() {
+        return new RunJournal(null, new Gson(), emptyList(), false);
+    }
+
+    /**
+     * Starts recording the run. When resuming, the results of the tests that already passed are first put back in
+     * the given store.
+     *
+     * @param pools the pools of this run
+     * @param testResultStore where to restore the results of the interrupted run
+     */
+    public void start(Collection<Pool> pools, TestResultStore testResultStore) {
+        if (file == null) {
+            return;
+        }
+        try {
+            String suiteHash = suiteHash();
+            Map<String, Pool> poolsByName = pools.stream().collect(toMap(Pool::getName, pool -> pool));
+            List<Entry> interrupted = resume ? replay(suiteHash) : emptyList();
+            List<Entry> replayed = new ArrayList<>();
+            for (Entry entry : interrupted) {
+                Pool pool = poolsByName.get(entry.pool);
+                if (pool == null) {
+                    continue;
+                }
+                testResultStore.store(pool, entry.device, entry.testClass, entry.testMethod, entry.results);
+                passedTests.computeIfAbsent(entry.pool, name -> new HashSet<>())
+                        .add(keyOf(entry.testClass, entry.testMethod));
+                replayed.add(entry);
+            }
+            open(suiteHash, pools, replayed);
+        } catch (IOException e) {
+            logger.warn("Could not start the run journal " + file.getAbsolutePath() + ", the run cannot be resumed", e);
+            closeQuietly();
+        }
+    }
+
+    /**
+     * @param pool a pool of this run
+     * @param testCases the whole suite
+     * @return the tests that did not pass in the pool before the run was resumed
+     */
+    public Collection<TestCaseEvent> remainingTestsOf(Pool pool, Collection<TestCaseEvent> testCases) {
+        Set<String> passed = passedTests.getOrDefault(pool.getName(), emptySet());
+        if (passed.isEmpty()) {
+            return testCases;
+        }
+        List<TestCaseEvent> remaining = testCases.stream()
+                .filter(testCase -> !passed.contains(keyOf(testCase.getTestClass(), testCase.getTestMethod())))
+                .collect(toList());
+        logger.info("Pool {} resumes with {} of {} tests, the others passed before", pool.getName(),
+                remaining.size(), testCases.size());
+        return remaining;
+    }
+
+    public void recordStored(Pool pool, Device device, String testClass, String testMethod,
+                             Collection<TestResult> testResults) {
+        Entry entry = new Entry(STORED, pool.getName());
+        entry.device = device;
+        entry.testClass = testClass;
+        entry.testMethod = testMethod;
+        entry.results = new ArrayList<>(testResults);
+        append(entry);
+    }
+
+    public void recordRemoved(Pool pool, Device device, String testClass, String testMethod) {
+        Entry entry = new Entry(REMOVED, pool.getName());
+        entry.serial = device.getSafeSerial();
+        entry.testClass = testClass;
+        entry.testMethod = testMethod;
+        append(entry);
+    }
+
+    /**
+     * Writes and syncs whatever is left and stops recording.
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (syncExecutor != null) {
+                syncExecutor.shutdownNow();
+            }
+            sync();
+            closeQuietly();
+        }
+    }
+
+    private void open(String suiteHash, Collection<Pool> pools, List<Entry> replayed) throws IOException {
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (Writer temporaryWriter = new OutputStreamWriter(new FileOutputStream(temporaryFile), UTF_8)) {
+            Entry run = new Entry(RUN, null);
+            run.suiteHash = suiteHash;
+            writeLine(temporaryWriter, run);
+            for (Pool pool : pools) {
+                Entry poolEntry = new Entry(POOL, pool.getName());
+                poolEntry.serials = pool.getDevices().stream().map(Device::getSerial).collect(toList());
+                writeLine(temporaryWriter, poolEntry);
+            }
+            for (Entry entry : replayed) {
+                writeLine(temporaryWriter, entry);
+            }
+        }
+        java.nio.file.Files.move(temporaryFile.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+
+        synchronized (lock) {
+            stream = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, UTF_8));
+            stream.getFD().sync();
+            syncExecutor = newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RunJournal");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncExecutor.scheduleWithFixedDelay(this::syncIfDirty, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS,
+                    MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the results of the interrupted run, for the tests that passed and were not discarded for a retry
+     */
+    private List<Entry> replay(String suiteHash) throws IOException {
+        if (!file.isFile()) {
+            logger.warn("No run journal found at {}, running the whole suite", file.getAbsolutePath());
+            return emptyList();
+        }
+        Map<String, Entry> results = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry;
+                try {
+                    entry = gson.fromJson(line, Entry.class);
+                } catch (JsonParseException e) {
+                    logger.warn("Run journal ends with an incomplete line, ignoring it");
+                    break;
+                }
+                if (entry == null) {
+                    continue;
+                }
+                switch (entry.type) {
+                    case RUN:
+                        if (!suiteHash.equals(entry.suiteHash)) {
+                            logger.warn("The APKs changed since the interrupted run, running the whole suite");
+                            return emptyList();
+                        }
+                        break;
+                    case STORED:
+                        results.put(entry.key(), entry);
+                        break;
+                    case REMOVED:
+                        results.remove(entry.key());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        List<Entry> passed = results.values().stream()
+                .filter(Entry::hasPassed)
+                .collect(toList());
+        logger.info("Replayed {} passed tests from the run journal", passed.size());
+        return passed;
+    }
+
+    private String suiteHash() throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (File apk : apks) {
+            hasher.putString(Files.hash(apk, Hashing.sha256()).toString(), UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    private void append(Entry entry) {
+        synchronized (lock) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writeLine(writer, entry);
+                dirty = true;
+            } catch (IOException e) {
+                logger.warn("Could not write to the run journal, the run cannot be resumed", e);
+                closeQuietly();
+            }
+        }
+    }
+
+    private void syncIfDirty() {
+        synchronized (lock) {
+            if (dirty) {
+                sync();
+            }
+        }
+    }
+
+    private void sync() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            stream.getFD().sync();
+            dirty = false;
+        } catch (IOException e) {
+            logger.warn("Could not sync the run journal, the run cannot be resumed", e);
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the run journal", e);
+            }
+        }
+        writer = null;
+        stream = null;
+    }
+
+    private void writeLine(Writer writer, Entry entry) throws IOException {
+        writer.write(gson.toJson(entry));
+        writer.write('\n');
+    }
+
+    private static class Entry {
+        private String type;
+        private String pool;
+        private String suiteHash;
+        private List<String> serials;
+        private String serial;
+        private Device device;
+        private String testClass;
+        private String testMethod;
+        private List<TestResult> results;
+
+        Entry(String type, String pool) {
+            this.type = type;
+            this.pool = pool;
+        }
+
+        String key() {
+            String deviceSerial = device != null ? device.getSafeSerial() : serial;
+            return pool + "/" + deviceSerial + "/" + keyOf(testClass, testMethod);
+        }
+
+        boolean hasPassed() {
+            return results != null && !results.isEmpty()
+                    && results.stream().allMatch(result -> result.getResultStatus() == PASS);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.io.FileManager;
+import com.shazam.fork.system.io.FileType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Backup copies of the slowest tests of a pool, run on devices that have nothing left to do. Every test in flight is
+ * a race between the devices running it: the first one to finish the test wins, the runs of the others are cancelled
+ * and whatever they left behind is discarded once the pool finishes.
+ * <p>
+ * When disabled, no race is ever tracked and every attempt wins.
+ */
+public class SpeculativeExecution {
+    public static final String CANCELLED_RUN_FAILURE = "Cancelled, another device finished the test first";
+    static final long MIN_RUNNING_MILLIS = 5000;
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeculativeExecution.class);
+
+    private final boolean enabled;
+    private final Pool pool;
+    private final FileManager fileManager;
+    private final TestResultStore testResultStore;
+    private final long minRunningMillis;
+    private final Map<TestCaseEvent, Race> races = new LinkedHashMap<>();
+    private final Map<String, Runnable> runCancellers = new HashMap<>();
+    private final List<Loser> losers = new ArrayList<>();
+
+    public SpeculativeExecution(boolean enabled, Pool pool, FileManager fileManager, TestResultStore testResultStore) {
+        this(enabled, pool, fileManager, testResultStore, MIN_RUNNING_MILLIS);
+    }
+
+    SpeculativeExecution(boolean enabled,
+                         Pool pool,
+                         FileManager fileManager,
+                         TestResultStore testResultStore,
+                         long minRunningMillis) {
+        this.enabled = enabled;
+        this.pool = pool;
+        this.fileManager = fileManager;
+        this.testResultStore = testResultStore;
+        this.minRunningMillis = minRunningMillis;
+    }
+
+    public static SpeculativeExecution noSpeculativeExecution(Pool pool) {
+        return new SpeculativeExecution(false, pool, null, null);
+    }
+
+    /**
+     * @param device a device whose instrumentation run is starting
+     * @param runCanceller stops that run, if one of its tests loses a race
+     */
+    public synchronized void runStarted(Device device, Runnable runCanceller) {
+        if (enabled) {
+            runCancellers.put(device.getSerial(), runCanceller);
+        }
+    }
+
+    /**
+     * Forgets the tests the device was still running, for runs that ended in the middle of a test.
+     *
+     * @param device a device whose instrumentation run has ended
+     */
+    public synchronized void runEnded(Device device) {
+        if (!enabled) {
+            return;
+        }
+        String serial = device.getSerial();
+        runCancellers.remove(serial);
+        races.values().removeIf(race -> race.attempts.remove(serial) != null && race.attempts.isEmpty());
+    }
+
+    /**
+     * A device that lost the race of a test can run it again later, as a retry. What that new attempt leaves behind
+     * replaces what the lost one did, so it is no longer discarded.
+     */
+    public synchronized void testStarted(TestCaseEvent testCase, Device device) {
+        if (enabled) {
+            String serial = device.getSerial();
+            losers.removeIf(loser -> loser.testCase.equals(testCase) && loser.serial.equals(serial));
+            races.computeIfAbsent(testCase, key -> new Race()).attempts.put(serial, nanoTime());
+        }
+    }
+
+    /**
+     * Decides the race of a test that a device has just finished.
+     *
+     * @return <code>true</code> if the device is the first to finish the test, so its result counts
+     */
+    public synchronized boolean claim(TestCaseEvent testCase, Device device) {
+        Race race = races.get(testCase);
+        if (race == null) {
+            return true;
+        }
+        String serial = device.getSerial();
+        if (race.winner == null) {
+            race.winner = serial;
+            for (String runner : race.attempts.keySet()) {
+                if (!runner.equals(serial)) {
+                    logger.info("Test {} finished first on {}, cancelling it on {}", testCase, serial, runner);
+                    losers.add(new Loser(testCase, runner));
+                    Runnable runCanceller = runCancellers.get(runner);
+                    if (runCanceller != null) {
+                        runCanceller.run();
+                    }
+                }
+            }
+        }
+        return race.winner.equals(serial);
+    }
+
+    /**
+     * @return <code>true</code> if another device finished the test first, so the device's results must be ignored
+     */
+    public synchronized boolean hasLost(TestCaseEvent testCase, Device device) {
+        Race race = races.get(testCase);
+        return race != null && race.winner != null && !race.winner.equals(device.getSerial());
+    }
+
+    /**
+     * @return <code>true</code> if another device is also running the test, so it must not be queued again
+     */
+    public synchronized boolean isRunningElsewhere(TestCaseEvent testCase, Device device) {
+        Race race = races.get(testCase);
+        if (race == null) {
+            return false;
+        }
+        for (String runner : race.attempts.keySet()) {
+            if (!runner.equals(device.getSerial())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void testEnded(TestCaseEvent testCase, Device device) {
+        Race race = races.get(testCase);
+        if (race != null && race.attempts.remove(device.getSerial()) != null && race.attempts.isEmpty()) {
+            races.remove(testCase);
+        }
+    }
+
+    /**
+     * Picks the test that has been running the longest on another device, for at least {@link #MIN_RUNNING_MILLIS},
+     * and has no backup yet.
+     *
+     * @param device an idle device
+     * @return the test to run as a backup, or nothing if no test is worth a backup
+     */
+    public synchronized List<TestCaseEvent> backupFor(Device device) {
+        if (!enabled) {
+            return emptyList();
+        }
+        String serial = device.getSerial();
+        long now = nanoTime();
+        TestCaseEvent slowest = null;
+        long slowestStartNanos = now - MILLISECONDS.toNanos(minRunningMillis);
+        for (Map.Entry<TestCaseEvent, Race> entry : races.entrySet()) {
+            Race race = entry.getValue();
+            if (race.winner != null || race.hasBackup || race.attempts.size() != 1
+                    || race.attempts.containsKey(serial)) {
+                continue;
+            }
+            long startNanos = race.attempts.values().iterator().next();
+            if (startNanos <= slowestStartNanos) {
+                slowest = entry.getKey();
+                slowestStartNanos = startNanos;
+            }
+        }
+        if (slowest == null) {
+            return emptyList();
+        }
+        Race race = races.get(slowest);
+        race.hasBackup = true;
+        race.attempts.put(serial, now);
+        logger.info("Device {} runs a backup of {}, in flight for {} ms", serial, slowest,
+                NANOSECONDS.toMillis(now - slowestStartNanos));
+        return singletonList(slowest);
+    }
+
+    /**
+     * @return <code>true</code> if a device is still running a test, that may later need a backup or fail and be
+     * retried
+     */
+    public synchronized boolean hasTestsInFlight() {
+        return enabled && !races.isEmpty();
+    }
+
+    /**
+     * Deletes the results and the files of the runs that lost their race, unless the same device ran the test again
+     * since. To be called once every device of the pool has finished, so nothing writes them any more.
+     */
+    public synchronized void discardLosers() {
+        for (Loser loser : losers) {
+            Device device = findDevice(loser.serial);
+            if (device == null) {
+                continue;
+            }
+            TestIdentifier test = new TestIdentifier(loser.testCase.getTestClass(), loser.testCase.getTestMethod());
+            testResultStore.remove(pool, device, test.getClassName(), test.getTestName());
+            for (FileType fileType : FileType.values()) {
+                File[] files = fileManager.getFiles(fileType, pool, device, test);
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (!file.delete()) {
+                        logger.warn("Could not delete {} of a cancelled backup run", file.getAbsolutePath());
+                    }
+                }
+            }
+        }
+        losers.clear();
+    }
+
+    @Nullable
+    private Device findDevice(String serial) {
+        for (Device device : pool.getDevices()) {
+            if (device.getSerial().equals(serial)) {
+                return device;
+            }
+        }
+        return null;
+    }
+
+    private static class Race {
+        private final Map<String, Long> attempts = new LinkedHashMap<>();
+        private boolean hasBackup;
+        private String winner;
+    }
+
+    private static class Loser {
+        private final TestCaseEvent testCase;
+        private final String serial;
+
+        Loser(TestCaseEvent testCase, String serial) {
+            this.testCase = testCase;
+            this.serial = serial;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner;
+
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.TestCaseEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.runner.TestCaseEventSource.noTestCaseEventSource;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+
+/**
+ * The test queue of a pool. Every device owns a deque that it consumes from the head, and when it runs dry it steals
+ * from the tail of its peers' deques. Tests scheduled again for a retry go to a separate lane that is served before
+ * any deque, so they don't wait behind the whole suite. A retry is only given to a device the test has not failed on
+ * yet, unless every other device still taking tests has failed it too.
+ * <p>
+ * Tests can also be taken in batches of the same class, to be sent to a single instrumentation run. Retries are
+ * never batched.
+ * <p>
+ * Devices can join the pool after the queue was created and leave it at any time: the tests queued for a retired
+ * device are spread over the remaining ones.
+ * <p>
+ * Once every deque is empty, devices take their tests from the {@link TestCaseEventSource} of the queue, if any, and
+ * keep asking until it is exhausted.
+ */
+public class TestCaseEventQueue {
+    private static final Deque<TestCaseEvent> EMPTY_DEQUE = new ConcurrentLinkedDeque<>();
+
+    private final Map<String, Deque<TestCaseEvent>> deviceQueues = new ConcurrentHashMap<>();
+    private final List<String> serials = new CopyOnWriteArrayList<>();
+    private final List<Retry> retries = new ArrayList<>();
+    private final Map<TestCaseEvent, Set<String>> failedSerials = new ConcurrentHashMap<>();
+    private final Set<String> retiredSerials = ConcurrentHashMap.newKeySet();
+    private final Set<String> finishedSerials = ConcurrentHashMap.newKeySet();
+    private final TestCaseEventSource testCaseEventSource;
+
+    public TestCaseEventQueue(Collection<TestCaseEvent> testCases, Collection<Device> devices) {
+        this(testCases, devices, noTestCaseEventSource());
+    }
+
+    public TestCaseEventQueue(Collection<TestCaseEvent> testCases,
+                              Collection<Device> devices,
+                              TestCaseEventSource testCaseEventSource) {
+        this.testCaseEventSource = testCaseEventSource;
+        for (Device device : devices) {
+            queueFor(device.getSerial());
+        }
+        distribute(testCases);
+    }
+
+    /**
+     * Takes the next test for the given device: a pending retry first, then its own deque, then a test stolen from a
+     * peer and finally a test from the source of the queue.
+     *
+     * @param device the device that is asking for work
+     * @return the next test or <code>null</code> if there is nothing left in the pool
+     */
+    @Nullable
+    public TestCaseEvent pollFor(Device device) {
+        if (isRetired(device)) {
+            return null;
+        }
+        TestCaseEvent testCaseEvent = pollRetry(device.getSerial());
+        if (testCaseEvent != null) {
+            return testCaseEvent;
+        }
+        testCaseEvent = pollQueued(device.getSerial());
+        if (testCaseEvent != null) {
+            return testCaseEvent;
+        }
+        List<TestCaseEvent> taken = testCaseEventSource.take(device, 1);
+        if (taken.isEmpty()) {
+            return null;
+        }
+        offerRemainder(device, taken.subList(1, taken.size()));
+        return taken.get(0);
+    }
+
+    /**
+     * Takes the next test for the given device as {@link #pollFor(Device)} does, together with other queued tests of
+     * the same class that revoke the same permissions. A batch never exceeds the device's fair share of the tests left
+     * in the pool, so that devices keep finishing together as the pool drains.
+     *
+     * @param device the device that is asking for work
+     * @param maxBatchSize the maximum number of tests to take
+     * @return the batch of tests or an empty list if there is nothing left in the pool
+     */
+    public List<TestCaseEvent> pollBatchFor(Device device, int maxBatchSize) {
+        if (isRetired(device)) {
+            return emptyList();
+        }
+        String serial = device.getSerial();
+        TestCaseEvent retry = pollRetry(serial);
+        if (retry != null) {
+            return singletonList(retry);
+        }
+        TestCaseEvent first = pollQueued(serial);
+        if (first == null) {
+            return testCaseEventSource.take(device, maxBatchSize);
+        }
+        int batchSize = Math.min(maxBatchSize, 1 + queuedTests() / Math.max(1, serials.size()));
+        List<TestCaseEvent> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        List<String> peers = new ArrayList<>(serials);
+        peers.remove(serial);
+        peers.add(0, serial);
+        for (String peer : peers) {
+            Deque<TestCaseEvent> deque = deviceQueues.getOrDefault(peer, EMPTY_DEQUE);
+            Iterator<TestCaseEvent> iterator = deque.iterator();
+            while (batch.size() < batchSize && iterator.hasNext()) {
+                TestCaseEvent candidate = iterator.next();
+                if (isSameBatch(first, candidate) && deque.removeFirstOccurrence(candidate)) {
+                    batch.add(candidate);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Puts back tests that were taken by a device but never started, ahead of the rest of its queue.
+     *
+     * @param device the device that took the tests
+     * @param testCases the tests to put back, in the order they should run
+     */
+    public void offerRemainder(Device device, List<TestCaseEvent> testCases) {
+        Deque<TestCaseEvent> deque = queueFor(device.getSerial());
+        if (deque == null) {
+            distribute(testCases);
+            return;
+        }
+        for (int i = testCases.size() - 1; i >= 0; i--) {
+            deque.addFirst(testCases.get(i));
+        }
+        redistributeIfRetired(device.getSerial(), deque);
+    }
+
+    /**
+     * Schedules a test that has to be executed again.
+     *
+     * @param testCaseEvent the test to retry
+     */
+    public void offerRetry(TestCaseEvent testCaseEvent) {
+        synchronized (retries) {
+            retries.add(new Retry(testCaseEvent));
+        }
+    }
+
+    /**
+     * Schedules a test that failed on a device, to be executed again on another one.
+     *
+     * @param testCaseEvent the test to retry
+     * @param failedOn the device it failed on
+     */
+    public void offerRetry(TestCaseEvent testCaseEvent, Device failedOn) {
+        failedSerials.computeIfAbsent(testCaseEvent, key -> ConcurrentHashMap.newKeySet()).add(failedOn.getSerial());
+        offerRetry(testCaseEvent);
+    }
+
+    /**
+     * Lets a device stop taking tests, unless a retry it is allowed to take is waiting or the source of the queue may
+     * still give more tests. Retries that only this device is allowed to take are then handed to the devices that
+     * remain.
+     *
+     * @param device the device that found nothing to do
+     * @return <code>true</code> if the device can stop, <code>false</code> if it should ask for tests again
+     */
+    public boolean tryFinish(Device device) {
+        String serial = device.getSerial();
+        if (!testCaseEventSource.isExhausted()) {
+            return false;
+        }
+        synchronized (retries) {
+            for (Retry retry : retries) {
+                if (canTake(retry, serial)) {
+                    return false;
+                }
+            }
+            finishedSerials.add(serial);
+            return true;
+        }
+    }
+
+    /**
+     * Records that a device stopped taking tests, whatever the reason, so retries no longer wait for it.
+     *
+     * @param device the device that stopped
+     */
+    public void finish(Device device) {
+        synchronized (retries) {
+            finishedSerials.add(device.getSerial());
+        }
+    }
+
+    /**
+     * Adds a device to the ones served by this queue, or brings back one that was retired.
+     *
+     * @param device the device that joins the pool
+     */
+    public void join(Device device) {
+        retiredSerials.remove(device.getSerial());
+        finishedSerials.remove(device.getSerial());
+        queueFor(device.getSerial());
+    }
+
+    /**
+     * Stops serving a device that left the pool and hands the tests queued for it over to the other devices.
+     *
+     * @param device the device that left the pool
+     */
+    public void retire(Device device) {
+        String serial = device.getSerial();
+        retiredSerials.add(serial);
+        serials.remove(serial);
+        Deque<TestCaseEvent> deque = deviceQueues.remove(serial);
+        if (deque != null) {
+            distribute(drain(deque));
+        }
+    }
+
+    public boolean isRetired(Device device) {
+        return retiredSerials.contains(device.getSerial());
+    }
+
+    public boolean isEmpty() {
+        if (!testCaseEventSource.isExhausted()) {
+            return false;
+        }
+        synchronized (retries) {
+            if (!retries.isEmpty()) {
+                return false;
+            }
+        }
+        for (Deque<TestCaseEvent> deque : deviceQueues.values()) {
+            if (!deque.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int queuedTests() {
+        int queuedTests = 0;
+        for (Deque<TestCaseEvent> deque : deviceQueues.values()) {
+            queuedTests += deque.size();
+        }
+        return queuedTests;
+    }
+
+    private static boolean isSameBatch(TestCaseEvent first, TestCaseEvent candidate) {
+        return first.getTestClass().equals(candidate.getTestClass())
+                && Objects.equals(first.getPermissionsToRevoke(), candidate.getPermissionsToRevoke());
+    }
+
+    @Nullable
+    private TestCaseEvent pollRetry(String serial) {
+        synchronized (retries) {
+            Iterator<Retry> iterator = retries.iterator();
+            while (iterator.hasNext()) {
+                Retry retry = iterator.next();
+                if (canTake(retry, serial)) {
+                    iterator.remove();
+                    return retry.testCaseEvent;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A device can take a retry of a test that did not fail on it, or that failed on every device still taking tests.
+     */
+    private boolean canTake(Retry retry, String serial) {
+        Set<String> failedOn = failedSerials.getOrDefault(retry.testCaseEvent, emptySet());
+        if (!failedOn.contains(serial)) {
+            return true;
+        }
+        for (String other : serials) {
+            if (!other.equals(serial) && !failedOn.contains(other) && !finishedSerials.contains(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private TestCaseEvent pollQueued(String serial) {
+        Deque<TestCaseEvent> deque = queueFor(serial);
+        if (deque == null) {
+            return null;
+        }
+        TestCaseEvent testCaseEvent = deque.pollFirst();
+        if (testCaseEvent != null) {
+            return testCaseEvent;
+        }
+        return steal(serial);
+    }
+
+    @Nullable
+    private TestCaseEvent steal(String thief) {
+        List<String> victims = new ArrayList<>(serials);
+        int start = victims.indexOf(thief) + 1;
+        for (int i = 0; i < victims.size(); i++) {
+            String victim = victims.get((start + i) % victims.size());
+            if (victim.equals(thief)) {
+                continue;
+            }
+            TestCaseEvent testCaseEvent = deviceQueues.getOrDefault(victim, EMPTY_DEQUE).pollLast();
+            if (testCaseEvent != null) {
+                return testCaseEvent;
+            }
+        }
+        return null;
+    }
+
+    private void distribute(Collection<TestCaseEvent> testCases) {
+        List<String> liveSerials = new ArrayList<>();
+        List<Deque<TestCaseEvent>> deques = new ArrayList<>();
+        for (String serial : serials) {
+            Deque<TestCaseEvent> deque = deviceQueues.get(serial);
+            if (deque != null) {
+                liveSerials.add(serial);
+                deques.add(deque);
+            }
+        }
+        if (deques.isEmpty()) {
+            testCases.forEach(this::offerRetry);
+            return;
+        }
+        int index = 0;
+        for (TestCaseEvent testCase : testCases) {
+            deques.get(index++ % deques.size()).addLast(testCase);
+        }
+        for (int i = 0; i < deques.size(); i++) {
+            redistributeIfRetired(liveSerials.get(i), deques.get(i));
+        }
+    }
+
+    /**
+     * Tests added to the deque of a device that was retired at the same time would never be taken: they are handed
+     * over to the other devices instead. Tests are drained one by one, so the retirement and this method never hand
+     * the same test over twice.
+     */
+    private void redistributeIfRetired(String serial, Deque<TestCaseEvent> deque) {
+        if (deviceQueues.get(serial) == deque) {
+            return;
+        }
+        List<TestCaseEvent> stranded = drain(deque);
+        if (!stranded.isEmpty()) {
+            distribute(stranded);
+        }
+    }
+
+    private static List<TestCaseEvent> drain(Deque<TestCaseEvent> deque) {
+        List<TestCaseEvent> testCases = new ArrayList<>();
+        TestCaseEvent testCase;
+        while ((testCase = deque.pollFirst()) != null) {
+            testCases.add(testCase);
+        }
+        return testCases;
+    }
+
+    private static class Retry {
+        private final TestCaseEvent testCaseEvent;
+
+        Retry(TestCaseEvent testCaseEvent) {
+            this.testCaseEvent = testCaseEvent;
+        }
+    }
+
+    /**
+     * A device that was retired while asking for work must not get a deque again, or the tests put on it would never
+     * be taken. {@link #retire(Device)} marks the device before removing its deque, so checking the mark in the same
+     * atomic step as the creation is enough.
+     *
+     * @return the deque of the device, or <code>null</code> if it was retired
+     */
+    @Nullable
+    private Deque<TestCaseEvent> queueFor(String serial) {
+        return deviceQueues.computeIfAbsent(serial, key -> {
+            if (retiredSerials.contains(key)) {
+                return null;
+            }
+            serials.add(key);
+            return new ConcurrentLinkedDeque<>();
+        });
+    }
+}
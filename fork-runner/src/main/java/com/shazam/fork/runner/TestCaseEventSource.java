@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner;
+
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.TestCaseEvent;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Where a {@link TestCaseEventQueue} gets more tests from once the ones it was created with run out, such as the
+ * coordinator of a distributed run.
+ */
+public interface TestCaseEventSource {
+
+    /**
+     * Takes more tests for a device. It may wait a little while before answering that there is nothing to take yet,
+     * so callers can ask again straight away.
+     *
+     * @param device the device that is asking for work
+     * @param maxTests the maximum number of tests to take
+     * @return the tests taken, or an empty list if there is nothing to take for now
+     */
+    List<TestCaseEvent> take(Device device, int maxTests);
+
+    /**
+     * @return <code>true</code> once the source will not give any more tests
+     */
+    boolean isExhausted();
+
+    static TestCaseEventSource noTestCaseEventSource() {
+        return new TestCaseEventSource() {
+            @Override
+            public List<TestCaseEvent> take(Device device, int maxTests) {
+                return emptyList();
+            }
+
+            @Override
+            public boolean isExhausted() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner;
+
+import com.shazam.fork.model.TestCaseEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.sort;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Historical durations of tests, used to schedule the longest tests first. Tests without any history get an estimate:
+ * the average of their class if it is known, otherwise the median of all known tests.
+ */
+public class TestDurations {
+    private final Map<String, Long> durationsMillis;
+    private final Map<String, Long> classDurationsMillis;
+    private final long defaultEstimateMillis;
+
+    public TestDurations(Map<String, Long> durationsMillis) {
+        this.durationsMillis = durationsMillis;
+        this.classDurationsMillis = averagePerClass(durationsMillis);
+        this.defaultEstimateMillis = median(durationsMillis.values());
+    }
+
+    public static TestDurations noTestDurations() {
+        return new TestDurations(emptyMap());
+    }
+
+    public static String keyOf(String testClass, String testMethod) {
+        return testClass + "#" + testMethod;
+    }
+
+    public boolean isEmpty() {
+        return durationsMillis.isEmpty();
+    }
+
+    public boolean isKnown(TestCaseEvent testCaseEvent) {
+        return durationsMillis.containsKey(keyOf(testCaseEvent.getTestClass(), testCaseEvent.getTestMethod()));
+    }
+
+    public long estimateMillis(TestCaseEvent testCaseEvent) {
+        Long duration = durationsMillis.get(keyOf(testCaseEvent.getTestClass(), testCaseEvent.getTestMethod()));
+        if (duration != null) {
+            return duration;
+        }
+        return classDurationsMillis.getOrDefault(testCaseEvent.getTestClass(), defaultEstimateMillis);
+    }
+
+    /**
+     * @param testCases the tests to order
+     * @return the tests, longest first. Ties keep their original order.
+     */
+    public List<TestCaseEvent> longestFirst(Collection<TestCaseEvent> testCases) {
+        List<TestCaseEvent> sorted = new ArrayList<>(testCases);
+        sort(sorted, comparingLong(this::estimateMillis).reversed());
+        return sorted;
+    }
+
+    /**
+     * Predicts how long a pool takes to run the given tests, assuming each test goes to the least busy device in the
+     * order given.
+     *
+     * @param testCases the tests in the order they will be scheduled
+     * @param devices the number of devices in the pool
+     * @return the predicted makespan in milliseconds
+     */
+    public long predictMakespanMillis(Collection<TestCaseEvent> testCases, int devices) {
+        if (devices <= 0) {
+            return 0;
+        }
+        PriorityQueue<Long> deviceLoads = new PriorityQueue<>();
+        for (int i = 0; i < devices; i++) {
+            deviceLoads.add(0L);
+        }
+        for (TestCaseEvent testCase : testCases) {
+            deviceLoads.add(deviceLoads.poll() + estimateMillis(testCase));
+        }
+        long makespan = 0;
+        for (long load : deviceLoads) {
+            makespan = Math.max(makespan, load);
+        }
+        return makespan;
+    }
+
+    private static Map<String, Long> averagePerClass(Map<String, Long> durationsMillis) {
+        Map<String, long[]> totals = new HashMap<>();
+        durationsMillis.forEach((key, duration) -> {
+            String testClass = key.substring(0, key.lastIndexOf('#'));
+            long[] total = totals.computeIfAbsent(testClass, c -> new long[2]);
+            total[0] += duration;
+            total[1]++;
+        });
+        Map<String, Long> averages = new HashMap<>();
+        totals.forEach((testClass, total) -> averages.put(testClass, total[0] / total[1]));
+        return averages;
+    }
+
+    private static long median(Collection<Long> durations) {
+        if (durations.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = durations.stream().sorted().collect(toList());
+        return sorted.get(sorted.size() / 2);
+    }
+}
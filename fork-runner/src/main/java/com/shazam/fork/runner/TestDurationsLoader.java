@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.shazam.fork.summary.PoolSummary;
+import com.shazam.fork.summary.Summary;
+import com.shazam.fork.summary.TestResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.CommonDefaults.FORK_SUMMARY_FILENAME_REGEX;
+import static com.shazam.fork.runner.TestDurations.keyOf;
+import static com.shazam.fork.runner.TestDurations.noTestDurations;
+import static com.shazam.fork.summary.ResultStatus.IGNORED;
+
+/**
+ * Reads the time taken by each test from the JSON summaries of previous runs. A test seen several times (in different
+ * runs or on different devices) gets the average of its durations.
+ */
+public class TestDurationsLoader {
+    private static final Logger logger = LoggerFactory.getLogger(TestDurationsLoader.class);
+
+    @Nullable
+    private final File summariesDirectory;
+    private final Gson gson;
+
+    public TestDurationsLoader(@Nullable File summariesDirectory, Gson gson) {
+        this.summariesDirectory = summariesDirectory;
+        this.gson = gson;
+    }
+
+    public TestDurations loadTestDurations() {
+        if (summariesDirectory == null) {
+            return noTestDurations();
+        }
+        File[] summaryFiles = summariesDirectory.listFiles((dir, name) -> name.matches(FORK_SUMMARY_FILENAME_REGEX));
+        if (summaryFiles == null || summaryFiles.length == 0) {
+            logger.warn("No previous summaries found in {}, tests will be scheduled in suite order",
+                    summariesDirectory.getAbsolutePath());
+            return noTestDurations();
+        }
+
+        Map<String, long[]> totals = new HashMap<>();
+        for (File summaryFile : summaryFiles) {
+            Summary summary = readSummary(summaryFile);
+            if (summary == null) {
+                continue;
+            }
+            for (PoolSummary poolSummary : summary.getPoolSummaries()) {
+                for (TestResult testResult : poolSummary.getTestResults()) {
+                    if (testResult.getResultStatus() == IGNORED || testResult.getTimeTaken() <= 0) {
+                        continue;
+                    }
+                    long[] total = totals.computeIfAbsent(
+                            keyOf(testResult.getTestClass(), testResult.getTestMethod()), key -> new long[2]);
+                    total[0] += (long) (testResult.getTimeTaken() * 1000);
+                    total[1]++;
+                }
+            }
+        }
+
+        Map<String, Long> durationsMillis = new HashMap<>();
+        totals.forEach((key, total) -> durationsMillis.put(key, total[0] / total[1]));
+        logger.info("Loaded historical durations of {} tests from {} summaries", durationsMillis.size(), summaryFiles.length);
+        return new TestDurations(durationsMillis);
+    }
+
+    @Nullable
+    private Summary readSummary(File summaryFile) {
+        try (Reader reader = new FileReader(summaryFile)) {
+            return gson.fromJson(reader, Summary.class);
+        } catch (IOException | JsonParseException e) {
+            logger.warn("Could not read previous summary " + summaryFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+}
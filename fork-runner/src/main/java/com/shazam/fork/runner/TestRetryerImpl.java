@@ -1,31 +1,60 @@
 package com.shazam.fork.runner;
 
+import com.android.ddmlib.IDevice;
 import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
 
-import java.util.Queue;
-
 import static com.shazam.fork.model.TestCaseEvent.newTestCase;
 
 public class TestRetryerImpl implements TestRetryer {
     private final ProgressReporter progressReporter;
     private final Pool pool;
-    private final Queue<TestCaseEvent> queueOfTestsInPool;
+    private final Device device;
+    private final TestCaseEventQueue queueOfTestsInPool;
+    private final RunEventStream runEventStream;
+    private final DeviceQuarantine deviceQuarantine;
 
-    public TestRetryerImpl(ProgressReporter progressReporter, Pool pool, Queue<TestCaseEvent> queueOfTestsInPool) {
+    public TestRetryerImpl(ProgressReporter progressReporter,
+                           Pool pool,
+                           Device device,
+                           TestCaseEventQueue queueOfTestsInPool,
+                           RunEventStream runEventStream,
+                           DeviceQuarantine deviceQuarantine) {
         this.progressReporter = progressReporter;
         this.pool = pool;
+        this.device = device;
         this.queueOfTestsInPool = queueOfTestsInPool;
+        this.runEventStream = runEventStream;
+        this.deviceQuarantine = deviceQuarantine;
     }
 
     @Override
     public boolean rescheduleTestExecution(TestIdentifier testIdentifier, TestCaseEvent testCaseEvent) {
+        if (hasDeviceLeft()) {
+            queueOfTestsInPool.offerRetry(testCaseEvent);
+            runEventStream.testRetried(pool, device, testCaseEvent.getTestClass(), testCaseEvent.getTestMethod(),
+                    false);
+            return true;
+        }
         progressReporter.recordFailedTestCase(pool, newTestCase(testIdentifier));
         if (progressReporter.requestRetry(pool, newTestCase(testIdentifier))) {
-            queueOfTestsInPool.add(testCaseEvent);
+            queueOfTestsInPool.offerRetry(testCaseEvent, device);
+            runEventStream.testRetried(pool, device, testCaseEvent.getTestClass(), testCaseEvent.getTestMethod(),
+                    true);
+            deviceQuarantine.testFailed(device, testIdentifier, testCaseEvent, true);
             return true;
         }
+        deviceQuarantine.testFailed(device, testIdentifier, testCaseEvent, false);
         return false;
     }
+
+    /**
+     * A test interrupted because its device disconnected did not fail, so it is run again without using the quota.
+     */
+    private boolean hasDeviceLeft() {
+        IDevice deviceInterface = device.getDeviceInterface();
+        return queueOfTestsInPool.isRetired(device) || (deviceInterface != null && !deviceInterface.isOnline());
+    }
 }
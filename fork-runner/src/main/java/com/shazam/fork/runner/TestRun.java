@@ -11,6 +11,7 @@ package com.shazam.fork.runner;
 
 import com.android.ddmlib.AdbCommandRejectedException;
 import com.android.ddmlib.IDevice;
+import com.android.ddmlib.NullOutputReceiver;
 import com.android.ddmlib.ShellCommandUnresponsiveException;
 import com.android.ddmlib.TimeoutException;
 import com.android.ddmlib.testrunner.IRemoteAndroidTestRunner;
@@ -18,7 +19,10 @@ import com.android.ddmlib.testrunner.ITestRunListener;
 import com.android.ddmlib.testrunner.RemoteAndroidTestRunner;
 import com.android.ddmlib.testrunner.TestIdentifier;
 import com.google.common.base.Strings;
+import com.shazam.fork.metrics.MetricsRegistry;
+import com.shazam.fork.model.Device;
 import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.listeners.NoOpITestRunListener;
 import com.shazam.fork.system.PermissionGrantingManager;
 import com.shazam.fork.system.io.RemoteFileManager;
 
@@ -26,25 +30,47 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.INSTRUMENTATION_START;
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.PERMISSIONS;
+import static com.shazam.fork.runner.DeviceTimeline.Category.INSTRUMENTATION;
+import static com.shazam.fork.runner.DeviceTimeline.Category.SETUP;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
 import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyMap;
 
 class TestRun {
 	private static final Logger logger = LoggerFactory.getLogger(TestRun.class);
     private final String poolName;
+	private final Device forkDevice;
 	private final TestRunParameters testRunParameters;
 	private final List<ITestRunListener> testRunListeners;
 	private final PermissionGrantingManager permissionGrantingManager;
+	private final MetricsRegistry metricsRegistry;
+	private final DeviceTimeline deviceTimeline;
+	private final SpeculativeExecution speculativeExecution;
 
 	public TestRun(String poolName,
+				   Device forkDevice,
 				   TestRunParameters testRunParameters,
 				   List<ITestRunListener> testRunListeners,
-				   PermissionGrantingManager permissionGrantingManager) {
+				   PermissionGrantingManager permissionGrantingManager,
+				   MetricsRegistry metricsRegistry,
+				   DeviceTimeline deviceTimeline,
+				   SpeculativeExecution speculativeExecution) {
         this.poolName = poolName;
+		this.forkDevice = forkDevice;
 		this.testRunParameters = testRunParameters;
 		this.testRunListeners = testRunListeners;
 		this.permissionGrantingManager = permissionGrantingManager;
+		this.metricsRegistry = metricsRegistry;
+		this.deviceTimeline = deviceTimeline;
+		this.speculativeExecution = speculativeExecution;
 	}
 
 	public void execute() {
@@ -56,20 +82,24 @@ class TestRun {
 				testRunParameters.getTestRunner(),
 				device);
 
-		TestCaseEvent test = testRunParameters.getTest();
-		String testClassName = test.getTestClass();
-		String testMethodName = test.getTestMethod();
+		List<TestCaseEvent> tests = testRunParameters.getTests();
+		TestCaseEvent firstTest = tests.get(0);
+		String testClassName = firstTest.getTestClass();
 		IRemoteAndroidTestRunner.TestSize testSize = testRunParameters.getTestSize();
 		if (testSize != null) {
 			runner.setTestSize(testSize);
 		}
 		runner.setRunName(poolName);
-		runner.setMethodName(testClassName, testMethodName);
+		if (tests.size() == 1) {
+			runner.setMethodName(testClassName, firstTest.getTestMethod());
+		} else {
+			runner.setClassNames(methodNamesOf(tests));
+		}
 		runner.setMaxtimeToOutputResponse(testRunParameters.getTestOutputTimeout());
 
         if (testRunParameters.isCoverageEnabled()) {
             runner.setCoverage(true);
-            runner.addInstrumentationArg("coverageFile", RemoteFileManager.getCoverageFileName(new TestIdentifier(testClassName, testMethodName)));
+            runner.addInstrumentationArg("coverageFile", RemoteFileManager.getCoverageFileName(new TestIdentifier(testClassName, firstTest.getTestMethod())));
         }
 		String excludedAnnotation = testRunParameters.getExcludedAnnotation();
 		if (!Strings.isNullOrEmpty(excludedAnnotation)) {
@@ -79,19 +109,104 @@ class TestRun {
 			logger.info("No excluding any test based on annotations");
 		}
 
-		List<String> permissionsToRevoke = testRunParameters.getTest().getPermissionsToRevoke();
+		List<String> permissionsToRevoke = firstTest.getPermissionsToRevoke();
 
+		String serial = device.getSerialNumber();
+		long revokeStartNanos = nanoTime();
 		permissionGrantingManager.revokePermissions(applicationPackage, device, permissionsToRevoke);
+		long permissionsMillis = millisSinceNanoTime(revokeStartNanos);
+		long instrumentationStartNanos = nanoTime();
+		if (!permissionsToRevoke.isEmpty()) {
+			deviceTimeline.record(poolName, serial, SETUP, "permissions", revokeStartNanos, instrumentationStartNanos);
+		}
 
+		AtomicBoolean cancelled = new AtomicBoolean();
+		AtomicBoolean runEnded = new AtomicBoolean();
+		List<ITestRunListener> listeners = withInstrumentationStartTimer(serial);
+		listeners.add(new NoOpITestRunListener() {
+			@Override
+			public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+				runEnded.set(true);
+			}
+		});
+		speculativeExecution.runStarted(forkDevice, () -> {
+			cancelled.set(true);
+			runner.cancel();
+		});
 		try {
-			runner.run(testRunListeners);
+			runner.run(listeners);
 		} catch (ShellCommandUnresponsiveException | TimeoutException e) {
 			logger.warn("Test: " + testClassName + " got stuck. You can increase the timeout in settings if it's too strict");
 		} catch (AdbCommandRejectedException | IOException e) {
-			throw new RuntimeException(format("Error while running test %s %s", test.getTestClass(), test.getTestMethod()), e);
+			throw new RuntimeException(format("Error while running tests %s", describe(tests)), e);
 		} finally {
+			long restoreStartNanos = nanoTime();
+			deviceTimeline.record(poolName, serial, INSTRUMENTATION, describe(tests), instrumentationStartNanos,
+					restoreStartNanos);
+			if (cancelled.get()) {
+				endCancelledRun(device, listeners, runEnded.get());
+			}
+			speculativeExecution.runEnded(forkDevice);
 			permissionGrantingManager.restorePermissions(applicationPackage, device, permissionsToRevoke);
+			if (!permissionsToRevoke.isEmpty()) {
+				permissionsMillis += millisSinceNanoTime(restoreStartNanos);
+				metricsRegistry.recordPhase(PERMISSIONS, poolName, serial, permissionsMillis);
+				deviceTimeline.record(poolName, serial, SETUP, "permissions", restoreStartNanos, nanoTime());
+			}
 		}
 
     }
+
+	/**
+	 * Stops the instrumentation of a run cancelled because another device finished its test first, and ends the run for
+	 * the listeners if the instrumentation did not, so that the tests of the batch that never started are queued again.
+	 */
+	private void endCancelledRun(IDevice device, List<ITestRunListener> listeners, boolean runEnded) {
+		try {
+			device.executeShellCommand("am force-stop " + testRunParameters.getTestPackage(), new NullOutputReceiver());
+		} catch (TimeoutException | AdbCommandRejectedException | ShellCommandUnresponsiveException | IOException e) {
+			logger.warn("Could not stop the cancelled instrumentation on " + device.getSerialNumber(), e);
+		}
+		if (runEnded) {
+			return;
+		}
+		for (ITestRunListener listener : listeners) {
+			listener.testRunFailed(SpeculativeExecution.CANCELLED_RUN_FAILURE);
+			listener.testRunEnded(0, emptyMap());
+		}
+	}
+
+	/**
+	 * Adds a listener that records how long the instrumentation takes to start, from now until it reports its tests.
+	 */
+	private List<ITestRunListener> withInstrumentationStartTimer(String serial) {
+		long launchNanos = nanoTime();
+		List<ITestRunListener> listeners = new ArrayList<>(testRunListeners);
+		listeners.add(new NoOpITestRunListener() {
+			@Override
+			public void testRunStarted(String runName, int testCount) {
+				metricsRegistry.recordPhase(INSTRUMENTATION_START, poolName, serial, millisSinceNanoTime(launchNanos));
+			}
+		});
+		return listeners;
+	}
+
+	/**
+	 * The instrumentation runs the methods listed as <code>class#method</code>, all in one process.
+	 */
+	private static String[] methodNamesOf(List<TestCaseEvent> tests) {
+		String[] methodNames = new String[tests.size()];
+		for (int i = 0; i < tests.size(); i++) {
+			methodNames[i] = tests.get(i).getTestClass() + "#" + tests.get(i).getTestMethod();
+		}
+		return methodNames;
+	}
+
+	private static String describe(List<TestCaseEvent> tests) {
+		StringBuilder description = new StringBuilder(tests.get(0).getTestClass());
+		for (TestCaseEvent test : tests) {
+			description.append(' ').append(test.getTestMethod());
+		}
+		return description.toString();
+	}
 }
@@ -12,11 +12,13 @@ package com.shazam.fork.runner;
 
 import com.android.ddmlib.testrunner.ITestRunListener;
 import com.shazam.fork.Configuration;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.*;
+import com.shazam.fork.runner.listeners.AsyncTestRunListenerDispatcher;
+import com.shazam.fork.runner.listeners.DeviceLogCat;
 import com.shazam.fork.runner.listeners.TestRunListenersFactory;
 
 import java.util.List;
-import java.util.Queue;
 
 import static com.shazam.fork.runner.TestRunParameters.Builder.testRunParameters;
 import static com.shazam.fork.system.PermissionGrantingManager.permissionGrantingManager;
@@ -25,20 +27,31 @@ public class TestRunFactory {
 
     private final Configuration configuration;
     private final TestRunListenersFactory testRunListenersFactory;
+    private final MetricsRegistry metricsRegistry;
+    private final DeviceTimeline deviceTimeline;
 
-    public TestRunFactory(Configuration configuration, TestRunListenersFactory testRunListenersFactory) {
+    public TestRunFactory(Configuration configuration,
+                          TestRunListenersFactory testRunListenersFactory,
+                          MetricsRegistry metricsRegistry,
+                          DeviceTimeline deviceTimeline) {
         this.configuration = configuration;
         this.testRunListenersFactory = testRunListenersFactory;
+        this.metricsRegistry = metricsRegistry;
+        this.deviceTimeline = deviceTimeline;
     }
 
-    public TestRun createTestRun(TestCaseEvent testCase,
+    public TestRun createTestRun(List<TestCaseEvent> testCases,
                                  Device device,
                                  Pool pool,
                                  ProgressReporter progressReporter,
-                                 Queue<TestCaseEvent> queueOfTestsInPool) {
+                                 TestCaseEventQueue queueOfTestsInPool,
+                                 AsyncTestRunListenerDispatcher asyncDispatcher,
+                                 DeviceLogCat deviceLogCat,
+                                 SpeculativeExecution speculativeExecution,
+                                 DeviceQuarantine deviceQuarantine) {
         TestRunParameters testRunParameters = testRunParameters()
                 .withDeviceInterface(device.getDeviceInterface())
-                .withTest(testCase)
+                .withTests(testCases)
                 .withTestPackage(configuration.getInstrumentationPackage())
                 .withApplicationPackage(configuration.getApplicationPackage())
                 .withTestRunner(configuration.getTestRunnerClass())
@@ -49,16 +62,24 @@ public class TestRunFactory {
                 .build();
 
         List<ITestRunListener> testRunListeners = testRunListenersFactory.createTestListeners(
-                testCase,
+                testCases,
                 device,
                 pool,
                 progressReporter,
-                queueOfTestsInPool);
+                queueOfTestsInPool,
+                asyncDispatcher,
+                deviceLogCat,
+                speculativeExecution,
+                deviceQuarantine);
 
         return new TestRun(
                 pool.getName(),
+                device,
                 testRunParameters,
                 testRunListeners,
-                permissionGrantingManager());
+                permissionGrantingManager(),
+                metricsRegistry,
+                deviceTimeline,
+                speculativeExecution);
     }
 }
@@ -16,10 +16,12 @@ import com.android.ddmlib.IDevice;
 import com.android.ddmlib.testrunner.IRemoteAndroidTestRunner;
 import com.shazam.fork.model.TestCaseEvent;
 
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 public class TestRunParameters {
-	private final TestCaseEvent test;
+	private final List<TestCaseEvent> tests;
 	private final String testPackage;
 	private final String testRunner;
 	private final boolean isCoverageEnabled;
@@ -29,8 +31,11 @@ public class TestRunParameters {
 	private final String excludedAnnotation;
 	private final String applicationPackage;
 
-	public TestCaseEvent getTest() {
-		return test;
+	/**
+	 * @return the tests sent to the instrumentation in a single run, all of the same class
+	 */
+	public List<TestCaseEvent> getTests() {
+		return tests;
 	}
 
 	public String getTestPackage() {
@@ -67,7 +72,7 @@ public class TestRunParameters {
 	}
 
 	public static class Builder {
-		private TestCaseEvent test;
+		private List<TestCaseEvent> tests;
 		private String testPackage;
 		private String testRunner;
 		private boolean isCoverageEnabled;
@@ -81,8 +86,8 @@ public class TestRunParameters {
 			return new Builder();
 		}
 
-		public Builder withTest(TestCaseEvent test) {
-			this.test = test;
+		public Builder withTests(List<TestCaseEvent> tests) {
+			this.tests = tests;
 			return this;
 		}
 
@@ -132,7 +137,7 @@ public class TestRunParameters {
 	}
 
 	private TestRunParameters(Builder builder) {
-		test = builder.test;
+		tests = builder.tests;
 		testPackage = builder.testPackage;
 		testRunner = builder.testRunner;
 		testSize = builder.testSize;
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.RawImage;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.madgag.gif.fmsware.AnimatedGifEncoder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BiConsumer;
+
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Encodes screenshots into animated GIFs in the background, so capturing the screen of the next test is not delayed.
+ * When too many animations are waiting, the caller encodes its own, so the screenshots held in memory stay bounded.
+ */
+public class AnimationWriter {
+    private static final Logger logger = LoggerFactory.getLogger(AnimationWriter.class);
+    private static final int FRAME_DELAY_MILLIS = 1500;
+    /**
+     * The sampling interval of the colour quantizer: 1 is the slowest, 10 is the encoder's own default.
+     */
+    private static final int GIF_QUALITY = 10;
+
+    private final ExecutorService executor;
+    private final BiConsumer<List<RawImage>, File> encoder;
+    private final Queue<Future<?>> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param threads how many animations are encoded at the same time
+     * @param maxQueuedWrites how many animations can wait for a thread before the caller encodes its own
+     */
+    public AnimationWriter(int threads, int maxQueuedWrites) {
+        this(threads, maxQueuedWrites, AnimationWriter::encode);
+    }
+
+    AnimationWriter(int threads, int maxQueuedWrites, BiConsumer<List<RawImage>, File> encoder) {
+        this.encoder = encoder;
+        executor = new ThreadPoolExecutor(threads, threads, 0, MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedWrites),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("AnimationWriter-%d")
+                        .setDaemon(true)
+                        .build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param frames the screenshots, oldest first
+     * @param file where to write the animation
+     */
+    public void write(List<RawImage> frames, File file) {
+        if (frames.isEmpty()) {
+            return;
+        }
+        pendingWrites.add(executor.submit(() -> encoder.accept(frames, file)));
+        pendingWrites.removeIf(Future::isDone);
+    }
+
+    /**
+     * Waits for every animation submitted so far to be written.
+     */
+    public void awaitPendingWrites() {
+        Future<?> pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            try {
+                pendingWrite.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Error saving animated GIF", e.getCause());
+            }
+        }
+    }
+
+    private static void encode(List<RawImage> frames, File file) {
+        long startNanos = nanoTime();
+        AnimatedGifEncoder encoder = new AnimatedGifEncoder();
+        encoder.start(file.getAbsolutePath());
+        encoder.setDelay(FRAME_DELAY_MILLIS);
+        encoder.setQuality(GIF_QUALITY);
+        encoder.setRepeat(0);
+        encoder.setTransparent(Color.WHITE);
+
+        int width = 0;
+        int height = 0;
+        for (RawImage frame : frames) {
+            width = Math.max(frame.width, width);
+            height = Math.max(frame.height, height);
+        }
+        encoder.setSize(width, height);
+
+        for (RawImage frame : frames) {
+            encoder.addFrame(bufferedImageFrom(frame));
+        }
+        encoder.finish();
+        logger.debug("Wrote {} frames to {} in {}ms", frames.size(), file, millisSinceNanoTime(startNanos));
+    }
+
+    /**
+     * Writes the pixels straight into the backing array of the image, skipping the colour model conversion that
+     * {@link BufferedImage#setRGB(int, int, int)} does for every pixel.
+     */
+    static BufferedImage bufferedImageFrom(RawImage rawImage) {
+        BufferedImage image = new BufferedImage(rawImage.width, rawImage.height, TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int bytesPerPixel = rawImage.bpp >> 3;
+        int index = 0;
+        for (int pixel = 0; pixel < pixels.length; pixel++) {
+            pixels[pixel] = rawImage.getARGB(index);
+            index += bytesPerPixel;
+        }
+        return image;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.ITestRunListener;
+import com.android.ddmlib.testrunner.TestIdentifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Calls slow listeners on a thread of their own, so they do not hold up the parsing of the instrumentation output of
+ * a device. Events keep their order. When the queue is full, the instrumentation output waits for it to drain.
+ */
+public class AsyncTestRunListenerDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTestRunListenerDispatcher.class);
+    private static final Runnable END_OF_EVENTS = () -> {};
+
+    private final BlockingQueue<Runnable> events;
+    private final Thread dispatchingThread;
+
+    /**
+     * @param deviceSerial the device whose listeners are called
+     * @param capacity how many events can be waiting before the instrumentation output is held up
+     */
+    public AsyncTestRunListenerDispatcher(String deviceSerial, int capacity) {
+        events = new ArrayBlockingQueue<>(capacity);
+        dispatchingThread = new Thread(this::dispatchEvents, "ListenerDispatcher-" + deviceSerial);
+        dispatchingThread.setDaemon(true);
+        dispatchingThread.start();
+    }
+
+    /**
+     * @param listeners the listeners to call on the dispatching thread, in this order
+     * @return a listener that queues every event for the given listeners
+     */
+    public ITestRunListener asynchronous(List<ITestRunListener> listeners) {
+        return new AsyncTestRunListener(listeners);
+    }
+
+    /**
+     * Waits until every queued event has been handled and stops the dispatching thread.
+     */
+    public void close() {
+        enqueue(END_OF_EVENTS);
+        try {
+            dispatchingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Runnable event) {
+        try {
+            events.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while queueing a test run event, it will not reach slow listeners");
+        }
+    }
+
+    private void dispatchEvents() {
+        try {
+            Runnable event;
+            while ((event = events.take()) != END_OF_EVENTS) {
+                event.run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class AsyncTestRunListener implements ITestRunListener {
+        private final List<ITestRunListener> listeners;
+
+        AsyncTestRunListener(List<ITestRunListener> listeners) {
+            this.listeners = listeners;
+        }
+
+        /**
+         * Calls every listener with the event, a listener that fails does not keep it from the ones after it.
+         */
+        private void dispatch(String event, Consumer<ITestRunListener> call) {
+            enqueue(() -> listeners.forEach(listener -> {
+                try {
+                    call.accept(listener);
+                } catch (RuntimeException e) {
+                    logger.warn("Error in asynchronous test run listener {} on {}",
+                            listener.getClass().getSimpleName(), event, e);
+                }
+            }));
+        }
+
+        @Override
+        public void testRunStarted(String runName, int testCount) {
+            dispatch("testRunStarted", listener -> listener.testRunStarted(runName, testCount));
+        }
+
+        @Override
+        public void testStarted(TestIdentifier test) {
+            dispatch("testStarted", listener -> listener.testStarted(test));
+        }
+
+        @Override
+        public void testFailed(TestIdentifier test, String trace) {
+            dispatch("testFailed", listener -> listener.testFailed(test, trace));
+        }
+
+        @Override
+        public void testAssumptionFailure(TestIdentifier test, String trace) {
+            dispatch("testAssumptionFailure", listener -> listener.testAssumptionFailure(test, trace));
+        }
+
+        @Override
+        public void testIgnored(TestIdentifier test) {
+            dispatch("testIgnored", listener -> listener.testIgnored(test));
+        }
+
+        @Override
+        public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+            dispatch("testEnded", listener -> listener.testEnded(test, testMetrics));
+        }
+
+        @Override
+        public void testRunFailed(String errorMessage) {
+            dispatch("testRunFailed", listener -> listener.testRunFailed(errorMessage));
+        }
+
+        @Override
+        public void testRunStopped(long elapsedTime) {
+            dispatch("testRunStopped", listener -> listener.testRunStopped(elapsedTime));
+        }
+
+        @Override
+        public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+            dispatch("testRunEnded", listener -> listener.testRunEnded(elapsedTime, runMetrics));
+        }
+    }
+}
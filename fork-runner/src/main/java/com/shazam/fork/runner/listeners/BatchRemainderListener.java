@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.TestCaseEventQueue;
+import com.shazam.fork.runner.SpeculativeExecution;
+import com.shazam.fork.runner.TestRetryer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+
+/**
+ * Puts back into the queue the tests of a batch that never started because the instrumentation run failed. The test
+ * that was running when it failed is left to the {@link RetryListener}. If no test of the batch started at all, each
+ * one is queued to run on its own so that the failure can be pinned on a single test; only when a lone test fails to
+ * start is it counted as a failed attempt. Tests that another device is also running, as a speculative backup or as
+ * the original, are left to that device.
+ */
+class BatchRemainderListener extends NoOpITestRunListener {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRemainderListener.class);
+    private final Pool pool;
+    private final Device device;
+    private final List<TestCaseEvent> testCases;
+    private final TestCaseEventQueue testCaseEventQueue;
+    private final SpeculativeExecution speculativeExecution;
+    private final TestRetryer testRetryer;
+    private final Set<TestCaseEvent> startedTests = new HashSet<>();
+    private boolean hasRunFailed;
+
+    BatchRemainderListener(Pool pool,
+                           Device device,
+                           List<TestCaseEvent> testCases,
+                           TestCaseEventQueue testCaseEventQueue,
+                           SpeculativeExecution speculativeExecution,
+                           TestRetryer testRetryer) {
+        this.pool = pool;
+        this.device = device;
+        this.testCases = testCases;
+        this.testCaseEventQueue = testCaseEventQueue;
+        this.speculativeExecution = speculativeExecution;
+        this.testRetryer = testRetryer;
+    }
+
+    @Override
+    public void testStarted(TestIdentifier test) {
+        startedTests.add(newTestCase(test));
+    }
+
+    @Override
+    public void testRunFailed(String errorMessage) {
+        hasRunFailed = true;
+    }
+
+    @Override
+    public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+        if (!hasRunFailed) {
+            return;
+        }
+        List<TestCaseEvent> remainder = new ArrayList<>();
+        for (TestCaseEvent testCase : testCases) {
+            if (!startedTests.contains(testCase) && !speculativeExecution.isRunningElsewhere(testCase, device)) {
+                remainder.add(testCase);
+            }
+        }
+        if (remainder.isEmpty()) {
+            return;
+        }
+
+        if (!startedTests.isEmpty()) {
+            logger.info("{} tests did not run on device {}, enqueued again into pool: {}",
+                    remainder.size(), device.getSafeSerial(), pool.getName());
+            testCaseEventQueue.offerRemainder(device, remainder);
+        } else if (testCases.size() > 1) {
+            logger.info("No test of {} started on device {}, enqueued each of them again into pool: {}",
+                    remainder.get(0).getTestClass(), device.getSafeSerial(), pool.getName());
+            for (TestCaseEvent testCase : remainder) {
+                testCaseEventQueue.offerRetry(testCase);
+            }
+        } else {
+            TestCaseEvent testCase = remainder.get(0);
+            TestIdentifier test = new TestIdentifier(testCase.getTestClass(), testCase.getTestMethod());
+            if (testRetryer.rescheduleTestExecution(test, testCase)) {
+                logger.info("Test " + test + " did not start, enqueued again into pool: " + pool.getName());
+            } else {
+                logger.info("Test " + test + " did not start on device " + device.getSafeSerial()
+                        + " and retry is not allowed.");
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.ITestRunListener;
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.SpeculativeExecution;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Splits an instrumentation run of several tests into one run per test, for listeners that report on a single test.
+ * Every test gets its own listeners, whose run starts when the test starts and ends as soon as the test ends.
+ * <p>
+ * A test that another device finished first, when running speculative backups, is dropped without ending its run, so
+ * its listeners never report it.
+ */
+class BatchTestRunListener implements ITestRunListener {
+    private final List<TestCaseEvent> testCases;
+    private final Device device;
+    private final SpeculativeExecution speculativeExecution;
+    private final Function<TestCaseEvent, List<ITestRunListener>> testListenersFactory;
+
+    private String runName;
+    private TestCaseEvent testCase;
+    private List<ITestRunListener> testListeners = emptyList();
+    private long testStartNanos;
+
+    BatchTestRunListener(List<TestCaseEvent> testCases,
+                         Device device,
+                         SpeculativeExecution speculativeExecution,
+                         Function<TestCaseEvent, List<ITestRunListener>> testListenersFactory) {
+        this.testCases = testCases;
+        this.device = device;
+        this.speculativeExecution = speculativeExecution;
+        this.testListenersFactory = testListenersFactory;
+    }
+
+    @Override
+    public void testRunStarted(String runName, int testCount) {
+        this.runName = runName;
+    }
+
+    @Override
+    public void testStarted(TestIdentifier test) {
+        endTestRun();
+        testCase = testCaseOf(test);
+        speculativeExecution.testStarted(testCase, device);
+        testListeners = testListenersFactory.apply(testCase);
+        testStartNanos = nanoTime();
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testRunStarted(runName, 1);
+            testListener.testStarted(test);
+        }
+    }
+
+    @Override
+    public void testFailed(TestIdentifier test, String trace) {
+        dropIfLost();
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testFailed(test, trace);
+        }
+    }
+
+    @Override
+    public void testAssumptionFailure(TestIdentifier test, String trace) {
+        dropIfLost();
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testAssumptionFailure(test, trace);
+        }
+    }
+
+    @Override
+    public void testIgnored(TestIdentifier test) {
+        dropIfLost();
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testIgnored(test);
+        }
+    }
+
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        if (testCase != null && !speculativeExecution.claim(testCase, device)) {
+            testListeners = emptyList();
+        }
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testEnded(test, testMetrics);
+        }
+        endTestRun();
+    }
+
+    @Override
+    public void testRunFailed(String errorMessage) {
+        dropIfLost();
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testRunFailed(errorMessage);
+        }
+        endTestRun();
+    }
+
+    @Override
+    public void testRunStopped(long elapsedTime) {
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testRunStopped(elapsedTime);
+        }
+    }
+
+    @Override
+    public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+        endTestRun();
+    }
+
+    private void endTestRun() {
+        long elapsedTime = millisSinceNanoTime(testStartNanos);
+        for (ITestRunListener testListener : testListeners) {
+            testListener.testRunEnded(elapsedTime, emptyMap());
+        }
+        testListeners = emptyList();
+        if (testCase != null) {
+            speculativeExecution.testEnded(testCase, device);
+            testCase = null;
+        }
+    }
+
+    private void dropIfLost() {
+        if (testCase != null && speculativeExecution.hasLost(testCase, device)) {
+            testListeners = emptyList();
+        }
+    }
+
+    private TestCaseEvent testCaseOf(TestIdentifier test) {
+        TestCaseEvent reported = newTestCase(test);
+        int index = testCases.indexOf(reported);
+        return index >= 0 ? testCases.get(index) : reported;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.runner.RetryCircuitBreaker;
+
+import java.util.Map;
+
+import static com.shazam.fork.runner.SpeculativeExecution.CANCELLED_RUN_FAILURE;
+
+/**
+ * Tells the {@link RetryCircuitBreaker} how each test ended. An instrumentation that crashed counts as a failure of its
+ * own, since an app crashing on launch may not get to report any test. Ignored tests and assumption failures are left
+ * out, as is a run cancelled in favour of another device.
+ */
+class CircuitBreakerTestRunListener extends NoOpITestRunListener {
+    private final RetryCircuitBreaker retryCircuitBreaker;
+    private String failureTrace;
+    private boolean skipped;
+
+    CircuitBreakerTestRunListener(RetryCircuitBreaker retryCircuitBreaker) {
+        this.retryCircuitBreaker = retryCircuitBreaker;
+    }
+
+    @Override
+    public void testStarted(TestIdentifier test) {
+        failureTrace = null;
+        skipped = false;
+    }
+
+    @Override
+    public void testFailed(TestIdentifier test, String trace) {
+        failureTrace = trace;
+    }
+
+    @Override
+    public void testAssumptionFailure(TestIdentifier test, String trace) {
+        skipped = true;
+    }
+
+    @Override
+    public void testIgnored(TestIdentifier test) {
+        skipped = true;
+    }
+
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        if (failureTrace != null) {
+            retryCircuitBreaker.testFailed(failureTrace);
+        } else if (!skipped) {
+            retryCircuitBreaker.testPassed();
+        }
+    }
+
+    @Override
+    public void testRunFailed(String errorMessage) {
+        if (!CANCELLED_RUN_FAILURE.equals(errorMessage)) {
+            retryCircuitBreaker.testFailed(errorMessage);
+        }
+    }
+}
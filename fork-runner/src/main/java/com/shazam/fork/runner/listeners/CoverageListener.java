@@ -2,6 +2,7 @@ package com.shazam.fork.runner.listeners;
 
 import com.android.ddmlib.testrunner.ITestRunListener;
 import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.*;
 import com.shazam.fork.system.io.FileManager;
 import com.shazam.fork.system.io.RemoteFileManager;
@@ -12,7 +13,10 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.util.Map;
 
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.ARTIFACT_PULL;
 import static com.shazam.fork.system.io.FileType.COVERAGE;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
 
 public class CoverageListener implements ITestRunListener {
 
@@ -21,12 +25,15 @@ public class CoverageListener implements ITestRunListener {
     private final Pool pool;
     private final Logger logger = LoggerFactory.getLogger(CoverageListener.class);
     private final TestCaseEvent testCase;
+    private final MetricsRegistry metricsRegistry;
 
-    public CoverageListener(Device device, FileManager fileManager, Pool pool, TestCaseEvent testCase) {
+    public CoverageListener(Device device, FileManager fileManager, Pool pool, TestCaseEvent testCase,
+                            MetricsRegistry metricsRegistry) {
         this.device = device;
         this.fileManager = fileManager;
         this.pool = pool;
         this.testCase = testCase;
+        this.metricsRegistry = metricsRegistry;
     }
 
     @Override
@@ -67,7 +74,10 @@ public class CoverageListener implements ITestRunListener {
         final String remoteFile = RemoteFileManager.getCoverageFileName(testIdentifier);
         final File file = fileManager.createFile(COVERAGE, pool, device, testIdentifier);
         try {
+            long startNanos = nanoTime();
             device.getDeviceInterface().pullFile(remoteFile, file.getAbsolutePath());
+            metricsRegistry.recordPhase(ARTIFACT_PULL, pool.getName(), device.getSerial(),
+                    millisSinceNanoTime(startNanos));
         } catch (Exception e) {
             logger.error("Something went wrong while pulling coverage file", e);
         }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.logcat.LogCatListener;
+import com.android.ddmlib.logcat.LogCatMessage;
+import com.android.ddmlib.logcat.LogCatReceiverTask;
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptyList;
+
+/**
+ * Streams the logcat of a device for as long as the device runs tests. Messages are appended to a buffer, and the
+ * start and end of each test are indexed as the instrumentation logs them, so the messages of a test are a slice of
+ * the buffer rather than the result of scanning every message.
+ */
+public class DeviceLogCat implements LogCatListener {
+    private static final String STARTED_MARKER = "started: ";
+    private static final String FINISHED_MARKER = "finished: ";
+    private static final String IGNORED_MARKER = "ignored: ";
+    private static final int CHUNK_SIZE = 4096;
+
+    private final LogCatReceiverTask logCatReceiverTask;
+    private final Thread logCatThread;
+    private final Map<Integer, LogCatMessage[]> chunks = new ConcurrentHashMap<>();
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private volatile int size;
+    private Segment openSegment;
+
+    public DeviceLogCat(Device device) {
+        logCatReceiverTask = new LogCatReceiverTask(device.getDeviceInterface());
+        logCatThread = new Thread(logCatReceiverTask, "CatLogger-" + device.getSerial());
+        logCatThread.setDaemon(true);
+    }
+
+    public void start() {
+        logCatReceiverTask.addLogCatListener(this);
+        logCatThread.start();
+    }
+
+    public void stop() {
+        logCatReceiverTask.stop();
+        logCatReceiverTask.removeLogCatListener(this);
+    }
+
+    @Override
+    public void log(List<LogCatMessage> messages) {
+        for (LogCatMessage message : messages) {
+            append(message);
+        }
+    }
+
+    /**
+     * Gets the messages logged by a test, from its start to its end. When the end has not been logged yet, waits for
+     * it until the timeout and then returns the messages logged so far. A test whose start was not logged, such as an
+     * ignored test, is not waited for: the start is logged as the test starts, long before its end is reported.
+     *
+     * @param test the test
+     * @param timeoutMillis how long to wait for the end of the test to be logged
+     * @return a read-only view of the messages of the test, empty if the start of the test was never logged
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<LogCatMessage> awaitMessagesOf(TestIdentifier test, long timeoutMillis) throws InterruptedException {
+        Segment segment = segments.get(keyOf(test));
+        if (segment == null) {
+            return emptyList();
+        }
+        long deadline = currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (segment.end < 0) {
+                long remainingMillis = deadline - currentTimeMillis();
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                wait(remainingMillis);
+            }
+        }
+        int end = segment.end >= 0 ? segment.end : size;
+        return new Slice(segment.start, end);
+    }
+
+    /**
+     * Drops the messages of a test, and of everything logged before it, once they are no longer needed.
+     *
+     * @param test the test whose messages have been handled
+     */
+    public void release(TestIdentifier test) {
+        Segment released = segments.remove(keyOf(test));
+        if (released == null) {
+            return;
+        }
+        Iterator<Segment> remaining = segments.values().iterator();
+        int keepFrom = released.end >= 0 ? released.end : released.start;
+        while (remaining.hasNext()) {
+            Segment segment = remaining.next();
+            if (segment.start <= released.start) {
+                remaining.remove();
+            } else {
+                keepFrom = Math.min(keepFrom, segment.start);
+            }
+        }
+        for (Integer chunkIndex : chunks.keySet()) {
+            if ((chunkIndex + 1) * CHUNK_SIZE <= keepFrom) {
+                chunks.remove(chunkIndex);
+            }
+        }
+    }
+
+    private void append(LogCatMessage message) {
+        int index = size;
+        chunks.computeIfAbsent(index / CHUNK_SIZE, chunkIndex -> new LogCatMessage[CHUNK_SIZE])[index % CHUNK_SIZE]
+                = message;
+        size = index + 1;
+
+        String text = message.getMessage();
+        if (text.startsWith(STARTED_MARKER)) {
+            String key = keyOfMarker(text, STARTED_MARKER);
+            if (key != null) {
+                endOpenSegment(index);
+                openSegment = new Segment(index);
+                segments.put(key, openSegment);
+            }
+        } else if (text.startsWith(IGNORED_MARKER)) {
+            String key = keyOfMarker(text, IGNORED_MARKER);
+            if (key != null) {
+                endOpenSegment(index);
+                Segment segment = new Segment(index);
+                segment.end = index + 1;
+                segments.put(key, segment);
+            }
+        } else if (text.startsWith(FINISHED_MARKER)) {
+            String key = keyOfMarker(text, FINISHED_MARKER);
+            Segment segment = key == null ? null : segments.get(key);
+            if (segment != null) {
+                synchronized (this) {
+                    segment.end = index + 1;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * A device runs one test at a time, so a test whose end was never logged, as when it crashed, ends where the next
+     * one starts rather than making its listener wait for the whole timeout.
+     */
+    private void endOpenSegment(int index) {
+        Segment segment = openSegment;
+        if (segment != null && segment.end < 0) {
+            synchronized (this) {
+                segment.end = index;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The instrumentation logs <code>started: method(class)</code> and <code>finished: method(class)</code>, or
+     * <code>ignored: method(class)</code> for a test it skips.
+     */
+    private static String keyOfMarker(String text, String marker) {
+        int classStart = text.lastIndexOf('(');
+        if (classStart < 0 || !text.endsWith(")")) {
+            return null;
+        }
+        String testName = text.substring(marker.length(), classStart).trim();
+        String className = text.substring(classStart + 1, text.length() - 1);
+        return className + "#" + testName;
+    }
+
+    private static String keyOf(TestIdentifier test) {
+        return test.getClassName() + "#" + test.getTestName();
+    }
+
+    private static class Segment {
+        private final int start;
+        private volatile int end = -1;
+
+        Segment(int start) {
+            this.start = start;
+        }
+    }
+
+    private class Slice extends AbstractList<LogCatMessage> {
+        private final int start;
+        private final int end;
+
+        Slice(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public LogCatMessage get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+            }
+            int messageIndex = start + index;
+            return chunks.get(messageIndex / CHUNK_SIZE)[messageIndex % CHUNK_SIZE];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.runner.RunEventStream;
+
+import java.util.Map;
+
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
+
+/**
+ * Tells the {@link RunEventStream} when each test starts, fails and ends.
+ */
+class EventStreamTestRunListener extends NoOpITestRunListener {
+    private final RunEventStream runEventStream;
+    private final Pool pool;
+    private final Device device;
+
+    private long testStartNanos;
+    private String status;
+
+    EventStreamTestRunListener(RunEventStream runEventStream, Pool pool, Device device) {
+        this.runEventStream = runEventStream;
+        this.pool = pool;
+        this.device = device;
+    }
+
+    @Override
+    public void testStarted(TestIdentifier test) {
+        testStartNanos = nanoTime();
+        status = "passed";
+        runEventStream.testStarted(pool, device, test.getClassName(), test.getTestName());
+    }
+
+    @Override
+    public void testFailed(TestIdentifier test, String trace) {
+        status = "failed";
+        runEventStream.testFailed(pool, device, test.getClassName(), test.getTestName(), trace);
+    }
+
+    @Override
+    public void testAssumptionFailure(TestIdentifier test, String trace) {
+        status = "assumption_failed";
+    }
+
+    @Override
+    public void testIgnored(TestIdentifier test) {
+        status = "ignored";
+    }
+
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        runEventStream.testEnded(pool, device, test.getClassName(), test.getTestName(), status,
+                millisSinceNanoTime(testStartNanos));
+    }
+}
@@ -13,26 +13,41 @@
 package com.shazam.fork.runner.listeners;
 
 import com.android.ddmlib.testrunner.TestIdentifier;
+import com.android.ddmlib.testrunner.TestResult.TestStatus;
 import com.android.ddmlib.testrunner.XmlTestRunListener;
 import com.google.common.collect.ImmutableMap;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
 import com.shazam.fork.runner.ProgressReporter;
+import com.shazam.fork.summary.ResultStatus;
+import com.shazam.fork.summary.TestAttempt;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.summary.TestResultStore;
 import com.shazam.fork.system.io.FileManager;
 import com.shazam.fork.system.io.FileType;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
 
 import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.summary.ResultStatus.FAIL;
+import static com.shazam.fork.summary.ResultStatus.PASS;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
 import static com.shazam.fork.summary.TestResult.SUMMARY_KEY_TOTAL_FAILURE_COUNT;
 
+/**
+ * Writes the JUnit XML report of a test and hands the same results to the {@link TestResultStore}, so the summary
+ * does not need to read the report back.
+ */
 public class ForkXmlTestRunListener extends XmlTestRunListener {
 
     private final FileManager fileManager;
+    private final TestResultStore testResultStore;
     private final Pool pool;
     private final Device device;
     private final TestCaseEvent testCase;
@@ -42,11 +57,13 @@ public class ForkXmlTestRunListener extends XmlTestRunListener {
     private TestIdentifier test;
 
     public ForkXmlTestRunListener(FileManager fileManager,
+                                  TestResultStore testResultStore,
                                   Pool pool,
                                   Device device,
                                   TestCaseEvent testCase,
                                   @Nonnull ProgressReporter progressReporter) {
         this.fileManager = fileManager;
+        this.testResultStore = testResultStore;
         this.pool = pool;
         this.device = device;
         this.testCase = testCase;
@@ -64,6 +81,26 @@ public class ForkXmlTestRunListener extends XmlTestRunListener {
         super.testStarted(test);
     }
 
+    @Override
+    public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+        super.testRunEnded(elapsedTime, runMetrics);
+        Map<String, String> properties = getPropertiesAttributes();
+        ResultStatus attemptStatus = getRunResult().getNumTestsInState(TestStatus.FAILURE) > 0 ? FAIL : PASS;
+        List<TestAttempt> attempts = testResultStore.recordAttempt(pool, device, testCase.getTestClass(),
+                testCase.getTestMethod(), attemptStatus);
+        List<TestResult> testResults = new ArrayList<>();
+        getRunResult().getTestResults().forEach((testIdentifier, result) -> testResults.add(aTestResult()
+                .withDevice(device)
+                .withTestClass(testIdentifier.getClassName())
+                .withTestMethod(testIdentifier.getTestName())
+                .withTimeTaken(Math.max(0, result.getEndTime() - result.getStartTime()) / 1000f)
+                .withFailureTrace(result.getStatus() == TestStatus.FAILURE ? result.getStackTrace() : null)
+                .withTestMetrics(properties)
+                .withAttempts(attempts)
+                .build()));
+        testResultStore.store(pool, device, testCase.getTestClass(), testCase.getTestMethod(), testResults);
+    }
+
     @Override
     protected Map<String, String> getPropertiesAttributes() {
         ImmutableMap.Builder<String, String> mapBuilder = ImmutableMap.<String, String>builder()
@@ -12,39 +12,44 @@
  */
 package com.shazam.fork.runner.listeners;
 
-import com.android.ddmlib.logcat.*;
+import com.android.ddmlib.logcat.LogCatMessage;
 import com.android.ddmlib.testrunner.ITestRunListener;
 import com.android.ddmlib.testrunner.TestIdentifier;
 import com.google.gson.Gson;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.system.io.FileManager;
 
-import java.util.*;
+import java.util.List;
+import java.util.Map;
+
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.LOGCAT_SERIALIZATION;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
 
 class LogCatTestRunListener implements ITestRunListener {
-    private final FileManager fileManager;
-    private final Pool pool;
-	private final Device device;
-	private final LogCatReceiverTask logCatReceiverTask;
-	private final LogCatListener logCatListener;
-	private final List<LogCatMessage> logCatMessages;
-    private final Gson gson;
+    private static final long TEST_END_LOGGED_TIMEOUT_MILLIS = 2000;
+
+    private final LogCatWriter logCatWriter;
+    private final DeviceLogCat deviceLogCat;
+    private final MetricsRegistry metricsRegistry;
+    private final String poolName;
+    private final String serial;
 
-    public LogCatTestRunListener(Gson gson, FileManager fileManager, Pool pool, Device device) {
-        this.gson = gson;
-        this.fileManager = fileManager;
-        this.pool = pool;
-		this.device = device;
-		logCatMessages = new ArrayList<>();
-		logCatListener = new MessageCollectingLogCatListener(logCatMessages);
-		logCatReceiverTask = new LogCatReceiverTask(device.getDeviceInterface());
+    public LogCatTestRunListener(Gson gson, FileManager fileManager, Pool pool, Device device,
+                                 DeviceLogCat deviceLogCat, MetricsRegistry metricsRegistry) {
+        this.logCatWriter = new CompositeLogCatWriter(
+                new JsonLogCatWriter(gson, fileManager, pool, device),
+                new RawLogCatWriter(fileManager, pool, device));
+        this.deviceLogCat = deviceLogCat;
+        this.metricsRegistry = metricsRegistry;
+        this.poolName = pool.getName();
+        this.serial = device.getSerial();
 	}
 
 	@Override
 	public void testRunStarted(String runName, int testCount) {
-		logCatReceiverTask.addLogCatListener(logCatListener);
-		new Thread(logCatReceiverTask, "CatLogger-" + runName + "-" + device.getSerial()).start();
 	}
 
 	@Override
@@ -65,17 +70,16 @@ class LogCatTestRunListener implements ITestRunListener {
 
     @Override
 	public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
-		List<LogCatMessage> copyOfLogCatMessages;
-		synchronized (logCatMessages) {
-			int size = logCatMessages.size();
-			copyOfLogCatMessages = new ArrayList<>(size);
-			copyOfLogCatMessages.addAll(logCatMessages);
+		try {
+			List<LogCatMessage> logCatMessages = deviceLogCat.awaitMessagesOf(test, TEST_END_LOGGED_TIMEOUT_MILLIS);
+			long startNanos = nanoTime();
+			logCatWriter.writeLogs(test, logCatMessages);
+			metricsRegistry.recordPhase(LOGCAT_SERIALIZATION, poolName, serial, millisSinceNanoTime(startNanos));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			deviceLogCat.release(test);
 		}
-        LogCatWriter logCatWriter = new CompositeLogCatWriter(
-                new JsonLogCatWriter(gson, fileManager, pool, device),
-                new RawLogCatWriter(fileManager, pool, device));
-        LogCatSerializer logCatSerializer = new LogCatSerializer(test, logCatWriter);
-		logCatSerializer.serializeLogs(copyOfLogCatMessages);
 	}
 
 	@Override
@@ -88,22 +92,5 @@ class LogCatTestRunListener implements ITestRunListener {
 
 	@Override
 	public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
-		logCatReceiverTask.stop();
-		logCatReceiverTask.removeLogCatListener(logCatListener);
-	}
-
-	private final class MessageCollectingLogCatListener implements LogCatListener {
-		private final List<LogCatMessage> logCatMessages;
-
-		public MessageCollectingLogCatListener(List<LogCatMessage> messageList) {
-			logCatMessages = messageList;
-		}
-
-		@Override
-		public void log(List<LogCatMessage> msgList) {
-			synchronized (logCatMessages) {
-				logCatMessages.addAll(msgList);
-			}
-		}
 	}
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.metrics.MetricsRegistry;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+
+import java.util.Map;
+
+import static com.shazam.fork.metrics.MetricsRegistry.Counter.TESTS;
+import static com.shazam.fork.metrics.MetricsRegistry.Counter.TEST_FAILURES;
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.TEST_EXECUTION;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
+
+/**
+ * Records how long each test takes and how many tests run and fail.
+ */
+class MetricsTestRunListener extends NoOpITestRunListener {
+    private final MetricsRegistry metricsRegistry;
+    private final String poolName;
+    private final String serial;
+
+    private long testStartNanos;
+
+    MetricsTestRunListener(MetricsRegistry metricsRegistry, Pool pool, Device device) {
+        this.metricsRegistry = metricsRegistry;
+        this.poolName = pool.getName();
+        this.serial = device.getSerial();
+    }
+
+    @Override
+    public void testStarted(TestIdentifier test) {
+        testStartNanos = nanoTime();
+    }
+
+    @Override
+    public void testFailed(TestIdentifier test, String trace) {
+        metricsRegistry.increment(TEST_FAILURES, poolName, serial);
+    }
+
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        metricsRegistry.recordPhase(TEST_EXECUTION, poolName, serial, millisSinceNanoTime(testStartNanos));
+        metricsRegistry.increment(TESTS, poolName, serial);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.runner.DeviceQuarantine;
+
+import java.util.Map;
+
+import static com.shazam.fork.runner.SpeculativeExecution.CANCELLED_RUN_FAILURE;
+
+/**
+ * Tells the {@link DeviceQuarantine} how many tests a device ran and whether its instrumentation crashed. Failed tests
+ * are reported by the retryer, which knows whether they were retried. A run cancelled in favour of another device did
+ * not crash.
+ */
+class QuarantineTestRunListener extends NoOpITestRunListener {
+    private final DeviceQuarantine deviceQuarantine;
+    private final Device device;
+    private boolean crashed;
+
+    QuarantineTestRunListener(DeviceQuarantine deviceQuarantine, Device device) {
+        this.deviceQuarantine = deviceQuarantine;
+        this.device = device;
+    }
+
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        deviceQuarantine.testEnded(device);
+    }
+
+    @Override
+    public void testRunFailed(String errorMessage) {
+        crashed = !CANCELLED_RUN_FAILURE.equals(errorMessage);
+    }
+
+    @Override
+    public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+        deviceQuarantine.runEnded(device, crashed);
+    }
+}
@@ -20,6 +20,7 @@ import java.util.Map;
 
 class ScreenCaptureTestRunListener implements ITestRunListener {
     private final FileManager fileManager;
+    private final AnimationWriter animationWriter;
     private final IDevice deviceInterface;
     private final Pool pool;
     private final Device device;
@@ -27,8 +28,9 @@ class ScreenCaptureTestRunListener implements ITestRunListener {
     private ScreenCapturer screenCapturer;
     private boolean hasFailed;
 
-    public ScreenCaptureTestRunListener(FileManager fileManager, Pool pool, Device device) {
+    public ScreenCaptureTestRunListener(FileManager fileManager, AnimationWriter animationWriter, Pool pool, Device device) {
         this.fileManager = fileManager;
+        this.animationWriter = animationWriter;
         this.deviceInterface = device.getDeviceInterface();
         this.pool = pool;
         this.device = device;
@@ -41,7 +43,7 @@ class ScreenCaptureTestRunListener implements ITestRunListener {
     @Override
     public void testStarted(TestIdentifier test) {
         hasFailed = false;
-        screenCapturer = new ScreenCapturer(deviceInterface, fileManager, pool, device, test);
+        screenCapturer = new ScreenCapturer(deviceInterface, fileManager, animationWriter, pool, device, test);
         new Thread(screenCapturer, "ScreenCapturer").start();
     }
 
@@ -12,42 +12,50 @@ package com.shazam.fork.runner.listeners;
 
 import com.android.ddmlib.*;
 import com.android.ddmlib.testrunner.TestIdentifier;
-import com.madgag.gif.fmsware.AnimatedGifEncoder;
 import com.shazam.fork.model.*;
 import com.shazam.fork.system.io.FileManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
-import java.util.List;
-
-import javax.imageio.ImageIO;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 
 import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
 import static com.shazam.fork.system.io.FileType.ANIMATION;
-import static com.shazam.fork.system.io.FileType.SCREENSHOT;
-import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 import static java.lang.System.nanoTime;
-import static java.util.Arrays.asList;
 
+/**
+ * Keeps the last few screenshots of a test in memory. They are only turned into an animation if the test fails.
+ * A full resolution screenshot takes several megabytes, so on large screens fewer than {@link #MAX_FRAMES} are kept.
+ */
 class ScreenCapturer implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(ScreenCapturer.class);
+    private static final int MAX_FRAMES = 10;
+    private static final long MAX_FRAME_BYTES = 24L * 1024 * 1024;
     private final IDevice deviceInterface;
     private final FileManager fileManager;
+    private final AnimationWriter animationWriter;
     private final Pool pool;
     private final Device device;
     private final TestIdentifier test;
-
-    private boolean capturing;
-    private boolean hasFailed;
-
-    ScreenCapturer(IDevice deviceInterface, FileManager fileManager, Pool pool, Device device, TestIdentifier test) {
+    private final Deque<RawImage> frames = new ArrayDeque<>(MAX_FRAMES);
+    private long frameBytes;
+
+    private volatile boolean capturing;
+    private volatile boolean hasFailed;
+
+    ScreenCapturer(IDevice deviceInterface,
+                   FileManager fileManager,
+                   AnimationWriter animationWriter,
+                   Pool pool,
+                   Device device,
+                   TestIdentifier test) {
         this.deviceInterface = deviceInterface;
         this.fileManager = fileManager;
+        this.animationWriter = animationWriter;
         this.pool = pool;
         this.device = device;
         this.test = test;
@@ -55,20 +63,17 @@ class ScreenCapturer implements Runnable {
 
     @Override
     public void run() {
-        int count = 0;
         capturing = true;
         while (capturing) {
-            getScreenshot(test, count++);
+            getScreenshot();
             pauseTillNextScreenCapture();
         }
 
-        List<File> files = asList(fileManager.getFiles(SCREENSHOT, pool, device, test));
         if (hasFailed) {
-            File file = fileManager.createFile(ANIMATION, pool, device, test);
-            createGif(files, file);
+            animationWriter.write(new ArrayList<>(frames), fileManager.createFile(ANIMATION, pool, device, test));
         }
-        deleteFiles(files);
-
+        frames.clear();
+        frameBytes = 0;
     }
 
     private void pauseTillNextScreenCapture() {
@@ -78,14 +83,20 @@ class ScreenCapturer implements Runnable {
         }
     }
 
-    private void getScreenshot(TestIdentifier test, int sequenceNumber) {
+    private void getScreenshot() {
         try {
             logger.trace("Started getting screenshot");
             long startNanos = nanoTime();
             RawImage screenshot = deviceInterface.getScreenshot();
-            File file = fileManager.createFile(SCREENSHOT, pool, device, test, sequenceNumber);
-            ImageIO.write(bufferedImageFrom(screenshot), SCREENSHOT.getSuffix(), file);
-            logger.trace("Finished writing screenshot in {}ms to: {}", millisSinceNanoTime(startNanos), file);
+            if (screenshot == null) {
+                return;
+            }
+            frames.addLast(screenshot);
+            frameBytes += screenshot.data.length;
+            while (frames.size() > MAX_FRAMES || frames.size() > 1 && frameBytes > MAX_FRAME_BYTES) {
+                frameBytes -= frames.removeFirst().data.length;
+            }
+            logger.trace("Finished getting screenshot in {}ms", millisSinceNanoTime(startNanos));
         } catch (TimeoutException | AdbCommandRejectedException | IOException e) {
             logger.error("Error when getting screenshot of device", e);
         }
@@ -95,53 +106,4 @@ class ScreenCapturer implements Runnable {
         this.hasFailed = hasFailed;
         capturing = false;
     }
-
-    private BufferedImage bufferedImageFrom(RawImage rawImage) {
-        BufferedImage image = new BufferedImage(rawImage.width, rawImage.height, TYPE_INT_ARGB);
-
-        int index = 0;
-        int bytesPerPixel = rawImage.bpp >> 3;
-        for (int y = 0; y < rawImage.height; y++) {
-            for (int x = 0; x < rawImage.width; x++) {
-                image.setRGB(x, y, rawImage.getARGB(index) | 0xff000000);
-                index += bytesPerPixel;
-            }
-        }
-        return image;
-    }
-
-    private void createGif(List<File> files, File file) {
-        try {
-            AnimatedGifEncoder encoder = new AnimatedGifEncoder();
-            encoder.start(file.getAbsolutePath());
-            encoder.setDelay(1500);
-            encoder.setQuality(1);
-            encoder.setRepeat(0);
-            encoder.setTransparent(Color.WHITE);
-
-            int width = 0;
-            int height = 0;
-            for (File testScreenshot : files) {
-                BufferedImage bufferedImage = ImageIO.read(testScreenshot);
-                width = Math.max(bufferedImage.getWidth(), width);
-                height = Math.max(bufferedImage.getHeight(), height);
-            }
-            encoder.setSize(width, height);
-
-            for (File testScreenshot : files) {
-                encoder.addFrame(ImageIO.read(testScreenshot));
-            }
-
-            encoder.finish();
-        } catch (IOException e) {
-            logger.error("Error saving animated GIF", e);
-        }
-    }
-
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    private void deleteFiles(List<File> files) {
-        for (File file : files) {
-            file.delete();
-        }
-    }
 }
@@ -12,6 +12,7 @@ package com.shazam.fork.runner.listeners;
 
 import com.android.ddmlib.*;
 import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.metrics.MetricsRegistry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.ARTIFACT_PULL;
 import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
 import static com.shazam.fork.system.io.RemoteFileManager.remoteVideoForTest;
 import static com.shazam.fork.system.io.RemoteFileManager.removeRemotePath;
@@ -38,13 +40,17 @@ class ScreenRecorder implements Runnable {
     private final File localVideoFile;
     private final IDevice deviceInterface;
     private final ScreenRecorderStopper screenRecorderStopper;
+    private final MetricsRegistry metricsRegistry;
+    private final String poolName;
 
     public ScreenRecorder(TestIdentifier test, ScreenRecorderStopper screenRecorderStopper, File localVideoFile,
-                          IDevice deviceInterface) {
+                          IDevice deviceInterface, MetricsRegistry metricsRegistry, String poolName) {
         remoteFilePath = remoteVideoForTest(test);
         this.screenRecorderStopper = screenRecorderStopper;
         this.localVideoFile = localVideoFile;
         this.deviceInterface = deviceInterface;
+        this.metricsRegistry = metricsRegistry;
+        this.poolName = poolName;
     }
 
     @Override
@@ -73,7 +79,9 @@ class ScreenRecorder implements Runnable {
         logger.trace("Started pulling file {} to {}", remoteFilePath, localVideoFile);
         long startNanos = nanoTime();
         deviceInterface.pullFile(remoteFilePath, localVideoFile.toString());
-        logger.trace("Pulling finished in {}ms {}", millisSinceNanoTime(startNanos), remoteFilePath);
+        long pullMillis = millisSinceNanoTime(startNanos);
+        metricsRegistry.recordPhase(ARTIFACT_PULL, poolName, deviceInterface.getSerialNumber(), pullMillis);
+        logger.trace("Pulling finished in {}ms {}", pullMillis, remoteFilePath);
     }
 
     private void removeTestVideo() {
@@ -12,6 +12,7 @@ package com.shazam.fork.runner.listeners;
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.testrunner.ITestRunListener;
 import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.system.io.FileManager;
@@ -26,15 +27,18 @@ class ScreenRecorderTestRunListener implements ITestRunListener {
     private final Pool pool;
     private final Device device;
     private final IDevice deviceInterface;
+    private final MetricsRegistry metricsRegistry;
 
     private boolean hasFailed;
     private ScreenRecorderStopper screenRecorderStopper;
 
-    public ScreenRecorderTestRunListener(FileManager fileManager, Pool pool, Device device) {
+    public ScreenRecorderTestRunListener(FileManager fileManager, Pool pool, Device device,
+                                         MetricsRegistry metricsRegistry) {
         this.fileManager = fileManager;
         this.pool = pool;
         this.device = device;
         deviceInterface = device.getDeviceInterface();
+        this.metricsRegistry = metricsRegistry;
     }
 
     @Override
@@ -46,7 +50,8 @@ class ScreenRecorderTestRunListener implements ITestRunListener {
         hasFailed = false;
         File localVideoFile = fileManager.createFile(SCREENRECORD, pool, device, test);
         screenRecorderStopper = new ScreenRecorderStopper(deviceInterface);
-        ScreenRecorder screenRecorder = new ScreenRecorder(test, screenRecorderStopper, localVideoFile, deviceInterface);
+        ScreenRecorder screenRecorder = new ScreenRecorder(test, screenRecorderStopper, localVideoFile, deviceInterface,
+                metricsRegistry, pool.getName());
         new Thread(screenRecorder, "ScreenRecorder").start();
     }
 
@@ -14,16 +14,23 @@ import com.android.ddmlib.testrunner.ITestRunListener;
 import com.google.gson.Gson;
 import com.shazam.fork.Configuration;
 import com.shazam.fork.device.DeviceTestFilesCleanerImpl;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.DeviceQuarantine;
+import com.shazam.fork.runner.DeviceTimeline;
 import com.shazam.fork.runner.ProgressReporter;
+import com.shazam.fork.runner.RetryCircuitBreaker;
+import com.shazam.fork.runner.RunEventStream;
+import com.shazam.fork.runner.SpeculativeExecution;
+import com.shazam.fork.runner.TestCaseEventQueue;
 import com.shazam.fork.runner.TestRetryerImpl;
+import com.shazam.fork.summary.TestResultStore;
 import com.shazam.fork.system.io.FileManager;
 
 import java.io.File;
 import java.util.List;
-import java.util.Queue;
 
 import static com.shazam.fork.model.Diagnostics.SCREENSHOTS;
 import static com.shazam.fork.model.Diagnostics.VIDEO;
@@ -34,39 +41,75 @@ public class TestRunListenersFactory {
     private final Configuration configuration;
     private final FileManager fileManager;
     private final Gson gson;
+    private final AnimationWriter animationWriter;
+    private final TestResultStore testResultStore;
+    private final MetricsRegistry metricsRegistry;
+    private final DeviceTimeline deviceTimeline;
+    private final RunEventStream runEventStream;
+    private final RetryCircuitBreaker retryCircuitBreaker;
 
     public TestRunListenersFactory(Configuration configuration,
                                    FileManager fileManager,
-                                   Gson gson) {
+                                   Gson gson,
+                                   AnimationWriter animationWriter,
+                                   TestResultStore testResultStore,
+                                   MetricsRegistry metricsRegistry,
+                                   DeviceTimeline deviceTimeline,
+                                   RunEventStream runEventStream,
+                                   RetryCircuitBreaker retryCircuitBreaker) {
         this.configuration = configuration;
         this.fileManager = fileManager;
         this.gson = gson;
+        this.animationWriter = animationWriter;
+        this.testResultStore = testResultStore;
+        this.metricsRegistry = metricsRegistry;
+        this.deviceTimeline = deviceTimeline;
+        this.runEventStream = runEventStream;
+        this.retryCircuitBreaker = retryCircuitBreaker;
     }
 
-    public List<ITestRunListener> createTestListeners(TestCaseEvent testCase,
+    public List<ITestRunListener> createTestListeners(List<TestCaseEvent> testCases,
                                                       Device device,
                                                       Pool pool,
                                                       ProgressReporter progressReporter,
-                                                      Queue<TestCaseEvent> testCaseEventQueue) {
+                                                      TestCaseEventQueue testCaseEventQueue,
+                                                      AsyncTestRunListenerDispatcher asyncDispatcher,
+                                                      DeviceLogCat deviceLogCat,
+                                                      SpeculativeExecution speculativeExecution,
+                                                      DeviceQuarantine deviceQuarantine) {
         return asList(
                 new ProgressTestRunListener(pool, progressReporter),
-                getForkXmlTestRunListener(fileManager, configuration.getOutput(), pool, device, testCase, progressReporter),
+                new BatchTestRunListener(testCases, device, speculativeExecution, testCase -> asList(
+                        getForkXmlTestRunListener(fileManager, configuration.getOutput(), pool, device, testCase, progressReporter),
+                        buildRetryListener(testCase, device, pool, progressReporter, testCaseEventQueue,
+                                deviceQuarantine))),
                 new ConsoleLoggingTestRunListener(configuration.getTestPackage(), device.getSerial(),
                         device.getModelName(), progressReporter),
-                new LogCatTestRunListener(gson, fileManager, pool, device),
                 new SlowWarningTestRunListener(),
+                new MetricsTestRunListener(metricsRegistry, pool, device),
+                new TimelineTestRunListener(deviceTimeline, pool, device),
+                new EventStreamTestRunListener(runEventStream, pool, device),
+                new QuarantineTestRunListener(deviceQuarantine, device),
+                new CircuitBreakerTestRunListener(retryCircuitBreaker),
                 getScreenTraceTestRunListener(fileManager, pool, device),
-                buildRetryListener(testCase, device, pool, progressReporter, testCaseEventQueue),
-                getCoverageTestRunListener(configuration, device, fileManager, pool, testCase));
+                new BatchRemainderListener(pool, device, testCases, testCaseEventQueue, speculativeExecution,
+                        new TestRetryerImpl(progressReporter, pool, device, testCaseEventQueue, runEventStream,
+                                deviceQuarantine)),
+                asyncDispatcher.asynchronous(asList(
+                        new LogCatTestRunListener(gson, fileManager, pool, device, deviceLogCat, metricsRegistry),
+                        getCoverageTestRunListener(configuration, device, fileManager, pool, testCases.get(0)))));
     }
 
     private RetryListener buildRetryListener(TestCaseEvent testCase,
                                              Device device,
                                              Pool pool,
                                              ProgressReporter progressReporter,
-                                             Queue<TestCaseEvent> testCaseEventQueue) {
-        TestRetryerImpl testRetryer = new TestRetryerImpl(progressReporter, pool, testCaseEventQueue);
-        DeviceTestFilesCleanerImpl deviceTestFilesCleaner = new DeviceTestFilesCleanerImpl(fileManager, pool, device);
+                                             TestCaseEventQueue testCaseEventQueue,
+                                             DeviceQuarantine deviceQuarantine) {
+        TestRetryerImpl testRetryer = new TestRetryerImpl(progressReporter, pool, device, testCaseEventQueue,
+                runEventStream, deviceQuarantine);
+        DeviceTestFilesCleanerImpl deviceTestFilesCleaner = new DeviceTestFilesCleanerImpl(fileManager, testResultStore,
+                pool, device);
         return new RetryListener(pool, device, testCase, testRetryer, deviceTestFilesCleaner);
     }
 
@@ -76,7 +119,8 @@ public class TestRunListenersFactory {
                                                              Device device,
                                                              TestCaseEvent testCase,
                                                              ProgressReporter progressReporter) {
-        ForkXmlTestRunListener xmlTestRunListener = new ForkXmlTestRunListener(fileManager, pool, device, testCase, progressReporter);
+        ForkXmlTestRunListener xmlTestRunListener = new ForkXmlTestRunListener(fileManager, testResultStore, pool, device,
+                testCase, progressReporter);
         xmlTestRunListener.setReportDir(output);
         return xmlTestRunListener;
     }
@@ -87,18 +131,18 @@ public class TestRunListenersFactory {
                                                         Pool pool,
                                                         TestCaseEvent testCase) {
         if (configuration.isCoverageEnabled()) {
-            return new CoverageListener(device, fileManager, pool, testCase);
+            return new CoverageListener(device, fileManager, pool, testCase, metricsRegistry);
         }
         return new NoOpITestRunListener();
     }
 
     private ITestRunListener getScreenTraceTestRunListener(FileManager fileManager, Pool pool, Device device) {
         if (VIDEO.equals(device.getSupportedDiagnostics())) {
-            return new ScreenRecorderTestRunListener(fileManager, pool, device);
+            return new ScreenRecorderTestRunListener(fileManager, pool, device, metricsRegistry);
         }
 
         if (SCREENSHOTS.equals(device.getSupportedDiagnostics()) && configuration.canFallbackToScreenshots()) {
-            return new ScreenCaptureTestRunListener(fileManager, pool, device);
+            return new ScreenCaptureTestRunListener(fileManager, animationWriter, pool, device);
         }
 
         return new NoOpITestRunListener();
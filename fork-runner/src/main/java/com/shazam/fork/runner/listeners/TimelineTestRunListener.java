@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.runner.DeviceTimeline;
+
+import java.util.Map;
+
+import static com.shazam.fork.runner.DeviceTimeline.Category.TEST;
+import static java.lang.System.nanoTime;
+
+/**
+ * Puts every test on the timeline of the device that ran it.
+ */
+class TimelineTestRunListener extends NoOpITestRunListener {
+    private final DeviceTimeline deviceTimeline;
+    private final String poolName;
+    private final String serial;
+
+    private long testStartNanos;
+
+    TimelineTestRunListener(DeviceTimeline deviceTimeline, Pool pool, Device device) {
+        this.deviceTimeline = deviceTimeline;
+        this.poolName = pool.getName();
+        this.serial = device.getSerial();
+    }
+
+    @Override
+    public void testStarted(TestIdentifier test) {
+        testStartNanos = nanoTime();
+    }
+
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        deviceTimeline.record(poolName, serial, TEST, test.toString(), testStartNanos, nanoTime());
+    }
+}
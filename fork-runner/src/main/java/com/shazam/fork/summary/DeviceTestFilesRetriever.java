@@ -9,4 +9,13 @@ import java.util.Collection;
 public interface DeviceTestFilesRetriever {
     @Nonnull
     Collection<TestResult> getTestResultsForDevice(Pool pool, Device device);
+
+    /**
+     * @param pool the pool
+     * @return the devices to look for results on, by default the devices of the pool
+     */
+    @Nonnull
+    default Collection<Device> getDevicesWithResults(Pool pool) {
+        return pool.getDevices();
+    }
 }
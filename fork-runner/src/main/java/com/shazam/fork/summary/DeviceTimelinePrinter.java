@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.summary;
+
+import com.shazam.fork.runner.DeviceTimeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the device timeline next to the HTML report, which links to it.
+ */
+public class DeviceTimelinePrinter implements SummaryPrinter {
+    static final String TIMELINE_FILENAME = "device-timeline.json";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceTimelinePrinter.class);
+    private final File timelineFile;
+    private final DeviceTimeline deviceTimeline;
+
+    public DeviceTimelinePrinter(File rootOutput, DeviceTimeline deviceTimeline) {
+        this.timelineFile = new File(new File(rootOutput, HtmlSummaryPrinter.HTML_OUTPUT), TIMELINE_FILENAME);
+        this.deviceTimeline = deviceTimeline;
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @Override
+    public void print(Summary summary) {
+        timelineFile.getParentFile().mkdirs();
+        try {
+            deviceTimeline.writeTrace(timelineFile);
+        } catch (IOException e) {
+            logger.error("Could not write the device timeline to " + timelineFile.getAbsolutePath(), e);
+        }
+    }
+}
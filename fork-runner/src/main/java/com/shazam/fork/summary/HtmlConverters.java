@@ -26,6 +26,7 @@ import static com.shazam.fork.summary.OutcomeAggregator.toPoolOutcome;
 import static com.shazam.fork.utils.ReadableNames.readableClassName;
 import static com.shazam.fork.utils.ReadableNames.readablePoolName;
 import static com.shazam.fork.utils.ReadableNames.readableTestMethodName;
+import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHMS;
 
 class HtmlConverters {
 
@@ -38,6 +39,9 @@ class HtmlConverters {
 		htmlSummary.failedTests = summary.getFailedTests();
         htmlSummary.fatalCrashedTests = summary.getFatalCrashedTests();
         htmlSummary.overallStatus = new OutcomeAggregator().aggregate(summary) ? "pass" : "fail";
+        htmlSummary.deviceTimeline = DeviceTimelinePrinter.TIMELINE_FILENAME;
+        SystemicFailure systemicFailure = summary.getSystemicFailure();
+        htmlSummary.systemicFailure = systemicFailure != null ? systemicFailure.getVerdict() : null;
 		return htmlSummary;
 	}
 
@@ -53,6 +57,17 @@ class HtmlConverters {
                 htmlPoolSummary.plainPoolName = poolName;
                 htmlPoolSummary.testCount = poolSummary.getTestResults().size();
                 htmlPoolSummary.testResults = transform(poolSummary.getTestResults(), toHtmlTestResult(poolName));
+                htmlPoolSummary.deviceUtilizations = transform(poolSummary.getDeviceUtilizations(),
+                        toHtmlDeviceUtilization());
+                long totalIdleMillis = 0;
+                for (DeviceUtilization deviceUtilization : poolSummary.getDeviceUtilizations()) {
+                    totalIdleMillis += deviceUtilization.getIdleMillis();
+                }
+                htmlPoolSummary.totalIdle = formatDurationHMS(totalIdleMillis);
+                htmlPoolSummary.quarantinedDevices = transform(poolSummary.getQuarantinedDevices(),
+                        quarantinedDevice -> String.format("%s: %s, %d recent failures run again elsewhere",
+                                quarantinedDevice.getSerial(), quarantinedDevice.getReason(),
+                                quarantinedDevice.getRequeuedTests()));
 				return htmlPoolSummary;
 			}
 
@@ -77,6 +92,8 @@ class HtmlConverters {
 				htmlTestResult.plainClassName = input.getTestClass();
 				htmlTestResult.poolName = poolName;
 				htmlTestResult.trace = input.getTrace().split("\n");
+				htmlTestResult.attempts = input.getAttempts().stream().map(TestAttempt::toString).toArray(String[]::new);
+				htmlTestResult.retried = htmlTestResult.attempts.length > 1;
 				// Keeping logcats in memory is hugely wasteful. Now they're read at page-creation.
 				// htmlTestResult.logcatMessages = transform(input.getLogCatMessages(), toHtmlLogCatMessages());
 				Device device = input.getDevice();
@@ -91,6 +108,21 @@ class HtmlConverters {
 		};
 	}
 
+	private static Function<DeviceUtilization, HtmlDeviceUtilization> toHtmlDeviceUtilization() {
+		return new Function<DeviceUtilization, HtmlDeviceUtilization>() {
+			@Override
+			@Nullable
+			public HtmlDeviceUtilization apply(@Nullable DeviceUtilization input) {
+				HtmlDeviceUtilization htmlDeviceUtilization = new HtmlDeviceUtilization();
+				htmlDeviceUtilization.serial = input.getSerial();
+				htmlDeviceUtilization.utilization = String.format("%.1f%%", input.getUtilizationPercent());
+				htmlDeviceUtilization.busy = formatDurationHMS(input.getBusyMillis());
+				htmlDeviceUtilization.idle = formatDurationHMS(input.getIdleMillis());
+				return htmlDeviceUtilization;
+			}
+		};
+	}
+
 	private static String computeStatus(@Nullable TestResult input) {
 		String result  = input.getResultStatus().name().toLowerCase();
 		if(input.getResultStatus() == ResultStatus.PASS
@@ -23,4 +23,7 @@ public class HtmlPoolSummary {
     public int testCount;
     public Collection<HtmlTestResult> testResults;
     public String plainPoolName;
+    public Collection<HtmlDeviceUtilization> deviceUtilizations;
+    public String totalIdle;
+    public Collection<String> quarantinedDevices;
 }
@@ -26,4 +26,6 @@ public class HtmlSummary {
     public String overallStatus;
     public List<String> failedTests;
     public List<String> fatalCrashedTests;
+    public String deviceTimeline;
+    public String systemicFailure;
 }
@@ -30,7 +30,7 @@ import static com.shazam.fork.summary.HtmlConverters.toHtmlSummary;
 import static org.apache.commons.io.FileUtils.writeStringToFile;
 
 public class HtmlSummaryPrinter implements SummaryPrinter {
-	private static final String HTML_OUTPUT = "html";
+	static final String HTML_OUTPUT = "html";
 	private static final String STATIC = "static";
 	private static final String INDEX_FILENAME = "index.html";
 	private static final String[] STATIC_ASSETS = {
@@ -30,6 +30,8 @@ public class HtmlTestResult {
 	public Collection<HtmlLogCatMessage> logcatMessages;
 	public String timeTaken;
 	public String[] trace;
+	public String[] attempts;
+	public boolean retried;
     public boolean diagnosticVideo;
     public boolean diagnosticScreenshots;
 }
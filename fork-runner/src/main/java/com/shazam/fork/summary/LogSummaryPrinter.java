@@ -25,6 +25,7 @@ import static com.shazam.fork.summary.ResultStatus.ERROR;
 import static com.shazam.fork.summary.ResultStatus.FAIL;
 import static com.shazam.fork.summary.ResultStatus.PASS;
 import static java.lang.String.format;
+import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHMS;
 
 public class LogSummaryPrinter implements SummaryPrinter {
 
@@ -43,6 +44,14 @@ public class LogSummaryPrinter implements SummaryPrinter {
         for (PoolSummary poolSummary : summary.getPoolSummaries()) {
             printMiniSummary(poolSummary);
         }
+        if (summary.getInstallsSkipped() > 0) {
+            logger.info(format("Skipped %d installs of APKs already on the devices, saving about %s",
+                    summary.getInstallsSkipped(), formatDurationHMS(summary.getInstallTimeSavedMillis())));
+        }
+        SystemicFailure systemicFailure = summary.getSystemicFailure();
+        if (systemicFailure != null) {
+            logger.error("Systemic failure: " + systemicFailure.getVerdict());
+        }
         List<String> suppressedTests = summary.getIgnoredTests();
         if (suppressedTests.isEmpty()) {
             logger.info("No suppressed tests.");
@@ -61,6 +70,31 @@ public class LogSummaryPrinter implements SummaryPrinter {
                 getResultsWithStatus(poolSummary.getTestResults(), PASS).size(),
                 poolSummary.getPoolName()
         ));
+        if (poolSummary.getPredictedMakespanMillis() > 0) {
+            logger.info(format("Pool %s took %s, predicted %s",
+                    poolSummary.getPoolName(),
+                    formatDurationHMS(poolSummary.getActualMakespanMillis()),
+                    formatDurationHMS(poolSummary.getPredictedMakespanMillis())));
+        }
+        long totalIdleMillis = 0;
+        for (DeviceUtilization deviceUtilization : poolSummary.getDeviceUtilizations()) {
+            logger.info(format("Device %s was busy %.1f%% of the time, idle for %s",
+                    deviceUtilization.getSerial(),
+                    deviceUtilization.getUtilizationPercent(),
+                    formatDurationHMS(deviceUtilization.getIdleMillis())));
+            totalIdleMillis += deviceUtilization.getIdleMillis();
+        }
+        if (!poolSummary.getDeviceUtilizations().isEmpty()) {
+            logger.info(format("Devices of pool %s were idle for %s in total",
+                    poolSummary.getPoolName(), formatDurationHMS(totalIdleMillis)));
+        }
+        for (QuarantinedDevice quarantinedDevice : poolSummary.getQuarantinedDevices()) {
+            logger.warn(format("Device %s of pool %s was quarantined: %s. %d recent failures ran again elsewhere",
+                    quarantinedDevice.getSerial(),
+                    poolSummary.getPoolName(),
+                    quarantinedDevice.getReason(),
+                    quarantinedDevice.getRequeuedTests()));
+        }
     }
 
     private StringBuilder getPoolSummary(PoolSummary poolSummary, ResultStatus resultStatus) {
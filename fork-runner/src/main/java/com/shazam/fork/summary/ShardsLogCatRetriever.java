@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.summary;
+
+import com.android.ddmlib.logcat.LogCatMessage;
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.google.gson.Gson;
+import com.shazam.fork.system.io.FileManager;
+
+import java.util.List;
+
+import static com.shazam.fork.system.io.FileType.JSON_LOG;
+import static java.util.Collections.emptyList;
+
+/**
+ * Finds the logcat of a test in the output of whichever shard ran it.
+ */
+public class ShardsLogCatRetriever implements LogCatRetriever {
+    private final Gson gson;
+    private final List<FileManager> shardFileManagers;
+
+    public ShardsLogCatRetriever(Gson gson, List<FileManager> shardFileManagers) {
+        this.gson = gson;
+        this.shardFileManagers = shardFileManagers;
+    }
+
+    @Override
+    public List<LogCatMessage> retrieveLogCat(String poolName, String safeSerial, TestIdentifier testIdentifier) {
+        for (FileManager shardFileManager : shardFileManagers) {
+            if (shardFileManager.getFile(JSON_LOG, poolName, safeSerial, testIdentifier).exists()) {
+                return new JsonLogCatRetriever(gson, shardFileManager)
+                        .retrieveLogCat(poolName, safeSerial, testIdentifier);
+            }
+        }
+        return emptyList();
+    }
+}
@@ -17,8 +17,18 @@ import com.shazam.fork.ForkConfiguration;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.DeviceQuarantineTracker;
+import com.shazam.fork.runner.DeviceTimeline;
+import com.shazam.fork.runner.PoolMakespanTracker;
+import com.shazam.fork.runner.RetryCircuitBreaker;
+import com.shazam.fork.system.adb.InstallationTracker;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -31,15 +41,35 @@ import static com.shazam.fork.summary.ResultStatus.FAIL;
 import static com.shazam.fork.summary.Summary.Builder.aSummary;
 import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
 import static java.lang.String.format;
+import static java.util.Collections.emptySet;
 import static java.util.Locale.ENGLISH;
+import static java.util.stream.Collectors.joining;
 
 public class SummaryCompiler {
+    static final int MIN_TESTS_FAILING_ONLY_ON_A_SUSPECT_DEVICE = 3;
+
     private final ForkConfiguration configuration;
     private final DeviceTestFilesRetriever deviceTestFilesRetriever;
+    private final PoolMakespanTracker poolMakespanTracker;
+    private final InstallationTracker installationTracker;
+    private final DeviceTimeline deviceTimeline;
+    private final DeviceQuarantineTracker deviceQuarantineTracker;
+    private final RetryCircuitBreaker retryCircuitBreaker;
 
-    public SummaryCompiler(ForkConfiguration configuration, DeviceTestFilesRetriever deviceTestFilesRetriever) {
+    public SummaryCompiler(ForkConfiguration configuration,
+                           DeviceTestFilesRetriever deviceTestFilesRetriever,
+                           PoolMakespanTracker poolMakespanTracker,
+                           InstallationTracker installationTracker,
+                           DeviceTimeline deviceTimeline,
+                           DeviceQuarantineTracker deviceQuarantineTracker,
+                           RetryCircuitBreaker retryCircuitBreaker) {
         this.configuration = configuration;
         this.deviceTestFilesRetriever = deviceTestFilesRetriever;
+        this.poolMakespanTracker = poolMakespanTracker;
+        this.installationTracker = installationTracker;
+        this.deviceTimeline = deviceTimeline;
+        this.deviceQuarantineTracker = deviceQuarantineTracker;
+        this.retryCircuitBreaker = retryCircuitBreaker;
     }
 
     Summary compileSummary(Collection<Pool> pools, Collection<TestCaseEvent> testCases) {
@@ -53,10 +83,15 @@ public class SummaryCompiler {
             PoolSummary poolSummary = aPoolSummary()
                     .withPoolName(pool.getName())
                     .addTestResults(testResultsForPool)
+                    .withPredictedMakespanMillis(poolMakespanTracker.getPredictedMakespan(pool.getName()))
+                    .withActualMakespanMillis(poolMakespanTracker.getActualMakespan(pool.getName()))
+                    .addDeviceUtilizations(deviceTimeline.utilizationOf(pool.getName()))
+                    .addQuarantinedDevices(deviceQuarantineTracker.getQuarantinedDevices(pool.getName()))
                     .build();
 
             summaryBuilder.addPoolSummary(poolSummary);
-            addFailedOrFatalCrashedTests(testResultsForPool, summaryBuilder);
+            Set<String> suspectDevices = suspectDevicesOf(pool, testResultsForPool);
+            addFailedOrFatalCrashedTests(testResultsForPool, suspectDevices, summaryBuilder);
         }
 
         Collection<TestResult> ignoredTestResults = getIgnoredTestResults(testCases);
@@ -68,6 +103,9 @@ public class SummaryCompiler {
 
         summaryBuilder.withTitle(configuration.getTitle());
         summaryBuilder.withSubtitle(configuration.getSubtitle());
+        summaryBuilder.withInstallsSkipped(installationTracker.getSkippedInstalls());
+        summaryBuilder.withInstallTimeSavedMillis(installationTracker.getSavedMillis());
+        summaryBuilder.withSystemicFailure(retryCircuitBreaker.getSystemicFailure());
 
         return summaryBuilder.build();
     }
@@ -75,7 +113,7 @@ public class SummaryCompiler {
     private Collection<TestResult> getTestResultsForPool(Pool pool) {
         Set<TestResult> testResults = Sets.newHashSet();
 
-        Collection<TestResult> testResultsForPoolDevices = pool.getDevices()
+        Collection<TestResult> testResultsForPoolDevices = deviceTestFilesRetriever.getDevicesWithResults(pool)
                 .stream()
                 .map(device -> deviceTestFilesRetriever.getTestResultsForDevice(pool, device))
                 .reduce(Sets.newHashSet(), (accum, set) -> {
@@ -100,11 +138,43 @@ public class SummaryCompiler {
                 .build();
     }
 
-    private static void addFailedOrFatalCrashedTests(Collection<TestResult> testResults, Summary.Builder summaryBuilder) {
+    /**
+     * A single test failing on a device and passing on another says little about the device, as the retry of a
+     * failure usually runs elsewhere. A device is only suspected when it was quarantined, or when several tests
+     * failed on it and passed on other devices.
+     */
+    private Set<String> suspectDevicesOf(Pool pool, Collection<TestResult> testResults) {
+        Set<String> suspectDevices = deviceQuarantineTracker.getQuarantinedDevices(pool.getName()).stream()
+                .map(QuarantinedDevice::getSerial)
+                .collect(Collectors.toCollection(HashSet::new));
+        Map<String, Set<String>> testsFailingOnlyOn = new HashMap<>();
+        for (TestResult testResult : testResults) {
+            Set<String> failedOn = new HashSet<>();
+            Set<String> passedOn = new HashSet<>();
+            sortDevices(testResult.getAttempts(), failedOn, passedOn);
+            if (!passedOn.isEmpty() && Sets.intersection(failedOn, passedOn).isEmpty()) {
+                String test = testResult.getTestFullName();
+                for (String serial : failedOn) {
+                    testsFailingOnlyOn.computeIfAbsent(serial, key -> new HashSet<>()).add(test);
+                }
+            }
+        }
+        testsFailingOnlyOn.forEach((serial, tests) -> {
+            if (tests.size() >= MIN_TESTS_FAILING_ONLY_ON_A_SUSPECT_DEVICE) {
+                suspectDevices.add(serial);
+            }
+        });
+        return suspectDevices;
+    }
+
+    private static void addFailedOrFatalCrashedTests(Collection<TestResult> testResults,
+                                                     Set<String> suspectDevices,
+                                                     Summary.Builder summaryBuilder) {
         for (TestResult testResult : testResults) {
             int totalFailureCount = testResult.getTotalFailureCount();
             if (totalFailureCount > 0) {
-                String failedTest = format(ENGLISH, "%d times %s", totalFailureCount, getTestResultData(testResult));
+                String failedTest = format(ENGLISH, "%d times %s", totalFailureCount,
+                        getTestResultData(testResult, suspectDevices));
                 summaryBuilder.addFailedTests(failedTest);
             } else if (testResult.getResultStatus() == ERROR || testResult.getResultStatus() == FAIL) {
                 summaryBuilder.addFatalCrashedTest(getTestResultData(testResult));
@@ -158,8 +228,50 @@ public class SummaryCompiler {
     }
 
     private static String getTestResultData(TestResult testResult) {
-        return format(ENGLISH, "%s#%s on %s", testResult.getTestClass(), testResult.getTestMethod(),
+        return getTestResultData(testResult, emptySet());
+    }
+
+    private static String getTestResultData(TestResult testResult, Set<String> suspectDevices) {
+        String testResultData = format(ENGLISH, "%s#%s on %s", testResult.getTestClass(), testResult.getTestMethod(),
                 testResult.getDeviceSerial());
+        List<TestAttempt> attempts = testResult.getAttempts();
+        if (attempts.size() < 2) {
+            return testResultData;
+        }
+        return format(ENGLISH, "%s, %s: %s", testResultData, verdictOf(attempts, suspectDevices),
+                attempts.stream().map(TestAttempt::toString).collect(joining(", ")));
+    }
+
+    /**
+     * Tells a flaky test, which both failed and passed, from one that failed because of a device: one that only
+     * failed on devices suspected of a fault across tests, and passed on others.
+     *
+     * @param suspectDevices the devices whose failures across tests point at the device rather than at the test
+     */
+    static String verdictOf(List<TestAttempt> attempts, Set<String> suspectDevices) {
+        Set<String> failedOn = new LinkedHashSet<>();
+        Set<String> passedOn = new HashSet<>();
+        sortDevices(attempts, failedOn, passedOn);
+        if (failedOn.isEmpty()) {
+            return "passed";
+        }
+        if (passedOn.isEmpty()) {
+            return failedOn.size() > 1 ? "failed on every device tried" : "failed on a single device";
+        }
+        if (Sets.intersection(failedOn, passedOn).isEmpty() && suspectDevices.containsAll(failedOn)) {
+            return "device fault suspected on " + String.join(", ", failedOn);
+        }
+        return "flaky";
+    }
+
+    private static void sortDevices(List<TestAttempt> attempts, Set<String> failedOn, Set<String> passedOn) {
+        for (TestAttempt attempt : attempts) {
+            if (attempt.isFailure()) {
+                failedOn.add(attempt.getSerial());
+            } else {
+                passedOn.add(attempt.getSerial());
+            }
+        }
     }
 
     private static class TestResultItem {
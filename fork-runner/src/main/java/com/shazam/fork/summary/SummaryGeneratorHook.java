@@ -12,6 +12,8 @@
  */
 package com.shazam.fork.summary;
 
+import com.shazam.fork.metrics.MetricsExporter;
+import com.shazam.fork.metrics.MetricsRegistry;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
 
@@ -21,21 +23,32 @@ import org.slf4j.LoggerFactory;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.SUMMARY_GENERATION;
+import static com.shazam.fork.utils.Utils.millisSinceNanoTime;
+import static java.lang.System.nanoTime;
+
 /**
  * Making this a shutdown hook, to generate reports even when the VM is killed. This may also be called normally
- * by the program execution, in which case we don't re-generate the reports.
+ * by the program execution, in which case we don't re-generate the reports. The metrics of the run are written
+ * along with the reports.
  */
 public class SummaryGeneratorHook extends Thread {
     private static final Logger logger = LoggerFactory.getLogger(SummaryGeneratorHook.class);
 
     private final AtomicBoolean hasNotRunYet = new AtomicBoolean(true);
     private final Summarizer summarizer;
+    private final MetricsRegistry metricsRegistry;
+    private final MetricsExporter metricsExporter;
 
     private Collection<Pool> pools;
     private Collection<TestCaseEvent> testCases;
 
-    public SummaryGeneratorHook(Summarizer summarizer) {
+    public SummaryGeneratorHook(Summarizer summarizer,
+                                MetricsRegistry metricsRegistry,
+                                MetricsExporter metricsExporter) {
         this.summarizer = summarizer;
+        this.metricsRegistry = metricsRegistry;
+        this.metricsExporter = metricsExporter;
     }
 
     /**
@@ -59,7 +72,11 @@ public class SummaryGeneratorHook extends Thread {
      */
     public boolean defineOutcome() {
         if (hasNotRunYet.compareAndSet(true, false)) {
-            return summarizer.summarize(pools, testCases);
+            long startNanos = nanoTime();
+            boolean success = summarizer.summarize(pools, testCases);
+            metricsRegistry.recordPhase(SUMMARY_GENERATION, millisSinceNanoTime(startNanos));
+            metricsExporter.writeFile();
+            return success;
         }
         return false;
     }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.shazam.fork.summary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import static com.shazam.fork.summary.PoolSummary.Builder.aPoolSummary;
+import static com.shazam.fork.summary.Summary.Builder.aSummary;
+import static java.util.Collections.emptyList;
+
+/**
+ * Merges the summaries of the shards of a test suite, each run on a different machine, into the summary of the whole
+ * suite. The pools of the same name are merged into one; as the shards run side by side, a pool takes as long as its
+ * slowest shard. A test that shows up in more than one shard means the machines did not split the suite the same
+ * way, usually because they read different test durations, so it is warned about.
+ */
+public class SummaryMerger {
+    private static final Logger logger = LoggerFactory.getLogger(SummaryMerger.class);
+
+    public Summary merge(List<Summary> shardSummaries, @Nullable String title, @Nullable String subtitle) {
+        Summary.Builder summaryBuilder = aSummary();
+        Map<String, PoolSummary.Builder> poolSummaryBuilders = new LinkedHashMap<>();
+        Map<String, long[]> poolMakespans = new LinkedHashMap<>();
+        int installsSkipped = 0;
+        long installTimeSavedMillis = 0;
+        SystemicFailure systemicFailure = null;
+        Set<String> testsInSeveralShards = testsInSeveralShards(shardSummaries);
+        if (!testsInSeveralShards.isEmpty()) {
+            logger.warn("{} tests ran in more than one shard, the shards did not split the suite the same way: {}",
+                    testsInSeveralShards.size(), testsInSeveralShards);
+        }
+
+        for (Summary shardSummary : shardSummaries) {
+            for (PoolSummary poolSummary : shardSummary.getPoolSummaries()) {
+                String poolName = poolSummary.getPoolName();
+                poolSummaryBuilders.computeIfAbsent(poolName, name -> aPoolSummary().withPoolName(name))
+                        .addTestResults(orEmpty(poolSummary.getTestResults()))
+                        .addDeviceUtilizations(orEmpty(poolSummary.getDeviceUtilizations()))
+                        .addQuarantinedDevices(orEmpty(poolSummary.getQuarantinedDevices()));
+                long[] makespans = poolMakespans.computeIfAbsent(poolName, name -> new long[2]);
+                makespans[0] = Math.max(makespans[0], poolSummary.getPredictedMakespanMillis());
+                makespans[1] = Math.max(makespans[1], poolSummary.getActualMakespanMillis());
+            }
+            shardSummary.getIgnoredTests().forEach(summaryBuilder::addIgnoredTest);
+            shardSummary.getFailedTests().forEach(summaryBuilder::addFailedTests);
+            shardSummary.getFatalCrashedTests().forEach(summaryBuilder::addFatalCrashedTest);
+            installsSkipped += shardSummary.getInstallsSkipped();
+            installTimeSavedMillis += shardSummary.getInstallTimeSavedMillis();
+            if (systemicFailure == null) {
+                systemicFailure = shardSummary.getSystemicFailure();
+            }
+        }
+
+        poolSummaryBuilders.forEach((poolName, poolSummaryBuilder) -> summaryBuilder.addPoolSummary(poolSummaryBuilder
+                .withPredictedMakespanMillis(poolMakespans.get(poolName)[0])
+                .withActualMakespanMillis(poolMakespans.get(poolName)[1])
+                .build()));
+        Summary firstShardSummary = shardSummaries.isEmpty() ? aSummary().build() : shardSummaries.get(0);
+        return summaryBuilder
+                .withTitle(title != null ? title : firstShardSummary.getTitle())
+                .withSubtitle(subtitle != null ? subtitle : firstShardSummary.getSubtitle())
+                .withInstallsSkipped(installsSkipped)
+                .withInstallTimeSavedMillis(installTimeSavedMillis)
+                .withSystemicFailure(systemicFailure)
+                .build();
+    }
+
+    /**
+     * @return the tests, prefixed with their pool, that are in the summaries of more than one shard
+     */
+    static Set<String> testsInSeveralShards(List<Summary> shardSummaries) {
+        Map<String, Integer> shardOfTest = new HashMap<>();
+        Set<String> testsInSeveralShards = new LinkedHashSet<>();
+        for (int shard = 0; shard < shardSummaries.size(); shard++) {
+            for (PoolSummary poolSummary : shardSummaries.get(shard).getPoolSummaries()) {
+                for (TestResult testResult : orEmpty(poolSummary.getTestResults())) {
+                    String test = poolSummary.getPoolName() + "/" + testResult.getTestFullName();
+                    if (shardOfTest.getOrDefault(test, shard) != shard) {
+                        testsInSeveralShards.add(test);
+                    }
+                    shardOfTest.putIfAbsent(test, shard);
+                }
+            }
+        }
+        return testsInSeveralShards;
+    }
+
+    /**
+     * Pool summaries written by older versions lack some of the collections, which Gson then leaves <code>null</code>.
+     */
+    private static <T> Collection<T> orEmpty(@Nullable Collection<T> collection) {
+        return collection != null ? collection : emptyList();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Shazam Entertainment Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.shazam.fork.summary;
+
+import com.shazam.fork.distributed.CoordinatorClient;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.runner.RunJournal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import static com.shazam.fork.distributed.CoordinatorClient.noCoordinatorClient;
+import static com.shazam.fork.runner.RunJournal.noRunJournal;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Keeps the results of the current run in memory, as the listeners report them. Results are grouped the same way as
+ * the JUnit XML files: one entry per pool, device and test, which a retry may remove again. The XML files are still
+ * written for other tools, but the summary no longer has to parse them back. Every change is also recorded in the
+ * {@link RunJournal}, so an interrupted run can be resumed. Unlike the results, the attempts made at each test are
+ * never removed, so the summary can show where a retried test failed and where it passed.
+ * <p>
+ * On a worker of a distributed run, every change is also sent to the coordinator, whose store builds the summary.
+ */
+public class TestResultStore implements DeviceTestFilesRetriever {
+    private final Map<String, Map<String, Map<String, List<TestResult>>>> results = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Device>> devices = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, List<TestAttempt>>> attempts = new ConcurrentHashMap<>();
+    private final RunJournal runJournal;
+    private final CoordinatorClient coordinatorClient;
+
+    public TestResultStore() {
+        this(noRunJournal());
+    }
+
+    public TestResultStore(RunJournal runJournal) {
+        this(runJournal, noCoordinatorClient());
+    }
+
+    public TestResultStore(RunJournal runJournal, CoordinatorClient coordinatorClient) {
+        this.runJournal = runJournal;
+        this.coordinatorClient = coordinatorClient;
+    }
+
+    /**
+     * Stores the results reported for a test, replacing any earlier results of the same test on the same device.
+     *
+     * @param pool the pool the test ran in
+     * @param device the device the test ran on
+     * @param testClass the class of the test
+     * @param testMethod the method of the test
+     * @param testResults the results reported, more than one for parameterised tests
+     */
+    public void store(Pool pool, Device device, String testClass, String testMethod,
+                      Collection<TestResult> testResults) {
+        devices.computeIfAbsent(pool.getName(), name -> new ConcurrentHashMap<>())
+                .putIfAbsent(device.getSafeSerial(), device);
+        resultsOf(pool.getName(), device.getSafeSerial())
+                .put(keyOf(testClass, testMethod), unmodifiableList(new ArrayList<>(testResults)));
+        testResults.stream()
+                .map(TestResult::getAttempts)
+                .forEach(knownAttempts -> attemptsOf(pool.getName(), testClass, testMethod, knownAttempts));
+        runJournal.recordStored(pool, device, testClass, testMethod, testResults);
+        coordinatorClient.recordStored(pool, device, testClass, testMethod, testResults);
+    }
+
+    /**
+     * Adds an execution of a test to the ones already made in this run.
+     *
+     * @param pool the pool the test ran in
+     * @param device the device the test ran on
+     * @param testClass the class of the test
+     * @param testMethod the method of the test
+     * @param resultStatus how the execution went
+     * @return every execution of the test so far, in order, the new one last
+     */
+    public List<TestAttempt> recordAttempt(Pool pool, Device device, String testClass, String testMethod,
+                                           ResultStatus resultStatus) {
+        List<TestAttempt> testAttempts = attemptsOf(pool.getName(), testClass, testMethod, emptyList());
+        synchronized (testAttempts) {
+            testAttempts.add(new TestAttempt(device.getSerial(), resultStatus));
+            return new ArrayList<>(testAttempts);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if there were results for the test, which are now gone
+     */
+    public boolean remove(Pool pool, Device device, String testClass, String testMethod) {
+        runJournal.recordRemoved(pool, device, testClass, testMethod);
+        coordinatorClient.recordRemoved(pool, device, testClass, testMethod);
+        return resultsOf(pool.getName(), device.getSafeSerial()).remove(keyOf(testClass, testMethod)) != null;
+    }
+
+    @Nonnull
+    @Override
+    public Collection<TestResult> getTestResultsForDevice(Pool pool, Device device) {
+        Map<String, List<TestResult>> deviceResults = results
+                .getOrDefault(pool.getName(), emptyMap())
+                .getOrDefault(device.getSafeSerial(), emptyMap());
+        List<TestResult> testResults = new ArrayList<>();
+        deviceResults.values().forEach(testResults::addAll);
+        return testResults;
+    }
+
+    /**
+     * @return the devices of the pool, plus the devices that are gone but left results behind in an interrupted run
+     */
+    @Nonnull
+    @Override
+    public Collection<Device> getDevicesWithResults(Pool pool) {
+        Map<String, Device> devicesWithResults = new LinkedHashMap<>();
+        pool.getDevices().forEach(device -> devicesWithResults.put(device.getSafeSerial(), device));
+        devices.getOrDefault(pool.getName(), emptyMap()).forEach(devicesWithResults::putIfAbsent);
+        return devicesWithResults.values();
+    }
+
+    private Map<String, List<TestResult>> resultsOf(String poolName, String safeSerial) {
+        return results
+                .computeIfAbsent(poolName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(safeSerial, serial -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Results replayed from a journal carry the attempts made before the run was interrupted, which seed the list.
+     */
+    private List<TestAttempt> attemptsOf(String poolName, String testClass, String testMethod,
+                                         List<TestAttempt> knownAttempts) {
+        List<TestAttempt> testAttempts = attempts
+                .computeIfAbsent(poolName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(keyOf(testClass, testMethod), key -> new ArrayList<>());
+        synchronized (testAttempts) {
+            if (knownAttempts.size() > testAttempts.size()) {
+                testAttempts.clear();
+                testAttempts.addAll(knownAttempts);
+            }
+        }
+        return testAttempts;
+    }
+
+    private static String keyOf(String testClass, String testMethod) {
+        return testClass + "#" + testMethod;
+    }
+}
@@ -0,0 +1,30 @@
+package com.shazam.fork;
+
+import org.junit.Test;
+
+import static com.shazam.fork.StartupTimings.Phase.BRIDGE_INITIALISATION;
+import static com.shazam.fork.StartupTimings.Phase.INSTALLATION;
+import static com.shazam.fork.StartupTimings.Phase.SUITE_LOADING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StartupTimingsTest {
+    private final StartupTimings startupTimings = new StartupTimings();
+
+    @Test
+    public void keepsTheSlowestDurationOfAPhase() {
+        startupTimings.record(INSTALLATION, 4000);
+        startupTimings.record(INSTALLATION, 9000);
+        startupTimings.record(INSTALLATION, 2000);
+
+        assertThat(startupTimings.getMillis(INSTALLATION), equalTo(9000L));
+    }
+
+    @Test
+    public void describesRecordedPhasesInStartupOrder() {
+        startupTimings.record(SUITE_LOADING, 300);
+        startupTimings.record(BRIDGE_INITIALISATION, 20);
+
+        assertThat(startupTimings.toString(), equalTo("bridge initialisation 20ms, suite loading 300ms"));
+    }
+}
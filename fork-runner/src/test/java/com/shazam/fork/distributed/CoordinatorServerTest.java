@@ -0,0 +1,89 @@
+package com.shazam.fork.distributed;
+
+import com.google.gson.Gson;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.PoolMakespanTracker;
+import com.shazam.fork.runner.TestCaseEventSource;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.summary.TestResultStore;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class CoordinatorServerTest {
+    private static final String TOKEN = "secret";
+
+    private final Gson gson = new Gson();
+    private final TestCaseEvent testCase = newTestCase("test", "com.example.Test", false, emptyList(), emptyMap());
+    private final Device device = aDevice().withSerial("emulator-5554").build();
+    private final Pool pool = aDevicePool().withName("pool").addDevice(device).build();
+
+    private final TestResultStore testResultStore = new TestResultStore();
+    private final WorkCoordinator workCoordinator = new WorkCoordinator(testResultStore, new PoolMakespanTracker());
+    private final CoordinatorServer coordinatorServer = new CoordinatorServer(workCoordinator, gson, 0, TOKEN);
+
+    @After
+    public void tearDown() {
+        coordinatorServer.stop();
+    }
+
+    @Test
+    public void runsTheSuiteOnAWorkerAndKeepsItsResults() throws Exception {
+        workCoordinator.start(singletonList(testCase));
+        coordinatorServer.start();
+        CoordinatorClient coordinatorClient = new CoordinatorClient("localhost:" + coordinatorServer.getPort(),
+                "worker", TOKEN, gson);
+        coordinatorClient.start();
+        TestCaseEventSource source = coordinatorClient.sourceFor(pool);
+
+        List<TestCaseEvent> leased = source.take(device, 10);
+        TestResult testResult = aTestResult().withDevice(device).withTestClass(testCase.getTestClass())
+                .withTestMethod(testCase.getTestMethod()).build();
+        coordinatorClient.recordStored(pool, device, testCase.getTestClass(), testCase.getTestMethod(),
+                singletonList(testResult));
+        coordinatorClient.stop();
+
+        assertThat(leased, contains(testCase));
+        assertThat(workCoordinator.isDone(), is(true));
+        Pool coordinatedPool = workCoordinator.getPools().iterator().next();
+        Device namespacedDevice = aDevice().withSerial("worker:emulator-5554").build();
+        assertThat(testResultStore.getTestResultsForDevice(coordinatedPool, namespacedDevice), hasSize(1));
+    }
+
+    @Test
+    public void refusesWorkersWithoutTheToken() throws Exception {
+        workCoordinator.start(singletonList(testCase));
+        coordinatorServer.start();
+        CoordinatorClient coordinatorClient = new CoordinatorClient("localhost:" + coordinatorServer.getPort(),
+                "intruder", "guess", gson);
+        coordinatorClient.start();
+        TestCaseEventSource source = coordinatorClient.sourceFor(pool);
+
+        List<TestCaseEvent> leased = source.take(device, 10);
+        coordinatorClient.recordStored(pool, device, testCase.getTestClass(), testCase.getTestMethod(),
+                singletonList(aTestResult().withDevice(device).withTestClass(testCase.getTestClass())
+                        .withTestMethod(testCase.getTestMethod()).build()));
+        coordinatorClient.stop();
+
+        assertThat(leased, is(empty()));
+        assertThat(workCoordinator.getPools(), is(empty()));
+        assertThat(workCoordinator.getAdbServers().isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,140 @@
+package com.shazam.fork.distributed;
+
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.PoolMakespanTracker;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.adb.AdbServerHealth;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.shazam.fork.distributed.WorkCoordinator.WORKER_TIMEOUT_MILLIS;
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class WorkCoordinatorTest {
+    private final TestCaseEvent firstTest = newTestCase("first", "com.example.FirstTest", false, emptyList(),
+            emptyMap());
+    private final TestCaseEvent secondTest = newTestCase("second", "com.example.SecondTest", false, emptyList(),
+            emptyMap());
+    private final Device device = aDevice().withSerial("worker:emulator-5554").build();
+    private final Device otherDevice = aDevice().withSerial("other:emulator-5554").build();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final TestResultStore testResultStore = new TestResultStore();
+    private final WorkCoordinator workCoordinator = new WorkCoordinator(testResultStore, new PoolMakespanTracker(),
+            WORKER_TIMEOUT_MILLIS, clock::get);
+
+    @Test
+    public void finishesThePoolOnceEveryLeasedTestHasResults() {
+        workCoordinator.start(asList(firstTest, secondTest));
+
+        List<TestCaseEvent> leased = workCoordinator.lease("worker", "pool", device, 10).tests;
+        leased.addAll(workCoordinator.lease("worker", "pool", device, 10).tests);
+        WorkResponse waiting = workCoordinator.lease("worker", "pool", device, 10);
+        storeResultOf(firstTest);
+        storeResultOf(secondTest);
+
+        assertThat(leased, contains(firstTest, secondTest));
+        assertThat(waiting.tests, is(empty()));
+        assertThat(waiting.finished, is(false));
+        assertThat(workCoordinator.lease("worker", "pool", device, 10).finished, is(true));
+    }
+
+    @Test
+    public void queuesTheTestsOfASilentWorkerAgain() {
+        workCoordinator.start(singletonList(firstTest));
+        workCoordinator.lease("worker", "pool", device, 10);
+        clock.addAndGet(WORKER_TIMEOUT_MILLIS / 2);
+        workCoordinator.heartbeat("other", null);
+        clock.addAndGet(WORKER_TIMEOUT_MILLIS);
+
+        workCoordinator.expireSilentWorkers();
+
+        assertThat(workCoordinator.lease("other", "pool", otherDevice, 10).tests, contains(firstTest));
+    }
+
+    @Test
+    public void queuesTheTestsAWorkerLeftBehindAgain() {
+        workCoordinator.start(singletonList(firstTest));
+        workCoordinator.lease("worker", "pool", device, 10);
+
+        workCoordinator.finished("worker");
+
+        assertThat(workCoordinator.lease("other", "pool", otherDevice, 10).tests, contains(firstTest));
+    }
+
+    @Test
+    public void keepsTheTestsOfAnotherWorkerOnTheSameHostAndAdbServerLeased() {
+        String worker = CoordinatorClient.workerName("101@ci-host", "127.0.0.1:5037");
+        String sameHostWorker = CoordinatorClient.workerName("102@ci-host", "127.0.0.1:5037");
+        Device sameHostDevice = aDevice().withSerial(sameHostWorker + ":emulator-5556").build();
+        workCoordinator.start(asList(firstTest, secondTest));
+        workCoordinator.lease(worker, "pool", device, 1);
+        workCoordinator.lease(sameHostWorker, "pool", sameHostDevice, 1);
+
+        workCoordinator.finished(worker);
+
+        assertThat(worker, is(not(sameHostWorker)));
+        assertThat(workCoordinator.lease("other", "pool", otherDevice, 10).tests, contains(firstTest));
+        assertThat(workCoordinator.lease(sameHostWorker, "pool", sameHostDevice, 10).tests, is(empty()));
+    }
+
+    @Test
+    public void isDoneOnceThePoolsHaveFinishedAndTheWorkersHaveLeft() {
+        workCoordinator.start(singletonList(firstTest));
+        workCoordinator.lease("worker", "pool", device, 10);
+        storeResultOf(firstTest);
+        assertThat(workCoordinator.isDone(), is(false));
+
+        workCoordinator.finished("worker");
+
+        assertThat(workCoordinator.isDone(), is(true));
+        assertThat(workCoordinator.getPools(), hasSize(1));
+    }
+
+    @Test
+    public void givesUpOnTestsLeftOnceNoWorkerCameBackForThem() {
+        workCoordinator.start(singletonList(firstTest));
+        workCoordinator.lease("worker", "pool", device, 10);
+        workCoordinator.finished("worker");
+        assertThat(workCoordinator.isDone(), is(false));
+
+        clock.addAndGet(WORKER_TIMEOUT_MILLIS + 1);
+
+        assertThat(workCoordinator.isDone(), is(true));
+    }
+
+    @Test
+    public void keepsTheLastKnownHealthOfTheAdbServerOfEachWorker() {
+        workCoordinator.heartbeat("worker", new AdbServerHealth("127.0.0.1:5037", true, 0, 0));
+        workCoordinator.heartbeat("other", new AdbServerHealth("127.0.0.1:5038", true, 0, 0));
+
+        workCoordinator.heartbeat("other", new AdbServerHealth("127.0.0.1:5038", false, 3, 1));
+
+        assertThat(workCoordinator.getAdbServers().get("worker").isConnected(), is(true));
+        assertThat(workCoordinator.getAdbServers().get("other").isConnected(), is(false));
+    }
+
+    private void storeResultOf(TestCaseEvent testCase) {
+        TestResult testResult = aTestResult().withDevice(device).withTestClass(testCase.getTestClass())
+                .withTestMethod(testCase.getTestMethod()).build();
+        workCoordinator.stored("worker", "pool", device, testCase.getTestClass(), testCase.getTestMethod(),
+                singletonList(testResult));
+    }
+}
@@ -0,0 +1,65 @@
+package com.shazam.fork.metrics;
+
+import org.junit.Test;
+
+import static com.shazam.fork.metrics.MetricsRegistry.Counter.TESTS;
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.INSTALLATION;
+import static com.shazam.fork.metrics.MetricsRegistry.Phase.SUMMARY_GENERATION;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+public class MetricsRegistryTest {
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @Test
+    public void exportsPhasesAsCumulativeHistogramsTaggedByPoolAndDevice() {
+        metricsRegistry.recordPhase(INSTALLATION, "pool", "emulator-5554", 400);
+        metricsRegistry.recordPhase(INSTALLATION, "pool", "emulator-5554", 3000);
+
+        String text = metricsRegistry.toPrometheusText();
+
+        assertThat(text, containsString("# TYPE fork_install_seconds histogram\n"));
+        assertThat(text, containsString("fork_install_seconds_bucket{pool=\"pool\",device=\"emulator-5554\",le=\"0.250\"} 0\n"));
+        assertThat(text, containsString("fork_install_seconds_bucket{pool=\"pool\",device=\"emulator-5554\",le=\"0.500\"} 1\n"));
+        assertThat(text, containsString("fork_install_seconds_bucket{pool=\"pool\",device=\"emulator-5554\",le=\"5.000\"} 2\n"));
+        assertThat(text, containsString("fork_install_seconds_bucket{pool=\"pool\",device=\"emulator-5554\",le=\"+Inf\"} 2\n"));
+        assertThat(text, containsString("fork_install_seconds_sum{pool=\"pool\",device=\"emulator-5554\"} 3.400\n"));
+        assertThat(text, containsString("fork_install_seconds_count{pool=\"pool\",device=\"emulator-5554\"} 2\n"));
+    }
+
+    @Test
+    public void exportsUntaggedPhasesWithoutLabels() {
+        metricsRegistry.recordPhase(SUMMARY_GENERATION, 1200);
+
+        assertThat(metricsRegistry.toPrometheusText(), containsString("fork_summary_generation_seconds_count 1\n"));
+    }
+
+    @Test
+    public void exportsCountersPerDevice() {
+        metricsRegistry.increment(TESTS, "pool", "first");
+        metricsRegistry.increment(TESTS, "pool", "first");
+        metricsRegistry.increment(TESTS, "pool", "second");
+
+        String text = metricsRegistry.toPrometheusText();
+
+        assertThat(text, containsString("# TYPE fork_tests_total counter\n"));
+        assertThat(text, containsString("fork_tests_total{pool=\"pool\",device=\"first\"} 2\n"));
+        assertThat(text, containsString("fork_tests_total{pool=\"pool\",device=\"second\"} 1\n"));
+    }
+
+    @Test
+    public void escapesLabelValues() {
+        metricsRegistry.increment(TESTS, "pool \"a\"", "first");
+
+        assertThat(metricsRegistry.toPrometheusText(), containsString("pool=\"pool \\\"a\\\"\""));
+    }
+
+    @Test
+    public void leavesOutMetricsThatWereNeverRecorded() {
+        assertThat(metricsRegistry.toPrometheusText(), equalTo(""));
+        metricsRegistry.increment(TESTS, "pool", "first");
+        assertThat(metricsRegistry.toPrometheusText(), not(containsString("fork_install_seconds")));
+    }
+}
@@ -0,0 +1,118 @@
+package com.shazam.fork.runner;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.QuarantinedDevice;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.io.ForkFileManager;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.runner.RunEventStream.noRunEventStream;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class DeviceQuarantineTest {
+    @Rule
+    public JUnitRuleMockery mockery = new JUnitRuleMockery();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Mock
+    private ProgressReporter progressReporter;
+
+    private final Device badDevice = aDevice().withSerial("bad").build();
+    private final Device goodDevice = aDevice().withSerial("good").build();
+    private final Pool pool = aDevicePool().withName("pool").addDevice(badDevice).addDevice(goodDevice).build();
+    private final TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(badDevice, goodDevice));
+    private final DeviceQuarantineTracker deviceQuarantineTracker = new DeviceQuarantineTracker();
+
+    @Test
+    public void quarantinesADeviceFailingFarMoreThanItsPeersAndRequeuesItsFailuresForFree() {
+        DeviceQuarantine deviceQuarantine = deviceQuarantine(3);
+        for (int i = 0; i < 20; i++) {
+            deviceQuarantine.testEnded(goodDevice);
+        }
+        TestCaseEvent notRetried = testCase("notRetried");
+        mockery.checking(new Expectations() {{
+            exactly(2).of(progressReporter).refundRetry();
+            allowing(progressReporter).getProgressTrackerFor(pool);
+            will(returnValue(null));
+        }});
+
+        fail(deviceQuarantine, testCase("first"), true);
+        fail(deviceQuarantine, notRetried, false);
+        assertThat(deviceQuarantine.isQuarantined(badDevice.getSerial()), is(false));
+        fail(deviceQuarantine, testCase("last"), true);
+
+        assertThat(deviceQuarantine.isQuarantined(badDevice.getSerial()), is(true));
+        assertThat(queue.isRetired(badDevice), is(true));
+        assertThat(queue.pollFor(goodDevice), equalTo(notRetried));
+        QuarantinedDevice quarantinedDevice = deviceQuarantineTracker.getQuarantinedDevices("pool").iterator().next();
+        assertThat(quarantinedDevice.getSerial(), equalTo("bad"));
+        assertThat(quarantinedDevice.getRequeuedTests(), equalTo(3));
+    }
+
+    @Test
+    public void leavesAloneADeviceFailingAsOftenAsItsPeers() {
+        DeviceQuarantine deviceQuarantine = deviceQuarantine(3);
+        for (int i = 0; i < 5; i++) {
+            deviceQuarantine.testEnded(goodDevice);
+            fail(goodDevice, deviceQuarantine, testCase("good" + i), false);
+            fail(deviceQuarantine, testCase("bad" + i), false);
+        }
+
+        assertThat(deviceQuarantine.isQuarantined(badDevice.getSerial()), is(false));
+        assertThat(deviceQuarantineTracker.getQuarantinedDevices("pool"), is(empty()));
+    }
+
+    @Test
+    public void neverQuarantinesTheLastDeviceOfAPool() {
+        DeviceQuarantine deviceQuarantine = deviceQuarantine(3);
+        for (int i = 0; i < 20; i++) {
+            deviceQuarantine.testEnded(goodDevice);
+        }
+        queue.retire(goodDevice);
+
+        for (int i = 0; i < 5; i++) {
+            fail(deviceQuarantine, testCase("bad" + i), false);
+        }
+
+        assertThat(deviceQuarantine.isQuarantined(badDevice.getSerial()), is(false));
+        assertThat(queue.isRetired(badDevice), is(false));
+    }
+
+    private void fail(DeviceQuarantine deviceQuarantine, TestCaseEvent testCase, boolean retried) {
+        fail(badDevice, deviceQuarantine, testCase, retried);
+    }
+
+    private static void fail(Device device, DeviceQuarantine deviceQuarantine, TestCaseEvent testCase,
+                             boolean retried) {
+        deviceQuarantine.testEnded(device);
+        deviceQuarantine.testFailed(device, new TestIdentifier(testCase.getTestClass(), testCase.getTestMethod()),
+                testCase, retried);
+    }
+
+    private DeviceQuarantine deviceQuarantine(int threshold) {
+        return new DeviceQuarantine(threshold, pool, queue, progressReporter,
+                new ForkFileManager(temporaryFolder.getRoot()), new TestResultStore(), noRunEventStream(),
+                deviceQuarantineTracker);
+    }
+
+    private static TestCaseEvent testCase(String testMethod) {
+        return newTestCase(new TestIdentifier("com.example.QuarantinedTest", testMethod));
+    }
+}
@@ -0,0 +1,79 @@
+package com.shazam.fork.runner;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.shazam.fork.summary.DeviceUtilization;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.List;
+
+import static com.shazam.fork.runner.DeviceTimeline.Category.INSTRUMENTATION;
+import static com.shazam.fork.runner.DeviceTimeline.Category.SETUP;
+import static com.shazam.fork.runner.DeviceTimeline.Category.TEST;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class DeviceTimelineTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final DeviceTimeline deviceTimeline = new DeviceTimeline();
+
+    @Test
+    public void measuresUtilizationOverTheWindowOfThePool() {
+        deviceTimeline.record("pool", "busy", SETUP, "installation", millis(0), millis(1000));
+        deviceTimeline.record("pool", "busy", INSTRUMENTATION, "com.example.Test", millis(1000), millis(4000));
+        deviceTimeline.record("pool", "busy", TEST, "com.example.Test#test", millis(1500), millis(3500));
+        deviceTimeline.record("pool", "lazy", INSTRUMENTATION, "com.example.Test", millis(0), millis(1000));
+        deviceTimeline.record("other", "elsewhere", SETUP, "installation", millis(0), millis(9000));
+
+        List<DeviceUtilization> utilizations = deviceTimeline.utilizationOf("pool");
+
+        assertThat(utilizations, hasSize(2));
+        DeviceUtilization busy = utilizations.get(0);
+        assertThat(busy.getSerial(), equalTo("busy"));
+        assertThat(busy.getWindowMillis(), equalTo(4000L));
+        assertThat(busy.getTestMillis(), equalTo(2000L));
+        assertThat(busy.getUtilizationPercent(), closeTo(100, 0.01));
+        DeviceUtilization lazy = utilizations.get(1);
+        assertThat(lazy.getIdleMillis(), equalTo(3000L));
+        assertThat(lazy.getUtilizationPercent(), closeTo(25, 0.01));
+    }
+
+    @Test
+    public void writesOneThreadPerDeviceAndOneSpanPerRecord() throws Exception {
+        deviceTimeline.record("pool", "first", SETUP, "installation", millis(0), millis(1000));
+        deviceTimeline.record("pool", "second", TEST, "com.example.Test#test", millis(500), millis(700));
+        File trace = temporaryFolder.newFile("trace.json");
+
+        deviceTimeline.writeTrace(trace);
+
+        JsonArray events;
+        try (Reader reader = new FileReader(trace)) {
+            events = new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("traceEvents");
+        }
+        assertThat(events.size(), equalTo(5));
+        JsonObject test = events.get(1).getAsJsonObject();
+        assertThat(test.get("ph").getAsString(), equalTo("X"));
+        assertThat(test.get("cat").getAsString(), equalTo("test"));
+        assertThat(test.get("dur").getAsLong(), equalTo(200_000L));
+        assertThat(test.get("tid").getAsInt(), equalTo(2));
+        JsonObject secondThread = events.get(4).getAsJsonObject();
+        assertThat(secondThread.get("name").getAsString(), equalTo("thread_name"));
+        assertThat(secondThread.getAsJsonObject("args").get("name").getAsString(), equalTo("second"));
+    }
+
+    private static long millis(long millis) {
+        return MILLISECONDS.toNanos(millis);
+    }
+}
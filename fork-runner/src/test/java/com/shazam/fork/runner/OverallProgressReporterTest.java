@@ -17,6 +17,8 @@ import static com.shazam.fork.runner.FakePoolTestCaseAccumulator.aFakePoolTestCa
 import static com.shazam.fork.runner.FakeProgressReporterTrackers.aFakeProgressReporterTrackers;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 
 public class OverallProgressReporterTest {
 
@@ -37,7 +39,7 @@ public class OverallProgressReporterTest {
         fakeTestCasesAccumulator.thatAlwaysReturns(0);
         overallProgressReporter = new OverallProgressReporter(1, 1,
                 aFakeProgressReporterTrackers().thatAlwaysReturns(mockPoolProgressTracker),
-                fakeTestCasesAccumulator);
+                fakeTestCasesAccumulator, new RetryCircuitBreaker(false));
 
         mockery.checking(new Expectations() {{
             oneOf(mockPoolProgressTracker).trackTestEnqueuedAgain();
@@ -51,7 +53,7 @@ public class OverallProgressReporterTest {
         fakeTestCasesAccumulator.thatAlwaysReturns(2);
         overallProgressReporter = new OverallProgressReporter(1, 1,
                 aFakeProgressReporterTrackers().thatAlwaysReturns(mockPoolProgressTracker),
-                fakeTestCasesAccumulator);
+                fakeTestCasesAccumulator, new RetryCircuitBreaker(false));
 
         mockery.checking(new Expectations() {{
             never(mockPoolProgressTracker).trackTestEnqueuedAgain();
@@ -60,4 +62,19 @@ public class OverallProgressReporterTest {
         overallProgressReporter.requestRetry(A_POOL, A_TEST_CASE);
     }
 
+    @Test
+    public void requestRetryIsNotAllowedOnceTheCircuitBreakerIsOpen() throws Exception {
+        fakeTestCasesAccumulator.thatAlwaysReturns(0);
+        RetryCircuitBreaker retryCircuitBreaker = new RetryCircuitBreaker(false, 1, 1);
+        retryCircuitBreaker.testFailed("java.lang.RuntimeException: Unable to start activity");
+        overallProgressReporter = new OverallProgressReporter(1, 1,
+                aFakeProgressReporterTrackers().thatAlwaysReturns(mockPoolProgressTracker),
+                fakeTestCasesAccumulator, retryCircuitBreaker);
+
+        mockery.checking(new Expectations() {{
+            never(mockPoolProgressTracker).trackTestEnqueuedAgain();
+        }});
+
+        assertThat(overallProgressReporter.requestRetry(A_POOL, A_TEST_CASE), is(false));
+    }
 }
@@ -0,0 +1,76 @@
+package com.shazam.fork.runner;
+
+import org.junit.Test;
+
+import static com.shazam.fork.runner.RetryCircuitBreaker.signatureOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RetryCircuitBreakerTest {
+    private static final String LAUNCH_CRASH = "java.lang.RuntimeException: Unable to start activity "
+            + "ComponentInfo{com.example/com.example.MainActivity}: java.lang.NullPointerException@%x id %d\n"
+            + "\tat android.app.ActivityThread.performLaunchActivity(ActivityThread.java:%d)\n"
+            + "\tat android.app.ActivityThread.handleLaunchActivity(ActivityThread.java:2834)\n"
+            + "\tat android.os.Handler.dispatchMessage(Handler.java:102)\n"
+            + "\tat android.os.Looper.loop(Looper.java:154)\n";
+
+    @Test
+    public void givesTheSameSignatureToFailuresThatOnlyDifferInNumbers() {
+        String first = signatureOf(String.format(LAUNCH_CRASH, 0x1a2b, 17, 2646));
+        String second = signatureOf(String.format(LAUNCH_CRASH, 0xff00, 4242, 2710));
+
+        assertThat(first, equalTo(second));
+        assertThat(first, not(equalTo(signatureOf("java.lang.AssertionError: expected 1\n\tat Foo.bar(Foo.java:3)"))));
+    }
+
+    @Test
+    public void opensWhenMostRecentTestsFailTheSameWay() {
+        RetryCircuitBreaker retryCircuitBreaker = new RetryCircuitBreaker(true, 10, 5);
+        retryCircuitBreaker.testPassed();
+        for (int i = 0; i < 3; i++) {
+            retryCircuitBreaker.testFailed(String.format(LAUNCH_CRASH, i, i, i));
+        }
+        assertThat(retryCircuitBreaker.isOpen(), is(false));
+
+        retryCircuitBreaker.testFailed(String.format(LAUNCH_CRASH, 9, 9, 9));
+
+        assertThat(retryCircuitBreaker.isOpen(), is(true));
+        assertThat(retryCircuitBreaker.shouldAbort(), is(true));
+        assertThat(retryCircuitBreaker.getSystemicFailure().getSignatureFailures(), equalTo(4));
+        assertThat(retryCircuitBreaker.getSystemicFailure().getWindowTests(), equalTo(5));
+    }
+
+    @Test
+    public void staysClosedWhenFailuresAreUnrelated() {
+        RetryCircuitBreaker retryCircuitBreaker = new RetryCircuitBreaker(false, 10, 5);
+        for (int i = 0; i < 10; i++) {
+            retryCircuitBreaker.testFailed("java.lang.AssertionError\n\tat com.example.Test" + (char) ('A' + i)
+                    + ".test(Test.java:1)");
+        }
+
+        assertThat(retryCircuitBreaker.isOpen(), is(false));
+        assertThat(retryCircuitBreaker.getSystemicFailure(), nullValue());
+    }
+
+    @Test
+    public void forgetsFailuresThatFellOutOfTheWindow() {
+        RetryCircuitBreaker retryCircuitBreaker = new RetryCircuitBreaker(false, 10, 5);
+        for (int i = 0; i < 7; i++) {
+            retryCircuitBreaker.testFailed("java.lang.AssertionError\n\tat com.example.Test" + (char) ('A' + i)
+                    + ".test(Test.java:1)");
+        }
+        for (int i = 0; i < 10; i++) {
+            retryCircuitBreaker.testPassed();
+        }
+        for (int i = 0; i < 7; i++) {
+            retryCircuitBreaker.testFailed(String.format(LAUNCH_CRASH, i, i, i));
+        }
+
+        assertThat(retryCircuitBreaker.isOpen(), is(false));
+        retryCircuitBreaker.testFailed(String.format(LAUNCH_CRASH, 8, 8, 8));
+        assertThat(retryCircuitBreaker.isOpen(), is(true));
+    }
+}
@@ -0,0 +1,77 @@
+package com.shazam.fork.runner;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.runner.RunEventStream.FLUSH_INTERVAL_MILLIS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllLines;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class RunEventStreamTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Device device = aDevice().withSerial("emulator-5554").build();
+    private final Pool pool = aDevicePool().withName("pool").addDevice(device).build();
+
+    @Test
+    public void writesOneJsonObjectPerEvent() throws Exception {
+        File file = temporaryFolder.newFile();
+        RunEventStream runEventStream = new RunEventStream(file, new Gson());
+        runEventStream.start();
+
+        runEventStream.runStarted(singletonList(pool), 1);
+        runEventStream.testFailed(pool, device, "com.example.Test", "test", "trace");
+        runEventStream.testRetried(pool, device, "com.example.Test", "test", true);
+        runEventStream.stop();
+
+        List<JsonObject> events = readEvents(file);
+        assertThat(events, hasSize(3));
+        assertThat(events.get(0).get("type").getAsString(), equalTo("run_started"));
+        assertThat(events.get(0).get("testCount").getAsInt(), equalTo(1));
+        assertThat(events.get(1).get("serial").getAsString(), equalTo("emulator-5554"));
+        assertThat(events.get(1).get("trace").getAsString(), equalTo("trace"));
+        assertThat(events.get(2).get("charged").getAsBoolean(), is(true));
+    }
+
+    @Test
+    public void flushesEventsWithoutWaitingForTheRunToEnd() throws Exception {
+        File file = temporaryFolder.newFile();
+        RunEventStream runEventStream = new RunEventStream(file, new Gson());
+        runEventStream.start();
+
+        try {
+            runEventStream.deviceJoined(pool, device);
+            Thread.sleep(FLUSH_INTERVAL_MILLIS * 4);
+
+            assertThat(readEvents(file), hasSize(1));
+        } finally {
+            runEventStream.stop();
+        }
+    }
+
+    private static List<JsonObject> readEvents(File file) throws Exception {
+        JsonParser parser = new JsonParser();
+        return readAllLines(file.toPath(), UTF_8).stream()
+                .map(line -> parser.parse(line).getAsJsonObject())
+                .collect(toList());
+    }
+}
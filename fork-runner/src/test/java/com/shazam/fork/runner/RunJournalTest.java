@@ -0,0 +1,159 @@
+package com.shazam.fork.runner;
+
+import com.google.gson.Gson;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.TestResult;
+import com.shazam.fork.summary.TestResultStore;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import static com.google.common.io.Files.append;
+import static com.google.common.io.Files.write;
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class RunJournalTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Device device = aDevice().withSerial("emulator-5554").build();
+    private final TestCaseEvent passingTest = testCase("passingTest");
+    private final TestCaseEvent failingTest = testCase("failingTest");
+    private final TestCaseEvent retriedTest = testCase("retriedTest");
+    private final TestCaseEvent notRunTest = testCase("notRunTest");
+    private final List<TestCaseEvent> suite = asList(passingTest, failingTest, retriedTest, notRunTest);
+
+    private File journalFile;
+    private File apk;
+
+    @Before
+    public void setUp() throws IOException {
+        journalFile = new File(temporaryFolder.getRoot(), RunJournal.JOURNAL_FILENAME);
+        apk = temporaryFolder.newFile("app.apk");
+        write("first build", apk, UTF_8);
+    }
+
+    @Test
+    public void resumesWithTheTestsThatDidNotPass() {
+        interruptedRun();
+
+        RunJournal resumed = runJournal(true);
+        TestResultStore testResultStore = new TestResultStore(resumed);
+        resumed.start(singletonList(pool()), testResultStore);
+
+        assertThat(resumed.remainingTestsOf(pool(), suite), contains(failingTest, retriedTest, notRunTest));
+        Collection<TestResult> restored = testResultStore.getTestResultsForDevice(pool(), device);
+        assertThat(restored, hasSize(1));
+        assertThat(restored.iterator().next().getTestMethod(), equalTo("passingTest"));
+        resumed.stop();
+    }
+
+    @Test
+    public void keepsTheRestoredResultsWhenResumedAgain() {
+        interruptedRun();
+        RunJournal resumed = runJournal(true);
+        resumed.start(singletonList(pool()), new TestResultStore(resumed));
+        resumed.stop();
+
+        RunJournal resumedAgain = runJournal(true);
+        resumedAgain.start(singletonList(pool()), new TestResultStore(resumedAgain));
+
+        assertThat(resumedAgain.remainingTestsOf(pool(), suite), contains(failingTest, retriedTest, notRunTest));
+        resumedAgain.stop();
+    }
+
+    @Test
+    public void runsTheWholeSuiteWhenTheApksChanged() throws IOException {
+        interruptedRun();
+        write("second build", apk, UTF_8);
+
+        RunJournal resumed = runJournal(true);
+        TestResultStore testResultStore = new TestResultStore(resumed);
+        resumed.start(singletonList(pool()), testResultStore);
+
+        assertThat(resumed.remainingTestsOf(pool(), suite), equalTo(suite));
+        assertThat(testResultStore.getTestResultsForDevice(pool(), device), is(empty()));
+        resumed.stop();
+    }
+
+    @Test
+    public void ignoresALineCutShortByACrash() throws IOException {
+        interruptedRun();
+        append("{\"type\":\"stored\",\"pool\":\"po", journalFile, UTF_8);
+
+        RunJournal resumed = runJournal(true);
+        resumed.start(singletonList(pool()), new TestResultStore(resumed));
+
+        assertThat(resumed.remainingTestsOf(pool(), suite), contains(failingTest, retriedTest, notRunTest));
+        resumed.stop();
+    }
+
+    @Test
+    public void runsTheWholeSuiteWhenNotResuming() {
+        interruptedRun();
+
+        RunJournal fresh = runJournal(false);
+        fresh.start(singletonList(pool()), new TestResultStore(fresh));
+
+        assertThat(fresh.remainingTestsOf(pool(), suite), equalTo(suite));
+        fresh.stop();
+    }
+
+    private void interruptedRun() {
+        RunJournal runJournal = runJournal(false);
+        TestResultStore testResultStore = new TestResultStore(runJournal);
+        Pool pool = pool();
+        runJournal.start(singletonList(pool), testResultStore);
+        store(testResultStore, pool, passingTest, null);
+        store(testResultStore, pool, failingTest, "java.lang.AssertionError");
+        store(testResultStore, pool, retriedTest, null);
+        testResultStore.remove(pool, device, retriedTest.getTestClass(), retriedTest.getTestMethod());
+        runJournal.stop();
+    }
+
+    private void store(TestResultStore testResultStore, Pool pool, TestCaseEvent testCase, String failureTrace) {
+        TestResult testResult = aTestResult()
+                .withDevice(device)
+                .withTestClass(testCase.getTestClass())
+                .withTestMethod(testCase.getTestMethod())
+                .withFailureTrace(failureTrace)
+                .build();
+        testResultStore.store(pool, device, testCase.getTestClass(), testCase.getTestMethod(),
+                singletonList(testResult));
+    }
+
+    private RunJournal runJournal(boolean resume) {
+        return new RunJournal(journalFile, new Gson(), singletonList(apk), resume);
+    }
+
+    private Pool pool() {
+        return aDevicePool().withName("pool").addDevice(device).build();
+    }
+
+    private static TestCaseEvent testCase(String testMethod) {
+        return newTestCase(testMethod, "com.example.Test", false, emptyList(), emptyMap());
+    }
+}
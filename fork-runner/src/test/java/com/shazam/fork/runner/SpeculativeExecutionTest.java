@@ -0,0 +1,145 @@
+package com.shazam.fork.runner;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.summary.TestResultStore;
+import com.shazam.fork.system.io.FileManager;
+import com.shazam.fork.system.io.ForkFileManager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
+import static com.shazam.fork.system.io.FileType.JSON_LOG;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class SpeculativeExecutionTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Device slowDevice = aDevice().withSerial("slow").build();
+    private final Device idleDevice = aDevice().withSerial("idle").build();
+    private final Pool pool = aDevicePool().withName("pool").addDevice(slowDevice).addDevice(idleDevice).build();
+    private final TestCaseEvent shortTest = testCase("shortTest");
+    private final TestCaseEvent longTest = testCase("longTest");
+    private final TestResultStore testResultStore = new TestResultStore();
+
+    @Test
+    public void backsUpTheLongestRunningTestOfAnotherDevice() throws Exception {
+        SpeculativeExecution speculativeExecution = speculativeExecution(0);
+        speculativeExecution.testStarted(longTest, slowDevice);
+        Thread.sleep(5);
+        speculativeExecution.testStarted(shortTest, aDevice().withSerial("other").build());
+
+        assertThat(speculativeExecution.backupFor(idleDevice), contains(longTest));
+        assertThat(speculativeExecution.backupFor(aDevice().withSerial("another").build()), contains(shortTest));
+        assertThat(speculativeExecution.backupFor(idleDevice), is(empty()));
+    }
+
+    @Test
+    public void doesNotBackUpTestsThatHaveJustStarted() {
+        SpeculativeExecution speculativeExecution = speculativeExecution(60000);
+        speculativeExecution.testStarted(longTest, slowDevice);
+
+        assertThat(speculativeExecution.backupFor(idleDevice), is(empty()));
+        assertThat(speculativeExecution.hasTestsInFlight(), is(true));
+    }
+
+    @Test
+    public void cancelsTheSlowerDeviceWhenTheBackupFinishesFirst() {
+        SpeculativeExecution speculativeExecution = speculativeExecution(0);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        speculativeExecution.runStarted(slowDevice, () -> cancelled.set(true));
+        speculativeExecution.testStarted(longTest, slowDevice);
+        speculativeExecution.backupFor(idleDevice);
+        speculativeExecution.testStarted(longTest, idleDevice);
+
+        assertThat(speculativeExecution.isRunningElsewhere(longTest, idleDevice), is(true));
+        assertThat(speculativeExecution.claim(longTest, idleDevice), is(true));
+        assertThat(cancelled.get(), is(true));
+        assertThat(speculativeExecution.hasLost(longTest, slowDevice), is(true));
+        assertThat(speculativeExecution.claim(longTest, slowDevice), is(false));
+    }
+
+    @Test
+    public void discardsTheResultsAndFilesOfTheLosers() throws Exception {
+        FileManager fileManager = new ForkFileManager(temporaryFolder.getRoot());
+        SpeculativeExecution speculativeExecution = new SpeculativeExecution(true, pool, fileManager, testResultStore,
+                0);
+        TestIdentifier test = new TestIdentifier(longTest.getTestClass(), longTest.getTestMethod());
+        File logCat = fileManager.createFile(JSON_LOG, pool, slowDevice, test);
+        assertThat(logCat.createNewFile(), is(true));
+        testResultStore.store(pool, slowDevice, test.getClassName(), test.getTestName(),
+                singletonList(aTestResult().withTestClass(test.getClassName()).withTestMethod(test.getTestName())
+                        .build()));
+        speculativeExecution.testStarted(longTest, slowDevice);
+        speculativeExecution.backupFor(idleDevice);
+        speculativeExecution.claim(longTest, idleDevice);
+
+        speculativeExecution.discardLosers();
+
+        assertThat(logCat.exists(), is(false));
+        assertThat(testResultStore.getTestResultsForDevice(pool, slowDevice), is(empty()));
+    }
+
+    @Test
+    public void keepsTheResultsAndFilesOfALoserThatRanTheTestAgain() throws Exception {
+        FileManager fileManager = new ForkFileManager(temporaryFolder.getRoot());
+        SpeculativeExecution speculativeExecution = new SpeculativeExecution(true, pool, fileManager, testResultStore,
+                0);
+        TestIdentifier test = new TestIdentifier(longTest.getTestClass(), longTest.getTestMethod());
+        speculativeExecution.testStarted(longTest, slowDevice);
+        speculativeExecution.backupFor(idleDevice);
+        speculativeExecution.testStarted(longTest, idleDevice);
+        speculativeExecution.claim(longTest, idleDevice);
+        speculativeExecution.testEnded(longTest, idleDevice);
+        speculativeExecution.runEnded(slowDevice);
+
+        speculativeExecution.testStarted(longTest, slowDevice);
+        assertThat(speculativeExecution.claim(longTest, slowDevice), is(true));
+        File logCat = fileManager.createFile(JSON_LOG, pool, slowDevice, test);
+        assertThat(logCat.createNewFile(), is(true));
+        testResultStore.store(pool, slowDevice, test.getClassName(), test.getTestName(),
+                singletonList(aTestResult().withTestClass(test.getClassName()).withTestMethod(test.getTestName())
+                        .build()));
+        speculativeExecution.testEnded(longTest, slowDevice);
+        speculativeExecution.discardLosers();
+
+        assertThat(logCat.exists(), is(true));
+        assertThat(testResultStore.getTestResultsForDevice(pool, slowDevice), hasSize(1));
+    }
+
+    @Test
+    public void letsEveryAttemptWinWhenDisabled() {
+        SpeculativeExecution speculativeExecution = SpeculativeExecution.noSpeculativeExecution(pool);
+        speculativeExecution.testStarted(longTest, slowDevice);
+
+        assertThat(speculativeExecution.claim(longTest, slowDevice), is(true));
+        assertThat(speculativeExecution.backupFor(idleDevice), is(empty()));
+        assertThat(speculativeExecution.hasTestsInFlight(), is(false));
+    }
+
+    private SpeculativeExecution speculativeExecution(long minRunningMillis) {
+        return new SpeculativeExecution(true, pool, null, testResultStore, minRunningMillis);
+    }
+
+    private static TestCaseEvent testCase(String testMethod) {
+        return newTestCase(testMethod, "com.example.Test", false, emptyList(), emptyMap());
+    }
+}
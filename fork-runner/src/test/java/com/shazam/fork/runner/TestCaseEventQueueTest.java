@@ -0,0 +1,286 @@
+package com.shazam.fork.runner;
+
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.shazam.fork.Utils.namedExecutor;
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TestCaseEventQueueTest {
+    private static final int NUMBER_OF_TESTS = 5000;
+    private static final int NUMBER_OF_DEVICES = 40;
+    private static final int FAILING_TEST_EVERY = 7;
+
+    private final Device firstDevice = aDevice().withSerial("first").build();
+    private final Device secondDevice = aDevice().withSerial("second").build();
+
+    @Test
+    public void executesEveryTestExactlyOnceAndEveryRetryExactlyOnceAcrossManyDevices() throws Exception {
+        List<TestCaseEvent> testCases = testCases(NUMBER_OF_TESTS);
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_DEVICES; i++) {
+            devices.add(aDevice().withSerial("emulator-" + i).build());
+        }
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, devices);
+        Map<TestCaseEvent, AtomicInteger> executions = new ConcurrentHashMap<>();
+
+        ExecutorService executor = namedExecutor(NUMBER_OF_DEVICES, "FakeDevice-%d");
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(NUMBER_OF_DEVICES);
+        for (Device device : devices) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    TestCaseEvent testCase;
+                    while ((testCase = queue.pollFor(device)) != null) {
+                        int attempt = executions.computeIfAbsent(testCase, key -> new AtomicInteger()).incrementAndGet();
+                        if (attempt == 1 && isFailing(testCase)) {
+                            queue.offerRetry(testCase);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertThat(finished.await(30, SECONDS), is(true));
+        executor.shutdown();
+
+        assertThat(executions.size(), equalTo(NUMBER_OF_TESTS));
+        for (TestCaseEvent testCase : testCases) {
+            int expectedExecutions = isFailing(testCase) ? 2 : 1;
+            assertThat(testCase.toString(), executions.get(testCase).get(), equalTo(expectedExecutions));
+        }
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void stealsFromPeerWhenOwnQueueIsEmpty() {
+        List<TestCaseEvent> testCases = testCases(2);
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice, secondDevice));
+
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(0)));
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(1)));
+        assertThat(queue.pollFor(secondDevice), nullValue());
+    }
+
+    @Test
+    public void servesRetriesBeforeQueuedTests() {
+        List<TestCaseEvent> testCases = testCases(4);
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice, secondDevice));
+        TestCaseEvent retriedTest = newTestCase("retried", "com.example.RetriedTest", false, emptyList(), emptyMap());
+
+        queue.offerRetry(retriedTest);
+
+        assertThat(queue.pollFor(secondDevice), equalTo(retriedTest));
+    }
+
+    @Test
+    public void servesDevicesThatJoinAfterCreation() {
+        List<TestCaseEvent> testCases = testCases(1);
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice));
+
+        assertThat(queue.pollFor(secondDevice), equalTo(testCases.get(0)));
+    }
+
+    @Test
+    public void batchesQueuedTestsOfTheSameClass() {
+        TestCaseEvent first = newTestCase("first", "com.example.BatchedTest", false, emptyList(), emptyMap());
+        TestCaseEvent other = newTestCase("other", "com.example.OtherTest", false, emptyList(), emptyMap());
+        TestCaseEvent second = newTestCase("second", "com.example.BatchedTest", false, emptyList(), emptyMap());
+        TestCaseEventQueue queue = new TestCaseEventQueue(asList(first, other, second), asList(firstDevice));
+
+        assertThat(queue.pollBatchFor(firstDevice, 10), contains(first, second));
+        assertThat(queue.pollBatchFor(firstDevice, 10), contains(other));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shrinksBatchesToAFairShareOfTheTestsLeft() {
+        List<TestCaseEvent> testCases = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            testCases.add(newTestCase("test" + i, "com.example.BatchedTest", false, emptyList(), emptyMap()));
+        }
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice, secondDevice));
+
+        assertThat(queue.pollBatchFor(firstDevice, 10), hasSize(2));
+        assertThat(queue.pollBatchFor(secondDevice, 10), hasSize(1));
+        assertThat(queue.pollBatchFor(firstDevice, 10), hasSize(1));
+    }
+
+    @Test
+    public void doesNotBatchRetries() {
+        TestCaseEvent first = newTestCase("first", "com.example.BatchedTest", false, emptyList(), emptyMap());
+        TestCaseEvent second = newTestCase("second", "com.example.BatchedTest", false, emptyList(), emptyMap());
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(firstDevice));
+        queue.offerRetry(first);
+        queue.offerRetry(second);
+
+        assertThat(queue.pollBatchFor(firstDevice, 10), contains(first));
+    }
+
+    @Test
+    public void handsTestsOfARetiredDeviceOverToTheOthers() {
+        List<TestCaseEvent> testCases = testCases(4);
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice, secondDevice));
+
+        queue.retire(secondDevice);
+
+        assertThat(queue.pollFor(secondDevice), nullValue());
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(0)));
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(2)));
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(1)));
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(3)));
+    }
+
+    @Test
+    public void handsTestsOfferedBackByARetiredDeviceOverToTheOthers() {
+        List<TestCaseEvent> testCases = testCases(2);
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(firstDevice, secondDevice));
+        queue.retire(secondDevice);
+
+        assertThat(queue.pollFor(secondDevice), nullValue());
+        queue.offerRemainder(secondDevice, testCases);
+
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(0)));
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(1)));
+        assertThat(queue.pollFor(secondDevice), nullValue());
+    }
+
+    @Test
+    public void losesNoTestWhenADeviceIsRetiredWhileItPolls() throws Exception {
+        ExecutorService executor = namedExecutor(2, "FakeDevice-%d");
+        for (int i = 0; i < 200; i++) {
+            List<TestCaseEvent> testCases = testCases(20);
+            TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice, secondDevice));
+            List<TestCaseEvent> taken = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(2);
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    TestCaseEvent testCase;
+                    while ((testCase = queue.pollFor(secondDevice)) != null) {
+                        queue.offerRemainder(secondDevice, asList(testCase));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    queue.retire(secondDevice);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+            start.countDown();
+            assertThat(finished.await(10, SECONDS), is(true));
+
+            TestCaseEvent testCase;
+            while ((testCase = queue.pollFor(firstDevice)) != null) {
+                taken.add(testCase);
+            }
+            assertThat(taken, hasSize(testCases.size()));
+            assertThat(queue.pollFor(secondDevice), nullValue());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void servesARetiredDeviceAgainOnceItJoins() {
+        List<TestCaseEvent> testCases = testCases(1);
+        TestCaseEventQueue queue = new TestCaseEventQueue(testCases, asList(firstDevice));
+        queue.retire(firstDevice);
+
+        queue.join(firstDevice);
+
+        assertThat(queue.isRetired(firstDevice), is(false));
+        assertThat(queue.pollFor(firstDevice), equalTo(testCases.get(0)));
+    }
+
+    @Test
+    public void givesARetryToADeviceTheTestDidNotFailOn() {
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(firstDevice, secondDevice));
+        TestCaseEvent retriedTest = newTestCase("retried", "com.example.RetriedTest", false, emptyList(), emptyMap());
+
+        queue.offerRetry(retriedTest, firstDevice);
+
+        assertThat(queue.pollFor(firstDevice), nullValue());
+        assertThat(queue.pollFor(secondDevice), equalTo(retriedTest));
+    }
+
+    @Test
+    public void givesARetryBackToTheDeviceItFailedOnWhenNoOtherDeviceIsLeft() {
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(firstDevice, secondDevice));
+        TestCaseEvent retriedTest = newTestCase("retried", "com.example.RetriedTest", false, emptyList(), emptyMap());
+        queue.offerRetry(retriedTest, firstDevice);
+
+        queue.finish(secondDevice);
+
+        assertThat(queue.pollFor(firstDevice), equalTo(retriedTest));
+    }
+
+    @Test
+    public void givesARetryBackToTheDeviceItFailedOnWhenItFailedOnEveryDevice() {
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(firstDevice, secondDevice));
+        TestCaseEvent retriedTest = newTestCase("retried", "com.example.RetriedTest", false, emptyList(), emptyMap());
+        queue.offerRetry(retriedTest, secondDevice);
+        queue.pollFor(firstDevice);
+
+        queue.offerRetry(retriedTest, firstDevice);
+
+        assertThat(queue.pollFor(firstDevice), equalTo(retriedTest));
+    }
+
+    @Test
+    public void keepsADeviceFromFinishingWhileARetryWaitsForIt() {
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(firstDevice, secondDevice));
+        TestCaseEvent retriedTest = newTestCase("retried", "com.example.RetriedTest", false, emptyList(), emptyMap());
+        queue.offerRetry(retriedTest, firstDevice);
+
+        assertThat(queue.tryFinish(firstDevice), is(true));
+        assertThat(queue.tryFinish(secondDevice), is(false));
+    }
+
+    private static boolean isFailing(TestCaseEvent testCase) {
+        return Integer.parseInt(testCase.getTestMethod().substring("test".length())) % FAILING_TEST_EVERY == 0;
+    }
+
+    private static List<TestCaseEvent> testCases(int count) {
+        List<TestCaseEvent> testCases = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            testCases.add(newTestCase("test" + i, "com.example.Test" + (i % 50), false, emptyList(), emptyMap()));
+        }
+        return testCases;
+    }
+}
@@ -0,0 +1,69 @@
+package com.shazam.fork.runner;
+
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.runner.TestDurations.keyOf;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class TestDurationsTest {
+    private final TestCaseEvent shortTest = testCase("com.example.FastTest", "shortTest");
+    private final TestCaseEvent longTest = testCase("com.example.SlowTest", "longTest");
+    private final TestCaseEvent mediumTest = testCase("com.example.FastTest", "mediumTest");
+    private final TestCaseEvent newTestOfKnownClass = testCase("com.example.SlowTest", "newTest");
+    private final TestCaseEvent newTestOfUnknownClass = testCase("com.example.NewTest", "newTest");
+
+    private final TestDurations testDurations = new TestDurations(new HashMap<String, Long>() {{
+        put(keyOf("com.example.FastTest", "shortTest"), 1000L);
+        put(keyOf("com.example.FastTest", "mediumTest"), 3000L);
+        put(keyOf("com.example.SlowTest", "longTest"), 240000L);
+    }});
+
+    @Test
+    public void ordersTestsLongestFirst() {
+        List<TestCaseEvent> ordered = testDurations.longestFirst(asList(shortTest, longTest, mediumTest));
+
+        assertThat(ordered, contains(longTest, mediumTest, shortTest));
+    }
+
+    @Test
+    public void estimatesUnknownTestsFromTheirClass() {
+        assertThat(testDurations.estimateMillis(newTestOfKnownClass), equalTo(240000L));
+    }
+
+    @Test
+    public void estimatesUnknownTestsOfUnknownClassesWithTheMedian() {
+        assertThat(testDurations.estimateMillis(newTestOfUnknownClass), equalTo(3000L));
+    }
+
+    @Test
+    public void predictsMakespanOfGreedySchedule() {
+        List<TestCaseEvent> ordered = testDurations.longestFirst(asList(shortTest, longTest, mediumTest));
+
+        assertThat(testDurations.predictMakespanMillis(ordered, 2), equalTo(240000L));
+        assertThat(testDurations.predictMakespanMillis(ordered, 1), equalTo(244000L));
+    }
+
+    @Test
+    public void keepsSuiteOrderWithoutHistory() {
+        Map<String, Long> noHistory = emptyMap();
+        List<TestCaseEvent> ordered = new TestDurations(noHistory).longestFirst(asList(shortTest, longTest, mediumTest));
+
+        assertThat(ordered, contains(shortTest, longTest, mediumTest));
+    }
+
+    private static TestCaseEvent testCase(String testClass, String testMethod) {
+        return newTestCase(testMethod, testClass, false, emptyList(), emptyMap());
+    }
+}
@@ -0,0 +1,68 @@
+package com.shazam.fork.runner;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.runner.DeviceQuarantine.noDeviceQuarantine;
+import static com.shazam.fork.runner.RunEventStream.noRunEventStream;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class TestRetryerImplTest {
+    @Rule
+    public JUnitRuleMockery mockery = new JUnitRuleMockery();
+    @Mock
+    private ProgressReporter progressReporter;
+
+    private final Device leavingDevice = aDevice().withSerial("leaving").build();
+    private final Device otherDevice = aDevice().withSerial("other").build();
+    private final Pool pool = aDevicePool()
+            .withName("pool")
+            .addDevice(leavingDevice)
+            .addDevice(otherDevice)
+            .build();
+    private final TestIdentifier test = new TestIdentifier("com.example.InterruptedTest", "testMethod");
+    private final TestCaseEvent testCase = newTestCase(test);
+
+    @Test
+    public void reschedulesTestsOfADeviceThatLeftWithoutUsingTheRetryQuota() {
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(leavingDevice, otherDevice));
+        queue.retire(leavingDevice);
+        TestRetryerImpl testRetryer = new TestRetryerImpl(progressReporter, pool, leavingDevice, queue,
+                noRunEventStream(), noDeviceQuarantine(pool));
+        mockery.checking(new Expectations() {{
+            never(progressReporter);
+        }});
+
+        assertThat(testRetryer.rescheduleTestExecution(test, testCase), is(true));
+        assertThat(queue.pollFor(otherDevice), equalTo(testCase));
+    }
+
+    @Test
+    public void usesTheRetryQuotaForTestsThatFailed() {
+        TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), asList(leavingDevice, otherDevice));
+        TestRetryerImpl testRetryer = new TestRetryerImpl(progressReporter, pool, leavingDevice, queue,
+                noRunEventStream(), noDeviceQuarantine(pool));
+        mockery.checking(new Expectations() {{
+            oneOf(progressReporter).recordFailedTestCase(pool, testCase);
+            oneOf(progressReporter).requestRetry(pool, testCase);
+            will(returnValue(false));
+        }});
+
+        assertThat(testRetryer.rescheduleTestExecution(test, testCase), is(false));
+    }
+}
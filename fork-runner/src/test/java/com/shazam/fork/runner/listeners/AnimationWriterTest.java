@@ -0,0 +1,81 @@
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.RawImage;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+public class AnimationWriterTest {
+
+    @Test
+    public void convertsEveryPixelOfARawImage() {
+        RawImage rawImage = rgbaImage(new byte[]{
+                (byte) 0xff, 0x00, 0x00, (byte) 0xff,
+                0x00, (byte) 0x80, 0x10, (byte) 0xff});
+
+        BufferedImage image = AnimationWriter.bufferedImageFrom(rawImage);
+
+        assertThat(image.getRGB(0, 0), equalTo(0xffff0000));
+        assertThat(image.getRGB(1, 0), equalTo(0xff008010));
+    }
+
+    @Test
+    public void encodesOnTheCallerWhenTooManyAnimationsAreWaiting() {
+        CountDownLatch firstWriteReleased = new CountDownLatch(1);
+        Map<String, Thread> encodingThreads = new ConcurrentHashMap<>();
+        AnimationWriter animationWriter = new AnimationWriter(1, 1, (frames, file) -> {
+            encodingThreads.put(file.getName(), Thread.currentThread());
+            if (file.getName().equals("first.gif")) {
+                awaitQuietly(firstWriteReleased);
+            }
+        });
+        List<RawImage> frames = singletonList(rgbaImage(new byte[4]));
+
+        animationWriter.write(frames, new File("first.gif"));
+        animationWriter.write(frames, new File("queued.gif"));
+        animationWriter.write(frames, new File("overflowing.gif"));
+        firstWriteReleased.countDown();
+        animationWriter.awaitPendingWrites();
+
+        assertThat(encodingThreads.get("overflowing.gif"), equalTo(Thread.currentThread()));
+        assertThat(encodingThreads.get("queued.gif"), not(equalTo(Thread.currentThread())));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RawImage rgbaImage(byte[] data) {
+        RawImage rawImage = new RawImage();
+        rawImage.bpp = 32;
+        rawImage.width = data.length / 4;
+        rawImage.height = 1;
+        rawImage.size = data.length;
+        rawImage.red_offset = 0;
+        rawImage.red_length = 8;
+        rawImage.green_offset = 8;
+        rawImage.green_length = 8;
+        rawImage.blue_offset = 16;
+        rawImage.blue_length = 8;
+        rawImage.alpha_offset = 24;
+        rawImage.alpha_length = 8;
+        rawImage.data = data;
+        return rawImage;
+    }
+}
@@ -0,0 +1,109 @@
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.ITestRunListener;
+import com.android.ddmlib.testrunner.TestIdentifier;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class AsyncTestRunListenerDispatcherTest {
+    private final TestIdentifier test = new TestIdentifier("com.example.SlowListenerTest", "test");
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void deliversEveryEventInOrderBeforeClosing() {
+        AsyncTestRunListenerDispatcher dispatcher = new AsyncTestRunListenerDispatcher("serial", 2);
+        ITestRunListener listener = dispatcher.asynchronous(singletonList(new RecordingListener()));
+
+        listener.testRunStarted("pool", 1);
+        listener.testStarted(test);
+        listener.testFailed(test, "trace");
+        listener.testEnded(test, emptyMap());
+        listener.testRunEnded(0, emptyMap());
+        dispatcher.close();
+
+        assertThat(events, contains("testRunStarted", "testStarted", "testFailed", "testEnded", "testRunEnded"));
+    }
+
+    @Test
+    public void doesNotHoldUpTheCallerWhileASlowListenerRuns() throws InterruptedException {
+        CountDownLatch slowListenerReleased = new CountDownLatch(1);
+        AsyncTestRunListenerDispatcher dispatcher = new AsyncTestRunListenerDispatcher("serial", 10);
+        ITestRunListener listener = dispatcher.asynchronous(singletonList(new NoOpITestRunListener() {
+            @Override
+            public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+                try {
+                    slowListenerReleased.await(10, SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("testEnded");
+            }
+        }));
+
+        listener.testEnded(test, emptyMap());
+        listener.testRunEnded(0, emptyMap());
+
+        assertThat(events.isEmpty(), is(true));
+        slowListenerReleased.countDown();
+        dispatcher.close();
+        assertThat(events, contains("testEnded"));
+    }
+
+    @Test
+    public void keepsDeliveringEventsToTheListenersAfterOneThatFails() {
+        AsyncTestRunListenerDispatcher dispatcher = new AsyncTestRunListenerDispatcher("serial", 2);
+        ITestRunListener failingListener = new NoOpITestRunListener() {
+            @Override
+            public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+                throw new IllegalStateException("logcat unavailable");
+            }
+        };
+        ITestRunListener listener = dispatcher.asynchronous(asList(failingListener, new RecordingListener()));
+
+        listener.testEnded(test, emptyMap());
+        listener.testRunEnded(0, emptyMap());
+        dispatcher.close();
+
+        assertThat(events, contains("testEnded", "testRunEnded"));
+    }
+
+    private class RecordingListener extends NoOpITestRunListener {
+        @Override
+        public void testRunStarted(String runName, int testCount) {
+            events.add("testRunStarted");
+        }
+
+        @Override
+        public void testStarted(TestIdentifier test) {
+            events.add("testStarted");
+        }
+
+        @Override
+        public void testFailed(TestIdentifier test, String trace) {
+            events.add("testFailed");
+        }
+
+        @Override
+        public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+            events.add("testEnded");
+        }
+
+        @Override
+        public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+            events.add("testRunEnded");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.TestCaseEventQueue;
+import com.shazam.fork.runner.TestRetryer;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.runner.SpeculativeExecution.noSpeculativeExecution;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class BatchRemainderListenerTest {
+    private static final int MAX_BATCH_SIZE = 10;
+
+    @Rule
+    public JUnitRuleMockery mockery = new JUnitRuleMockery();
+    @Mock
+    private TestRetryer testRetryer;
+
+    private final Device device = aDevice().withSerial("device").build();
+    private final Pool pool = aDevicePool()
+            .withName("pool")
+            .addDevice(device)
+            .build();
+
+    private final TestIdentifier firstTest = new TestIdentifier("com.example.BatchedTest", "first");
+    private final TestIdentifier secondTest = new TestIdentifier("com.example.BatchedTest", "second");
+    private final TestIdentifier thirdTest = new TestIdentifier("com.example.BatchedTest", "third");
+    private final List<TestCaseEvent> batch = asList(newTestCase(firstTest), newTestCase(secondTest), newTestCase(thirdTest));
+    private final TestCaseEventQueue queue = new TestCaseEventQueue(emptyList(), singletonList(device));
+
+    @Test
+    public void enqueuesOnlyTestsThatDidNotStartWhenTheRunCrashes() {
+        BatchRemainderListener listener = new BatchRemainderListener(pool, device, batch, queue,
+                noSpeculativeExecution(pool), testRetryer);
+        mockery.checking(new Expectations() {{
+            never(testRetryer);
+        }});
+
+        listener.testRunStarted("pool", batch.size());
+        listener.testStarted(firstTest);
+        listener.testEnded(firstTest, emptyMap());
+        listener.testStarted(secondTest);
+        listener.testRunFailed("Instrumentation run failed due to 'Process crashed.'");
+        listener.testRunEnded(0, emptyMap());
+
+        assertThat(queue.pollBatchFor(device, MAX_BATCH_SIZE), contains(newTestCase(thirdTest)));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void enqueuesNothingWhenTheRunCompletes() {
+        BatchRemainderListener listener = new BatchRemainderListener(pool, device, batch, queue,
+                noSpeculativeExecution(pool), testRetryer);
+
+        listener.testRunStarted("pool", batch.size());
+        listener.testStarted(firstTest);
+        listener.testEnded(firstTest, emptyMap());
+        listener.testRunEnded(0, emptyMap());
+
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void enqueuesEveryTestToRunAloneWhenNoneStarted() {
+        BatchRemainderListener listener = new BatchRemainderListener(pool, device, batch, queue,
+                noSpeculativeExecution(pool), testRetryer);
+        mockery.checking(new Expectations() {{
+            never(testRetryer);
+        }});
+
+        listener.testRunStarted("pool", batch.size());
+        listener.testRunFailed("Unable to find instrumentation info");
+        listener.testRunEnded(0, emptyMap());
+
+        assertThat(queue.pollBatchFor(device, MAX_BATCH_SIZE), contains(newTestCase(firstTest)));
+        assertThat(queue.pollBatchFor(device, MAX_BATCH_SIZE), contains(newTestCase(secondTest)));
+        assertThat(queue.pollBatchFor(device, MAX_BATCH_SIZE), contains(newTestCase(thirdTest)));
+    }
+
+    @Test
+    public void countsAFailedAttemptWhenALoneTestDidNotStart() {
+        List<TestCaseEvent> loneTest = singletonList(newTestCase(firstTest));
+        BatchRemainderListener listener = new BatchRemainderListener(pool, device, loneTest, queue,
+                noSpeculativeExecution(pool), testRetryer);
+        mockery.checking(new Expectations() {{
+            oneOf(testRetryer).rescheduleTestExecution(firstTest, loneTest.get(0));
+            will(returnValue(true));
+        }});
+
+        listener.testRunStarted("pool", 1);
+        listener.testRunFailed("Unable to find instrumentation info");
+        listener.testRunEnded(0, emptyMap());
+    }
+}
@@ -0,0 +1,129 @@
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.testrunner.ITestRunListener;
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.SpeculativeExecution;
+
+import org.hamcrest.Matchers;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.auto.Mock;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.model.TestCaseEvent.newTestCase;
+import static com.shazam.fork.runner.SpeculativeExecution.noSpeculativeExecution;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BatchTestRunListenerTest {
+    @Rule
+    public JUnitRuleMockery mockery = new JUnitRuleMockery();
+    @Mock
+    private ITestRunListener firstTestListener;
+    @Mock
+    private ITestRunListener secondTestListener;
+
+    private final TestIdentifier firstTest = new TestIdentifier("com.example.BatchedTest", "first");
+    private final TestIdentifier secondTest = new TestIdentifier("com.example.BatchedTest", "second");
+    private final TestCaseEvent firstTestCase = newTestCase("first", "com.example.BatchedTest", false,
+            singletonList("android.permission.CAMERA"), emptyMap());
+    private final TestCaseEvent secondTestCase = newTestCase(secondTest);
+    private final Device device = aDevice().withSerial("device").build();
+    private final Device backupDevice = aDevice().withSerial("backup").build();
+    private final Pool pool = aDevicePool().withName("pool").addDevice(device).addDevice(backupDevice).build();
+
+    @Test
+    public void runsTheListenersOfEachTestAsASeparateRun() {
+        Map<TestCaseEvent, ITestRunListener> testListeners = new HashMap<>();
+        testListeners.put(firstTestCase, firstTestListener);
+        testListeners.put(secondTestCase, secondTestListener);
+        List<TestCaseEvent> createdFor = new ArrayList<>();
+        BatchTestRunListener listener = new BatchTestRunListener(asList(firstTestCase, secondTestCase), device,
+                noSpeculativeExecution(pool), testCase -> {
+            createdFor.add(testCase);
+            return singletonList(testListeners.get(testCase));
+        });
+
+        Sequence sequence = mockery.sequence("test runs");
+        mockery.checking(new Expectations() {{
+            oneOf(firstTestListener).testRunStarted("pool", 1); inSequence(sequence);
+            oneOf(firstTestListener).testStarted(firstTest); inSequence(sequence);
+            oneOf(firstTestListener).testEnded(firstTest, emptyMap()); inSequence(sequence);
+            oneOf(firstTestListener).testRunEnded(with(any(Long.class)), with(emptyMap())); inSequence(sequence);
+            oneOf(secondTestListener).testRunStarted("pool", 1); inSequence(sequence);
+            oneOf(secondTestListener).testStarted(secondTest); inSequence(sequence);
+            oneOf(secondTestListener).testFailed(secondTest, "Process crashed."); inSequence(sequence);
+            oneOf(secondTestListener).testRunFailed("Process crashed."); inSequence(sequence);
+            oneOf(secondTestListener).testRunEnded(with(any(Long.class)), with(emptyMap())); inSequence(sequence);
+        }});
+
+        listener.testRunStarted("pool", 2);
+        listener.testStarted(firstTest);
+        listener.testEnded(firstTest, emptyMap());
+        listener.testStarted(secondTest);
+        listener.testFailed(secondTest, "Process crashed.");
+        listener.testRunFailed("Process crashed.");
+        listener.testRunEnded(0, emptyMap());
+
+        assertThat(createdFor, contains(firstTestCase, secondTestCase));
+        assertThat(createdFor.get(0), sameInstance(firstTestCase));
+    }
+
+    @Test
+    public void reportsNothingWhenNoTestStarts() {
+        BatchTestRunListener listener = new BatchTestRunListener(asList(firstTestCase, secondTestCase), device,
+                noSpeculativeExecution(pool), testCase -> singletonList(firstTestListener));
+        mockery.checking(new Expectations() {{
+            never(firstTestListener);
+        }});
+
+        listener.testRunStarted("pool", 2);
+        listener.testRunFailed("Unable to find instrumentation info");
+        listener.testRunEnded(0, emptyMap());
+    }
+
+    @Test
+    public void dropsTheTestOfTheDeviceThatLostTheRace() {
+        SpeculativeExecution speculativeExecution = new SpeculativeExecution(true, pool, null, null);
+        BatchTestRunListener backupListener = new BatchTestRunListener(singletonList(secondTestCase), backupDevice,
+                speculativeExecution, testCase -> singletonList(secondTestListener));
+        BatchTestRunListener listener = new BatchTestRunListener(singletonList(secondTestCase), device,
+                speculativeExecution, testCase -> singletonList(firstTestListener));
+        mockery.checking(new Expectations() {{
+            allowing(secondTestListener);
+            oneOf(firstTestListener).testRunStarted("pool", 1);
+            oneOf(firstTestListener).testStarted(secondTest);
+            never(firstTestListener).testFailed(secondTest, "Cancelled");
+            never(firstTestListener).testRunEnded(with(any(Long.class)), with(Matchers.<Map<String, String>>instanceOf(Map.class)));
+        }});
+
+        listener.testRunStarted("pool", 1);
+        listener.testStarted(secondTest);
+        backupListener.testRunStarted("pool", 1);
+        backupListener.testStarted(secondTest);
+        backupListener.testEnded(secondTest, emptyMap());
+        listener.testFailed(secondTest, "Cancelled");
+        listener.testRunFailed("Cancelled");
+        listener.testRunEnded(0, emptyMap());
+
+        assertThat(speculativeExecution.hasTestsInFlight(), is(false));
+    }
+}
@@ -0,0 +1,174 @@
+package com.shazam.fork.runner.listeners;
+
+import com.android.ddmlib.Log;
+import com.android.ddmlib.logcat.LogCatHeader;
+import com.android.ddmlib.logcat.LogCatMessage;
+import com.android.ddmlib.logcat.LogCatTimestamp;
+import com.android.ddmlib.testrunner.TestIdentifier;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+public class DeviceLogCatTest {
+    private static final String CLASS1_NAME = "com.test.waffles.WaffleTest";
+    private static final String CLASS1d_NAME = "com.testXwaffles.WaffleTest";
+    private static final String CLASS2_NAME = "com.test.waffles.CrumpetTest";
+    private static final String TEST1_NAME = "testBadgersLikeWaffles";
+    private static final String TEST2_NAME = "testBadgersLikeWafflesLikeTimeFliesLikeABanana";
+    private static final long LONG_TIMEOUT_MILLIS = 10000;
+
+    private final DeviceLogCat deviceLogCat = new DeviceLogCat(aDevice().withSerial("serial").build());
+    private long milli;
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void onlyReturnsTestSpecificLogs() throws InterruptedException {
+        logTestStartEnd(TEST2_NAME, CLASS1_NAME);
+        logTestStartEnd(TEST1_NAME, CLASS1_NAME);
+        logTestStartEnd(TEST2_NAME, CLASS2_NAME);
+        logTestStartEnd(TEST1_NAME, CLASS2_NAME);
+
+        List<LogCatMessage> messages = deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS1_NAME, TEST1_NAME), 0);
+
+        assertThat(messages, contains(
+                logCatMessageWithString(startedMessage(TEST1_NAME, CLASS1_NAME)),
+                logCatMessageWithString(finishedMessage(TEST1_NAME, CLASS1_NAME))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void isNotFooledByUnlikelyPackageNameClashes() throws InterruptedException {
+        logTestStartEnd(TEST2_NAME, CLASS1_NAME);
+        logTestStartEnd(TEST1_NAME, CLASS1_NAME);
+        logTestStartEnd(TEST2_NAME, CLASS1d_NAME);
+        logTestStartEnd(TEST1_NAME, CLASS1d_NAME);
+
+        List<LogCatMessage> messages = deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS1_NAME, TEST1_NAME), 0);
+
+        assertThat(messages, contains(
+                logCatMessageWithString(startedMessage(TEST1_NAME, CLASS1_NAME)),
+                logCatMessageWithString(finishedMessage(TEST1_NAME, CLASS1_NAME))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void returnsTheMessagesSoFarWhenTheEndOfTheTestIsNotLogged() throws InterruptedException {
+        log(startedMessage(TEST1_NAME, CLASS1_NAME));
+        log("still running");
+
+        List<LogCatMessage> messages = deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS1_NAME, TEST1_NAME), 10);
+
+        assertThat(messages, contains(
+                logCatMessageWithString(startedMessage(TEST1_NAME, CLASS1_NAME)),
+                logCatMessageWithString("still running")));
+    }
+
+    @Test
+    public void returnsNothingForTestsThatWereNeverLogged() throws InterruptedException {
+        logTestStartEnd(TEST1_NAME, CLASS1_NAME);
+
+        assertThat(deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS2_NAME, TEST1_NAME), 0), empty());
+    }
+
+    @Test(timeout = LONG_TIMEOUT_MILLIS / 2)
+    public void doesNotWaitForTestsWhoseStartWasNotLogged() throws InterruptedException {
+        logTestStartEnd(TEST1_NAME, CLASS1_NAME);
+
+        List<LogCatMessage> messages = deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS2_NAME, TEST1_NAME),
+                LONG_TIMEOUT_MILLIS);
+
+        assertThat(messages, empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = LONG_TIMEOUT_MILLIS / 2)
+    public void returnsTheMessageOfAnIgnoredTestWithoutWaiting() throws InterruptedException {
+        log(ignoredMessage(TEST1_NAME, CLASS1_NAME));
+
+        List<LogCatMessage> messages = deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS1_NAME, TEST1_NAME),
+                LONG_TIMEOUT_MILLIS);
+
+        assertThat(messages, contains(logCatMessageWithString(ignoredMessage(TEST1_NAME, CLASS1_NAME))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = LONG_TIMEOUT_MILLIS / 2)
+    public void endsATestWhoseEndWasNotLoggedWhenTheNextTestStarts() throws InterruptedException {
+        log(startedMessage(TEST1_NAME, CLASS1_NAME));
+        log("crashed");
+        logTestStartEnd(TEST2_NAME, CLASS1_NAME);
+
+        List<LogCatMessage> messages = deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS1_NAME, TEST1_NAME),
+                LONG_TIMEOUT_MILLIS);
+
+        assertThat(messages, contains(
+                logCatMessageWithString(startedMessage(TEST1_NAME, CLASS1_NAME)),
+                logCatMessageWithString("crashed")));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void keepsTheMessagesOfLaterTestsWhenReleasingATest() throws InterruptedException {
+        TestIdentifier firstTest = new TestIdentifier(CLASS1_NAME, TEST1_NAME);
+        for (int i = 0; i < 10000; i++) {
+            log("noise");
+        }
+        logTestStartEnd(TEST1_NAME, CLASS1_NAME);
+        logTestStartEnd(TEST2_NAME, CLASS1_NAME);
+
+        deviceLogCat.release(firstTest);
+
+        assertThat(deviceLogCat.awaitMessagesOf(new TestIdentifier(CLASS1_NAME, TEST2_NAME), 0), contains(
+                logCatMessageWithString(startedMessage(TEST2_NAME, CLASS1_NAME)),
+                logCatMessageWithString(finishedMessage(TEST2_NAME, CLASS1_NAME))));
+    }
+
+    private Matcher<LogCatMessage> logCatMessageWithString(final String expected) {
+        return new TypeSafeDiagnosingMatcher<LogCatMessage>() {
+            @Override
+            protected boolean matchesSafely(LogCatMessage actual, Description but) {
+                but.appendText("had message '" + actual.getMessage() + "'");
+                return actual.getMessage().equals(expected);
+            }
+
+            @Override
+            public void describeTo(Description expecting) {
+                expecting.appendText("with message '" + expected + "'");
+            }
+        };
+    }
+
+    private void logTestStartEnd(String testName, String className) {
+        log(startedMessage(testName, className));
+        log(finishedMessage(testName, className));
+    }
+
+    private void log(String message) {
+        String timestampString = "08-13 22:37:24." + (++milli % 1000);
+        LogCatHeader logCatHeader = new LogCatHeader(Log.LogLevel.INFO, 1234, 4321, "TestRunner", "TestRunner",
+                LogCatTimestamp.fromString(timestampString));
+        deviceLogCat.log(singletonList(new LogCatMessage(logCatHeader, message)));
+    }
+
+    private static String finishedMessage(String testName, String className) {
+        return "finished: " + testName + "(" + className + ")";
+    }
+
+    private static String ignoredMessage(String testName, String className) {
+        return "ignored: " + testName + "(" + className + ")";
+    }
+
+    private static String startedMessage(String testName, String className) {
+        return "started: " + testName + "(" + className + ")";
+    }
+}
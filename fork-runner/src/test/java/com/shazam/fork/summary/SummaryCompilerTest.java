@@ -5,6 +5,11 @@ import com.shazam.fork.ForkConfiguration;
 import com.shazam.fork.model.Device;
 import com.shazam.fork.model.Pool;
 import com.shazam.fork.model.TestCaseEvent;
+import com.shazam.fork.runner.DeviceQuarantineTracker;
+import com.shazam.fork.runner.DeviceTimeline;
+import com.shazam.fork.runner.PoolMakespanTracker;
+import com.shazam.fork.runner.RetryCircuitBreaker;
+import com.shazam.fork.system.adb.InstallationTracker;
 import org.jmock.Expectations;
 import org.jmock.auto.Mock;
 import org.jmock.integration.junit4.JUnitRuleMockery;
@@ -22,9 +27,17 @@ import static com.shazam.fork.model.TestCaseEvent.newTestCase;
 import static com.shazam.fork.summary.FakeDeviceTestFilesRetriever.aFakeDeviceTestFilesRetriever;
 import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
 import static com.shazam.fork.summary.TestResult.SUMMARY_KEY_TOTAL_FAILURE_COUNT;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
@@ -89,7 +102,9 @@ public class SummaryCompilerTest {
 
     @Before
     public void setUp() {
-        summaryCompiler = new SummaryCompiler(mockConfiguration, fakeDeviceTestFilesRetriever);
+        summaryCompiler = new SummaryCompiler(mockConfiguration, fakeDeviceTestFilesRetriever, new PoolMakespanTracker(),
+                new InstallationTracker(), new DeviceTimeline(), new DeviceQuarantineTracker(),
+                new RetryCircuitBreaker(false));
         mockery.checking(new Expectations() {{
             allowing(mockConfiguration);
         }});
@@ -136,4 +151,66 @@ public class SummaryCompilerTest {
         assertThat(summary.getFatalCrashedTests(),
                 contains("com.example.SkippedClassTest#doesJobProperly on Unknown device"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void suspectsADeviceThatFailedSeveralTestsPassingElsewhere() {
+        fakeDeviceTestFilesRetriever.thatReturns(asList(
+                failedOnFirstAndPassedOnSecond("firstTest"),
+                failedOnFirstAndPassedOnSecond("secondTest"),
+                failedOnFirstAndPassedOnSecond("thirdTest")));
+
+        Summary summary = summaryCompiler.compileSummary(devicePools, emptyList());
+
+        assertThat(summary.getFailedTests(), hasSize(SummaryCompiler.MIN_TESTS_FAILING_ONLY_ON_A_SUSPECT_DEVICE));
+        assertThat(summary.getFailedTests(), everyItem(containsString("device fault suspected on first")));
+    }
+
+    @Test
+    public void callsATestFlakyWhenItsDeviceFailedNoOtherTest() {
+        fakeDeviceTestFilesRetriever.thatReturns(singletonList(failedOnFirstAndPassedOnSecond("firstTest")));
+
+        Summary summary = summaryCompiler.compileSummary(devicePools, emptyList());
+
+        assertThat(summary.getFailedTests(), contains(containsString(", flaky: FAIL on first, PASS on second")));
+    }
+
+    @Test
+    public void suspectsTheDeviceWhenARetryPassesElsewhereAndTheDeviceIsSuspect() {
+        String verdict = SummaryCompiler.verdictOf(asList(
+                new TestAttempt("first", ResultStatus.FAIL),
+                new TestAttempt("second", ResultStatus.PASS)), singleton("first"));
+
+        assertThat(verdict, equalTo("device fault suspected on first"));
+    }
+
+    @Test
+    public void callsATestFlakyWhenARetryPassesOnADeviceThatIsNotSuspect() {
+        String verdict = SummaryCompiler.verdictOf(asList(
+                new TestAttempt("first", ResultStatus.FAIL),
+                new TestAttempt("second", ResultStatus.PASS)), emptySet());
+
+        assertThat(verdict, equalTo("flaky"));
+    }
+
+    @Test
+    public void callsATestFlakyWhenItFailsAndPassesOnTheSameDevice() {
+        String verdict = SummaryCompiler.verdictOf(asList(
+                new TestAttempt("first", ResultStatus.FAIL),
+                new TestAttempt("second", ResultStatus.FAIL),
+                new TestAttempt("first", ResultStatus.PASS)), singleton("first"));
+
+        assertThat(verdict, equalTo("flaky"));
+    }
+
+    private TestResult failedOnFirstAndPassedOnSecond(String testMethod) {
+        return aTestResult()
+                .withDevice(ignoredDevice)
+                .withTestClass("com.example.RetriedClassTest")
+                .withTestMethod(testMethod)
+                .withTestMetrics(singletonMap(SUMMARY_KEY_TOTAL_FAILURE_COUNT, "1"))
+                .withAttempts(asList(
+                        new TestAttempt("first", ResultStatus.FAIL),
+                        new TestAttempt("second", ResultStatus.PASS)))
+                .build();
+    }
+}
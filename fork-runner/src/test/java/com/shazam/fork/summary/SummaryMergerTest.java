@@ -0,0 +1,96 @@
+package com.shazam.fork.summary;
+
+import org.junit.Test;
+
+import static com.shazam.fork.summary.PoolSummary.Builder.aPoolSummary;
+import static com.shazam.fork.summary.Summary.Builder.aSummary;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class SummaryMergerTest {
+    private final TestResult firstShardTest = testResult("com.example.FirstTest");
+    private final TestResult secondShardTest = testResult("com.example.SecondTest");
+    private final TestResult otherPoolTest = testResult("com.example.OtherPoolTest");
+
+    private final Summary firstShard = aSummary()
+            .withTitle("First shard")
+            .addPoolSummary(aPoolSummary()
+                    .withPoolName("phones")
+                    .addTestResults(singletonList(firstShardTest))
+                    .withActualMakespanMillis(1000)
+                    .build())
+            .addFailedTests("com.example.FirstTest#test")
+            .withInstallsSkipped(1)
+            .build();
+    private final Summary secondShard = aSummary()
+            .withTitle("Second shard")
+            .addPoolSummary(aPoolSummary()
+                    .withPoolName("phones")
+                    .addTestResults(singletonList(secondShardTest))
+                    .withActualMakespanMillis(3000)
+                    .build())
+            .addPoolSummary(aPoolSummary()
+                    .withPoolName("tablets")
+                    .addTestResults(singletonList(otherPoolTest))
+                    .build())
+            .addIgnoredTest("com.example.SecondTest#ignored")
+            .withInstallsSkipped(2)
+            .build();
+
+    private final SummaryMerger summaryMerger = new SummaryMerger();
+
+    @Test
+    public void mergesPoolsOfTheSameNameAcrossShards() {
+        Summary summary = summaryMerger.merge(asList(firstShard, secondShard), null, null);
+
+        assertThat(summary.getPoolSummaries(), hasSize(2));
+        PoolSummary phones = summary.getPoolSummaries().get(0);
+        assertThat(phones.getPoolName(), equalTo("phones"));
+        assertThat(phones.getTestResults(), containsInAnyOrder(firstShardTest, secondShardTest));
+        assertThat(phones.getActualMakespanMillis(), equalTo(3000L));
+        assertThat(summary.getPoolSummaries().get(1).getTestResults(), contains(otherPoolTest));
+    }
+
+    @Test
+    public void keepsTheFailuresAndIgnoredTestsOfEveryShard() {
+        Summary summary = summaryMerger.merge(asList(firstShard, secondShard), "Merged", null);
+
+        assertThat(summary.getTitle(), equalTo("Merged"));
+        assertThat(summary.getFailedTests(), contains("com.example.FirstTest#test"));
+        assertThat(summary.getIgnoredTests(), contains("com.example.SecondTest#ignored"));
+        assertThat(summary.getInstallsSkipped(), equalTo(3));
+    }
+
+    @Test
+    public void findsTheTestsThatRanInMoreThanOneShard() {
+        Summary shardRunningTheFirstTestToo = aSummary()
+                .addPoolSummary(aPoolSummary()
+                        .withPoolName("phones")
+                        .addTestResults(asList(testResult("com.example.FirstTest"), secondShardTest))
+                        .build())
+                .addPoolSummary(aPoolSummary()
+                        .withPoolName("tablets")
+                        .addTestResults(singletonList(firstShardTest))
+                        .build())
+                .build();
+
+        assertThat(SummaryMerger.testsInSeveralShards(asList(firstShard, secondShard)), empty());
+        assertThat(SummaryMerger.testsInSeveralShards(asList(firstShard, shardRunningTheFirstTestToo)),
+                contains("phones/com.example.FirstTest:test"));
+    }
+
+    private static TestResult testResult(String testClass) {
+        return aTestResult()
+                .withTestClass(testClass)
+                .withTestMethod("test")
+                .withTimeTaken(1.0f)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.shazam.fork.summary;
+
+import com.shazam.fork.model.Device;
+import com.shazam.fork.model.Pool;
+
+import org.junit.Test;
+
+import static com.shazam.fork.model.Device.Builder.aDevice;
+import static com.shazam.fork.model.Pool.Builder.aDevicePool;
+import static com.shazam.fork.summary.TestResult.Builder.aTestResult;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class TestResultStoreTest {
+    private final Device device = aDevice().withSerial("emulator-5554").build();
+    private final Device otherDevice = aDevice().withSerial("emulator-5556").build();
+    private final Pool pool = aDevicePool().withName("pool").addDevice(device).addDevice(otherDevice).build();
+
+    private final TestResultStore testResultStore = new TestResultStore();
+
+    @Test
+    public void returnsTheResultsStoredForADevice() {
+        TestResult first = testResult(device, "firstTest");
+        TestResult second = testResult(device, "secondTest");
+        testResultStore.store(pool, device, "com.example.Test", "firstTest", singletonList(first));
+        testResultStore.store(pool, device, "com.example.Test", "secondTest", singletonList(second));
+        testResultStore.store(pool, otherDevice, "com.example.Test", "firstTest",
+                singletonList(testResult(otherDevice, "firstTest")));
+
+        assertThat(testResultStore.getTestResultsForDevice(pool, device), containsInAnyOrder(first, second));
+    }
+
+    @Test
+    public void keepsEveryResultOfAParameterisedTest() {
+        TestResult firstParameter = testResult(device, "test[0]");
+        TestResult secondParameter = testResult(device, "test[1]");
+        testResultStore.store(pool, device, "com.example.Test", "test", asList(firstParameter, secondParameter));
+
+        assertThat(testResultStore.getTestResultsForDevice(pool, device),
+                containsInAnyOrder(firstParameter, secondParameter));
+    }
+
+    @Test
+    public void replacesEarlierResultsOfTheSameTest() {
+        TestResult failed = aTestResult().withDevice(device).withTestClass("com.example.Test")
+                .withTestMethod("test").withFailureTrace("trace").build();
+        TestResult passed = testResult(device, "test");
+        testResultStore.store(pool, device, "com.example.Test", "test", singletonList(failed));
+        testResultStore.store(pool, device, "com.example.Test", "test", singletonList(passed));
+
+        assertThat(testResultStore.getTestResultsForDevice(pool, device), contains(passed));
+        assertThat(testResultStore.getTestResultsForDevice(pool, device).iterator().next().getResultStatus(),
+                is(ResultStatus.PASS));
+    }
+
+    @Test
+    public void forgetsRemovedResults() {
+        testResultStore.store(pool, device, "com.example.Test", "test", singletonList(testResult(device, "test")));
+
+        assertThat(testResultStore.remove(pool, device, "com.example.Test", "test"), is(true));
+        assertThat(testResultStore.getTestResultsForDevice(pool, device), is(empty()));
+    }
+
+    @Test
+    public void returnsNothingForUnknownDevices() {
+        assertThat(testResultStore.getTestResultsForDevice(pool, otherDevice), is(empty()));
+    }
+
+    private static TestResult testResult(Device device, String testMethod) {
+        return aTestResult()
+                .withDevice(device)
+                .withTestClass("com.example.Test")
+                .withTestMethod(testMethod)
+                .build();
+    }
+}